@@ -0,0 +1,74 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.config.ArchiveType;
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.impl.TieredOrderArchive;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order lookups and updates in the hot tier of the archive, which is what {@code GET /orders/{orderId}} and every fill
+ * of a resting order cost, with the orders in a hash map or in pages indexed by id.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="ArchiveBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ArchiveBenchmark {
+
+    @Param
+    public ArchiveType type;
+
+    @Param({"100000", "1000000"})
+    public int orders;
+
+    private TieredOrderArchive archive;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EngineProperties.ArchiveSettings settings = new EngineProperties().getArchive();
+        settings.setType(type);
+        // every order stays live, so nothing is evicted to disk
+        LocalDateTime timestamp = LocalDateTime.now();
+        archive = new TieredOrderArchive(settings);
+        for (int id = 0; id < orders; id++) {
+            archive.put(Order.builder()
+                    .id((long) id)
+                    .asset("BTC")
+                    .price(10.05)
+                    .amount(5)
+                    .direction(OrderDirection.SELL)
+                    .timestamp(timestamp)
+                    .build()
+                    .withPendingAmount(5));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        archive.close();
+    }
+
+
+    @Benchmark
+    public Order get() {
+        return archive.get(ThreadLocalRandom.current().nextInt(orders));
+    }
+
+    @Benchmark
+    public void update() {
+        archive.update(ThreadLocalRandom.current().nextInt(orders), order -> order.withPendingAmount(4));
+    }
+}
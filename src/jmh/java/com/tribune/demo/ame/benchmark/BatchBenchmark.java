@@ -0,0 +1,83 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.model.BookCommand;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderBatchResult;
+import com.tribune.demo.ame.model.OrderDirection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A market maker refreshing its quote ladder: cancelling its resting quotes and placing a new one per level,
+ * either one order at a time or as a single {@code MatchingEngine.submitBatch}.
+ * <p>
+ * Each iteration runs {@link #REFRESHES} refreshes, the score is the time taken by all of them.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="BatchBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = BatchBenchmark.REFRESHES)
+@Measurement(iterations = 20, batchSize = BatchBenchmark.REFRESHES)
+@Fork(2)
+public class BatchBenchmark {
+
+    static final int REFRESHES = 1_000;
+
+    @State(Scope.Thread)
+    public static class Quotes extends BookState {
+
+        @Param({"50"})
+        public int levels;
+
+        // the ids of the quotes currently resting
+        public long[] live;
+
+        @Override
+        protected Order[] prepare(OrderFlow flow) {
+            live = new long[levels];
+            for (int i = 0; i < levels; i++) {
+                live[i] = book.submit(quote(flow, i)).id();
+            }
+            Order[] orders = new Order[REFRESHES * levels];
+            for (int i = 0; i < orders.length; i++) {
+                orders[i] = quote(flow, i % levels);
+            }
+            return orders;
+        }
+
+        // half the levels on each side, none crossing
+        private Order quote(OrderFlow flow, int level) {
+            return level % 2 == 0 ?
+                    flow.order(OrderDirection.BUY, OrderFlow.BEST_BID - level / 2, flow.amount()) :
+                    flow.order(OrderDirection.SELL, OrderFlow.BEST_ASK + level / 2, flow.amount());
+        }
+    }
+
+
+    @Benchmark
+    public long[] refreshOneByOne(Quotes state) {
+        for (int i = 0; i < state.levels; i++) {
+            state.engine.cancelOrder(state.live[i]);
+            state.live[i] = state.book.submit(state.next()).id();
+        }
+        return state.live;
+    }
+
+    @Benchmark
+    public List<OrderBatchResult> refreshBatch(Quotes state) {
+        List<BookCommand> commands = new ArrayList<>(2 * state.levels);
+        for (int i = 0; i < state.levels; i++) {
+            commands.add(BookCommand.cancel(state.live[i]));
+            Order quote = state.next();
+            commands.add(BookCommand.submit(quote));
+            state.live[i] = quote.id();
+        }
+        return state.engine.submitBatch(commands);
+    }
+}
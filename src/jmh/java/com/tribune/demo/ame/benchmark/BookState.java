@@ -0,0 +1,69 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.data.DevBootstrap;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.Order;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A fresh engine per iteration, with the BTC book seeded by {@link DevBootstrap} and a batch of
+ * orders generated ahead of the measurement by {@link #prepare}.
+ * <p>
+ * Submitting orders changes the book, so benchmarks using it run a fixed batch of orders per
+ * iteration ({@code Mode.SingleShotTime}) and every iteration starts from the same book.
+ */
+@State(Scope.Thread)
+public abstract class BookState {
+
+    static final long SEED = 42;
+
+    @Param
+    public Implementation implementation;
+
+    public SimpleMatchingEngine engine;
+
+    public OrderBook book;
+
+    protected Order[] orders;
+
+    private int next;
+
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        engine = newEngine();
+        book = engine.getOrderBook("BTC");
+        seed();
+        orders = prepare(new OrderFlow(engine, "BTC", SEED));
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        engine.close();
+    }
+
+    protected SimpleMatchingEngine newEngine() {
+        return implementation.newEngine("BTC");
+    }
+
+    protected void seed() {
+        new DevBootstrap(engine).init();
+    }
+
+    /**
+     * Generates the orders submitted during one iteration, resting anything they need first.
+     */
+    protected abstract Order[] prepare(OrderFlow flow);
+
+    public Order next() {
+        return orders[next++ % orders.length];
+    }
+}
@@ -0,0 +1,108 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Several threads submitting a mixed flow, either all to the same asset or spread over many assets.
+ * With 512 assets, {@code LADDER_SINGLE_WRITER} runs a thread per asset where {@code LADDER_SHARDED} runs one per core.
+ * <p>
+ * Each thread submits {@link #BATCH} orders per iteration, the score is the time taken by the whole batch.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="ConcurrentSubmitBenchmark -t 8"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = ConcurrentSubmitBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = ConcurrentSubmitBenchmark.BATCH)
+@Fork(2)
+@Threads(4)
+public class ConcurrentSubmitBenchmark {
+
+    static final int BATCH = 10_000;
+
+    static final int DEPTH = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        @Param
+        public Implementation implementation;
+
+        @Param({"1", "16", "512"})
+        public int assets;
+
+        public SimpleMatchingEngine engine;
+
+        public String[] names;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            names = new String[assets];
+            names[0] = "BTC";
+            for (int i = 1; i < assets; i++) {
+                names[i] = "A" + i;
+            }
+            engine = implementation.newEngine(names);
+            for (int i = 0; i < assets; i++) {
+                new OrderFlow(engine, names[i], BookState.SEED + i).seed(engine.getOrderBook(names[i]), DEPTH);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            engine.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Flow {
+
+        // the book each order goes to, when there are more assets than threads each thread rotates over its own
+        private OrderBook[] books;
+
+        private Order[] orders;
+
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void setUp(Engine state, ThreadParams threads) {
+            int index = threads.getThreadIndex();
+            int count = threads.getThreadCount();
+            int[] mine = state.assets <= count
+                    ? new int[]{index % state.assets}
+                    : IntStream.range(0, state.assets).filter(i -> i % count == index).toArray();
+            OrderFlow[] flows = new OrderFlow[mine.length];
+            for (int i = 0; i < mine.length; i++) {
+                flows[i] = new OrderFlow(state.engine, state.names[mine[i]], BookState.SEED * 31 + index * 1_000L + i);
+            }
+            books = new OrderBook[BATCH];
+            orders = new Order[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                int asset = i % mine.length;
+                books[i] = state.engine.getOrderBook(state.names[mine[asset]]);
+                orders[i] = flows[asset].mixed();
+            }
+            next = 0;
+        }
+
+        public Order submit() {
+            int i = next++ % orders.length;
+            return books[i].submit(orders[i]);
+        }
+    }
+
+
+    @Benchmark
+    public Order submit(Flow flow) {
+        return flow.submit();
+    }
+}
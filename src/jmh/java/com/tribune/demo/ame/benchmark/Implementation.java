@@ -0,0 +1,72 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+
+import java.math.BigDecimal;
+
+/**
+ * The engine configurations every benchmark is run against.
+ */
+public enum Implementation {
+
+    SIMPLE(OrderBookType.SIMPLE, MatchingMode.DIRECT, false),
+    LADDER(OrderBookType.LADDER, MatchingMode.DIRECT, false),
+    LADDER_POOLED(OrderBookType.LADDER, MatchingMode.DIRECT, true),
+    LADDER_SINGLE_WRITER(OrderBookType.LADDER, MatchingMode.SINGLE_WRITER, false),
+    LADDER_SHARDED(OrderBookType.LADDER, MatchingMode.SHARDED, false),
+    OFF_HEAP(OrderBookType.OFF_HEAP, MatchingMode.DIRECT, false);
+
+    private final OrderBookType type;
+    private final MatchingMode mode;
+    private final boolean pooled;
+
+    Implementation(OrderBookType type, MatchingMode mode, boolean pooled) {
+        this.type = type;
+        this.mode = mode;
+        this.pooled = pooled;
+    }
+
+    /**
+     * Creates an engine with a book per asset, all using the tick and lot sizes of
+     * {@code application.properties}. The engine must be closed once done with.
+     */
+    public SimpleMatchingEngine newEngine(String... assets) {
+        return newEngine(properties(assets), assets);
+    }
+
+    /**
+     * Gets the settings of this implementation, for the given assets.
+     */
+    public EngineProperties properties(String... assets) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        properties.getOrderBook().setPooled(pooled);
+        properties.getMatching().setMode(mode);
+        for (String asset : assets) {
+            EngineProperties.InstrumentSettings settings = new EngineProperties.InstrumentSettings();
+            settings.setTickSize(OrderFlow.TICK_SIZE);
+            settings.setLotSize(new BigDecimal("0.00000001"));
+            properties.getInstruments().put(asset, settings);
+        }
+        return properties;
+    }
+
+    /**
+     * Creates an engine with the given settings and a book per asset. The engine must be closed once done with.
+     */
+    public static SimpleMatchingEngine newEngine(EngineProperties properties, String... assets) {
+        SimpleMatchingEngine engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        for (String asset : assets) {
+            // the engine always starts with BTC
+            if (!"BTC".equals(asset)) {
+                engine.newOrderBook(asset);
+            }
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,143 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.JournalFsyncPolicy;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The cost of the command journal: submitting with each fsync policy, and replaying a journal on startup.
+ * <p>
+ * {@code submit} runs {@link SubmitBenchmark#BATCH} resting orders per iteration like {@link SubmitBenchmark},
+ * {@code replay} starts an engine from a journal of {@link #REPLAYED} mixed orders and scores orders per second.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="JournalBenchmark"
+ * </pre>
+ */
+@Fork(2)
+public class JournalBenchmark {
+
+    static final int REPLAYED = 200_000;
+
+    public enum Journal {
+        OFF, ASYNC, BATCH;
+
+        EngineProperties configure(EngineProperties properties, Path directory) {
+            if (this != OFF) {
+                properties.getJournal().setEnabled(true);
+                properties.getJournal().setDirectory(directory.toString());
+                properties.getJournal().setFsync(JournalFsyncPolicy.valueOf(name()));
+            }
+            return properties;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Submit extends BookState {
+
+        @Param
+        public Journal journal;
+
+        private Path directory;
+
+        @Override
+        protected SimpleMatchingEngine newEngine() {
+            directory = temporaryDirectory();
+            return Implementation.newEngine(journal.configure(implementation.properties("BTC"), directory), "BTC");
+        }
+
+        @Override
+        protected Order[] prepare(OrderFlow flow) {
+            Order[] orders = new Order[SubmitBenchmark.BATCH];
+            for (int i = 0; i < orders.length; i++) {
+                orders[i] = flow.resting();
+            }
+            return orders;
+        }
+
+        @Override
+        public void tearDown() {
+            super.tearDown();
+            delete(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Replay {
+
+        @Param({"SIMPLE", "LADDER"})
+        public Implementation implementation;
+
+        private Path directory;
+
+        private EngineProperties properties;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            directory = temporaryDirectory();
+            properties = Journal.ASYNC.configure(implementation.properties("BTC"), directory);
+            SimpleMatchingEngine engine = Implementation.newEngine(properties, "BTC");
+            OrderFlow flow = new OrderFlow(engine, "BTC", BookState.SEED);
+            flow.seed(engine.getOrderBook("BTC"), 1_000);
+            for (int i = 0; i < REPLAYED; i++) {
+                engine.getOrderBook("BTC").submit(flow.mixed());
+            }
+            engine.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            delete(directory);
+        }
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 10, batchSize = SubmitBenchmark.BATCH)
+    @Measurement(iterations = 20, batchSize = SubmitBenchmark.BATCH)
+    public Order submit(Submit state) {
+        return state.book.submit(state.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(REPLAYED)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public long replay(Replay state) {
+        SimpleMatchingEngine engine = Implementation.newEngine(state.properties);
+        long next = engine.getNextOrderId();
+        engine.close();
+        return next;
+    }
+
+
+    static Path temporaryDirectory() {
+        try {
+            return Files.createTempDirectory("ame-journal-");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.BookDepth;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.TopOfBook;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code MatchingEngine.findAllLiveOrdersByAsset} on a deep book, which is what {@code GET /orders/live} serves,
+ * next to the top of book and depth served by {@code GET /books/{asset}/top} and {@code /depth}.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="LiveOrdersBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LiveOrdersBenchmark {
+
+    @Param
+    public Implementation implementation;
+
+    // resting orders per side
+    @Param({"100", "10000"})
+    public int depth;
+
+    private SimpleMatchingEngine engine;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = implementation.newEngine("BTC");
+        new OrderFlow(engine, "BTC", BookState.SEED).seed(engine.getOrderBook("BTC"), depth);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+
+    @Benchmark
+    public List<Order> bothSides() {
+        return engine.findAllLiveOrdersByAsset("BTC", null);
+    }
+
+    @Benchmark
+    public List<Order> buySide() {
+        return engine.findAllLiveOrdersByAsset("BTC", "BUY");
+    }
+
+    @Benchmark
+    public TopOfBook topOfBook() {
+        return engine.getTopOfBook("BTC");
+    }
+
+    @Benchmark
+    public BookDepth depth10() {
+        return engine.getDepth("BTC", 10);
+    }
+}
@@ -0,0 +1,119 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.impl.FillListener;
+import com.tribune.demo.ame.impl.LadderOrderBook;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation profile of the ladder book's matching hot path, meant to be run with {@code -prof gc}:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="MatchAllocationBenchmark -prof gc"
+ * </pre>
+ * With {@code pooled=true}, {@code gc.alloc.rate.norm} of {@link #fillInPlace} and {@link #restThenFill}
+ * should be close to 0 bytes per operation, {@link #sweepLevels} shows what opening and emptying levels costs,
+ * the levels and their nodes in the depth view, and {@link #submitRestThenFill} shows what building the
+ * {@link Order} and trade records for a REST response costs on top of it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchAllocationBenchmark {
+
+    private static final long MID = 10_000;
+    private static final long DEEP = Long.MAX_VALUE / 64;
+    private static final int SWEPT_LEVELS = 4;
+
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    private LadderOrderBook book;
+
+    // bids only, so every sell above the mid opens a level of its own
+    private LadderOrderBook sweptBook;
+
+    private final Instrument instrument = Instrument.of("BTC");
+
+    private long nextId;
+
+    private long filled;
+
+    private final FillListener listener = (restingId, price, amount, restingRemaining) -> filled += amount;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        book = new LadderOrderBook(instrument, new SimpleOrderPublisher(), pooled ? 65536 : 0);
+        // deep liquidity on both sides of the spread that a trial can never exhaust
+        for (int i = 1; i <= 10; i++) {
+            book.match(nextId++, OrderDirection.SELL, MID + i, DEEP, listener);
+            book.match(nextId++, OrderDirection.BUY, MID - i, DEEP, listener);
+        }
+        // one lot resting at the mid, so the mid level never empties in restThenFill
+        book.match(nextId++, OrderDirection.SELL, MID, 1, listener);
+
+        sweptBook = new LadderOrderBook(instrument, new SimpleOrderPublisher(), pooled ? 65536 : 0);
+        sweptBook.match(nextId++, OrderDirection.BUY, MID - 1, DEEP, listener);
+    }
+
+    /**
+     * A one lot buy filled in place against the deep best ask.
+     */
+    @Benchmark
+    public long fillInPlace() {
+        return book.match(nextId++, OrderDirection.BUY, MID + 1, 1, listener) + filled;
+    }
+
+    /**
+     * A one lot sell resting behind the mid, then a one lot buy filling the head of the mid level,
+     * so every operation takes one entry out of the pool and gives one back.
+     */
+    @Benchmark
+    public long restThenFill() {
+        book.match(nextId++, OrderDirection.SELL, MID, 1, listener);
+        return book.match(nextId++, OrderDirection.BUY, MID, 1, listener) + filled;
+    }
+
+    /**
+     * One lot sells resting on four empty levels above the mid, then a buy sweeping them,
+     * so every operation opens four levels and closes them again.
+     */
+    @Benchmark
+    public long sweepLevels() {
+        for (int i = 1; i <= SWEPT_LEVELS; i++) {
+            sweptBook.match(nextId++, OrderDirection.SELL, MID + i, 1, listener);
+        }
+        return sweptBook.match(nextId++, OrderDirection.BUY, MID + SWEPT_LEVELS, SWEPT_LEVELS, listener) + filled;
+    }
+
+    /**
+     * The same flow as {@link #restThenFill}, through {@link LadderOrderBook#submit}.
+     */
+    @Benchmark
+    public Order submitRestThenFill() {
+        LocalDateTime now = LocalDateTime.now();
+        book.submit(order(OrderDirection.SELL, now));
+        return book.submit(order(OrderDirection.BUY, now));
+    }
+
+    private Order order(OrderDirection direction, LocalDateTime timestamp) {
+        return Order.builder()
+                .id(nextId++)
+                .asset("BTC")
+                .price(instrument.toPrice(MID))
+                .amount(instrument.toAmount(1))
+                .direction(direction)
+                .timestamp(timestamp)
+                .build();
+    }
+}
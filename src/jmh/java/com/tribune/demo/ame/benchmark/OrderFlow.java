@@ -0,0 +1,114 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * A reproducible order flow for one asset, shaped after {@code DevBootstrap}: bids from 10.00 up to 10.02,
+ * asks from 10.04 up, 0.01 ticks and whole amounts between 1 and 40.
+ * <p>
+ * Orders are generated ahead of the measurement with a fixed seed, and get strictly increasing timestamps
+ * so that price/time priority is deterministic in every book implementation.
+ */
+public class OrderFlow {
+
+    public static final BigDecimal TICK_SIZE = new BigDecimal("0.01");
+
+    // 10.02 and 10.04 in ticks
+    static final long BEST_BID = 1002;
+    static final long BEST_ASK = 1004;
+
+    // how far from the best price resting orders are spread, in ticks
+    static final int RESTING_LEVELS = 10;
+
+    static final int MAX_AMOUNT = 40;
+
+    private final MatchingEngine engine;
+    private final String asset;
+    private final Instrument instrument;
+    private final SplittableRandom random;
+
+    private LocalDateTime clock = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+
+    public OrderFlow(MatchingEngine engine, String asset, long seed) {
+        this.engine = engine;
+        this.asset = asset;
+        this.instrument = Instrument.builder()
+                .asset(asset)
+                .tickSize(TICK_SIZE)
+                .lotSize(Instrument.DEFAULT_LOT_SIZE)
+                .build();
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * An order that does not cross, up to {@link #RESTING_LEVELS} ticks behind the best price of its side.
+     */
+    public Order resting(OrderDirection direction) {
+        long offset = random.nextInt(RESTING_LEVELS);
+        long price = direction == OrderDirection.BUY ? BEST_BID - offset : BEST_ASK + offset;
+        return order(direction, price, amount());
+    }
+
+    /**
+     * An order that does not cross, on a random side.
+     */
+    public Order resting() {
+        return resting(direction());
+    }
+
+    /**
+     * An order with the given price (in ticks) and amount.
+     */
+    public Order order(OrderDirection direction, long price, double amount) {
+        clock = clock.plusNanos(1000);
+        return Order.builder()
+                .id(engine.getNextOrderId())
+                .asset(asset)
+                .price(instrument.toPrice(price))
+                .amount(amount)
+                .direction(direction)
+                .timestamp(clock)
+                .build();
+    }
+
+    /**
+     * A mixed flow where about one order in three crosses the spread, which keeps the book
+     * around its initial depth.
+     */
+    public Order mixed() {
+        OrderDirection direction = direction();
+        if (random.nextInt(3) != 0) {
+            return resting(direction);
+        }
+        long price = direction == OrderDirection.BUY ? BEST_ASK + random.nextInt(3) : BEST_BID - random.nextInt(3);
+        return order(direction, price, amount());
+    }
+
+    /**
+     * Rests {@code depth} orders on each side of the book.
+     */
+    public void seed(OrderBook book, int depth) {
+        for (int i = 0; i < depth; i++) {
+            book.submit(resting(OrderDirection.BUY));
+            book.submit(resting(OrderDirection.SELL));
+        }
+    }
+
+    public double amount() {
+        return 1 + random.nextInt(MAX_AMOUNT);
+    }
+
+    public OrderDirection direction() {
+        return random.nextBoolean() ? OrderDirection.BUY : OrderDirection.SELL;
+    }
+}
@@ -0,0 +1,119 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link #REQUESTS} order requests arriving at once, handled the way {@code OrderController} handles them:
+ * <ol>
+ * <li>{@code PLATFORM}: on a pool of {@link #TOMCAT_THREADS} platform threads, Tomcat's default maximum,
+ * each thread held until its order is matched.</li>
+ * <li>{@code VIRTUAL}: on a virtual thread per request, with {@code spring.threads.virtual.enabled=true}.</li>
+ * <li>{@code ASYNC}: through {@code POST /orders/async}, every request handing its order over and waiting on nothing.</li>
+ * </ol>
+ * With the {@code BATCH} journal every request also waits for its command to be forced to disk,
+ * and a single fsync covers every command that arrived meanwhile.
+ * <p>
+ * The score is the time taken to answer every request.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RequestThreadsBenchmark -p implementation=LADDER,LADDER_SINGLE_WRITER"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(2)
+public class RequestThreadsBenchmark {
+
+    static final int REQUESTS = 10_000;
+
+    // server.tomcat.threads.max
+    static final int TOMCAT_THREADS = 200;
+
+    public enum Handling {
+        PLATFORM, VIRTUAL, ASYNC
+    }
+
+    @State(Scope.Thread)
+    public static class Requests extends BookState {
+
+        @Param({"OFF", "BATCH"})
+        public JournalBenchmark.Journal journal;
+
+        @Param
+        public Handling handling;
+
+        private Path directory;
+
+        private ExecutorService tomcat;
+
+        @Override
+        protected SimpleMatchingEngine newEngine() {
+            directory = JournalBenchmark.temporaryDirectory();
+            tomcat = Executors.newFixedThreadPool(TOMCAT_THREADS);
+            return Implementation.newEngine(journal.configure(implementation.properties("BTC"), directory), "BTC");
+        }
+
+        @Override
+        protected Order[] prepare(OrderFlow flow) {
+            Order[] orders = new Order[REQUESTS];
+            for (int i = 0; i < orders.length; i++) {
+                orders[i] = flow.mixed();
+            }
+            return orders;
+        }
+
+        @Override
+        public void tearDown() {
+            tomcat.close();
+            super.tearDown();
+            JournalBenchmark.delete(directory);
+        }
+    }
+
+
+    @Benchmark
+    public Order handle(Requests state) throws Exception {
+        return switch (state.handling) {
+            case PLATFORM -> handle(state, state.tomcat);
+            case VIRTUAL -> {
+                try (ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor()) {
+                    yield handle(state, virtual);
+                }
+            }
+            case ASYNC -> {
+                CompletableFuture<?>[] responses = new CompletableFuture<?>[REQUESTS];
+                for (int i = 0; i < REQUESTS; i++) {
+                    responses[i] = state.book.submitAsync(state.next());
+                }
+                CompletableFuture.allOf(responses).join();
+                yield (Order) responses[REQUESTS - 1].join();
+            }
+        };
+    }
+
+    private static Order handle(Requests state, ExecutorService threads) throws InterruptedException, ExecutionException {
+        @SuppressWarnings("unchecked")
+        Future<Order>[] responses = new Future[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            Order order = state.next();
+            responses[i] = threads.submit(() -> state.book.submit(order));
+        }
+        Order last = null;
+        for (Future<Order> response : responses) {
+            last = response.get();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,85 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.LadderOrderBook;
+import com.tribune.demo.ame.impl.OffHeapOrderBook;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The heap a book retains for its resting orders, and the full collection pause it costs, with the ladder book's
+ * entries and orders on the heap or the off-heap book's slots outside of it.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RestingFootprintBenchmark"
+ * </pre>
+ * The setup prints the heap retained per resting order, measured after a full collection. The benchmark is the time
+ * of a full collection with the book still reachable, which stays flat for the off-heap book as it grows.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class RestingFootprintBenchmark {
+
+    public enum Book {
+        LADDER, OFF_HEAP
+    }
+
+    @Param
+    public Book book;
+
+    @Param({"1000000", "10000000"})
+    public int orders;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    // keeps the book reachable through the collections
+    private OrderBook resting;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Instrument instrument = new Instrument("BTC", OrderFlow.TICK_SIZE, Instrument.DEFAULT_LOT_SIZE);
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+
+        resting = book == Book.LADDER ?
+                new LadderOrderBook(instrument, new SimpleOrderPublisher()) :
+                new OffHeapOrderBook(instrument, new SimpleOrderPublisher());
+        LocalDateTime timestamp = LocalDateTime.now();
+        // asks only, spread over a thousand levels, so nothing trades
+        for (int i = 0; i < orders; i++) {
+            resting.submit(Order.builder()
+                    .id((long) i)
+                    .asset("BTC")
+                    .price(instrument.toPrice(OrderFlow.BEST_ASK + i % 1000))
+                    .amount(1)
+                    .direction(OrderDirection.SELL)
+                    .timestamp(timestamp.plusNanos(i))
+                    .build());
+        }
+
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed() - before;
+        long offHeap = resting instanceof OffHeapOrderBook offHeapBook ? offHeapBook.reservedBytes() : 0;
+        System.out.printf("%n%s, %,d resting orders: %,d bytes on the heap (%d per order), %,d bytes off it%n",
+                book, orders, retained, retained / orders, offHeap);
+    }
+
+    @Benchmark
+    public OrderBook fullCollection() {
+        System.gc();
+        return resting;
+    }
+}
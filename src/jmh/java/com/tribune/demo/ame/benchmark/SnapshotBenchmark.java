@@ -0,0 +1,87 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.OrderDirection;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restarting an engine holding {@link #RESTING} resting orders after {@link #TRADED} more orders traded against them,
+ * from the journal alone or from a snapshot taken after the last of them.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SnapshotBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    static final int RESTING = 1_000_000;
+
+    static final int TRADED = 1_000_000;
+
+    public enum Recovery {
+        JOURNAL, SNAPSHOT
+    }
+
+    @State(Scope.Benchmark)
+    public static class Restart {
+
+        @Param({"SIMPLE", "LADDER"})
+        public Implementation implementation;
+
+        @Param
+        public Recovery recovery;
+
+        private Path directory;
+
+        EngineProperties properties;
+
+        SimpleMatchingEngine engine;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            directory = JournalBenchmark.temporaryDirectory();
+            properties = JournalBenchmark.Journal.ASYNC.configure(implementation.properties("BTC"), directory);
+            properties.getSnapshot().setEnabled(recovery == Recovery.SNAPSHOT);
+            properties.getSnapshot().setDirectory(directory.resolve("snapshots").toString());
+            properties.getSnapshot().setCommands(0);
+            engine = Implementation.newEngine(properties, "BTC");
+            // both sides spread over many levels, then a flow trading at the top of them
+            OrderFlow flow = new OrderFlow(engine, "BTC", BookState.SEED);
+            for (int i = 0; i < RESTING; i++) {
+                OrderDirection direction = flow.direction();
+                long price = direction == OrderDirection.BUY ? OrderFlow.BEST_BID - i % 500 : OrderFlow.BEST_ASK + i % 500;
+                engine.getOrderBook("BTC").submit(flow.order(direction, price, flow.amount()));
+            }
+            for (int i = 0; i < TRADED; i++) {
+                engine.getOrderBook("BTC").submit(flow.mixed());
+            }
+            if (recovery == Recovery.SNAPSHOT) {
+                engine.snapshot();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            engine.close();
+            JournalBenchmark.delete(directory);
+        }
+    }
+
+
+    @Benchmark
+    public long restart(Restart state) {
+        SimpleMatchingEngine engine = Implementation.newEngine(state.properties);
+        long next = engine.getNextOrderId();
+        engine.close();
+        return next;
+    }
+}
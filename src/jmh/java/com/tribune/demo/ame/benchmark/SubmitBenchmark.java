@@ -0,0 +1,143 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.controller.OrderController;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded {@code OrderBook.submit} for the common shapes of incoming orders.
+ * <p>
+ * Each iteration submits {@link #BATCH} orders against a freshly seeded book, the score is the
+ * time taken by the whole batch.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SubmitBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = SubmitBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = SubmitBenchmark.BATCH)
+@Fork(2)
+public class SubmitBenchmark {
+
+    static final int BATCH = 10_000;
+
+    /**
+     * Orders resting behind the best prices, nothing crosses.
+     */
+    @State(Scope.Thread)
+    public static class NoMatch extends BookState {
+
+        @Override
+        protected Order[] prepare(OrderFlow flow) {
+            Order[] orders = new Order[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                orders[i] = flow.resting();
+            }
+            return orders;
+        }
+    }
+
+    /**
+     * Every order fully fills exactly one resting order inside the spread.
+     */
+    @State(Scope.Thread)
+    public static class SingleFill extends BookState {
+
+        @Override
+        protected Order[] prepare(OrderFlow flow) {
+            long price = OrderFlow.BEST_BID + 1;
+            Order[] orders = new Order[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                double amount = flow.amount();
+                book.submit(flow.order(OrderDirection.SELL, price, amount));
+                orders[i] = flow.order(OrderDirection.BUY, price, amount);
+            }
+            return orders;
+        }
+    }
+
+    /**
+     * Small orders partially filling large resting orders, spread over a few levels.
+     */
+    @State(Scope.Thread)
+    public static class PartialFill extends BookState {
+
+        @Param({"1000", "10000"})
+        public int depth;
+
+        @Override
+        protected Order[] prepare(OrderFlow flow) {
+            for (int i = 0; i < depth; i++) {
+                long price = OrderFlow.BEST_ASK + i % OrderFlow.RESTING_LEVELS;
+                book.submit(flow.order(OrderDirection.SELL, price, 1000));
+            }
+            long limit = OrderFlow.BEST_ASK + OrderFlow.RESTING_LEVELS;
+            Order[] orders = new Order[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                orders[i] = flow.order(OrderDirection.BUY, limit, flow.amount());
+            }
+            return orders;
+        }
+    }
+
+    /**
+     * The same orders as {@link NoMatch}, as requests to {@link OrderController}.
+     */
+    @State(Scope.Thread)
+    public static class ControllerNoMatch extends NoMatch {
+
+        public OrderController controller;
+
+        private OrderRequest[] requests;
+
+        private int next;
+
+        @Override
+        protected Order[] prepare(OrderFlow flow) {
+            controller = new OrderController(engine);
+            Order[] orders = super.prepare(flow);
+            requests = new OrderRequest[orders.length];
+            for (int i = 0; i < orders.length; i++) {
+                requests[i] = OrderRequest.builder()
+                        .asset(orders[i].asset())
+                        .price(orders[i].price())
+                        .amount(orders[i].amount())
+                        .direction(orders[i].direction())
+                        .build();
+            }
+            next = 0;
+            return orders;
+        }
+
+        public OrderRequest nextRequest() {
+            return requests[next++ % requests.length];
+        }
+    }
+
+
+    @Benchmark
+    public Order submitNoMatch(NoMatch state) {
+        return state.book.submit(state.next());
+    }
+
+    @Benchmark
+    public Order submitSingleFill(SingleFill state) {
+        return state.book.submit(state.next());
+    }
+
+    @Benchmark
+    public Order submitPartialFill(PartialFill state) {
+        return state.book.submit(state.next());
+    }
+
+    @Benchmark
+    public Order controllerAddOrder(ControllerNoMatch state) {
+        return state.controller.addOrder(state.nextRequest());
+    }
+}
@@ -0,0 +1,59 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An incoming order sweeping N price levels, each level holding a single resting order.
+ * <p>
+ * Each iteration submits {@link #BATCH} sweeping orders, the score is the time taken by the whole batch.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SweepBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = SweepBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = SweepBenchmark.BATCH)
+@Fork(2)
+public class SweepBenchmark {
+
+    static final int BATCH = 1_000;
+
+    static final double LEVEL_AMOUNT = 10;
+
+    @State(Scope.Thread)
+    public static class Levels extends BookState {
+
+        @Param({"1", "10", "100"})
+        public int levels;
+
+        // no bootstrap data, so that each sweep takes exactly its own levels
+        @Override
+        protected void seed() {
+        }
+
+        @Override
+        protected Order[] prepare(OrderFlow flow) {
+            for (int i = 0; i < BATCH * levels; i++) {
+                book.submit(flow.order(OrderDirection.SELL, OrderFlow.BEST_ASK + i, LEVEL_AMOUNT));
+            }
+            Order[] orders = new Order[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                long limit = OrderFlow.BEST_ASK + (long) (i + 1) * levels - 1;
+                orders[i] = flow.order(OrderDirection.BUY, limit, LEVEL_AMOUNT * levels);
+            }
+            return orders;
+        }
+    }
+
+
+    @Benchmark
+    public Order sweep(Levels state) {
+        return state.book.submit(state.next());
+    }
+}
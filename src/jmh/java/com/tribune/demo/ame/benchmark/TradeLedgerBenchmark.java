@@ -0,0 +1,78 @@
+package com.tribune.demo.ame.benchmark;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.impl.TradeLedger;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.Trade;
+import com.tribune.demo.ame.model.TradePage;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Post-trade queries on the trade ledger: a page of an asset's trades in a ten minute window, out of trades
+ * made by 16 assets over a day, with the ledger on the heap or spilled to a memory-mapped file.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="TradeLedgerBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TradeLedgerBenchmark {
+
+    private static final int ASSETS = 16;
+
+    private static final LocalDateTime OPEN = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Param({"1000000", "10000000"})
+    public int trades;
+
+    @Param({"false", "true"})
+    public boolean spill;
+
+    private TradeLedger ledger;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EngineProperties.LedgerSettings settings = new EngineProperties().getLedger();
+        settings.setSpill(spill);
+        ledger = new TradeLedger(settings);
+        long nanosPerTrade = TimeUnit.DAYS.toNanos(1) / trades;
+        for (int i = 0; i < trades; i++) {
+            ledger.append(Order.builder()
+                    .id((long) i)
+                    .asset("ASSET-" + i % ASSETS)
+                    .price(10.05)
+                    .amount(1)
+                    .direction(i % 2 == 0 ? OrderDirection.BUY : OrderDirection.SELL)
+                    .timestamp(OPEN.plusNanos(i * nanosPerTrade))
+                    .trades(List.of(new Trade((long) i - 1, 1, 10.05)))
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ledger.close();
+    }
+
+
+    @Benchmark
+    public TradePage assetInAWindow() {
+        return ledger.find("ASSET-3", OPEN.plusHours(12), OPEN.plusHours(12).plusMinutes(10), null, 100);
+    }
+
+    @Benchmark
+    public TradePage lastPageOfTheDay() {
+        return ledger.find(null, OPEN.plusHours(23).plusMinutes(59), null, null, 1000);
+    }
+}
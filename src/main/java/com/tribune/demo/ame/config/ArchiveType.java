@@ -0,0 +1,15 @@
+package com.tribune.demo.ame.config;
+
+/**
+ * How the hot tier of the archive keeps its orders on the heap.
+ */
+public enum ArchiveType {
+    /**
+     * Backed by a {@link java.util.concurrent.ConcurrentHashMap} from ids to orders.
+     */
+    HASHED,
+    /**
+     * Backed by pages of orders indexed directly by their id, as ids are handed out sequentially.
+     */
+    PAGED
+}
@@ -0,0 +1,19 @@
+package com.tribune.demo.ame.config;
+
+/**
+ * The {@link com.tribune.demo.ame.domain.AuditSink}s the audit trail can be written to.
+ */
+public enum AuditSinkType {
+    /**
+     * Fixed-layout binary records appended to a file.
+     */
+    BINARY,
+    /**
+     * A line per record on the {@code ame.audit} logger.
+     */
+    LOG,
+    /**
+     * Another {@link com.tribune.demo.ame.domain.AuditSink} bean, provided by the application.
+     */
+    CUSTOM
+}
@@ -0,0 +1,19 @@
+package com.tribune.demo.ame.config;
+
+/**
+ * What an asynchronous publisher does with an event when its queue is full.
+ */
+public enum BackpressurePolicy {
+    /**
+     * The publishing thread waits for room in the queue.
+     */
+    BLOCK,
+    /**
+     * The event is discarded and counted.
+     */
+    DROP,
+    /**
+     * The event, and every event after it until the backlog is caught up, is written to a file on disk.
+     */
+    SPILL
+}
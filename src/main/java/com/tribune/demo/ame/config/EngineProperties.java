@@ -0,0 +1,366 @@
+package com.tribune.demo.ame.config;
+
+
+import com.tribune.demo.ame.model.Instrument;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Externalized settings of the matching engine, bound from the {@code ame.*} properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ame")
+public class EngineProperties {
+
+    private final OrderBookSettings orderBook = new OrderBookSettings();
+
+    private final MatchingSettings matching = new MatchingSettings();
+
+    private final EventSettings events = new EventSettings();
+
+    private final ArchiveSettings archive = new ArchiveSettings();
+
+    private final JournalSettings journal = new JournalSettings();
+
+    private final SnapshotSettings snapshot = new SnapshotSettings();
+
+    private final LedgerSettings ledger = new LedgerSettings();
+
+    private final MetricsSettings metrics = new MetricsSettings();
+
+    private final AuditSettings audit = new AuditSettings();
+
+    private final GatewaySettings gateway = new GatewaySettings();
+
+    private final FeedSettings feed = new FeedSettings();
+
+    /**
+     * Tick and lot sizes per asset, e.g. {@code ame.instruments.BTC.tick-size=0.01}.
+     * Assets that are not listed here use the defaults of {@link Instrument}.
+     */
+    private final Map<String, InstrumentSettings> instruments = new HashMap<>();
+
+
+    /**
+     * Gets the trading rules configured for the given asset.
+     */
+    public Instrument instrument(String asset) {
+        InstrumentSettings settings = instruments.getOrDefault(asset, new InstrumentSettings());
+        return new Instrument(asset, settings.getTickSize(), settings.getLotSize());
+    }
+
+
+    @Getter
+    @Setter
+    public static class OrderBookSettings {
+
+        /**
+         * The OrderBook implementation used for every asset.
+         */
+        private OrderBookType type = OrderBookType.SIMPLE;
+
+        /**
+         * Whether the ladder book recycles its resting entries and events instead of allocating new ones.
+         */
+        private boolean pooled = false;
+
+        /**
+         * The maximum number of idle entries each pooled book keeps for reuse.
+         */
+        private int poolSize = 65536;
+    }
+
+
+    @Getter
+    @Setter
+    public static class MatchingSettings {
+
+        /**
+         * Whether orders are matched on the request thread or handed to a thread owning the book.
+         */
+        private MatchingMode mode = MatchingMode.DIRECT;
+
+        /**
+         * The number of pre-allocated slots of each book's, or each shard's, ingress ring buffer, must be a power of two.
+         */
+        private int ringSize = 1024;
+
+        /**
+         * The number of threads the books are spread over in sharded mode, or 0 for one per available processor.
+         */
+        private int shards = 0;
+
+        /**
+         * Pins assets to shards in sharded mode, e.g. {@code ame.matching.shard-assignments.BTC=0}.
+         * Other assets are spread over the shards by the hash of their name.
+         */
+        private Map<String, Integer> shardAssignments = new HashMap<>();
+
+        /**
+         * The maximum number of orders and cancels of a single {@code POST /orders/batch}.
+         */
+        private int maxBatchSize = 1000;
+    }
+
+
+    @Getter
+    @Setter
+    public static class EventSettings {
+
+        /**
+         * Whether events are delivered on the publishing thread or queued for a dedicated thread.
+         */
+        private EventDeliveryMode mode = EventDeliveryMode.SYNC;
+
+        /**
+         * The maximum number of events waiting to be delivered in async mode.
+         */
+        private int queueCapacity = 65536;
+
+        /**
+         * The maximum number of events taken off the queue at once in async mode.
+         */
+        private int batchSize = 256;
+
+        /**
+         * What happens to an event published while the queue is full.
+         */
+        private BackpressurePolicy backpressure = BackpressurePolicy.BLOCK;
+
+        /**
+         * Where events are spilled to, with the {@code spill} backpressure policy.
+         */
+        private String spillDirectory = System.getProperty("java.io.tmpdir");
+    }
+
+
+    @Getter
+    @Setter
+    public static class ArchiveSettings {
+
+        /**
+         * How orders are kept on the heap, in a hash map or in pages indexed by id.
+         */
+        private ArchiveType type = ArchiveType.HASHED;
+
+        /**
+         * The number of orders in each page of the paged archive, rounded up to a power of two.
+         */
+        private int pageSize = 4096;
+
+        /**
+         * The maximum number of filled or cancelled orders kept on the heap, older ones are moved to disk.
+         */
+        private int maxTerminalOrders = 100_000;
+
+        /**
+         * How long a filled or cancelled order stays on the heap before being moved to disk.
+         */
+        private Duration maxTerminalAge = Duration.ofMinutes(5);
+
+        /**
+         * Where the orders moved out of the heap are written to.
+         */
+        private String directory = System.getProperty("java.io.tmpdir");
+    }
+
+
+    @Getter
+    @Setter
+    public static class JournalSettings {
+
+        /**
+         * Whether accepted commands are journalled, and replayed on startup.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Where the journal is written to.
+         */
+        private String directory = "journal";
+
+        /**
+         * Whether commands are acknowledged once forced to disk, or forced in the background.
+         */
+        private JournalFsyncPolicy fsync = JournalFsyncPolicy.BATCH;
+
+        /**
+         * How often the journal is forced to disk with the {@code async} fsync policy.
+         */
+        private Duration flushInterval = Duration.ofMillis(10);
+
+        /**
+         * The size in bytes of each of the two buffers commands are batched in.
+         */
+        private int bufferSize = 1 << 20;
+    }
+
+
+    @Getter
+    @Setter
+    public static class SnapshotSettings {
+
+        /**
+         * Whether the books and the archive are snapshotted, which needs the journal.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Where the snapshots are written to.
+         */
+        private String directory = "snapshots";
+
+        /**
+         * The longest time between two snapshots, if any command was journalled in between.
+         */
+        private Duration interval = Duration.ofMinutes(5);
+
+        /**
+         * The number of journalled commands that triggers a snapshot, 0 to only snapshot on the interval.
+         */
+        private long commands = 1_000_000;
+
+        /**
+         * The number of snapshots kept on disk.
+         */
+        private int retain = 2;
+    }
+
+
+    @Getter
+    @Setter
+    public static class LedgerSettings {
+
+        /**
+         * Whether every trade is given an id and recorded in the trade ledger served by {@code GET /trades}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The number of trades in each chunk of the ledger.
+         */
+        private int chunkSize = 65536;
+
+        /**
+         * Whether full chunks are moved from the heap to a memory-mapped file.
+         */
+        private boolean spill = false;
+
+        /**
+         * Where full chunks are spilled to.
+         */
+        private String directory = System.getProperty("java.io.tmpdir");
+
+        /**
+         * The maximum number of trades of a single {@code GET /trades} page.
+         */
+        private int maxPageSize = 1000;
+    }
+
+
+    @Getter
+    @Setter
+    public static class InstrumentSettings {
+
+        /**
+         * The smallest price increment.
+         */
+        private BigDecimal tickSize = Instrument.DEFAULT_TICK_SIZE;
+
+        /**
+         * The smallest amount increment.
+         */
+        private BigDecimal lotSize = Instrument.DEFAULT_LOT_SIZE;
+    }
+
+
+    @Getter
+    @Setter
+    public static class MetricsSettings {
+
+        /**
+         * Whether every book records its latency histograms, trades and resting orders as {@code ame.book.*} meters.
+         */
+        private boolean enabled = false;
+    }
+
+
+    @Getter
+    @Setter
+    public static class AuditSettings {
+
+        /**
+         * Whether every order and trade event is written to the audit trail.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Where the audit trail is written to.
+         */
+        private AuditSinkType sink = AuditSinkType.BINARY;
+
+        /**
+         * The number of pre-allocated slots of the ring events are copied into, must be a power of two.
+         */
+        private int ringSize = 65536;
+
+        /**
+         * Where the {@code binary} sink writes its files.
+         */
+        private String directory = "audit";
+    }
+
+
+    @Getter
+    @Setter
+    public static class GatewaySettings {
+
+        /**
+         * Whether the binary TCP order entry gateway is started alongside the REST API.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The port the gateway listens on, or 0 for any free port.
+         */
+        private int port = 9090;
+    }
+
+
+    @Getter
+    @Setter
+    public static class FeedSettings {
+
+        /**
+         * Whether trades and depth updates are streamed to the subscribers of {@code GET /books/{asset}/feed}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The number of price levels per side the depth updates cover.
+         */
+        private int levels = 20;
+
+        /**
+         * How often trades are sent and the changes of each book's depth are coalesced into an update.
+         */
+        private Duration interval = Duration.ofMillis(20);
+
+        /**
+         * The number of messages a subscriber may lag behind before its backlog is replaced by a snapshot.
+         */
+        private int subscriberCapacity = 1024;
+
+        /**
+         * The maximum number of trades waiting to be sent, beyond which trades are dropped and counted.
+         */
+        private int tradeCapacity = 65536;
+    }
+}
@@ -0,0 +1,15 @@
+package com.tribune.demo.ame.config;
+
+/**
+ * The ways in which {@link com.tribune.demo.ame.domain.OrderEvent}s reach their subscribers.
+ */
+public enum EventDeliveryMode {
+    /**
+     * Subscribers are called on the publishing (matching) thread.
+     */
+    SYNC,
+    /**
+     * Events are queued and delivered in batches by a dedicated thread.
+     */
+    ASYNC
+}
@@ -0,0 +1,15 @@
+package com.tribune.demo.ame.config;
+
+/**
+ * When the commands written to the journal are forced to disk.
+ */
+public enum JournalFsyncPolicy {
+    /**
+     * Commands are forced in batches, and a command is only acknowledged once its batch is on disk.
+     */
+    BATCH,
+    /**
+     * Commands are acknowledged straight away, and forced in the background every flush interval.
+     */
+    ASYNC
+}
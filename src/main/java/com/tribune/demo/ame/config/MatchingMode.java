@@ -0,0 +1,20 @@
+package com.tribune.demo.ame.config;
+
+/**
+ * The ways in which orders reach an {@link com.tribune.demo.ame.domain.OrderBook}.
+ */
+public enum MatchingMode {
+    /**
+     * Orders are matched on the calling (request) thread.
+     */
+    DIRECT,
+    /**
+     * Each asset's book is owned by one dedicated thread, fed through a lock-free ring buffer.
+     */
+    SINGLE_WRITER,
+    /**
+     * Assets are spread over a fixed number of threads, each owning the books of its assets
+     * and fed through a lock-free ring buffer.
+     */
+    SHARDED
+}
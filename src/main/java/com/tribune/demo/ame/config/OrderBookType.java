@@ -0,0 +1,19 @@
+package com.tribune.demo.ame.config;
+
+/**
+ * The available {@link com.tribune.demo.ame.domain.OrderBook} implementations.
+ */
+public enum OrderBookType {
+    /**
+     * Backed by a pair of {@link java.util.concurrent.PriorityBlockingQueue}s.
+     */
+    SIMPLE,
+    /**
+     * Backed by a sorted map of price levels, each holding a FIFO queue of orders.
+     */
+    LADDER,
+    /**
+     * Matches as {@link #LADDER} does, with its resting orders kept in fixed-width slots outside the heap.
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the configuration of the AME (Assets Matching Engine) system.
+ * It binds the {@code ame.*} properties used to choose and tune the engine components.
+ */
+package com.tribune.demo.ame.config;
@@ -0,0 +1,79 @@
+package com.tribune.demo.ame.controller;
+
+
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.model.BookDepth;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderBookInfo;
+import com.tribune.demo.ame.model.TopOfBook;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+
+@Slf4j
+@RequestMapping(path = "/books")
+@RestController
+public record BookController(MatchingEngine matchingEngine) {
+
+
+    @GetMapping
+    public List<OrderBookInfo> getOrderBooks() {
+        log.debug("Listing order books");
+
+        return matchingEngine.getOrderBooks();
+    }
+
+    /**
+     * Creates the asset's book, or leaves the existing one as it is.
+     */
+    @PutMapping("/{asset}")
+    public OrderBookInfo createOrderBook(@PathVariable String asset) {
+        log.info("Creating order book - asset: {}", asset);
+
+        matchingEngine.newOrderBook(asset);
+        return matchingEngine.getOrderBooks().stream()
+                .filter(book -> book.asset().equals(asset))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("OrderBook not found: " + asset));
+    }
+
+    /**
+     * Deletes the asset's book, along with its resting orders.
+     */
+    @DeleteMapping("/{asset}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteOrderBook(@PathVariable String asset) {
+        log.info("Deleting order book - asset: {}", asset);
+
+        if (!matchingEngine.deleteOrderBook(asset)) {
+            throw new IllegalArgumentException("OrderBook not found: " + asset);
+        }
+    }
+
+    @GetMapping("/{asset}/top")
+    public TopOfBook getTopOfBook(@PathVariable String asset) {
+        log.debug("Getting top of book - asset: {}", asset);
+
+        return matchingEngine.getTopOfBook(asset);
+    }
+
+    @GetMapping("/{asset}/depth")
+    public BookDepth getDepth(@PathVariable String asset, @RequestParam(name = "levels", defaultValue = "10") int levels) {
+        log.debug("Getting depth - asset: {}, levels: {}", asset, levels);
+
+        return matchingEngine.getDepth(asset, levels);
+    }
+
+    /**
+     * Every resting order (L3), best price first and then by time.
+     */
+    @GetMapping("/{asset}/orders")
+    public List<Order> getOrders(@PathVariable String asset, @RequestParam(name = "direction", required = false) String direction) {
+        log.debug("Getting resting orders - asset: {}", asset);
+
+        return matchingEngine.findAllLiveOrdersByAsset(asset, direction);
+    }
+}
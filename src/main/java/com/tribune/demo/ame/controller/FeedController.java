@@ -0,0 +1,57 @@
+package com.tribune.demo.ame.controller;
+
+
+import com.tribune.demo.ame.domain.FeedListener;
+import com.tribune.demo.ame.impl.MarketDataFeed;
+import com.tribune.demo.ame.model.FeedMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+
+@Slf4j
+@RequestMapping(path = "/books")
+@RestController
+@ConditionalOnProperty(prefix = "ame.feed", name = "enabled", havingValue = "true")
+public record FeedController(MarketDataFeed marketDataFeed) {
+
+
+    /**
+     * Streams the asset's trades and depth updates as server-sent events, starting with a snapshot of its depth.
+     * Each event is named after its message type and has the message's sequence as its id.
+     */
+    @GetMapping(path = "/{asset}/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getFeed(@PathVariable String asset) {
+        log.debug("Subscribing to the feed - asset: {}", asset);
+
+        // never times out, the subscription ends when the client goes away
+        SseEmitter emitter = new SseEmitter(0L);
+        MarketDataFeed.Subscription subscription = marketDataFeed.subscribe(asset, new FeedListener() {
+            @Override
+            public void onMessage(FeedMessage message) {
+                try {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(message.sequence()))
+                            .name(message.type())
+                            .data(message, MediaType.APPLICATION_JSON));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void onClose() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+}
@@ -3,14 +3,20 @@ package com.tribune.demo.ame.controller;
 
 import com.tribune.demo.ame.domain.MatchingEngine;
 import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.model.BookCommand;
 import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderAmendRequest;
+import com.tribune.demo.ame.model.OrderBatchItem;
+import com.tribune.demo.ame.model.OrderBatchResult;
 import com.tribune.demo.ame.model.OrderRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 
 @Slf4j
@@ -21,30 +27,106 @@ public record OrderController(MatchingEngine matchingEngine){
 
     @PostMapping
     public Order addOrder(@Valid @RequestBody OrderRequest dto) {
-        log.info("Adding order - asset: {}", dto.getAsset());
+        log.debug("Adding order - asset: {}", dto.getAsset());
         OrderBook orderBook = matchingEngine.getOrderBook(dto.getAsset());
 
-        Order order = Order.builder()
+        return orderBook.submit(newOrder(orderBook, dto));
+    }
+
+    /**
+     * Places an order as {@link #addOrder} does, but releases the request thread until the match result is ready.
+     * Only a book owned by a worker (single-writer or sharded mode) matches it on another thread,
+     * in direct mode the order is matched before the method returns.
+     */
+    @PostMapping("/async")
+    public CompletableFuture<Order> addOrderAsync(@Valid @RequestBody OrderRequest dto) {
+        log.debug("Adding order asynchronously - asset: {}", dto.getAsset());
+        OrderBook orderBook = matchingEngine.getOrderBook(dto.getAsset());
+
+        return orderBook.submitAsync(newOrder(orderBook, dto));
+    }
+
+    private Order newOrder(OrderBook orderBook, OrderRequest dto) {
+        return Order.builder()
                 .id(matchingEngine.getNextOrderId())
-                .asset(dto.getAsset())
+                // the book's own name, so resting and archived orders share one instance per asset
+                .asset(orderBook.getAsset())
                 .price(dto.getPrice())
                 .amount(dto.getAmount())
                 .direction(dto.getDirection())
+                .type(dto.getType())
+                .timeInForce(dto.getTimeInForce())
+                .stopPrice(dto.getStopPrice())
+                .displayAmount(dto.getDisplayAmount())
                 .timestamp(LocalDateTime.now())
                 .build();
-        return orderBook.submit(order);
+    }
+
+    /**
+     * Places and cancels several orders at once, each book applying its own in one go.
+     * A malformed item rejects the whole batch, an order the engine refuses only fails its own item.
+     */
+    @PostMapping("/batch")
+    public List<OrderBatchResult> addOrders(@RequestBody List<OrderBatchItem> items) {
+        log.debug("Adding a batch of {} orders", items.size());
+        List<BookCommand> commands = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            commands.add(toCommand(i, items.get(i)));
+        }
+        return matchingEngine.submitBatch(commands);
+    }
+
+    private BookCommand toCommand(int position, OrderBatchItem item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Batch item " + position + " is empty");
+        }
+        if (item.getType() == BookCommand.Type.CANCEL) {
+            if (item.getId() == null) {
+                throw new IllegalArgumentException("Batch item " + position + " has no order id to cancel");
+            }
+            return BookCommand.cancel(item.getId());
+        }
+        if (item.getAsset() == null || item.getAsset().isBlank() || item.getAmount() == null || item.getDirection() == null) {
+            throw new IllegalArgumentException("Batch item " + position + " needs an asset, an amount and a direction");
+        }
+        return BookCommand.submit(Order.builder()
+                .id(matchingEngine.getNextOrderId())
+                .asset(item.getAsset())
+                .price(item.getPrice())
+                .amount(item.getAmount())
+                .direction(item.getDirection())
+                .type(item.getOrderType())
+                .timeInForce(item.getTimeInForce())
+                .stopPrice(item.getStopPrice())
+                .displayAmount(item.getDisplayAmount())
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     @GetMapping("/{id}")
     public Order getOrder(@PathVariable int id) {
-        log.info("Getting order - id: {}", id);
+        log.debug("Getting order - id: {}", id);
 
         return matchingEngine.findOrderById(id);
     }
 
+    @DeleteMapping("/{id}")
+    public Order cancelOrder(@PathVariable long id) {
+        log.debug("Cancelling order - id: {}", id);
+
+        return matchingEngine.cancelOrder(id);
+    }
+
+    @PatchMapping("/{id}")
+    public Order amendOrder(@PathVariable long id, @RequestBody OrderAmendRequest dto) {
+        log.debug("Amending order - id: {}", id);
+
+        return matchingEngine.amendOrder(id, dto.getPrice(), dto.getAmount());
+    }
+
     @GetMapping("/live")
     public List<Order> getLiveOrdersByAsset(@RequestParam(name = "asset") String name, @RequestParam(name = "direction", required = false) String direction) {
-        log.info("Getting order by asset - name: {}", name);
+        log.debug("Getting order by asset - name: {}", name);
 
         return matchingEngine.findAllLiveOrdersByAsset(name, direction);
     }
@@ -0,0 +1,35 @@
+package com.tribune.demo.ame.controller;
+
+
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.model.OrderBookInfo;
+import com.tribune.demo.ame.model.ShardInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+
+@Slf4j
+@RequestMapping(path = "/shards")
+@RestController
+public record ShardController(MatchingEngine matchingEngine) {
+
+
+    @GetMapping
+    public List<ShardInfo> getShards() {
+        log.debug("Listing shards");
+
+        return matchingEngine.getShards();
+    }
+
+    /**
+     * Moves an asset's book to the given shard, e.g. to take a hot asset off a busy shard.
+     */
+    @PutMapping("/{shard}/books/{asset}")
+    public OrderBookInfo moveOrderBook(@PathVariable int shard, @PathVariable String asset) {
+        log.info("Moving order book - asset: {}, shard: {}", asset, shard);
+
+        return matchingEngine.moveOrderBook(asset, shard);
+    }
+}
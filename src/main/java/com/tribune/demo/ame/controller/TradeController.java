@@ -0,0 +1,35 @@
+package com.tribune.demo.ame.controller;
+
+
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.model.TradePage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+
+@Slf4j
+@RequestMapping(path = "/trades")
+@RestController
+public record TradeController(MatchingEngine matchingEngine) {
+
+
+    /**
+     * The trades made in a range of time, oldest first, a page at a time: the next page is requested with the
+     * {@code nextCursor} of the previous one, until it is null.
+     */
+    @GetMapping
+    public TradePage getTrades(@RequestParam(name = "asset", required = false) String asset,
+                               @RequestParam(name = "from", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                               @RequestParam(name = "to", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                               @RequestParam(name = "cursor", required = false) Long cursor,
+                               @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        log.debug("Getting trades - asset: {}, from: {}, to: {}, cursor: {}", asset, from, to, cursor);
+
+        return matchingEngine.findTrades(asset, from, to, cursor, limit);
+    }
+}
@@ -3,7 +3,7 @@ package com.tribune.demo.ame.data;
 
 
 import com.tribune.demo.ame.domain.MatchingEngine;
-import com.tribune.demo.ame.impl.SimpleOrderBook;
+import com.tribune.demo.ame.domain.OrderBook;
 import com.tribune.demo.ame.model.Order;
 import com.tribune.demo.ame.model.OrderDirection;
 import jakarta.annotation.PostConstruct;
@@ -12,7 +12,6 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.Queue;
 
 
 @Slf4j
@@ -24,11 +23,12 @@ public record DevBootstrap(MatchingEngine matchingEngine){
     @PostConstruct
     public void init() {
         log.info("Running on local profile, initializing data...");
-        SimpleOrderBook orderBook = (SimpleOrderBook) matchingEngine.getOrderBook("BTC");
-
-        Queue<Order> sellQueue = orderBook.getSellQueue();
-        Queue<Order> buyQueue = orderBook.getBuyQueue();
-
+        // none of these orders cross, so submitting them just rests them in the book
+        OrderBook orderBook = matchingEngine.getOrderBook("BTC");
+        if (!orderBook.findLiveOrders(null).isEmpty()) {
+            log.info("The book was restored from the journal, skipping");
+            return;
+        }
 
         LocalDateTime now = LocalDateTime.now();
 
@@ -40,8 +40,7 @@ public record DevBootstrap(MatchingEngine matchingEngine){
                 .amount(20)
                 .price(10.05)
                 .build();
-        sellQueue.add(o1);
-        orderBook.saveOrUpdateOrder(o1);
+        orderBook.submit(o1);
 
         Order o2 = Order.builder()
                 .asset("BTC")
@@ -51,8 +50,7 @@ public record DevBootstrap(MatchingEngine matchingEngine){
                 .amount(20)
                 .price(10.04)
                 .build();
-        sellQueue.add(o2);
-        orderBook.saveOrUpdateOrder(o2);
+        orderBook.submit(o2);
 
         Order o3 = Order.builder()
                 .asset("BTC")
@@ -62,8 +60,7 @@ public record DevBootstrap(MatchingEngine matchingEngine){
                 .amount(40)
                 .price(10.05)
                 .build();
-        sellQueue.add(o3);
-        orderBook.saveOrUpdateOrder(o3);
+        orderBook.submit(o3);
 
         Order o4 = Order.builder()
                 .asset("BTC")
@@ -73,8 +70,7 @@ public record DevBootstrap(MatchingEngine matchingEngine){
                 .amount(20)
                 .price(10.00)
                 .build();
-        buyQueue.add(o4);
-        orderBook.saveOrUpdateOrder(o4);
+        orderBook.submit(o4);
 
         Order o5 = Order.builder()
                 .asset("BTC")
@@ -84,8 +80,7 @@ public record DevBootstrap(MatchingEngine matchingEngine){
                 .amount(40)
                 .price(10.02)
                 .build();
-        buyQueue.add(o5);
-        orderBook.saveOrUpdateOrder(o5);
+        orderBook.submit(o5);
 
         Order o6 = Order.builder()
                 .asset("BTC")
@@ -95,7 +90,6 @@ public record DevBootstrap(MatchingEngine matchingEngine){
                 .amount(40)
                 .price(10.00)
                 .build();
-        buyQueue.add(o6);
-        orderBook.saveOrUpdateOrder(o6);
+        orderBook.submit(o6);
     }
 }
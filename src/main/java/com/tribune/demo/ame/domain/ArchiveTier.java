@@ -0,0 +1,8 @@
+package com.tribune.demo.ame.domain;
+
+public enum ArchiveTier {
+    // live and recently filled or cancelled orders, kept on the heap
+    HOT,
+    // older filled or cancelled orders, kept out of the heap
+    COLD
+}
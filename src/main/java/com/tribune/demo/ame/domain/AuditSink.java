@@ -0,0 +1,25 @@
+package com.tribune.demo.ame.domain;
+
+
+import com.tribune.demo.ame.model.AuditRecord;
+
+/**
+ * Where the audit trail of order and trade events is written to.
+ * <p>
+ * Only ever called by the audit trail's own thread, with records in sequence order, so implementations
+ * need not be thread-safe and may block without holding up matching.
+ */
+public interface AuditSink extends AutoCloseable {
+
+    void write(AuditRecord record);
+
+    /**
+     * Called once the records available so far were written, before the audit trail waits for more.
+     */
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+    }
+}
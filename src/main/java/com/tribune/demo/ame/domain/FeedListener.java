@@ -0,0 +1,21 @@
+package com.tribune.demo.ame.domain;
+
+
+import com.tribune.demo.ame.model.FeedMessage;
+
+/**
+ * A subscriber of an asset's market data feed.
+ * <p>
+ * Messages are delivered one at a time, in sequence order, on a thread of the subscriber's own;
+ * a listener that throws is unsubscribed.
+ */
+public interface FeedListener {
+
+    void onMessage(FeedMessage message);
+
+    /**
+     * Called once the subscription ended, whether it was closed or the book was deleted.
+     */
+    default void onClose() {
+    }
+}
@@ -1,8 +1,16 @@
 package com.tribune.demo.ame.domain;
 
 
+import com.tribune.demo.ame.model.BookCommand;
+import com.tribune.demo.ame.model.BookDepth;
 import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderBatchResult;
+import com.tribune.demo.ame.model.OrderBookInfo;
+import com.tribune.demo.ame.model.ShardInfo;
+import com.tribune.demo.ame.model.TopOfBook;
+import com.tribune.demo.ame.model.TradePage;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 
@@ -26,9 +34,27 @@ public interface MatchingEngine {
      */
     OrderBook getOrderBook(String name);
 
+    /**
+     * Retrieves an OrderBook by the id its asset was given when the book was created,
+     * which saves hashing the asset name on every lookup.
+     * If the OrderBook does not exist, it throws an IllegalArgumentException.
+     *
+     * @param assetId The id of the asset for which to retrieve the OrderBook.
+     * @return The OrderBook associated with the specified asset id.
+     */
+    OrderBook getOrderBook(int assetId);
+
+    /**
+     * Lists every OrderBook, by asset id.
+     *
+     * @return The asset name, id and trading rules of every OrderBook.
+     */
+    List<OrderBookInfo> getOrderBooks();
+
     /**
      * Creates a new OrderBook for the specified asset name.
      * If an OrderBook with the same name already exists, it returns the existing one.
+     * Orders keep flowing through the other books meanwhile.
      *
      * @param name The name of the asset for which to create an OrderBook.
      * @return The created or existing OrderBook.
@@ -44,6 +70,23 @@ public interface MatchingEngine {
      */
     boolean deleteOrderBook(String name);
 
+    /**
+     * Moves an OrderBook to another shard, once the commands already sent to its current shard are applied.
+     * Only available in sharded mode, it throws an IllegalArgumentException otherwise.
+     *
+     * @param name  The name of the asset whose OrderBook to move.
+     * @param shard The shard to move it to.
+     * @return The moved OrderBook.
+     */
+    OrderBookInfo moveOrderBook(String name, int shard);
+
+    /**
+     * Lists the shards the OrderBooks are spread over, empty unless in sharded mode.
+     *
+     * @return The assets, backlog and applied commands of every shard.
+     */
+    List<ShardInfo> getShards();
+
     /**
      * Finds an order by ID.
      *
@@ -52,6 +95,50 @@ public interface MatchingEngine {
      */
     Order findOrderById(long id);
 
+    /**
+     * Finds the trades recorded in the trade ledger, oldest first, a page at a time.
+     *
+     * @param asset  The asset whose trades to find, or null for every asset.
+     * @param from   The start of the time range, inclusive, or null.
+     * @param to     The end of the time range, exclusive, or null.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit  The maximum number of trades of the page.
+     * @return The trades, and the cursor of the next page if there are more.
+     * @throws IllegalArgumentException if the ledger is not enabled, or the range, cursor or limit is invalid.
+     */
+    TradePage findTrades(String asset, LocalDateTime from, LocalDateTime to, Long cursor, int limit);
+
+    /**
+     * Cancels a resting order, in whichever book it rests.
+     *
+     * @param id The ID of the order to cancel.
+     * @return The cancelled order.
+     * @throws IllegalArgumentException if the order is unknown or no longer live.
+     */
+    Order cancelOrder(long id);
+
+    /**
+     * Amends the price and/or the pending amount of a resting order, in whichever book it rests.
+     *
+     * @param id     The ID of the order to amend.
+     * @param price  The new price, or {@code null} to keep the current one.
+     * @param amount The new amount left to be filled, or {@code null} to keep the current one.
+     * @return The amended order.
+     * @throws IllegalArgumentException if the order is unknown or no longer live, or if there is nothing to amend.
+     */
+    Order amendOrder(long id, Double price, Double amount);
+
+    /**
+     * Submits and cancels a batch of orders, spread over any number of books.
+     * The commands are grouped by book, and each group is applied by its book in one go, in the given order;
+     * there is no ordering between the groups of different books.
+     *
+     * @param commands The commands; a submitted order names its book through its asset.
+     * @return The outcome of each command, in the given order; an unknown book or order fails its command only.
+     * @throws IllegalArgumentException if the batch is empty or larger than {@code ame.matching.max-batch-size}.
+     */
+    List<OrderBatchResult> submitBatch(List<BookCommand> commands);
+
     /**
      * Finds all live orders by a given asset.
      *
@@ -59,4 +146,21 @@ public interface MatchingEngine {
      * @return A list of all live orders for a specified asset name.
      */
     List<Order> findAllLiveOrdersByAsset(String name, String direction);
+
+    /**
+     * Gets the best bid and ask of an asset.
+     *
+     * @param name The name of the asset.
+     * @return The top of the asset's book.
+     */
+    TopOfBook getTopOfBook(String name);
+
+    /**
+     * Gets the aggregated price levels of an asset, best price first.
+     *
+     * @param name   The name of the asset.
+     * @param levels The maximum number of levels per side, must be positive.
+     * @return The depth of the asset's book.
+     */
+    BookDepth getDepth(String name, int levels);
 }
@@ -0,0 +1,62 @@
+package com.tribune.demo.ame.domain;
+
+
+import com.tribune.demo.ame.model.Order;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * An interface for the registry of every order submitted to the matching engine, live or not.
+ * Implementations may keep orders in several {@link ArchiveTier}s, and count the lookups served by each of them.
+ */
+public interface OrderArchive extends AutoCloseable {
+
+    /**
+     * Gets the latest version of an order.
+     *
+     * @param id The ID of the order.
+     * @return The order, or null if it was never archived.
+     */
+    Order get(long id);
+
+    /**
+     * Archives a new version of an order, replacing the previous one.
+     */
+    void put(Order order);
+
+    /**
+     * Replaces an archived order by the result of the given function, if the order is archived.
+     */
+    void update(long id, UnaryOperator<Order> update);
+
+    /**
+     * Copies the orders held on the heap, which are all the live orders and the most recently filled or cancelled ones.
+     */
+    List<Order> hotOrders();
+
+    /**
+     * Gets the filled or cancelled orders moved off the heap so far, read back as they are iterated.
+     * Orders moved off the heap afterwards are not part of it, and an order moved more than once comes last in its latest version.
+     */
+    Collection<Order> coldOrders();
+
+    /**
+     * Gets the number of lookups served by the given tier.
+     */
+    long hits(ArchiveTier tier);
+
+    /**
+     * Gets the number of lookups for orders that are not archived.
+     */
+    long misses();
+
+    /**
+     * Gets the number of orders held by the given tier.
+     */
+    long size(ArchiveTier tier);
+
+    @Override
+    void close();
+}
@@ -3,6 +3,10 @@ package com.tribune.demo.ame.domain;
 
 import com.tribune.demo.ame.model.*;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -12,6 +16,10 @@ import com.tribune.demo.ame.model.*;
  **/
 public interface OrderBook {
 
+    /**
+     * Gets the name of the asset managed by this order book.
+     */
+    String getAsset();
 
     /**
      * Adds an order to the order book
@@ -24,6 +32,22 @@ public interface OrderBook {
      **/
     Order submit(Order order);
 
+    /**
+     * Adds an order to the order book as {@link #submit} does, without holding the calling thread
+     * while a book owned by another thread matches it.
+     * The default implementation matches the order on the calling thread and returns a completed future.
+     *
+     * @param order The order to be added.
+     * @return A future completed with the match result, or with what {@link #submit} would have thrown.
+     */
+    default CompletableFuture<Order> submitAsync(Order order) {
+        try {
+            return CompletableFuture.completedFuture(submit(order));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Processes a SELL order by checking against the BUY queue.
      *
@@ -40,6 +64,70 @@ public interface OrderBook {
      */
     Order buy(Order order);
 
+    /**
+     * Takes a resting order out of the book.
+     *
+     * @param id The id of the order.
+     * @return The cancelled order, with nothing left pending.
+     * @throws IllegalArgumentException if the order is not resting in this book.
+     */
+    Order cancel(long id);
+
+    /**
+     * Changes the price and/or the pending amount of a resting order.
+     * A smaller amount at the same price keeps the order's place in the queue;
+     * anything else takes it out and matches it again, as if it had just been submitted.
+     *
+     * @param id     The id of the order.
+     * @param price  The new price, or {@code null} to keep the current one.
+     * @param amount The new amount left to be filled, or {@code null} to keep the current one.
+     * @return The amended order, with the trades made by the amendment, if any.
+     * @throws IllegalArgumentException if the order is not resting in this book.
+     */
+    default Order amend(long id, Double price, Double amount) {
+        return amend(id, price, amount, LocalDateTime.now());
+    }
+
+    /**
+     * Changes the price and/or the pending amount of a resting order, as {@link #amend(long, Double, Double)} does.
+     *
+     * @param timestamp The new timestamp of the order, if the amendment takes it out and matches it again.
+     */
+    Order amend(long id, Double price, Double amount, LocalDateTime timestamp);
+
+    /**
+     * Submits and cancels several orders of this book in one go, in the given order.
+     * A command the book refuses does not stop the ones after it.
+     * Implementations take their lock, or hand over to their worker, once for the whole batch.
+     *
+     * @param commands The commands, each of an order of this book.
+     * @return The outcome of each command, in the given order.
+     */
+    default List<OrderBatchResult> submitBatch(List<BookCommand> commands) {
+        List<OrderBatchResult> results = new ArrayList<>(commands.size());
+        for (BookCommand command : commands) {
+            try {
+                results.add(OrderBatchResult.of(switch (command.type()) {
+                    case SUBMIT -> submit(command.order());
+                    case CANCEL -> cancel(command.id());
+                }));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                results.add(OrderBatchResult.failed(e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Puts back an order that was resting in the book when it was snapshotted, as returned by {@link #findLiveOrders},
+     * without matching it nor publishing anything. Only used while the engine starts, before the book takes commands.
+     *
+     * @param order The resting order, with the amount left to be filled as its pending amount,
+     *              and what an iceberg did not show as its hidden amount.
+     * @throws IllegalArgumentException if the order is already in the book.
+     */
+    void restore(Order order);
+
     /**
      * Saves/Updates an order.
      *
@@ -53,4 +141,26 @@ public interface OrderBook {
      * @param updateCounterpart the details of the order to be updated.
      **/
     void updateCounterpart(UpdateCounterpart updateCounterpart);
+
+    /**
+     * Finds the orders currently resting in the book, best price first.
+     *
+     * @param direction The side of the book to look at, or {@code null} for both sides (BUY first).
+     * @return A snapshot of the resting orders, each with the amount left to be filled as its pending amount,
+     * and the part of it an iceberg does not show as its hidden amount.
+     **/
+    List<Order> findLiveOrders(OrderDirection direction);
+
+    /**
+     * Gets the best bid and ask, from the book's aggregated depth view and without locking the book.
+     **/
+    TopOfBook getTopOfBook();
+
+    /**
+     * Gets the aggregated amount and order count of the best price levels of each side,
+     * from the book's aggregated depth view and without locking the book.
+     *
+     * @param levels The maximum number of levels per side.
+     **/
+    BookDepth getDepth(int levels);
 }
@@ -1,5 +1,9 @@
 package com.tribune.demo.ame.domain;
 
 public enum OrderEventType {
-    SAVE_OR_UPDATE_ORDER, UPDATE_COUNTERPART
+    SAVE_OR_UPDATE_ORDER, UPDATE_COUNTERPART,
+    // a resting order was cancelled or amended, the event's trades are the ones made by the amendment
+    UPDATE_LIVE_ORDER,
+    // a trade reached the stop price of a stop order, which is matched next as the event's order
+    TRIGGER_STOP
 }
@@ -5,6 +5,9 @@ package com.tribune.demo.ame.domain;
  * An interface for publishing and subscribing to events in the matching engine.
  * This interface allows components to communicate through events, enabling a decoupled architecture.
  * Can be implemented using various event-driven frameworks or custom implementations.
+ * <p>
+ * Publishers of the hot path may reuse the same {@link OrderEvent} instance for consecutive events,
+ * so implementations and subscribers must not hold on to an event after it was delivered; they may keep its source.
  */
 public interface OrderPublisher {
     void publish(OrderEvent event);
@@ -12,4 +15,11 @@ public interface OrderPublisher {
     void subscribe(OrderEventType orderEventType, OrderSubscriber subscriber);
 
     void unsubscribe(OrderEventType orderEventType, OrderSubscriber subscriber);
+
+    /**
+     * Waits until every event published so far has been handed to the subscribers.
+     * Publishers delivering on the publishing thread have nothing to wait for.
+     */
+    default void flush() {
+    }
 }
@@ -0,0 +1,36 @@
+package com.tribune.demo.ame.gateway;
+
+
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+
+import java.util.List;
+
+/**
+ * An answer of the {@link OrderGateway}, as decoded by the {@link GatewayClient}, with prices in ticks and amounts in lots.
+ *
+ * @param clientOrderId The id the client gave the request.
+ * @param orderId       The id the engine gave the order, -1 if rejected.
+ * @param fills         The trades the request made, each against a resting order.
+ * @param rejectReason  Why the request was rejected, or null if it was not.
+ */
+public record ExecutionReport(long clientOrderId,
+                              long orderId,
+                              OrderDirection direction,
+                              OrderStatus status,
+                              long price,
+                              long amount,
+                              long pendingAmount,
+                              List<Fill> fills,
+                              String rejectReason) {
+
+    /**
+     * A trade against a resting order.
+     */
+    public record Fill(long restingOrderId, long price, long amount) {
+    }
+
+    public boolean rejected() {
+        return rejectReason != null;
+    }
+}
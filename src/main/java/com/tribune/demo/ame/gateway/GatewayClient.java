@@ -0,0 +1,154 @@
+package com.tribune.demo.ame.gateway;
+
+
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A blocking client of the {@link OrderGateway}, for tests, benchmarks and as an example of the protocol.
+ * <p>
+ * Requests can be sent one at a time with {@link #submit}, {@link #cancel} and {@link #amend}, or pipelined with
+ * the {@code send*} methods, {@link #flush} and then one {@link #receive} per request. Not thread-safe.
+ */
+public class GatewayClient implements AutoCloseable {
+
+    private static final OrderDirection[] DIRECTIONS = OrderDirection.values();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final SocketChannel channel;
+
+    private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 16);
+
+    private ByteBuffer in = ByteBuffer.allocateDirect(1 << 16);
+
+
+    public GatewayClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        in.flip();
+    }
+
+    public ExecutionReport submit(long clientOrderId, int assetId, OrderDirection direction, long price, long amount)
+            throws IOException {
+        sendNewOrder(clientOrderId, assetId, direction, price, amount);
+        flush();
+        return receive();
+    }
+
+    public ExecutionReport cancel(long clientOrderId, long orderId) throws IOException {
+        sendCancel(clientOrderId, orderId);
+        flush();
+        return receive();
+    }
+
+    /**
+     * Amends a resting order, with {@link GatewayProtocol#KEEP} for the price or amount left unchanged.
+     */
+    public ExecutionReport amend(long clientOrderId, long orderId, long price, long amount) throws IOException {
+        sendAmend(clientOrderId, orderId, price, amount);
+        flush();
+        return receive();
+    }
+
+    public void sendNewOrder(long clientOrderId, int assetId, OrderDirection direction, long price, long amount)
+            throws IOException {
+        reserve(GatewayProtocol.LENGTH_SIZE + GatewayProtocol.NEW_ORDER_SIZE);
+        GatewayProtocol.putNewOrder(out, clientOrderId, assetId, direction, price, amount);
+    }
+
+    public void sendCancel(long clientOrderId, long orderId) throws IOException {
+        reserve(GatewayProtocol.LENGTH_SIZE + GatewayProtocol.CANCEL_SIZE);
+        GatewayProtocol.putCancel(out, clientOrderId, orderId);
+    }
+
+    public void sendAmend(long clientOrderId, long orderId, long price, long amount) throws IOException {
+        reserve(GatewayProtocol.LENGTH_SIZE + GatewayProtocol.AMEND_SIZE);
+        GatewayProtocol.putAmend(out, clientOrderId, orderId, price, amount);
+    }
+
+    /**
+     * Writes out the requests sent so far.
+     */
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Waits for the answer to the oldest request not answered yet.
+     */
+    public ExecutionReport receive() throws IOException {
+        fill(GatewayProtocol.LENGTH_SIZE);
+        int length = in.getInt();
+        fill(length);
+        byte type = in.get();
+        long clientOrderId = in.getLong();
+        if (type == GatewayProtocol.REJECT) {
+            byte[] reason = new byte[in.getShort()];
+            in.get(reason);
+            return new ExecutionReport(clientOrderId, -1, null, null, 0, 0, 0, List.of(),
+                    new String(reason, StandardCharsets.UTF_8));
+        }
+        if (type != GatewayProtocol.EXECUTION_REPORT) {
+            throw new IOException("Unknown message type: " + type);
+        }
+        long orderId = in.getLong();
+        OrderDirection direction = DIRECTIONS[in.get()];
+        OrderStatus status = STATUSES[in.get()];
+        long price = in.getLong();
+        long amount = in.getLong();
+        long pendingAmount = in.getLong();
+        int count = in.getInt();
+        List<ExecutionReport.Fill> fills = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            fills.add(new ExecutionReport.Fill(in.getLong(), in.getLong(), in.getLong()));
+        }
+        return new ExecutionReport(clientOrderId, orderId, direction, status, price, amount, pendingAmount, fills, null);
+    }
+
+    private void reserve(int size) throws IOException {
+        if (out.remaining() < size) {
+            flush();
+        }
+    }
+
+    /**
+     * Reads until at least the given number of bytes can be taken from the input buffer.
+     */
+    private void fill(int size) throws IOException {
+        if (in.remaining() >= size) {
+            return;
+        }
+        if (in.capacity() < size) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+            larger.put(in);
+            in = larger;
+        } else {
+            in.compact();
+        }
+        while (in.position() < size) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("Gateway closed the connection");
+            }
+        }
+        in.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
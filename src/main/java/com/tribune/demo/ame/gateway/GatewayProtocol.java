@@ -0,0 +1,75 @@
+package com.tribune.demo.ame.gateway;
+
+
+import com.tribune.demo.ame.model.OrderDirection;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The frames exchanged with the {@link OrderGateway}, all big-endian.
+ * <p>
+ * Every frame is an {@code int} length, counting the bytes after it, then a {@code byte} message type and its fields.
+ * Prices are in ticks and amounts in lots of the asset's instrument, assets are the ids listed by {@code GET /books}.
+ * <pre>
+ * NEW_ORDER         (1)   long clientOrderId, int assetId, byte direction, long price, long amount
+ * CANCEL            (2)   long clientOrderId, long orderId
+ * AMEND             (3)   long clientOrderId, long orderId, long price, long amount   (KEEP to leave one unchanged)
+ * EXECUTION_REPORT  (101) long clientOrderId, long orderId, byte direction, byte status,
+ *                         long price, long amount, long pendingAmount, int fills,
+ *                         then per fill: long restingOrderId, long price, long amount
+ * REJECT            (102) long clientOrderId, short length, then the reason in UTF-8
+ * </pre>
+ * Directions and statuses are the ordinals of {@link OrderDirection} and {@link com.tribune.demo.ame.model.OrderStatus}.
+ * Requests are answered in the order they were sent, with an execution report or a reject echoing their client order id.
+ */
+public final class GatewayProtocol {
+
+    public static final byte NEW_ORDER = 1;
+    public static final byte CANCEL = 2;
+    public static final byte AMEND = 3;
+    public static final byte EXECUTION_REPORT = 101;
+    public static final byte REJECT = 102;
+
+    /**
+     * The price or amount of an amendment that is left unchanged.
+     */
+    public static final long KEEP = -1;
+
+    static final int LENGTH_SIZE = Integer.BYTES;
+    static final int NEW_ORDER_SIZE = 1 + 8 + 4 + 1 + 8 + 8;
+    static final int CANCEL_SIZE = 1 + 8 + 8;
+    static final int AMEND_SIZE = 1 + 8 + 8 + 8 + 8;
+    static final int REPORT_SIZE = 1 + 8 + 8 + 1 + 1 + 8 + 8 + 8 + 4;
+    static final int FILL_SIZE = 8 + 8 + 8;
+    static final int MAX_REQUEST_SIZE = AMEND_SIZE;
+
+    private GatewayProtocol() {
+    }
+
+    public static void putNewOrder(ByteBuffer buffer, long clientOrderId, int assetId, OrderDirection direction,
+                                   long price, long amount) {
+        buffer.putInt(NEW_ORDER_SIZE)
+                .put(NEW_ORDER)
+                .putLong(clientOrderId)
+                .putInt(assetId)
+                .put((byte) direction.ordinal())
+                .putLong(price)
+                .putLong(amount);
+    }
+
+    public static void putCancel(ByteBuffer buffer, long clientOrderId, long orderId) {
+        buffer.putInt(CANCEL_SIZE)
+                .put(CANCEL)
+                .putLong(clientOrderId)
+                .putLong(orderId);
+    }
+
+    public static void putAmend(ByteBuffer buffer, long clientOrderId, long orderId, long price, long amount) {
+        buffer.putInt(AMEND_SIZE)
+                .put(AMEND)
+                .putLong(clientOrderId)
+                .putLong(orderId)
+                .putLong(price)
+                .putLong(amount);
+    }
+}
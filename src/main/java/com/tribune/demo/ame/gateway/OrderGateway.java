@@ -0,0 +1,304 @@
+package com.tribune.demo.ame.gateway;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.Trade;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A TCP order entry gateway feeding the {@link MatchingEngine}, alongside the REST controllers.
+ * It uses the following:
+ * <ol>
+ * <li>The fixed-layout, length-prefixed frames of {@link GatewayProtocol}, decoded in place from direct buffers,
+ * with no JSON parsing nor bean validation.</li>
+ * <li>A thread per connection, reading a batch of requests, applying them in order and writing every answer
+ * back at once, with {@code TCP_NODELAY} so answers are never held back.</li>
+ * </ol>
+ * A connection sending a frame that cannot be decoded is closed, a request the engine refuses is answered with a reject.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "ame.gateway", name = "enabled", havingValue = "true")
+public class OrderGateway implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final MatchingEngine matchingEngine;
+
+    private final EngineProperties properties;
+
+    private final Map<String, Instrument> instruments = new ConcurrentHashMap<>();
+
+    private final ServerSocketChannel server;
+
+    private final Thread acceptor;
+
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+
+    public OrderGateway(MatchingEngine matchingEngine, EngineProperties properties) {
+        this.matchingEngine = matchingEngine;
+        this.properties = properties;
+        try {
+            this.server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(properties.getGateway().getPort()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen on port " + properties.getGateway().getPort(), e);
+        }
+        this.acceptor = Thread.ofPlatform()
+                .name("ame-gateway")
+                .daemon(true)
+                .unstarted(this::accept);
+        this.acceptor.start();
+        log.info("Order gateway listening on port {}", getPort());
+    }
+
+
+    /**
+     * Gets the port the gateway listens on, which is chosen by the OS when configured as 0.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                SocketChannel channel = server.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connections.add(channel);
+                Thread.ofPlatform()
+                        .name("ame-gateway-" + connectionCount.getAndIncrement())
+                        .daemon(true)
+                        .start(() -> new Connection(channel).serve());
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Failed to accept a gateway connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        try {
+            server.close();
+            for (SocketChannel channel : connections) {
+                channel.close();
+            }
+            acceptor.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (IOException e) {
+            log.warn("Failed to close the order gateway", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Instrument instrument(String asset) {
+        return instruments.computeIfAbsent(asset, properties::instrument);
+    }
+
+
+    /**
+     * The requests and answers of one client, only used by the connection's own thread.
+     */
+    private class Connection {
+
+        private final SocketChannel channel;
+
+        private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void serve() {
+            try (channel) {
+                while (channel.read(in) >= 0) {
+                    in.flip();
+                    while (in.remaining() >= GatewayProtocol.LENGTH_SIZE) {
+                        int length = in.getInt(in.position());
+                        if (length <= 0 || length > GatewayProtocol.MAX_REQUEST_SIZE) {
+                            throw new IOException("Invalid frame length: " + length);
+                        }
+                        if (in.remaining() < GatewayProtocol.LENGTH_SIZE + length) {
+                            break;
+                        }
+                        int end = in.position() + GatewayProtocol.LENGTH_SIZE + length;
+                        in.position(in.position() + GatewayProtocol.LENGTH_SIZE);
+                        handle(length);
+                        // whatever a refused request left unread
+                        in.position(end);
+                    }
+                    in.compact();
+                    flush();
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.debug("Gateway connection closed: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.error("Closing a gateway connection after an unexpected error", e);
+            } finally {
+                connections.remove(channel);
+            }
+        }
+
+        private void handle(int length) throws IOException {
+            byte type = in.get();
+            int expected = switch (type) {
+                case GatewayProtocol.NEW_ORDER -> GatewayProtocol.NEW_ORDER_SIZE;
+                case GatewayProtocol.CANCEL -> GatewayProtocol.CANCEL_SIZE;
+                case GatewayProtocol.AMEND -> GatewayProtocol.AMEND_SIZE;
+                default -> throw new IOException("Unknown message type: " + type);
+            };
+            if (length != expected) {
+                throw new IOException("Invalid length " + length + " of message type " + type);
+            }
+            long clientOrderId = in.getLong();
+            try {
+                switch (type) {
+                    case GatewayProtocol.NEW_ORDER -> newOrder(clientOrderId);
+                    case GatewayProtocol.CANCEL -> report(clientOrderId, matchingEngine.cancelOrder(in.getLong()));
+                    default -> amend(clientOrderId);
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                reject(clientOrderId, e.getMessage());
+            }
+        }
+
+        private void newOrder(long clientOrderId) throws IOException {
+            int assetId = in.getInt();
+            byte direction = in.get();
+            long price = in.getLong();
+            long amount = in.getLong();
+            if (direction < 0 || direction >= OrderDirection.values().length) {
+                throw new IllegalArgumentException("Invalid order direction: " + direction);
+            }
+            if (price <= 0 || amount <= 0) {
+                throw new IllegalArgumentException("Price and amount must be positive");
+            }
+            OrderBook orderBook = matchingEngine.getOrderBook(assetId);
+            Instrument instrument = instrument(orderBook.getAsset());
+            Order order = Order.builder()
+                    .id(matchingEngine.getNextOrderId())
+                    .asset(orderBook.getAsset())
+                    .price(instrument.toPrice(price))
+                    .amount(instrument.toAmount(amount))
+                    .direction(OrderDirection.values()[direction])
+                    .timestamp(LocalDateTime.now())
+                    .build();
+            report(clientOrderId, orderBook.submit(order));
+        }
+
+        private void amend(long clientOrderId) throws IOException {
+            long orderId = in.getLong();
+            long price = in.getLong();
+            long amount = in.getLong();
+            if (price != GatewayProtocol.KEEP && price <= 0 || amount != GatewayProtocol.KEEP && amount <= 0) {
+                throw new IllegalArgumentException("Price and amount must be positive");
+            }
+            Order order = matchingEngine.findOrderById(orderId);
+            if (order == null) {
+                throw new IllegalArgumentException("Order not found: " + orderId);
+            }
+            Instrument instrument = instrument(order.asset());
+            report(clientOrderId, matchingEngine.amendOrder(orderId,
+                    price == GatewayProtocol.KEEP ? null : instrument.toPrice(price),
+                    amount == GatewayProtocol.KEEP ? null : instrument.toAmount(amount)));
+        }
+
+        private void report(long clientOrderId, Order order) throws IOException {
+            Instrument instrument = instrument(order.asset());
+            List<Trade> trades = order.trades();
+            reserve(GatewayProtocol.LENGTH_SIZE + GatewayProtocol.REPORT_SIZE + trades.size() * GatewayProtocol.FILL_SIZE);
+            out.putInt(GatewayProtocol.REPORT_SIZE + trades.size() * GatewayProtocol.FILL_SIZE)
+                    .put(GatewayProtocol.EXECUTION_REPORT)
+                    .putLong(clientOrderId)
+                    .putLong(order.id())
+                    .put((byte) order.direction().ordinal())
+                    .put((byte) order.status().ordinal())
+                    .putLong(instrument.toTicks(order.price()))
+                    .putLong(lots(instrument, order.amount()))
+                    .putLong(lots(instrument, order.pendingAmount()))
+                    .putInt(trades.size());
+            for (int i = 0; i < trades.size(); i++) {
+                Trade trade = trades.get(i);
+                out.putLong(trade.orderId())
+                        .putLong(instrument.toTicks(trade.price()))
+                        .putLong(lots(instrument, trade.amount()));
+            }
+        }
+
+        private void reject(long clientOrderId, String reason) throws IOException {
+            byte[] message = String.valueOf(reason).getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(message.length, Short.MAX_VALUE);
+            reserve(GatewayProtocol.LENGTH_SIZE + 1 + 8 + 2 + length);
+            out.putInt(1 + 8 + 2 + length)
+                    .put(GatewayProtocol.REJECT)
+                    .putLong(clientOrderId)
+                    .putShort((short) length)
+                    .put(message, 0, length);
+        }
+
+        private static long lots(Instrument instrument, double amount) {
+            return amount == 0 ? 0 : instrument.toLots(amount);
+        }
+
+        /**
+         * Makes room for an answer, writing out the ones before it if needed.
+         */
+        private void reserve(int size) throws IOException {
+            if (out.remaining() >= size) {
+                return;
+            }
+            flush();
+            if (out.capacity() < size) {
+                out = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+            }
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * This package contains the binary order entry gateway of the AME (Assets Matching Engine) system.
+ * It feeds the same {@link com.tribune.demo.ame.domain.MatchingEngine} as the REST controllers, over TCP,
+ * with the fixed-layout frames of {@link com.tribune.demo.ame.gateway.GatewayProtocol}.
+ */
+package com.tribune.demo.ame.gateway;
@@ -0,0 +1,360 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tribune.demo.ame.config.BackpressurePolicy;
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.domain.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An implementation of {@link OrderPublisher} that takes subscribers off the matching thread.
+ * It uses the following:
+ * <ol>
+ * <li>A bounded queue that {@link #publish} only copies the event's type, message and source into.</li>
+ * <li>A single consumer thread that drains the queue in batches and calls the subscribers.</li>
+ * <li>A {@link BackpressurePolicy} applied when the queue is full.</li>
+ * </ol>
+ * Events are delivered in the order they were published, which keeps the order of every asset's events.
+ * With the {@code SPILL} policy, once an event has been spilled to disk every later event is spilled too,
+ * until the consumer has caught up with the file, so the order still holds.
+ * <p>
+ * The queue depth, the lag of the oldest queued event, the dropped and spilled counts, and the time each
+ * subscriber takes are exposed as {@code ame.events.*} meters.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "ame.events", name = "mode", havingValue = "async")
+public class AsyncOrderPublisher implements OrderPublisher, MeterBinder, AutoCloseable {
+
+    private static final long POLL_MILLIS = 10;
+
+    private final Map<OrderEventType, List<TimedSubscriber>> subscribersMap = new EnumMap<>(OrderEventType.class);
+
+    private final BlockingQueue<Pending> queue;
+
+    private final int batchSize;
+
+    private final BackpressurePolicy backpressure;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong spilled = new AtomicLong();
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    private final AtomicLong published = new AtomicLong();
+
+    private volatile MeterRegistry registry;
+
+    // spilling state, guarded by spillLock
+    private final ReentrantLock spillLock = new ReentrantLock();
+    private final Path spillDirectory;
+    private final JsonMapper mapper = JsonMapper.builder().findAndAddModules().build();
+    private volatile boolean spilling;
+    private Path spillFile;
+    private BufferedWriter spillWriter;
+    private BufferedReader spillReader;
+    private long spillBacklog;
+
+
+    public AsyncOrderPublisher(EngineProperties properties) {
+        EngineProperties.EventSettings settings = properties.getEvents();
+        if (settings.getQueueCapacity() <= 0 || settings.getBatchSize() <= 0) {
+            throw new IllegalArgumentException("Event queue capacity and batch size must be positive");
+        }
+        for (OrderEventType event : OrderEventType.values()) {
+            subscribersMap.put(event, new CopyOnWriteArrayList<>());
+        }
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        this.batchSize = settings.getBatchSize();
+        this.backpressure = settings.getBackpressure();
+        this.spillDirectory = Path.of(settings.getSpillDirectory());
+        this.thread = Thread.ofPlatform()
+                .name("ame-events")
+                .daemon(true)
+                .unstarted(this::run);
+        this.thread.start();
+    }
+
+
+    @Override
+    public void publish(OrderEvent event) {
+        if (!running) {
+            throw new IllegalStateException("Order publisher is stopped");
+        }
+        // the event itself may be reused by the caller, only its content is queued
+        Pending pending = new Pending(event.getType(), event.getMessage(), event.getSource(), System.nanoTime());
+        published.incrementAndGet();
+
+        if (!spilling && queue.offer(pending)) {
+            return;
+        }
+        switch (backpressure) {
+            case BLOCK -> {
+                try {
+                    queue.put(pending);
+                } catch (InterruptedException e) {
+                    dropped.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting to publish " + event.getType(), e);
+                }
+            }
+            case DROP -> {
+                dropped.incrementAndGet();
+                log.warn("Event queue is full, dropping a {} event", event.getType());
+            }
+            case SPILL -> spill(pending);
+        }
+    }
+
+    @Override
+    public void subscribe(OrderEventType orderEventType, OrderSubscriber newSubscriber) {
+        log.debug("subscribe - eventType: {}", orderEventType);
+        TimedSubscriber subscription = new TimedSubscriber(orderEventType, newSubscriber);
+        MeterRegistry bound = registry;
+        if (bound != null) {
+            subscription.bindTo(bound);
+        }
+        subscribersMap.get(orderEventType).add(subscription);
+    }
+
+    @Override
+    public void unsubscribe(OrderEventType orderEventType, OrderSubscriber subscriber) {
+        log.debug("unsubscribe - eventType: {}", orderEventType);
+        subscribersMap.get(orderEventType)
+                .removeIf(subscription -> subscription.subscriber.equals(subscriber));
+    }
+
+    @Override
+    public void flush() {
+        long target = published.get();
+        while (delivered.get() + dropped.get() < target) {
+            if (!thread.isAlive()) {
+                throw new IllegalStateException("Order publisher is stopped");
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Gets the number of events waiting to be delivered, including the spilled ones.
+     */
+    public long backlog() {
+        spillLock.lock();
+        try {
+            return queue.size() + spillBacklog;
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Gets how long the oldest queued event has been waiting, in nanoseconds.
+     */
+    public long lagNanos() {
+        Pending oldest = queue.peek();
+        return oldest == null ? 0 : System.nanoTime() - oldest.publishedAt();
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public long spilledCount() {
+        return spilled.get();
+    }
+
+    public long deliveredCount() {
+        return delivered.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ame.events.queue.depth", this, AsyncOrderPublisher::backlog)
+                .description("Events waiting to be delivered")
+                .register(registry);
+        Gauge.builder("ame.events.lag", this, p -> p.lagNanos() / 1e9)
+                .description("Age of the oldest queued event")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("ame.events.dropped", dropped, AtomicLong::get)
+                .description("Events dropped because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("ame.events.spilled", spilled, AtomicLong::get)
+                .description("Events spilled to disk because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("ame.events.delivered", delivered, AtomicLong::get)
+                .description("Events delivered to subscribers")
+                .register(registry);
+        this.registry = registry;
+        subscribersMap.values().forEach(subscribers -> subscribers.forEach(subscription -> subscription.bindTo(registry)));
+    }
+
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (true) {
+            batch.clear();
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                } else if (spilling) {
+                    // the queue is only empty once everything published before the spill was delivered
+                    unspill(batch);
+                } else if (!running) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+            for (Pending pending : batch) {
+                deliver(pending);
+            }
+        }
+        log.debug("Order publisher stopped");
+    }
+
+    private void deliver(Pending pending) {
+        OrderEvent event = new SimpleOrderEvent(pending.source(), pending.message(), pending.type());
+        for (TimedSubscriber subscription : subscribersMap.get(pending.type())) {
+            try {
+                subscription.deliver(event);
+            } catch (RuntimeException e) {
+                log.error("Subscriber failed on a {} event", pending.type(), e);
+            }
+        }
+        delivered.incrementAndGet();
+    }
+
+    private void spill(Pending pending) {
+        spillLock.lock();
+        try {
+            if (!spilling) {
+                // room may have been made while waiting for the lock
+                if (queue.offer(pending)) {
+                    return;
+                }
+                openSpillFile();
+                spilling = true;
+                log.warn("Event queue is full, spilling events to {}", spillFile);
+            }
+            SpilledEvent spilledEvent = new SpilledEvent(pending.type(), pending.message(),
+                    pending.source().getClass().getName(), mapper.valueToTree(pending.source()), pending.publishedAt());
+            spillWriter.write(mapper.writeValueAsString(spilledEvent));
+            spillWriter.newLine();
+            spillBacklog++;
+            spilled.incrementAndGet();
+        } catch (IOException e) {
+            dropped.incrementAndGet();
+            throw new UncheckedIOException("Failed to spill a " + pending.type() + " event", e);
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    private void unspill(List<Pending> batch) {
+        List<String> lines = new ArrayList<>(batchSize);
+        spillLock.lock();
+        try {
+            if (spillBacklog == 0) {
+                closeSpillFile();
+                spilling = false;
+                log.info("Caught up with spilled events");
+                return;
+            }
+            spillWriter.flush();
+            String line;
+            while (lines.size() < batchSize && (line = spillReader.readLine()) != null) {
+                lines.add(line);
+            }
+            spillBacklog -= lines.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spilled events", e);
+        } finally {
+            spillLock.unlock();
+        }
+        for (String line : lines) {
+            try {
+                SpilledEvent spilledEvent = mapper.readValue(line, SpilledEvent.class);
+                Object source = mapper.treeToValue(spilledEvent.source(), Class.forName(spilledEvent.sourceType()));
+                batch.add(new Pending(spilledEvent.type(), spilledEvent.message(), source, spilledEvent.publishedAt()));
+            } catch (IOException | ClassNotFoundException e) {
+                dropped.incrementAndGet();
+                log.error("Skipping a spilled event that cannot be read back: {}", line, e);
+            }
+        }
+    }
+
+    private void openSpillFile() throws IOException {
+        Files.createDirectories(spillDirectory);
+        spillFile = Files.createTempFile(spillDirectory, "ame-events-", ".spill");
+        spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
+        spillReader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8);
+    }
+
+    private void closeSpillFile() throws IOException {
+        spillWriter.close();
+        spillReader.close();
+        Files.deleteIfExists(spillFile);
+        spillWriter = null;
+        spillReader = null;
+        spillFile = null;
+    }
+
+    /**
+     * Stops accepting events, delivers the ones already published and waits for the thread to finish.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    private record Pending(OrderEventType type, String message, Object source, long publishedAt) {
+    }
+
+    private record SpilledEvent(OrderEventType type, String message, String sourceType, JsonNode source,
+                                long publishedAt) {
+    }
+}
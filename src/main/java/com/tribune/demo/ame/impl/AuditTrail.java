@@ -0,0 +1,269 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.domain.*;
+import com.tribune.demo.ame.model.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps an audit trail of every order and trade event, without holding up the thread publishing them.
+ * It uses the following:
+ * <ol>
+ * <li>A pre-allocated ring the fields of every event are copied into, claimed and published as in
+ * {@link OrderRingBuffer}, so recording an event takes no lock and allocates nothing.</li>
+ * <li>A single thread draining the ring into an {@link AuditSink} in sequence order, and flushing the sink
+ * whenever the ring is empty.</li>
+ * </ol>
+ * Nothing is dropped: publishers wait while the ring is full. The backlog, and the records written and failed,
+ * are exposed as {@code ame.audit.*} meters.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "ame.audit", name = "enabled", havingValue = "true")
+public class AuditTrail implements OrderSubscriber, MeterBinder, AutoCloseable {
+
+    private static final int BATCH_SIZE = 256;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final OrderPublisher orderPublisher;
+
+    private final AuditSink sink;
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    // the next sequence to be claimed by a publisher
+    private final AtomicLong claimed = new AtomicLong();
+
+    // the next sequence to be written to the sink
+    private final AtomicLong consumed = new AtomicLong();
+
+    // the sequence last published into each slot
+    private final AtomicLongArray published;
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+
+    public AuditTrail(OrderPublisher orderPublisher, EngineProperties properties, AuditSink sink) {
+        int size = properties.getAudit().getRingSize();
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Audit ring size must be a power of two: " + size);
+        }
+        this.orderPublisher = orderPublisher;
+        this.sink = sink;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        this.thread = Thread.ofPlatform()
+                .name("ame-audit")
+                .daemon(true)
+                .unstarted(this::run);
+        this.thread.start();
+        orderPublisher.subscribe(OrderEventType.SAVE_OR_UPDATE_ORDER, this);
+        orderPublisher.subscribe(OrderEventType.UPDATE_COUNTERPART, this);
+        orderPublisher.subscribe(OrderEventType.UPDATE_LIVE_ORDER, this);
+        orderPublisher.subscribe(OrderEventType.TRIGGER_STOP, this);
+    }
+
+
+    @Override
+    public void onEvent(OrderEvent event) {
+        Object source = event.getSource();
+        if (!(source instanceof Order) && !(source instanceof UpdateCounterpart)) {
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Audit trail is stopped");
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - slots.length >= consumed.get()) {
+            Thread.onSpinWait();
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.timestamp = System.currentTimeMillis();
+        slot.type = event.getType();
+        if (source instanceof Order order) {
+            slot.asset = order.asset();
+            slot.orderId = order.id();
+            slot.counterpartId = -1;
+            slot.direction = order.direction();
+            slot.price = order.price();
+            slot.amount = order.amount();
+            slot.pendingAmount = order.pendingAmount();
+            slot.status = order.status();
+        } else {
+            UpdateCounterpart fill = (UpdateCounterpart) source;
+            slot.asset = fill.asset();
+            slot.orderId = fill.counterPartId();
+            slot.counterpartId = fill.triggerId();
+            slot.direction = null;
+            slot.price = fill.counterpartPrice();
+            slot.amount = fill.counterpartAmount();
+            slot.pendingAmount = fill.counterpartPendingAmount();
+            slot.status = null;
+        }
+        published.set((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Waits until every event recorded so far has been written to the sink.
+     */
+    public void flush() {
+        long target = claimed.get();
+        while (consumed.get() < target) {
+            if (!thread.isAlive()) {
+                throw new IllegalStateException("Audit trail is stopped");
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Gets the number of events recorded but not written yet.
+     */
+    public long backlog() {
+        return Math.max(0, claimed.get() - consumed.get());
+    }
+
+    /**
+     * Gets the number of records handed to the sink so far, including the failed ones.
+     */
+    public long written() {
+        return consumed.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ame.audit.backlog", this, AuditTrail::backlog)
+                .description("Events waiting to be written to the audit trail")
+                .register(registry);
+        FunctionCounter.builder("ame.audit.written", this, AuditTrail::written)
+                .description("Records handed to the audit sink")
+                .register(registry);
+        FunctionCounter.builder("ame.audit.failed", failed, AtomicLong::get)
+                .description("Records the audit sink failed to write")
+                .register(registry);
+    }
+
+
+    private void run() {
+        boolean dirty = false;
+        while (running || hasNext()) {
+            int drained = drain();
+            if (drained > 0) {
+                dirty = true;
+            } else {
+                if (dirty) {
+                    flushSink();
+                    dirty = false;
+                }
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+        flushSink();
+        sink.close();
+        log.debug("Audit trail stopped");
+    }
+
+    private boolean hasNext() {
+        long next = consumed.get();
+        return published.get((int) next & mask) == next;
+    }
+
+    private int drain() {
+        long next = consumed.get();
+        int count = 0;
+        while (count < BATCH_SIZE && published.get((int) next & mask) == next) {
+            Slot slot = slots[(int) next & mask];
+            try {
+                sink.write(slot.toRecord(next));
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                log.error("Failed to write the audit record {}", next, e);
+            } finally {
+                slot.asset = null;
+                consumed.lazySet(++next);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private void flushSink() {
+        try {
+            sink.flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush the audit trail", e);
+        }
+    }
+
+    /**
+     * Stops recording events, writes the ones already recorded and closes the sink.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        orderPublisher.unsubscribe(OrderEventType.SAVE_OR_UPDATE_ORDER, this);
+        orderPublisher.unsubscribe(OrderEventType.UPDATE_COUNTERPART, this);
+        orderPublisher.unsubscribe(OrderEventType.UPDATE_LIVE_ORDER, this);
+        orderPublisher.unsubscribe(OrderEventType.TRIGGER_STOP, this);
+        running = false;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * A mutable, reusable ring entry.
+     */
+    private static final class Slot {
+        long timestamp;
+        OrderEventType type;
+        String asset;
+        long orderId;
+        // -1 for anything but a fill of a resting order
+        long counterpartId;
+        OrderDirection direction;
+        double price;
+        double amount;
+        double pendingAmount;
+        OrderStatus status;
+
+        AuditRecord toRecord(long sequence) {
+            return new AuditRecord(sequence, timestamp, type, asset, orderId, counterpartId < 0 ? null : counterpartId,
+                    direction, price, amount, pendingAmount, status);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.domain.AuditSink;
+import com.tribune.demo.ame.domain.OrderEventType;
+import com.tribune.demo.ame.model.AuditRecord;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import lombok.Getter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * An {@link AuditSink} appending every record to a binary file under {@code ame.audit.directory}, a new file per run.
+ * <p>
+ * A record is laid out as its sequence, timestamp, type ordinal, asset (modified UTF-8), order id, counterpart id,
+ * direction ordinal, price, amount, pending amount and status ordinal, with -1 for the ones it has none of.
+ * The file is created on the first record and written through a buffer, handed to the OS on every {@link #flush}.
+ * See {@link #read} to read it back.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ame.audit", name = "sink", havingValue = "binary", matchIfMissing = true)
+public class BinaryAuditSink implements AuditSink {
+
+    private static final OrderEventType[] TYPES = OrderEventType.values();
+    private static final OrderDirection[] DIRECTIONS = OrderDirection.values();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Path directory;
+
+    @Getter
+    private Path file;
+
+    private DataOutputStream out;
+
+
+    public BinaryAuditSink(EngineProperties properties) {
+        this.directory = Path.of(properties.getAudit().getDirectory());
+    }
+
+    @Override
+    public void write(AuditRecord record) {
+        try {
+            if (out == null) {
+                Files.createDirectories(directory);
+                file = Files.createTempFile(directory, "audit-" + System.currentTimeMillis() + "-", ".bin");
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            }
+            out.writeLong(record.sequence());
+            out.writeLong(record.timestamp());
+            out.writeByte(record.type().ordinal());
+            out.writeUTF(record.asset() != null ? record.asset() : "");
+            out.writeLong(record.orderId());
+            out.writeLong(record.counterpartId() != null ? record.counterpartId() : -1);
+            out.writeByte(record.direction() != null ? record.direction().ordinal() : -1);
+            out.writeDouble(record.price());
+            out.writeDouble(record.amount());
+            out.writeDouble(record.pendingAmount());
+            out.writeByte(record.status() != null ? record.status().ordinal() : -1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the audit record " + record.sequence(), e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush the audit trail to " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close the audit trail " + file, e);
+        }
+    }
+
+    /**
+     * Reads back the records of an audit file, in the order they were written.
+     */
+    public static void read(Path file, Consumer<AuditRecord> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                long sequence;
+                try {
+                    sequence = in.readLong();
+                } catch (EOFException e) {
+                    return;
+                }
+                long timestamp = in.readLong();
+                OrderEventType type = TYPES[in.readByte()];
+                String asset = in.readUTF();
+                long orderId = in.readLong();
+                long counterpartId = in.readLong();
+                byte direction = in.readByte();
+                double price = in.readDouble();
+                double amount = in.readDouble();
+                double pendingAmount = in.readDouble();
+                byte status = in.readByte();
+                consumer.accept(new AuditRecord(sequence, timestamp, type, asset, orderId,
+                        counterpartId < 0 ? null : counterpartId, direction < 0 ? null : DIRECTIONS[direction],
+                        price, amount, pendingAmount, status < 0 ? null : STATUSES[status]));
+            }
+        }
+    }
+}
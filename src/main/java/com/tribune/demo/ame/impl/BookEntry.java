@@ -0,0 +1,96 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+
+import java.time.LocalDateTime;
+
+/**
+ * A resting order inside a {@link BookLevel}.
+ * <p>
+ * Entries are mutable and recycled through a {@link BookEntryPool}: they are filled in place, so only
+ * {@link #remaining} and {@link #visible} change while the order rests, and an immutable {@link Order} is only built
+ * when somebody asks for one.
+ */
+class BookEntry {
+
+    long id;
+    OrderDirection direction;
+
+    // in ticks
+    long price;
+
+    // in lots
+    long amount;
+    long remaining;
+
+    // the most an iceberg shows at a time, 0 for any other order, and how much of the remaining amount it shows
+    long display;
+    long visible;
+
+    LocalDateTime timestamp;
+
+    // the stop price a triggered stop order keeps, 0 for any other order
+    double stopPrice;
+
+    // the submitted order, if the entry was created from one
+    Order order;
+
+    BookLevel level;
+    BookEntry prev;
+    BookEntry next;
+
+
+    /**
+     * Sets up the entry, showing a full slice of an iceberg.
+     */
+    BookEntry set(long id, OrderDirection direction, long price, long amount, long remaining, long display,
+                  LocalDateTime timestamp, double stopPrice, Order order) {
+        this.id = id;
+        this.direction = direction;
+        this.price = price;
+        this.amount = amount;
+        this.remaining = remaining;
+        this.display = display;
+        this.visible = display > 0 ? Math.min(display, remaining) : remaining;
+        this.timestamp = timestamp;
+        this.stopPrice = stopPrice;
+        this.order = order;
+        return this;
+    }
+
+    void clear() {
+        order = null;
+        timestamp = null;
+        level = null;
+        prev = null;
+        next = null;
+    }
+
+    /**
+     * Gets an immutable view of this entry, with the amount still left to be filled as its pending amount.
+     */
+    Order toOrder(Instrument instrument) {
+        Order source = order != null ? order : Order.builder()
+                .id(id)
+                .asset(instrument.asset())
+                .price(instrument.toPrice(price))
+                .amount(instrument.toAmount(amount))
+                .direction(direction)
+                .timestamp(timestamp)
+                .stopPrice(stopPrice)
+                .displayAmount(display > 0 ? instrument.toAmount(display) : 0)
+                .build();
+        return source.withPendingAmount(instrument.toAmount(remaining));
+    }
+
+    /**
+     * Gets the order as it rests, with the part of an iceberg that is not shown as its hidden amount.
+     */
+    Order toRestingOrder(Instrument instrument) {
+        Order resting = toOrder(instrument);
+        return visible < remaining ? resting.withHiddenAmount(instrument.toAmount(remaining - visible)) : resting;
+    }
+}
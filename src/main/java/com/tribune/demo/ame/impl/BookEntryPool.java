@@ -0,0 +1,41 @@
+package com.tribune.demo.ame.impl;
+
+
+/**
+ * A free list of {@link BookEntry} objects, so resting and filling orders does not churn the heap.
+ * It is not thread-safe, it belongs to a single book and is only used under that book's lock.
+ */
+class BookEntryPool {
+
+    private final BookEntry[] free;
+
+    private int size;
+
+
+    /**
+     * @param capacity The maximum number of idle entries kept around, 0 disables pooling.
+     */
+    BookEntryPool(int capacity) {
+        this.free = new BookEntry[capacity];
+    }
+
+    BookEntry acquire() {
+        if (size == 0) {
+            return new BookEntry();
+        }
+        BookEntry entry = free[--size];
+        free[size] = null;
+        return entry;
+    }
+
+    void release(BookEntry entry) {
+        entry.clear();
+        if (size < free.length) {
+            free[size++] = entry;
+        }
+    }
+
+    int idle() {
+        return size;
+    }
+}
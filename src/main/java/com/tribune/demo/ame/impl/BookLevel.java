@@ -0,0 +1,144 @@
+package com.tribune.demo.ame.impl;
+
+
+/**
+ * A single price level of a {@link LadderOrderBook}.
+ * Entries are kept in an intrusive doubly linked list, so appending to the tail and
+ * unlinking any entry both take constant time while the arrival order (FIFO) is preserved.
+ * Every change of the level's totals is published to its {@link DepthView.Level}.
+ * <p>
+ * An iceberg entry only shows its {@link BookEntry#visible} slice; once that is filled, the next slice is shown
+ * and the entry moves to the tail, in constant time, without leaving the level.
+ */
+class BookLevel extends PriceLevelOrderBook.Level {
+
+    private BookEntry head;
+    private BookEntry tail;
+
+    private int size;
+
+    // in lots, the hidden reserves of icebergs included
+    private long totalAmount;
+
+    // in lots, what the entries show
+    private long displayed;
+
+    private final DepthView.Level depth;
+
+    BookLevel(long price, DepthView.Level depth) {
+        super(price);
+        this.depth = depth;
+    }
+
+    BookEntry peek() {
+        return head;
+    }
+
+    @Override
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    long totalAmount() {
+        return totalAmount;
+    }
+
+    void append(BookEntry entry) {
+        link(entry);
+        size++;
+        totalAmount += entry.remaining;
+        displayed += entry.visible;
+        publish();
+    }
+
+    void remove(BookEntry entry) {
+        unlink(entry);
+        size--;
+        totalAmount -= entry.remaining;
+        displayed -= entry.visible;
+        publish();
+        entry.level = null;
+    }
+
+    /**
+     * Takes the given amount off an entry without moving it, an iceberg showing no more than is left.
+     */
+    void reduce(BookEntry entry, long amount) {
+        entry.remaining -= amount;
+        totalAmount -= amount;
+        long visible = Math.min(entry.visible, entry.remaining);
+        displayed -= entry.visible - visible;
+        entry.visible = visible;
+        publish();
+    }
+
+    /**
+     * Fills the given entry, in place as long as it shows something. An iceberg whose slice got filled shows
+     * the next one from the tail, the part of the fill beyond the slice already taken off it: a fill may take
+     * several slices at once, when nothing else at the level stands between them.
+     *
+     * @return true if the entry got fully filled and was removed from this level.
+     */
+    boolean fill(BookEntry entry, long amount) {
+        if (amount == entry.remaining) {
+            remove(entry);
+            entry.remaining = 0;
+            entry.visible = 0;
+            return true;
+        }
+        entry.remaining -= amount;
+        totalAmount -= amount;
+        if (amount < entry.visible) {
+            entry.visible -= amount;
+            displayed -= amount;
+        } else {
+            long beyond = (amount - entry.visible) % entry.display;
+            displayed -= entry.visible;
+            entry.visible = Math.min(entry.display - beyond, entry.remaining);
+            displayed += entry.visible;
+            if (tail != entry) {
+                unlink(entry);
+                link(entry);
+            }
+        }
+        publish();
+        return false;
+    }
+
+    private void link(BookEntry entry) {
+        entry.level = this;
+        entry.prev = tail;
+        entry.next = null;
+        if (tail == null) {
+            head = entry;
+        } else {
+            tail.next = entry;
+        }
+        tail = entry;
+    }
+
+    private void unlink(BookEntry entry) {
+        if (entry.prev == null) {
+            head = entry.next;
+        } else {
+            entry.prev.next = entry.next;
+        }
+        if (entry.next == null) {
+            tail = entry.prev;
+        } else {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private void publish() {
+        depth.set(displayed, totalAmount - displayed, size);
+    }
+}
@@ -0,0 +1,87 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The order books of the engine, by asset name and by asset id.
+ * <p>
+ * Lookups never lock, so books can be created and deleted while orders flow through the others.
+ * Every book is given the next asset id when it is registered; ids are never reused, and are only stable
+ * for the life of the process. Registering and removing books is serialized by this registry.
+ */
+final class BookRegistry {
+
+    /**
+     * A registered book and its asset id.
+     */
+    record Registered(int id, OrderBook book) {
+    }
+
+    private final Map<String, Registered> byName = new ConcurrentHashMap<>();
+
+    // copied on every change, so a lookup is a single volatile read
+    private volatile OrderBook[] byId = new OrderBook[16];
+
+    private int nextId;
+
+
+    Registered get(String name) {
+        return byName.get(name);
+    }
+
+    OrderBook get(int id) {
+        OrderBook[] books = byId;
+        return id >= 0 && id < books.length ? books[id] : null;
+    }
+
+    /**
+     * Registers the book under its asset, unless one is already registered there.
+     *
+     * @return The book registered under the asset.
+     */
+    synchronized Registered register(OrderBook book) {
+        Registered existing = byName.get(book.getAsset());
+        if (existing != null) {
+            return existing;
+        }
+        int id = nextId++;
+        OrderBook[] books = Arrays.copyOf(byId, Math.max(byId.length, Integer.highestOneBit(id) << 1));
+        books[id] = book;
+        byId = books;
+        Registered registered = new Registered(id, book);
+        byName.put(book.getAsset(), registered);
+        return registered;
+    }
+
+    /**
+     * Removes the book registered under the asset.
+     *
+     * @return The removed book, or null if there was none.
+     */
+    synchronized OrderBook remove(String name) {
+        Registered removed = byName.remove(name);
+        if (removed == null) {
+            return null;
+        }
+        OrderBook[] books = byId.clone();
+        books[removed.id()] = null;
+        byId = books;
+        return removed.book();
+    }
+
+    /**
+     * Gets every registered book, by asset id.
+     */
+    List<Registered> all() {
+        List<Registered> all = new ArrayList<>(byName.values());
+        all.sort((a, b) -> Integer.compare(a.id(), b.id()));
+        return all;
+    }
+}
@@ -0,0 +1,244 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.model.BookCommand;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderBatchResult;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A dedicated thread that owns one or more {@link OrderBook}s.
+ * <p>
+ * Commands are published into an {@link OrderRingBuffer} by any number of threads and applied here one at a time,
+ * so the owned books only ever have a single writer.
+ * When there is nothing to do the thread spins briefly and then parks until a producer wakes it up.
+ * <p>
+ * A book is handed over to another worker by a {@code MOVE} command applied by its current owner. A command
+ * reaching a worker that no longer owns its book is forwarded to the new owner rather than applied, so a book
+ * still never has two writers while it moves.
+ * <p>
+ * The worker never waits for the journal: it completes the future of a journalled command with the position the
+ * command ended at, and the caller waits for that position to be durable, so one fsync covers the commands of every
+ * book of the worker.
+ */
+@Slf4j
+public class BookWorker implements AutoCloseable {
+
+    private static final int SPIN_TRIES = 200;
+    private static final int BATCH_SIZE = 256;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Getter
+    private final String name;
+
+    private final OrderRingBuffer ringBuffer;
+
+    private final Thread thread;
+
+    private final OrderRingBuffer.SlotHandler handler = this::apply;
+
+    private volatile boolean running = true;
+
+    // only written by the worker's thread
+    private final AtomicLong commands = new AtomicLong();
+
+    // set while the worker is about to park, so producers know they have to wake it up
+    private volatile boolean sleeping;
+
+    // the worker's own thread's, tells a metered book how long the command it applies was queued
+    private MeteredOrderBook.Probe probe;
+
+
+    public BookWorker(String name, int ringSize) {
+        this.name = name;
+        this.ringBuffer = new OrderRingBuffer(ringSize);
+        this.thread = Thread.ofPlatform()
+                .name(name)
+                .daemon(true)
+                .unstarted(this::run);
+        this.thread.start();
+    }
+
+    /**
+     * Hands a command over to this worker.
+     *
+     * @return A future completed, on this worker's thread, with the outcome of the command.
+     */
+    Completion execute(OrderRingBuffer.Command command, SingleWriterOrderBook book, Order order) {
+        return execute(command, book, order, -1, null, null, null, null, null, null, new Completion(),
+                System.nanoTime());
+    }
+
+    /**
+     * Hands a command targeting a resting order over to this worker.
+     *
+     * @return A future completed, on this worker's thread, with the outcome of the command.
+     */
+    Completion execute(OrderRingBuffer.Command command, SingleWriterOrderBook book, long id, Double price,
+                       Double amount, LocalDateTime timestamp) {
+        return execute(command, book, null, id, price, amount, timestamp, null, null, null, new Completion(),
+                System.nanoTime());
+    }
+
+    /**
+     * Hands a batch of commands over to this worker, applied one after the other with nothing in between.
+     *
+     * @param results The list the outcome of each command is added to, in order.
+     * @return A future completed, on this worker's thread, once the whole batch is applied.
+     */
+    Completion execute(SingleWriterOrderBook book, List<BookCommand> batch, List<OrderBatchResult> results) {
+        return execute(OrderRingBuffer.Command.BATCH, book, null, -1, null, null, null, null, batch, results,
+                new Completion(), System.nanoTime());
+    }
+
+    /**
+     * Hands the book over to the target worker, once every command this worker received before is applied.
+     *
+     * @return A future completed, on this worker's thread, once the target owns the book.
+     */
+    Completion move(SingleWriterOrderBook book, BookWorker target) {
+        return execute(OrderRingBuffer.Command.MOVE, book, null, -1, null, null, null, target, null, null,
+                new Completion(), System.nanoTime());
+    }
+
+    private Completion execute(OrderRingBuffer.Command command, SingleWriterOrderBook book, Order order,
+                               long id, Double price, Double amount, LocalDateTime timestamp,
+                               BookWorker target, List<BookCommand> batch,
+                               List<OrderBatchResult> results, Completion future, long published) {
+        // the ring refuses the commands that come too late to be applied
+        long sequence = running ? ringBuffer.claim() : -1;
+        if (sequence < 0) {
+            throw new IllegalStateException("Book worker is stopped: " + name);
+        }
+        OrderRingBuffer.Slot slot = ringBuffer.slot(sequence);
+        slot.command = command;
+        slot.book = book;
+        slot.order = order;
+        slot.id = id;
+        slot.price = price;
+        slot.amount = amount;
+        slot.timestamp = timestamp;
+        slot.target = target;
+        slot.batch = batch;
+        slot.results = results;
+        slot.future = future;
+        slot.published = published;
+        ringBuffer.publish(sequence);
+
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+        return future;
+    }
+
+    /**
+     * Gets the number of commands waiting to be applied.
+     */
+    public long backlog() {
+        return ringBuffer.size();
+    }
+
+    /**
+     * Gets the number of commands applied so far.
+     */
+    public long commands() {
+        return commands.get();
+    }
+
+    private void run() {
+        probe = MeteredOrderBook.Probe.current();
+        int idle = 0;
+        while (running) {
+            int drained = ringBuffer.drain(handler, BATCH_SIZE);
+            if (drained > 0) {
+                idle = 0;
+            } else if (idle < SPIN_TRIES) {
+                idle++;
+                Thread.onSpinWait();
+            } else {
+                sleeping = true;
+                if (running && !ringBuffer.hasNext()) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+        // the commands claimed until now are applied, as soon as their producers publish them
+        ringBuffer.close(handler);
+        log.debug("Book worker {} stopped", name);
+    }
+
+    private void apply(OrderRingBuffer.Slot slot) {
+        Completion future = slot.future;
+        try {
+            BookWorker owner = slot.book.getWorker();
+            if (owner != this) {
+                // the book moved after this command was published
+                owner.execute(slot.command, slot.book, slot.order, slot.id, slot.price, slot.amount, slot.timestamp,
+                        slot.target, slot.batch, slot.results, future, slot.published);
+                return;
+            }
+            // counted before the caller hears back
+            commands.lazySet(commands.get() + (slot.batch != null ? slot.batch.size() : 1));
+            probe.queued = System.nanoTime() - slot.published;
+            OrderBook book = slot.book.getDelegate();
+            Order result = switch (slot.command) {
+                case SUBMIT -> book.submit(slot.order);
+                case SELL -> book.sell(slot.order);
+                case BUY -> book.buy(slot.order);
+                case CANCEL -> book.cancel(slot.id);
+                case AMEND -> book.amend(slot.id, slot.price, slot.amount, slot.timestamp);
+                case BATCH -> {
+                    slot.results.addAll(book.submitBatch(slot.batch));
+                    yield null;
+                }
+                case MOVE -> {
+                    slot.book.setWorker(slot.target);
+                    yield null;
+                }
+            };
+            if (slot.command != OrderRingBuffer.Command.MOVE && book instanceof JournalingOrderBook journalling) {
+                future.position = journalling.lastPosition();
+            }
+            future.complete(result);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Stops accepting commands, applies the ones already handed over and waits for the thread to finish.
+     * A command handed over meanwhile is either applied or refused, so every caller hears back.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * The future of a command, which also tells the journal position the command ended at.
+     */
+    static final class Completion extends CompletableFuture<Order> {
+
+        // written by the worker before it completes the future, which publishes it
+        long position = CommandJournal.NONE;
+    }
+}
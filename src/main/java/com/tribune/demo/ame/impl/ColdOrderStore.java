@@ -0,0 +1,249 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.Order;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A file-backed store of orders that no longer change, the cold tier of {@link TieredOrderArchive}.
+ * <p>
+ * Orders are appended to a data file in the compact binary form of {@link OrderCodec}. Order ids are handed out sequentially,
+ * so the index is a second file holding the data offset of order {@code id} at position {@code id * 8}
+ * (sparse on disk), and the store itself keeps nothing per order on the heap.
+ * Both files are created on the first write and deleted on {@link #close()}, so the orders written so far are read back
+ * into every snapshot of the engine.
+ */
+class ColdOrderStore implements AutoCloseable {
+
+    private final Path directory;
+
+    private volatile FileChannel data;
+
+    private volatile FileChannel index;
+
+    private Path dataFile;
+
+    private Path indexFile;
+
+    // guarded by this
+    private long end;
+
+    // records in the data file, guarded by this
+    private long records;
+
+    private volatile long count;
+
+
+    ColdOrderStore(Path directory) {
+        this.directory = directory;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Appends the order, a later write of the same id replaces it.
+     */
+    synchronized void write(Order order) {
+        try {
+            if (data == null) {
+                open();
+            }
+            byte[] payload = encode(order);
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + payload.length);
+            record.putInt(payload.length).put(payload).flip();
+            long offset = end;
+            writeFully(data, record, offset);
+            end += record.capacity();
+            records++;
+
+            // the data is written before the index points to it, so readers never see a partial record
+            ByteBuffer slot = ByteBuffer.allocate(Long.BYTES);
+            if (readFully(index, slot, order.id() * Long.BYTES) < Long.BYTES || slot.getLong(0) == 0) {
+                count++;
+            }
+            slot.clear();
+            // 0 marks a missing order, so offsets are stored plus one
+            slot.putLong(0, offset + 1);
+            writeFully(index, slot, order.id() * Long.BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive order " + order.id(), e);
+        }
+    }
+
+    /**
+     * Reads an order back, or returns null if it was never written.
+     */
+    Order read(long id) {
+        FileChannel index = this.index;
+        if (index == null || id < 0) {
+            return null;
+        }
+        try {
+            ByteBuffer slot = ByteBuffer.allocate(Long.BYTES);
+            if (readFully(index, slot, id * Long.BYTES) < Long.BYTES || slot.getLong(0) == 0) {
+                return null;
+            }
+            long offset = slot.getLong(0) - 1;
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(data, length, offset);
+            ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+            readFully(data, payload, offset + Integer.BYTES);
+            return decode(payload.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived order " + id, e);
+        }
+    }
+
+    /**
+     * Takes the orders written so far, read back from the data file as they are iterated, so they are never all on the heap.
+     * Orders written afterwards are not part of it, and an order written more than once comes back once per write, the latest last.
+     */
+    synchronized Collection<Order> written() {
+        if (data == null) {
+            return List.of();
+        }
+        FileChannel data = this.data;
+        long end = this.end;
+        int size = Math.toIntExact(records);
+        return new AbstractCollection<>() {
+
+            @Override
+            public Iterator<Order> iterator() {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new ChannelInputStream(data, end), 1 << 16));
+                return new Iterator<>() {
+
+                    private int read;
+
+                    @Override
+                    public boolean hasNext() {
+                        return read < size;
+                    }
+
+                    @Override
+                    public Order next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        try {
+                            // the length prefix is only needed for reads by offset
+                            in.readInt();
+                            read++;
+                            return OrderCodec.read(in);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Failed to read the archived orders", e);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        dataFile = Files.createTempFile(directory, "ame-archive-", ".data");
+        indexFile = Files.createTempFile(directory, "ame-archive-", ".index");
+        index = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        data = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (data == null) {
+            return;
+        }
+        try {
+            data.close();
+            index.close();
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(indexFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete the archive files", e);
+        } finally {
+            data = null;
+            index = null;
+        }
+    }
+
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    private static byte[] encode(Order order) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + order.trades().size() * 24);
+        OrderCodec.write(new DataOutputStream(bytes), order);
+        return bytes.toByteArray();
+    }
+
+    private static Order decode(byte[] payload) throws IOException {
+        return OrderCodec.read(new DataInputStream(new ByteArrayInputStream(payload)));
+    }
+
+
+    /**
+     * Reads a channel from the start up to a given position, with positional reads that leave the channel as it is.
+     */
+    private static final class ChannelInputStream extends InputStream {
+
+        private final FileChannel channel;
+
+        private final long end;
+
+        private long position;
+
+        private ChannelInputStream(FileChannel channel, long end) {
+            this.channel = channel;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+    }
+}
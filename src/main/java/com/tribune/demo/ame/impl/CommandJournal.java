@@ -0,0 +1,620 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.JournalFsyncPolicy;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderType;
+import com.tribune.demo.ame.model.TimeInForce;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only binary log of the commands accepted by the matching engine, replayed on startup to rebuild it.
+ * <p>
+ * Commands are appended to an in-memory buffer under a lock, and a dedicated thread swaps that buffer with a spare one,
+ * writes it out and forces it to disk. Every command appended while a batch is being forced goes out with the next one,
+ * so a single fsync covers as many commands as arrived during the previous one.
+ * With the {@link JournalFsyncPolicy#BATCH} policy, {@link #awaitDurable} waits for the batch holding a command to be
+ * on disk, and the future of {@link #whenDurable} is completed by the thread once it is; with {@link JournalFsyncPolicy#ASYNC}, it returns straight away and the thread forces the log every
+ * {@code ame.journal.flush-interval}.
+ * <p>
+ * Each record is {@code [length][type][payload][crc32c]}. A record cut short by a crash fails its checksum, and is
+ * truncated away on replay with anything after it.
+ */
+@Slf4j
+public class CommandJournal implements AutoCloseable {
+
+    static final String FILE_NAME = "commands.journal";
+
+    /**
+     * The position returned for commands that were not journalled, because they are being replayed.
+     */
+    public static final long NONE = -1;
+
+    private static final byte SUBMIT = 1;
+    private static final byte CANCEL = 2;
+    private static final byte AMEND = 3;
+    private static final byte CREATE_BOOK = 4;
+    private static final byte DELETE_BOOK = 5;
+    // a SUBMIT followed by the order's type and time in force, for anything but a good till cancelled limit order
+    private static final byte SUBMIT_WITH_TERMS = 6;
+    // a SUBMIT_WITH_TERMS followed by the stop price, for a stop order
+    private static final byte SUBMIT_STOP = 7;
+    // a SUBMIT_STOP followed by the display amount, for an iceberg order
+    private static final byte SUBMIT_ICEBERG = 8;
+
+    // the length, the type and the checksum
+    private static final int OVERHEAD = Integer.BYTES + 1 + Integer.BYTES;
+
+    // a presence flag, the epoch second and the nanos
+    private static final int TIMESTAMP_BYTES = 1 + Long.BYTES + Integer.BYTES;
+
+    private static final OrderDirection[] DIRECTIONS = OrderDirection.values();
+
+    private static final OrderType[] TYPES = OrderType.values();
+
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    /**
+     * Applies the journalled commands, in the order they were accepted.
+     */
+    public interface Replayer {
+
+        void submit(Order order);
+
+        void cancel(String asset, long id);
+
+        void amend(String asset, long id, Double price, Double amount, LocalDateTime timestamp);
+
+        void createBook(String name);
+
+        void deleteBook(String name);
+    }
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final JournalFsyncPolicy fsync;
+
+    private final long flushIntervalNanos;
+
+    private final Thread thread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // signalled when there is something for the thread to write
+    private final Condition pending = lock.newCondition();
+
+    // signalled when a batch was written, which frees the buffer and may make commands durable
+    private final Condition flushed = lock.newCondition();
+
+    // guarded by lock
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer active;
+    private ByteBuffer spare;
+    private long appended;
+    private long durable;
+    private long commands;
+    private boolean replaying;
+    private IOException failure;
+    // the futures of whenDurable, by position
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(Comparator.comparingLong(Waiter::position));
+
+    private volatile boolean running = true;
+
+
+    public CommandJournal(EngineProperties.JournalSettings settings) {
+        if (settings.getBufferSize() <= 0) {
+            throw new IllegalArgumentException("Journal buffer size must be positive");
+        }
+        this.fsync = settings.getFsync();
+        this.flushIntervalNanos = settings.getFlushInterval().toNanos();
+        this.active = ByteBuffer.allocateDirect(settings.getBufferSize());
+        this.spare = ByteBuffer.allocateDirect(settings.getBufferSize());
+        try {
+            Path directory = Path.of(settings.getDirectory());
+            Files.createDirectories(directory);
+            this.file = directory.resolve(FILE_NAME);
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.appended = channel.size();
+            this.durable = appended;
+            channel.position(appended);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the journal in " + settings.getDirectory(), e);
+        }
+        this.thread = Thread.ofPlatform()
+                .name("ame-journal")
+                .daemon(true)
+                .unstarted(this::run);
+        this.thread.start();
+    }
+
+
+    public long submit(Order order) {
+        byte[] asset = order.asset().getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (replaying) {
+                return NONE;
+            }
+            boolean iceberg = order.displayAmount() != 0;
+            boolean stop = iceberg || order.stopPrice() != 0;
+            boolean terms = stop || order.type() != OrderType.LIMIT || !order.rests();
+            int start = begin(iceberg ? SUBMIT_ICEBERG : stop ? SUBMIT_STOP : terms ? SUBMIT_WITH_TERMS : SUBMIT,
+                    Long.BYTES + Short.BYTES + asset.length + 2 * Double.BYTES + 1 + TIMESTAMP_BYTES
+                            + (terms ? 2 : 0) + (stop ? Double.BYTES : 0) + (iceberg ? Double.BYTES : 0));
+            active.putLong(order.id());
+            putString(asset);
+            active.putDouble(order.price());
+            active.putDouble(order.amount());
+            active.put(order.direction() == null ? -1 : (byte) order.direction().ordinal());
+            putTimestamp(order.timestamp());
+            if (terms) {
+                active.put((byte) order.type().ordinal());
+                active.put((byte) order.timeInForce().ordinal());
+            }
+            if (stop) {
+                active.putDouble(order.stopPrice());
+            }
+            if (iceberg) {
+                active.putDouble(order.displayAmount());
+            }
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long cancel(String asset, long id) {
+        byte[] name = asset.getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (replaying) {
+                return NONE;
+            }
+            int start = begin(CANCEL, Short.BYTES + name.length + Long.BYTES);
+            putString(name);
+            active.putLong(id);
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long amend(String asset, long id, Double price, Double amount, LocalDateTime timestamp) {
+        byte[] name = asset.getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (replaying) {
+                return NONE;
+            }
+            int start = begin(AMEND, Short.BYTES + name.length + Long.BYTES + 2 * (1 + Double.BYTES) + TIMESTAMP_BYTES);
+            putString(name);
+            active.putLong(id);
+            putNullable(price);
+            putNullable(amount);
+            putTimestamp(timestamp);
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long createBook(String name) {
+        return bookCommand(CREATE_BOOK, name);
+    }
+
+    public long deleteBook(String name) {
+        return bookCommand(DELETE_BOOK, name);
+    }
+
+    /**
+     * Waits for everything up to the given position to be on disk, with the {@code BATCH} fsync policy.
+     *
+     * @param position A position returned when journalling a command.
+     */
+    public void awaitDurable(long position) {
+        if (fsync == JournalFsyncPolicy.BATCH) {
+            sync(position);
+        }
+    }
+
+    /**
+     * Gets a future completed once everything up to the given position is on disk, with the {@code BATCH} fsync policy,
+     * so a caller can wait for its command without holding a thread.
+     *
+     * @param position A position returned when journalling a command.
+     */
+    public CompletableFuture<Void> whenDurable(long position) {
+        if (fsync != JournalFsyncPolicy.BATCH || position == NONE) {
+            return CompletableFuture.completedFuture(null);
+        }
+        lock.lock();
+        try {
+            if (durable >= position) {
+                return CompletableFuture.completedFuture(null);
+            }
+            checkOpen();
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            waiters.add(new Waiter(position, future));
+            return future;
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for everything up to the given position to be on disk, whatever the fsync policy.
+     */
+    public void sync(long position) {
+        if (position == NONE) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durable < position) {
+                checkOpen();
+                flushed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the size of the journal, including what was appended but not written yet.
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of commands journalled since the journal was opened, including the replayed ones.
+     */
+    public long commands() {
+        lock.lock();
+        try {
+            return commands;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the commands of the journal from the given position, then lets new commands be appended after them.
+     * It must be called before anything is appended.
+     * Only accepted commands are journalled, so a command the engine rejects on replay fails it: the journal
+     * no longer matches the engine.
+     * An incomplete or corrupted tail, left by a crash, is truncated.
+     *
+     * @param from The position of the first command to apply, 0 or a position returned when journalling a command.
+     * @return The number of commands replayed.
+     */
+    public long replay(long from, Replayer replayer) {
+        // replayed commands go through the books again, possibly on other threads, which must not journal them
+        setReplaying(true);
+        try {
+            long position = from;
+            long count = 0;
+            if (from > channel.size()) {
+                throw new IllegalArgumentException("Cannot replay the journal from " + from + ", it only has " + channel.size() + " bytes");
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(from)), 1 << 16));
+            CRC32C check = new CRC32C();
+            byte[] record = new byte[256];
+            long size = channel.size();
+            while (position + OVERHEAD <= size) {
+                int length = in.readInt();
+                if (length < 1 || position + OVERHEAD - 1 + length > size) {
+                    break;
+                }
+                if (record.length < length) {
+                    record = new byte[Math.max(length, record.length * 2)];
+                }
+                in.readFully(record, 0, length);
+                check.reset();
+                check.update(record, 0, length);
+                if ((int) check.getValue() != in.readInt()) {
+                    break;
+                }
+                try {
+                    apply(ByteBuffer.wrap(record, 0, length), replayer);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException("Rejected the journalled command at " + position + " of " + file, e);
+                }
+                position += OVERHEAD - 1 + length;
+                count++;
+            }
+            if (position < size) {
+                log.warn("Truncating the journal at {} of {} bytes, the rest is incomplete", position, size);
+                channel.truncate(position);
+            }
+            channel.position(position);
+            lock.lock();
+            try {
+                appended = position;
+                durable = position;
+                commands = count;
+            } finally {
+                lock.unlock();
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay the journal " + file, e);
+        } finally {
+            setReplaying(false);
+        }
+    }
+
+    private void setReplaying(boolean replaying) {
+        lock.lock();
+        try {
+            this.replaying = replaying;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(ByteBuffer record, Replayer replayer) {
+        byte type = record.get();
+        switch (type) {
+            case SUBMIT, SUBMIT_WITH_TERMS, SUBMIT_STOP, SUBMIT_ICEBERG -> {
+                Order.OrderBuilder order = Order.builder()
+                        .id(record.getLong())
+                        .asset(getString(record))
+                        .price(record.getDouble())
+                        .amount(record.getDouble())
+                        .direction(getDirection(record))
+                        .timestamp(getTimestamp(record));
+                if (type != SUBMIT) {
+                    order.type(TYPES[record.get()]).timeInForce(TIMES_IN_FORCE[record.get()]);
+                }
+                if (type == SUBMIT_STOP || type == SUBMIT_ICEBERG) {
+                    order.stopPrice(record.getDouble());
+                }
+                if (type == SUBMIT_ICEBERG) {
+                    order.displayAmount(record.getDouble());
+                }
+                replayer.submit(order.build());
+            }
+            case CANCEL -> replayer.cancel(getString(record), record.getLong());
+            case AMEND -> replayer.amend(getString(record), record.getLong(),
+                    getNullable(record), getNullable(record), getTimestamp(record));
+            case CREATE_BOOK -> replayer.createBook(getString(record));
+            case DELETE_BOOK -> replayer.deleteBook(getString(record));
+            default -> throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+
+    private long bookCommand(byte type, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (replaying) {
+                return NONE;
+            }
+            int start = begin(type, Short.BYTES + bytes.length);
+            putString(bytes);
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // reserves room for a whole record in the active buffer and writes its header, with the lock held
+    private int begin(byte type, int payload) {
+        int size = OVERHEAD + payload;
+        if (size > active.capacity()) {
+            throw new IllegalArgumentException("Command too large for the journal buffer: " + size + " bytes");
+        }
+        try {
+            while (active.remaining() < size) {
+                checkOpen();
+                pending.signal();
+                flushed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal", e);
+        }
+        checkOpen();
+        int start = active.position();
+        active.putInt(payload + 1);
+        active.put(type);
+        return start;
+    }
+
+    // writes the checksum of the record started at the given position, with the lock held
+    private long end(int start) {
+        int length = active.position() - start - Integer.BYTES;
+        crc.reset();
+        crc.update(active.slice(start + Integer.BYTES, length));
+        active.putInt((int) crc.getValue());
+        appended += active.position() - start;
+        commands++;
+        if (fsync == JournalFsyncPolicy.BATCH) {
+            pending.signal();
+        }
+        return appended;
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new IllegalStateException("The journal failed", failure);
+        }
+        if (!running) {
+            throw new IllegalStateException("The journal is closed");
+        }
+    }
+
+    private void putString(byte[] bytes) {
+        active.putShort((short) bytes.length);
+        active.put(bytes);
+    }
+
+    private void putNullable(Double value) {
+        active.put((byte) (value != null ? 1 : 0));
+        active.putDouble(value != null ? value : 0);
+    }
+
+    private void putTimestamp(LocalDateTime timestamp) {
+        active.put((byte) (timestamp != null ? 1 : 0));
+        active.putLong(timestamp != null ? timestamp.toEpochSecond(ZoneOffset.UTC) : 0);
+        active.putInt(timestamp != null ? timestamp.getNano() : 0);
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Double getNullable(ByteBuffer record) {
+        boolean present = record.get() == 1;
+        double value = record.getDouble();
+        return present ? value : null;
+    }
+
+    private static LocalDateTime getTimestamp(ByteBuffer record) {
+        boolean present = record.get() == 1;
+        long seconds = record.getLong();
+        int nanos = record.getInt();
+        return present ? LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC) : null;
+    }
+
+    private static OrderDirection getDirection(ByteBuffer record) {
+        byte direction = record.get();
+        return direction < 0 ? null : DIRECTIONS[direction];
+    }
+
+
+    private void run() {
+        while (true) {
+            ByteBuffer batch;
+            long end;
+            lock.lock();
+            try {
+                if (fsync == JournalFsyncPolicy.ASYNC && running) {
+                    // woken up early only when the buffer is full or the journal is closing
+                    pending.awaitNanos(flushIntervalNanos);
+                }
+                while (active.position() == 0 && running) {
+                    pending.await();
+                }
+                if (active.position() == 0) {
+                    break;
+                }
+                batch = active;
+                active = spare;
+                spare = batch;
+                end = appended;
+            } catch (InterruptedException e) {
+                continue;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            batch.clear();
+
+            List<Waiter> done = new ArrayList<>();
+            lock.lock();
+            try {
+                if (error != null) {
+                    log.error("Failed to write the journal {}", file, error);
+                    failure = error;
+                    running = false;
+                } else {
+                    durable = end;
+                }
+                while (!waiters.isEmpty() && (error != null || waiters.peek().position() <= durable)) {
+                    done.add(waiters.poll());
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            // outside the lock, as completing a future runs what waits on it
+            for (Waiter waiter : done) {
+                if (error != null) {
+                    waiter.future().completeExceptionally(new IllegalStateException("The journal failed", error));
+                } else {
+                    waiter.future().complete(null);
+                }
+            }
+            if (error != null) {
+                break;
+            }
+        }
+        log.debug("Journal writer stopped");
+    }
+
+    /**
+     * Stops accepting commands, writes the ones already appended and closes the file.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            pending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close the journal " + file, e);
+        }
+    }
+
+
+    private record Waiter(long position, CompletableFuture<Void> future) {
+    }
+}
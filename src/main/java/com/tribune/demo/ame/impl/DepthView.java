@@ -0,0 +1,231 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An aggregated view of a book's price levels, kept up to date by the book as orders rest, fill and leave.
+ * <p>
+ * The book is its only writer, under whatever guards the book itself. Readers never lock: they walk
+ * {@link ConcurrentSkipListMap}s of levels whose totals are volatile, so depth and top-of-book requests
+ * cost O(levels asked for) and never hold up matching. In exchange, a read racing with a match may see
+ * one level already updated and the next one not yet.
+ */
+public class DepthView {
+
+    /**
+     * The totals of one price level, in ticks and lots.
+     */
+    public static final class Level {
+
+        final long price;
+
+        // what is displayed, the only amount depth and top-of-book requests show
+        volatile long amount;
+
+        // the reserve of the icebergs resting at the level, which can still be matched
+        volatile long hidden;
+
+        volatile int orders;
+
+        Level(long price) {
+            this.price = price;
+        }
+
+        /**
+         * Publishes the new totals of the level.
+         */
+        void set(long amount, long hidden, int orders) {
+            this.amount = amount;
+            this.hidden = hidden;
+            this.orders = orders;
+        }
+    }
+
+    private final Instrument instrument;
+
+    // the best (highest) buying price comes first
+    private final NavigableMap<Long, Level> bids = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+
+    // the best (lowest) selling price comes first
+    private final NavigableMap<Long, Level> asks = new ConcurrentSkipListMap<>();
+
+
+    public DepthView(Instrument instrument) {
+        this.instrument = instrument;
+    }
+
+    /**
+     * Gets the level at the given price, adding an empty one if there is none.
+     */
+    Level open(OrderDirection side, long price) {
+        NavigableMap<Long, Level> levels = side(side);
+        Level level = levels.get(price);
+        if (level == null) {
+            level = new Level(price);
+            levels.put(price, level);
+        }
+        return level;
+    }
+
+    /**
+     * Takes the level at the given price out of the view.
+     */
+    void close(OrderDirection side, long price) {
+        side(side).remove(price);
+    }
+
+    /**
+     * An order rests at the given price, showing the given amount and hiding the rest.
+     */
+    void add(OrderDirection side, long price, long amount, long hidden) {
+        Level level = open(side, price);
+        level.set(level.amount + amount, level.hidden + hidden, level.orders + 1);
+    }
+
+    /**
+     * The displayed part of an order resting at the given price was partly filled or reduced.
+     */
+    void reduce(OrderDirection side, long price, long amount) {
+        change(side, price, -amount, 0);
+    }
+
+    /**
+     * The displayed and hidden parts of an order resting at the given price changed by the given amounts,
+     * as when an iceberg is filled or refilled.
+     */
+    void change(OrderDirection side, long price, long amount, long hidden) {
+        Level level = side(side).get(price);
+        if (level != null) {
+            level.set(level.amount + amount, level.hidden + hidden, level.orders);
+        }
+    }
+
+    /**
+     * An order left the given price, with the given amounts still unfilled.
+     */
+    void remove(OrderDirection side, long price, long amount, long hidden) {
+        Level level = side(side).get(price);
+        if (level == null) {
+            return;
+        }
+        if (level.orders <= 1) {
+            close(side, price);
+        } else {
+            level.set(level.amount - amount, level.hidden - hidden, level.orders - 1);
+        }
+    }
+
+    /**
+     * Gets the number of orders resting at the given price.
+     */
+    int orders(OrderDirection side, long price) {
+        Level level = side(side).get(price);
+        return level == null ? 0 : level.orders;
+    }
+
+    /**
+     * Gets the amount resting on the given side at the given price or better, hidden reserves included, from the level totals,
+     * walking the levels best first and stopping as soon as {@code wanted} is reached.
+     * Only the book's own writer sees exact totals.
+     *
+     * @param limit  The worst price, in ticks.
+     * @param wanted The amount looked for, in lots.
+     * @return The amount found, in lots, at most a level's worth above {@code wanted}.
+     */
+    long available(OrderDirection side, long limit, long wanted) {
+        long found = 0;
+        for (Level level : side(side).headMap(limit, true).values()) {
+            found += level.amount + level.hidden;
+            if (found >= wanted) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    public TopOfBook top() {
+        return TopOfBook.builder()
+                .asset(instrument.asset())
+                .bid(best(bids))
+                .ask(best(asks))
+                .build();
+    }
+
+    /**
+     * Gets up to the given number of levels per side, best price first.
+     */
+    public BookDepth depth(int levels) {
+        return BookDepth.builder()
+                .asset(instrument.asset())
+                .bids(levels(bids, levels))
+                .asks(levels(asks, levels))
+                .build();
+    }
+
+    /**
+     * Gets the number of non-empty price levels on the given side, in O(levels).
+     */
+    public int levelCount(OrderDirection side) {
+        int count = 0;
+        for (Level level : side(side).values()) {
+            if (level.orders > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of orders resting on the given side, in O(levels).
+     */
+    public long orderCount(OrderDirection side) {
+        long count = 0;
+        for (Level level : side(side).values()) {
+            count += level.orders;
+        }
+        return count;
+    }
+
+    private PriceLevel best(NavigableMap<Long, Level> levels) {
+        for (Level level : levels.values()) {
+            if (level.orders > 0) {
+                return toPriceLevel(level);
+            }
+        }
+        return null;
+    }
+
+    private List<PriceLevel> levels(NavigableMap<Long, Level> levels, int limit) {
+        List<PriceLevel> result = new ArrayList<>();
+        for (Map.Entry<Long, Level> entry : levels.entrySet()) {
+            if (result.size() == limit) {
+                break;
+            }
+            // a level may be seen while being emptied
+            if (entry.getValue().orders > 0) {
+                result.add(toPriceLevel(entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    private PriceLevel toPriceLevel(Level level) {
+        return PriceLevel.builder()
+                .price(instrument.toPrice(level.price))
+                .amount(instrument.toAmount(level.amount))
+                .orders(level.orders)
+                .build();
+    }
+
+    private NavigableMap<Long, Level> side(OrderDirection side) {
+        return side == OrderDirection.BUY ? bids : asks;
+    }
+}
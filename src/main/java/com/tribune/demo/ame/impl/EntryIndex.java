@@ -0,0 +1,108 @@
+package com.tribune.demo.ame.impl;
+
+
+/**
+ * An open addressing hash map from order ids to the {@link BookEntry}s resting in a {@link LadderOrderBook}.
+ * <p>
+ * Keys are kept as primitive {@code long}s with linear probing, so lookups, inserts and removals
+ * don't box the id nor allocate a node, removals shift the following entries back instead of leaving tombstones.
+ */
+class EntryIndex {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private BookEntry[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+
+    EntryIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    BookEntry get(long id) {
+        for (int i = slot(id); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps the id to the entry, replacing any previous mapping.
+     */
+    void put(long id, BookEntry entry) {
+        int i = slot(id);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                values[i] = entry;
+                return;
+            }
+        }
+        keys[i] = id;
+        values[i] = entry;
+        if (++size >= resizeAt) {
+            resize();
+        }
+    }
+
+    BookEntry remove(long id) {
+        int i = slot(id);
+        while (values[i] != null && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        BookEntry removed = values[i];
+        if (removed == null) {
+            return null;
+        }
+        // shift back the entries of the same probe run that would not be found past the hole
+        int hole = i;
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = null;
+        size--;
+        return removed;
+    }
+
+    private int slot(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new BookEntry[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        BookEntry[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.tribune.demo.ame.impl;
+
+
+import java.util.Arrays;
+
+/**
+ * A reusable, growable buffer of fills kept in primitive arrays.
+ * The book records a whole match into it and only then turns the fills into {@link com.tribune.demo.ame.model.Trade}s.
+ */
+class FillBuffer implements FillListener {
+
+    private long[] restingIds = new long[16];
+    private long[] prices = new long[16];
+    private long[] amounts = new long[16];
+    private long[] remainings = new long[16];
+
+    private int size;
+
+
+    @Override
+    public void onFill(long restingId, long price, long amount, long restingRemaining) {
+        if (size == restingIds.length) {
+            int capacity = size * 2;
+            restingIds = Arrays.copyOf(restingIds, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            remainings = Arrays.copyOf(remainings, capacity);
+        }
+        restingIds[size] = restingId;
+        prices[size] = price;
+        amounts[size] = amount;
+        remainings[size] = restingRemaining;
+        size++;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long restingId(int i) {
+        return restingIds[i];
+    }
+
+    long price(int i) {
+        return prices[i];
+    }
+
+    long amount(int i) {
+        return amounts[i];
+    }
+
+    long restingRemaining(int i) {
+        return remainings[i];
+    }
+}
@@ -0,0 +1,19 @@
+package com.tribune.demo.ame.impl;
+
+
+/**
+ * Receives the fills of a match as primitives, so the matching loop itself does not need to allocate.
+ */
+@FunctionalInterface
+public interface FillListener {
+
+    /**
+     * Called once per resting order touched by an incoming order.
+     *
+     * @param restingId        The id of the resting (counterpart) order.
+     * @param price            The price of the trade, in ticks.
+     * @param amount           The amount of the trade, in lots.
+     * @param restingRemaining The amount still left on the resting order, in lots.
+     */
+    void onFill(long restingId, long price, long amount, long restingRemaining);
+}
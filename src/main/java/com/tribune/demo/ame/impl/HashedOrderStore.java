@@ -0,0 +1,44 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link HotOrderStore} backed by a {@link ConcurrentHashMap}.
+ */
+final class HashedOrderStore implements HotOrderStore {
+
+    private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+
+
+    @Override
+    public Order get(long id) {
+        return orders.get(id);
+    }
+
+    @Override
+    public Order put(Order order) {
+        return orders.put(order.id(), order);
+    }
+
+    @Override
+    public Order computeIfPresent(long id, UnaryOperator<Order> update) {
+        return orders.computeIfPresent(id, (key, order) -> update.apply(order));
+    }
+
+    @Override
+    public List<Order> values() {
+        return new ArrayList<>(orders.values());
+    }
+
+    @Override
+    public long size() {
+        return orders.size();
+    }
+}
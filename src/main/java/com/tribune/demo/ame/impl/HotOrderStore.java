@@ -0,0 +1,41 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.Order;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * The orders a {@link TieredOrderArchive} keeps on the heap, by id.
+ * <p>
+ * Thread safe: reads never block, and the writes of a given id are applied one at a time.
+ */
+interface HotOrderStore {
+
+    /**
+     * @return The order, or null if it is not held.
+     */
+    Order get(long id);
+
+    /**
+     * Holds the order, replacing any previous version.
+     *
+     * @return The previous version, or null.
+     */
+    Order put(Order order);
+
+    /**
+     * Replaces a held order by the result of the given function, applied once, or drops it if the result is null.
+     *
+     * @return The new version, or null if the order was not held or was dropped.
+     */
+    Order computeIfPresent(long id, UnaryOperator<Order> update);
+
+    /**
+     * Copies the held orders.
+     */
+    List<Order> values();
+
+    long size();
+}
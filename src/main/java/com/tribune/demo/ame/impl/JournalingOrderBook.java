@@ -0,0 +1,204 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.model.*;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * This class is an implementation of {@link OrderBook} that writes every command the wrapped book accepted
+ * to a {@link CommandJournal}, once applied.
+ * <p>
+ * Applying and journalling happen under the same lock, so the journal holds the book's commands in the order
+ * they were applied and replaying it gives the same book. A command the book rejects is never journalled, so every
+ * replayed command is accepted again. The caller then waits, outside the lock, for its command
+ * to be durable as the journal's fsync policy requires, which lets the journal group the commands of concurrent callers.
+ * Amendments carry their timestamp, so a replayed amendment keeps the time priority it was given.
+ * A batch is journalled and applied under a single lock, and waits once for its last command to be durable.
+ * <p>
+ * Inside a {@link SingleWriterOrderBook}, the worker's thread must not wait for the disk on behalf of the caller, so
+ * the book is built not to wait at all: it only keeps the position of the last command, which the worker hands
+ * back with the outcome for the caller to wait on.
+ */
+public class JournalingOrderBook implements OrderBook {
+
+    @Getter
+    private final OrderBook delegate;
+
+    private final CommandJournal journal;
+
+    private final boolean awaitDurable;
+
+    // guarded by this, read by the worker when the caller waits rather than this book
+    private long lastPosition = CommandJournal.NONE;
+
+
+    public JournalingOrderBook(OrderBook delegate, CommandJournal journal) {
+        this(delegate, journal, true);
+    }
+
+    /**
+     * @param awaitDurable Whether a command waits for the journal to be durable before returning, rather than
+     *                     leaving it to the caller with {@link #lastPosition}.
+     */
+    public JournalingOrderBook(OrderBook delegate, CommandJournal journal, boolean awaitDurable) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.awaitDurable = awaitDurable;
+    }
+
+    @Override
+    public String getAsset() {
+        return delegate.getAsset();
+    }
+
+    @Override
+    public Order submit(Order order) {
+        long position;
+        Order response;
+        synchronized (this) {
+            response = delegate.submit(order);
+            position = journal.submit(order);
+            lastPosition = position;
+        }
+        awaitDurable(position);
+        return response;
+    }
+
+    @Override
+    public Order sell(Order order) {
+        long position;
+        Order response;
+        synchronized (this) {
+            response = delegate.sell(order);
+            position = journal.submit(order);
+            lastPosition = position;
+        }
+        awaitDurable(position);
+        return response;
+    }
+
+    @Override
+    public Order buy(Order order) {
+        long position;
+        Order response;
+        synchronized (this) {
+            response = delegate.buy(order);
+            position = journal.submit(order);
+            lastPosition = position;
+        }
+        awaitDurable(position);
+        return response;
+    }
+
+    @Override
+    public Order cancel(long id) {
+        long position;
+        Order response;
+        synchronized (this) {
+            response = delegate.cancel(id);
+            position = journal.cancel(getAsset(), id);
+            lastPosition = position;
+        }
+        awaitDurable(position);
+        return response;
+    }
+
+    @Override
+    public Order amend(long id, Double price, Double amount, LocalDateTime timestamp) {
+        long position;
+        Order response;
+        synchronized (this) {
+            response = delegate.amend(id, price, amount, timestamp);
+            position = journal.amend(getAsset(), id, price, amount, timestamp);
+            lastPosition = position;
+        }
+        awaitDurable(position);
+        return response;
+    }
+
+    @Override
+    public List<OrderBatchResult> submitBatch(List<BookCommand> commands) {
+        long position = CommandJournal.NONE;
+        List<OrderBatchResult> results = new ArrayList<>(commands.size());
+        synchronized (this) {
+            for (BookCommand command : commands) {
+                try {
+                    Order response = switch (command.type()) {
+                        case SUBMIT -> {
+                            Order submitted = delegate.submit(command.order());
+                            position = journal.submit(command.order());
+                            yield submitted;
+                        }
+                        case CANCEL -> {
+                            Order cancelled = delegate.cancel(command.id());
+                            position = journal.cancel(getAsset(), command.id());
+                            yield cancelled;
+                        }
+                    };
+                    results.add(OrderBatchResult.of(response));
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    results.add(OrderBatchResult.failed(e.getMessage()));
+                }
+            }
+            lastPosition = position;
+        }
+        awaitDurable(position);
+        return results;
+    }
+
+    /**
+     * Gets the journal position the last command applied ended at, the one to wait for when this book does not.
+     */
+    synchronized long lastPosition() {
+        return lastPosition;
+    }
+
+    /**
+     * Runs the given action while no command can be journalled nor applied to this book.
+     */
+    public synchronized <T> T locked(Supplier<T> action) {
+        return action.get();
+    }
+
+    @Override
+    public void restore(Order order) {
+        delegate.restore(order);
+    }
+
+    @Override
+    public void saveOrUpdateOrder(Order response) {
+        delegate.saveOrUpdateOrder(response);
+    }
+
+    @Override
+    public void updateCounterpart(UpdateCounterpart updateCounterpart) {
+        delegate.updateCounterpart(updateCounterpart);
+    }
+
+    @Override
+    public List<Order> findLiveOrders(OrderDirection direction) {
+        return delegate.findLiveOrders(direction);
+    }
+
+    @Override
+    public TopOfBook getTopOfBook() {
+        return delegate.getTopOfBook();
+    }
+
+    @Override
+    public BookDepth getDepth(int levels) {
+        return delegate.getDepth(levels);
+    }
+
+    private void awaitDurable(long position) {
+        if (awaitDurable) {
+            journal.awaitDurable(position);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.domain.OrderEventType;
+import com.tribune.demo.ame.domain.OrderPublisher;
+import com.tribune.demo.ame.model.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * This class is an implementation of {@link OrderBook} that keeps a price ladder per side, matching as every
+ * {@link PriceLevelOrderBook} does.
+ * It uses the following:
+ * <ol>
+ * <li>A {@link BookLevel} per price, an intrusive FIFO queue of {@link BookEntry}s.</li>
+ * <li>An {@link EntryIndex} from order ids to resting entries, so cancels and amendments don't search the book.</li>
+ * </ol>
+ * <p>
+ * When pooling is enabled, resting entries are recycled through a {@link BookEntryPool} and the events
+ * published by the book are reused, so {@link #match} does not allocate as long as the levels it fills stay
+ * non-empty, and {@link #submit} only allocates the {@link Order}, {@link Trade} and {@link UpdateCounterpart} records
+ * handed out to callers. Opening a level still allocates it, and its node in the lock-free {@link DepthView}.
+ */
+public class LadderOrderBook extends PriceLevelOrderBook<BookLevel> {
+
+    private final EntryIndex index;
+
+    private final BookEntryPool entryPool;
+
+    // reused for every event when pooling, the publisher must not hold on to them
+    private final SimpleOrderEvent orderEvent;
+    private final SimpleOrderEvent counterpartEvent;
+
+
+    public LadderOrderBook(String name, OrderPublisher orderPublisher) {
+        this(Instrument.of(name), orderPublisher);
+    }
+
+    public LadderOrderBook(Instrument instrument, OrderPublisher orderPublisher) {
+        this(instrument, orderPublisher, 0);
+    }
+
+    /**
+     * @param poolSize The maximum number of idle entries kept for reuse, 0 disables pooling.
+     */
+    public LadderOrderBook(Instrument instrument, OrderPublisher orderPublisher, int poolSize) {
+        super(instrument, orderPublisher);
+        this.entryPool = new BookEntryPool(poolSize);
+        this.index = new EntryIndex(Math.max(poolSize, 1024));
+        if (poolSize > 0) {
+            orderEvent = new SimpleOrderEvent(this, "Update the order", OrderEventType.SAVE_OR_UPDATE_ORDER);
+            counterpartEvent = new SimpleOrderEvent(this, "Update the counterpart", OrderEventType.UPDATE_COUNTERPART);
+        } else {
+            orderEvent = null;
+            counterpartEvent = null;
+        }
+    }
+
+
+    @Override
+    BookLevel newLevel(long price, DepthView.Level depth) {
+        return new BookLevel(price, depth);
+    }
+
+    @Override
+    boolean rests(long id) {
+        return index.get(id) != null;
+    }
+
+    @Override
+    long firstId(BookLevel level) {
+        return level.peek().id;
+    }
+
+    @Override
+    long firstRemaining(BookLevel level) {
+        return level.peek().remaining;
+    }
+
+    @Override
+    long firstVisible(BookLevel level) {
+        return level.peek().visible;
+    }
+
+    @Override
+    long fillFirst(BookLevel level, long amount) {
+        BookEntry resting = level.peek();
+        if (!level.fill(resting, amount)) {
+            return resting.remaining;
+        }
+        index.remove(resting.id);
+        entryPool.release(resting);
+        return 0;
+    }
+
+    @Override
+    void rest(BookLevel level, long id, OrderDirection direction, long amount, long remaining, long display,
+              long visible, LocalDateTime timestamp, double stopPrice, Order order) {
+        BookEntry entry = entryPool.acquire().set(id, direction, level.price, amount, remaining, display, timestamp,
+                stopPrice, order);
+        entry.visible = visible;
+        level.append(entry);
+        index.put(id, entry);
+    }
+
+    @Override
+    Order restingOrder(long id) {
+        BookEntry entry = index.get(id);
+        return entry != null ? entry.toOrder(instrument) : null;
+    }
+
+    @Override
+    Order reduce(long id, long amount) {
+        BookEntry entry = index.get(id);
+        entry.level.reduce(entry, amount);
+        entry.amount -= amount;
+        // the submitted order no longer describes the entry
+        entry.order = null;
+        return entry.toOrder(instrument);
+    }
+
+    @Override
+    BookLevel remove(long id) {
+        BookEntry entry = index.remove(id);
+        BookLevel level = entry.level;
+        level.remove(entry);
+        entryPool.release(entry);
+        return level;
+    }
+
+    @Override
+    void collect(BookLevel level, List<Order> orders) {
+        for (BookEntry entry = level.peek(); entry != null; entry = entry.next) {
+            orders.add(entry.toRestingOrder(instrument));
+        }
+    }
+
+    /**
+     * Notifies subscribers about Save/Update of an order.
+     */
+    @Override
+    public void saveOrUpdateOrder(Order response) {
+        // the shared event may only be reused by the thread holding the book's lock
+        if (orderEvent != null && Thread.holdsLock(this)) {
+            orderEvent.setSource(response);
+            orderPublisher().publish(orderEvent);
+            return;
+        }
+        super.saveOrUpdateOrder(response);
+    }
+
+    @Override
+    void publishCounterpart(UpdateCounterpart updateCounterpart) {
+        if (counterpartEvent == null) {
+            updateCounterpart(updateCounterpart);
+            return;
+        }
+        counterpartEvent.setSource(updateCounterpart);
+        orderPublisher().publish(counterpartEvent);
+    }
+
+    /**
+     * Gets the number of idle entries waiting to be reused.
+     */
+    public synchronized int idleEntries() {
+        return entryPool.idle();
+    }
+}
@@ -0,0 +1,112 @@
+package com.tribune.demo.ame.impl;
+
+
+import java.util.Arrays;
+
+/**
+ * The price levels of one side of a {@link PriceLevelOrderBook}, in an array sorted by price with the best level last.
+ * <p>
+ * Prices are searched as primitives, so opening, finding and closing a level never boxes its price, and the best
+ * level, the one matching takes from, is removed without moving any other. A level opened away from the best moves
+ * the better ones up by one, which orders resting near the top of the book keep cheap. The array only grows, so
+ * once it holds as many levels as the side ever had, nothing is allocated.
+ * <p>
+ * Not thread safe, the book guards it.
+ *
+ * @param <L> The price levels of the book.
+ */
+final class LevelLadder<L extends PriceLevelOrderBook.Level> {
+
+    // sell levels are best when lowest, buy levels when highest
+    private final boolean sell;
+
+    private PriceLevelOrderBook.Level[] levels = new PriceLevelOrderBook.Level[64];
+
+    private int size;
+
+
+    LevelLadder(boolean sell) {
+        this.sell = sell;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the level of the given rank, the best being 0.
+     */
+    @SuppressWarnings("unchecked")
+    L get(int rank) {
+        return (L) levels[size - 1 - rank];
+    }
+
+    /**
+     * Gets the best level, or null if the side is empty.
+     */
+    L best() {
+        return size == 0 ? null : get(0);
+    }
+
+    /**
+     * Gets the level at the given price, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    L find(long price) {
+        int i = search(price);
+        return i >= 0 ? (L) levels[i] : null;
+    }
+
+    /**
+     * Adds a level, whose price must not be in the ladder yet.
+     */
+    void add(L level) {
+        int i = -search(level.price) - 1;
+        if (size == levels.length) {
+            levels = Arrays.copyOf(levels, size * 2);
+        }
+        System.arraycopy(levels, i, levels, i + 1, size - i);
+        levels[i] = level;
+        size++;
+    }
+
+    /**
+     * Removes the level at the given price, if there is one.
+     */
+    void remove(long price) {
+        int i = search(price);
+        if (i < 0) {
+            return;
+        }
+        size--;
+        System.arraycopy(levels, i + 1, levels, i, size - i);
+        levels[size] = null;
+    }
+
+    // a binary search from the worst level to the best one
+    private int search(long price) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compare(levels[mid].price, price);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // negative when the first price is worse than the second
+    private int compare(long a, long b) {
+        return sell ? Long.compare(b, a) : Long.compare(a, b);
+    }
+}
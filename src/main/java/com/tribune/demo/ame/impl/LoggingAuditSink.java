@@ -0,0 +1,28 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.AuditSink;
+import com.tribune.demo.ame.model.AuditRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * An {@link AuditSink} logging a line per record at INFO on the {@code ame.audit} logger, which can be routed
+ * to its own appender. Logging happens on the audit trail's thread, never on the matching thread.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ame.audit", name = "sink", havingValue = "log")
+public class LoggingAuditSink implements AuditSink {
+
+    private static final Logger audit = LoggerFactory.getLogger("ame.audit");
+
+    @Override
+    public void write(AuditRecord record) {
+        audit.info("{} {} {} asset={} order={} counterpart={} direction={} price={} amount={} pending={} status={}",
+                record.sequence(), record.timestamp(), record.type(), record.asset(), record.orderId(),
+                record.counterpartId(), record.direction(), record.price(), record.amount(), record.pendingAmount(),
+                record.status());
+    }
+}
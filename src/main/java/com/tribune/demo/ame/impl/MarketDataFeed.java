@@ -0,0 +1,408 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.domain.*;
+import com.tribune.demo.ame.model.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams the trades and depth changes of each asset to its subscribers, as an alternative to polling the books.
+ * It uses the following:
+ * <ol>
+ * <li>An {@link OrderSubscriber} that, for assets with subscribers only, queues the trades of every submitted or
+ * amended order and then flags the asset's depth as changed. Nothing is done for assets nobody subscribed to.</li>
+ * <li>A single thread numbering the trades of each asset in sequence, and every {@code ame.feed.interval}
+ * coalescing the changes of each flagged book into one update of the levels that changed since the previous one,
+ * read from the book's depth view without locking it. Subscriptions end when their book is deleted.</li>
+ * <li>A bounded queue and a virtual thread per subscriber, so a slow subscriber only holds itself up. Once its
+ * queue is full, its backlog is replaced by a snapshot of the depth, and the gap in the sequence tells it so.</li>
+ * </ol>
+ * Subscribers, trades dropped because too many were waiting, and snapshots sent to catch up lagging subscribers
+ * are exposed as {@code ame.feed.*} meters.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "ame.feed", name = "enabled", havingValue = "true")
+public class MarketDataFeed implements OrderSubscriber, MeterBinder, AutoCloseable {
+
+    private final OrderPublisher orderPublisher;
+
+    private final MatchingEngine matchingEngine;
+
+    private final EngineProperties.FeedSettings settings;
+
+    // only changed by the feed's thread, read by the publishing threads
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<TradeTick> trades;
+
+    private final Queue<Subscription> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong resyncs = new AtomicLong();
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+
+    public MarketDataFeed(OrderPublisher orderPublisher, MatchingEngine matchingEngine, EngineProperties properties) {
+        this.orderPublisher = orderPublisher;
+        this.matchingEngine = matchingEngine;
+        this.settings = properties.getFeed();
+        if (settings.getLevels() <= 0 || settings.getSubscriberCapacity() <= 0) {
+            throw new IllegalArgumentException("Feed levels and subscriber capacity must be positive");
+        }
+        this.trades = new ArrayBlockingQueue<>(settings.getTradeCapacity());
+        this.thread = Thread.ofPlatform()
+                .name("ame-feed")
+                .daemon(true)
+                .unstarted(this::run);
+        this.thread.start();
+        // the fills of resting orders are followed by the event of the order that filled them, with its trades
+        orderPublisher.subscribe(OrderEventType.SAVE_OR_UPDATE_ORDER, this);
+        orderPublisher.subscribe(OrderEventType.UPDATE_LIVE_ORDER, this);
+    }
+
+
+    /**
+     * Subscribes to an asset's feed, starting with a snapshot of its depth.
+     *
+     * @throws IllegalArgumentException if the asset has no book.
+     */
+    public Subscription subscribe(String asset, FeedListener listener) {
+        if (!running) {
+            throw new IllegalStateException("Market data feed is stopped");
+        }
+        OrderBook book = matchingEngine.getOrderBook(asset);
+        Subscription subscription = new Subscription(book.getAsset(), listener);
+        subscriberCount.incrementAndGet();
+        pending.add(subscription);
+        LockSupport.unpark(thread);
+        return subscription;
+    }
+
+    @Override
+    public void onEvent(OrderEvent event) {
+        // a stop order held until its trigger changes neither the trades nor the depth
+        if (!(event.getSource() instanceof Order order) || order.awaitsTrigger()) {
+            return;
+        }
+        Channel channel = channels.get(order.asset());
+        if (channel == null) {
+            return;
+        }
+        List<Trade> made = order.trades();
+        if (!made.isEmpty()) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < made.size(); i++) {
+                Trade trade = made.get(i);
+                TradeTick tick = new TradeTick(order.asset(), 0, order.id(), trade.orderId(), order.direction(),
+                        trade.price(), trade.amount(), now);
+                if (!trades.offer(tick)) {
+                    channel.dropped.incrementAndGet();
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+        channel.dirty = true;
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ame.feed.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open market data subscriptions")
+                .register(registry);
+        FunctionCounter.builder("ame.feed.dropped", dropped, AtomicLong::get)
+                .description("Trades dropped because too many were waiting to be sent")
+                .register(registry);
+        FunctionCounter.builder("ame.feed.resyncs", resyncs, AtomicLong::get)
+                .description("Snapshots sent in place of the backlog of a lagging subscriber")
+                .register(registry);
+    }
+
+
+    private void run() {
+        long interval = settings.getInterval().toNanos();
+        while (running) {
+            try {
+                register();
+                collectChanges();
+                publishTrades();
+                publishDepth();
+            } catch (RuntimeException e) {
+                log.error("Failed to publish the market data feed", e);
+            }
+            LockSupport.parkNanos(this, interval);
+        }
+        for (Channel channel : channels.values()) {
+            channel.subscribers.forEach(Subscription::close);
+        }
+        pending.forEach(Subscription::close);
+        log.debug("Market data feed stopped");
+    }
+
+    private void register() {
+        Subscription subscription;
+        while ((subscription = pending.poll()) != null) {
+            if (!subscription.isOpen()) {
+                continue;
+            }
+            Channel channel = channels.get(subscription.asset);
+            if (channel == null) {
+                OrderBook book = currentBook(subscription.asset);
+                if (book == null) {
+                    // the book was deleted meanwhile
+                    subscription.close();
+                    continue;
+                }
+                // there before the depth is read, so that publishers flag any change made after it
+                channel = new Channel(book);
+                channels.put(subscription.asset, channel);
+                channel.depth = book.getDepth(settings.getLevels());
+            }
+            channel.subscribers.add(subscription);
+            subscription.offer(channel.snapshot());
+        }
+    }
+
+    private void publishTrades() {
+        TradeTick tick;
+        while ((tick = trades.poll()) != null) {
+            Channel channel = channels.get(tick.asset());
+            if (channel != null) {
+                channel.publish(tick.withSequence(channel.next()));
+            }
+        }
+    }
+
+    /**
+     * Takes the flags set by publishers, which set them after queueing their trades,
+     * so that a depth update is never sent ahead of the trades that caused it.
+     */
+    private void collectChanges() {
+        for (Iterator<Channel> channels = this.channels.values().iterator(); channels.hasNext(); ) {
+            Channel channel = channels.next();
+            channel.subscribers.removeIf(subscription -> !subscription.isOpen());
+            if (channel.subscribers.isEmpty()) {
+                channels.remove();
+            } else if (currentBook(channel.asset) != channel.book) {
+                // the book was deleted, and maybe created again
+                channel.subscribers.forEach(Subscription::close);
+                channels.remove();
+            } else if (channel.dirty) {
+                channel.dirty = false;
+                channel.changed = true;
+            }
+        }
+    }
+
+    private void publishDepth() {
+        for (Iterator<Channel> channels = this.channels.values().iterator(); channels.hasNext(); ) {
+            Channel channel = channels.next();
+            if (channel.dropped.get() > 0) {
+                // the skipped numbers tell subscribers trades were lost, the snapshot brings them back in line
+                channel.sequence += channel.dropped.getAndSet(0);
+                channel.subscribers.forEach(subscription -> subscription.resync(channel.snapshot()));
+            }
+            if (!channel.changed) {
+                continue;
+            }
+            channel.changed = false;
+            BookDepth depth = channel.book.getDepth(settings.getLevels());
+            List<PriceLevel> bids = changes(channel.depth.bids(), depth.bids());
+            List<PriceLevel> asks = changes(channel.depth.asks(), depth.asks());
+            channel.depth = depth;
+            if (!bids.isEmpty() || !asks.isEmpty()) {
+                channel.publish(new DepthUpdate(channel.asset, channel.next(), false, bids, asks));
+            }
+        }
+    }
+
+    private OrderBook currentBook(String asset) {
+        try {
+            return matchingEngine.getOrderBook(asset);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lists the levels removed from one side, with nothing left, and then the levels added or changed.
+     */
+    private static List<PriceLevel> changes(List<PriceLevel> before, List<PriceLevel> after) {
+        Map<Double, PriceLevel> previous = new HashMap<>();
+        for (PriceLevel level : before) {
+            previous.put(level.price(), level);
+        }
+        Set<Double> current = new HashSet<>();
+        for (PriceLevel level : after) {
+            current.add(level.price());
+        }
+        List<PriceLevel> changes = new ArrayList<>();
+        for (PriceLevel level : before) {
+            if (!current.contains(level.price())) {
+                changes.add(new PriceLevel(level.price(), 0, 0));
+            }
+        }
+        for (PriceLevel level : after) {
+            if (!level.equals(previous.get(level.price()))) {
+                changes.add(level);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Stops the feed and ends every subscription.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        orderPublisher.unsubscribe(OrderEventType.SAVE_OR_UPDATE_ORDER, this);
+        orderPublisher.unsubscribe(OrderEventType.UPDATE_LIVE_ORDER, this);
+        running = false;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * The feed of one asset, only changed by the feed's thread but for the flags set by publishers.
+     */
+    private static final class Channel {
+        final OrderBook book;
+        final String asset;
+        final List<Subscription> subscribers = new ArrayList<>();
+        // the depth last sent, in a snapshot or as the sum of the updates since
+        BookDepth depth;
+        // the sequence of the last message sent
+        long sequence;
+        volatile boolean dirty;
+        // the flag taken by the feed's thread, until it sends the update
+        boolean changed;
+        // trades that did not fit in the queue since the last update
+        final AtomicLong dropped = new AtomicLong();
+
+        Channel(OrderBook book) {
+            this.book = book;
+            this.asset = book.getAsset();
+        }
+
+        long next() {
+            return ++sequence;
+        }
+
+        DepthUpdate snapshot() {
+            return new DepthUpdate(asset, sequence, true, depth.bids(), depth.asks());
+        }
+
+        void publish(FeedMessage message) {
+            for (int i = 0; i < subscribers.size(); i++) {
+                Subscription subscription = subscribers.get(i);
+                if (!subscription.offer(message)) {
+                    subscription.resync(snapshot());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * A subscriber's queue of messages, and the virtual thread delivering them. Closing it stops the delivery.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final String asset;
+
+        private final FeedListener listener;
+
+        private final BlockingQueue<FeedMessage> queue;
+
+        private final Thread sender;
+
+        private final AtomicBoolean open = new AtomicBoolean(true);
+
+        private Subscription(String asset, FeedListener listener) {
+            this.asset = asset;
+            this.listener = listener;
+            this.queue = new ArrayBlockingQueue<>(settings.getSubscriberCapacity());
+            this.sender = Thread.ofVirtual()
+                    .name("ame-feed-" + asset)
+                    .unstarted(this::send);
+            this.sender.start();
+        }
+
+        public boolean isOpen() {
+            return open.get();
+        }
+
+        private boolean offer(FeedMessage message) {
+            return queue.offer(message);
+        }
+
+        // only called by the feed's thread
+        private void resync(DepthUpdate snapshot) {
+            queue.clear();
+            queue.offer(snapshot);
+            resyncs.incrementAndGet();
+        }
+
+        private void send() {
+            try {
+                while (open.get()) {
+                    listener.onMessage(queue.take());
+                }
+            } catch (InterruptedException e) {
+                // closed
+            } catch (RuntimeException e) {
+                log.debug("Market data subscriber of {} failed: {}", asset, e.getMessage());
+            } finally {
+                close();
+                try {
+                    listener.onClose();
+                } catch (RuntimeException e) {
+                    log.debug("Market data subscriber of {} failed to close: {}", asset, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (open.compareAndSet(true, false)) {
+                subscriberCount.decrementAndGet();
+                if (Thread.currentThread() != sender) {
+                    sender.interrupt();
+                }
+            }
+        }
+    }
+}
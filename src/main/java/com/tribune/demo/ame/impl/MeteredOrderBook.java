@@ -0,0 +1,277 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.*;
+import com.tribune.demo.ame.model.*;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is an implementation of {@link OrderBook} that times the orders submitted to the wrapped book
+ * and counts their trades, as {@code ame.book.*} meters tagged with the asset.
+ * <p>
+ * The time from submitting an order to its response is recorded as a whole and split into stages:
+ * <ol>
+ * <li>{@code queueing}, waiting in a {@link BookWorker}'s ring buffer, in single-writer and sharded modes only.</li>
+ * <li>{@code publishing}, spent in the {@link OrderPublisher} handed to the wrapped book by {@link #publisher}.</li>
+ * <li>{@code matching}, the rest of the time spent in the wrapped book.</li>
+ * </ol>
+ * The stages are handed over through a per-thread {@link Probe}, as the same book may be written by several
+ * request threads in direct mode. Every meter is registered when the book is bound to a registry, and nothing
+ * is recorded before, so recording an order allocates nothing.
+ * <p>
+ * The resting orders and price levels of each side are read from the book's {@link DepthView}, without locking it.
+ */
+public class MeteredOrderBook implements OrderBook, MeterBinder {
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    @Getter
+    private final OrderBook delegate;
+
+    private final DepthView depthView;
+
+    private volatile Meters meters;
+
+
+    public MeteredOrderBook(OrderBook delegate, DepthView depthView) {
+        this.delegate = delegate;
+        this.depthView = depthView;
+    }
+
+    /**
+     * Wraps a publisher, so the time the book's events spend in it is recorded as the {@code publishing} stage.
+     */
+    public static OrderPublisher publisher(OrderPublisher delegate) {
+        return new TimedPublisher(delegate);
+    }
+
+    @Override
+    public String getAsset() {
+        return delegate.getAsset();
+    }
+
+    @Override
+    public Order submit(Order order) {
+        Meters bound = meters;
+        if (bound == null) {
+            return delegate.submit(order);
+        }
+        Probe probe = Probe.current();
+        probe.publishing = 0;
+        long start = System.nanoTime();
+        Order response = delegate.submit(order);
+        record(bound, probe, start, response);
+        return response;
+    }
+
+    @Override
+    public Order sell(Order order) {
+        Meters bound = meters;
+        if (bound == null) {
+            return delegate.sell(order);
+        }
+        Probe probe = Probe.current();
+        probe.publishing = 0;
+        long start = System.nanoTime();
+        Order response = delegate.sell(order);
+        record(bound, probe, start, response);
+        return response;
+    }
+
+    @Override
+    public Order buy(Order order) {
+        Meters bound = meters;
+        if (bound == null) {
+            return delegate.buy(order);
+        }
+        Probe probe = Probe.current();
+        probe.publishing = 0;
+        long start = System.nanoTime();
+        Order response = delegate.buy(order);
+        record(bound, probe, start, response);
+        return response;
+    }
+
+    @Override
+    public Order cancel(long id) {
+        return delegate.cancel(id);
+    }
+
+    @Override
+    public Order amend(long id, Double price, Double amount, LocalDateTime timestamp) {
+        Order response = delegate.amend(id, price, amount, timestamp);
+        Meters bound = meters;
+        if (bound != null) {
+            count(bound, response);
+        }
+        return response;
+    }
+
+    private static void record(Meters bound, Probe probe, long start, Order response) {
+        long elapsed = System.nanoTime() - start;
+        long queued = probe.queued;
+        long publishing = probe.publishing;
+        probe.queued = 0;
+        if (queued > 0) {
+            bound.queueing().record(queued, TimeUnit.NANOSECONDS);
+        }
+        bound.publishing().record(publishing, TimeUnit.NANOSECONDS);
+        bound.matching().record(elapsed - publishing, TimeUnit.NANOSECONDS);
+        bound.total().record(queued + elapsed, TimeUnit.NANOSECONDS);
+        count(bound, response);
+    }
+
+    private static void count(Meters bound, Order response) {
+        List<Trade> trades = response.trades();
+        if (trades == null || trades.isEmpty()) {
+            return;
+        }
+        double amount = 0;
+        for (int i = 0; i < trades.size(); i++) {
+            amount += trades.get(i).amount();
+        }
+        bound.trades().increment(trades.size());
+        bound.volume().increment(amount);
+    }
+
+    @Override
+    public void restore(Order order) {
+        delegate.restore(order);
+    }
+
+    @Override
+    public void saveOrUpdateOrder(Order response) {
+        delegate.saveOrUpdateOrder(response);
+    }
+
+    @Override
+    public void updateCounterpart(UpdateCounterpart updateCounterpart) {
+        delegate.updateCounterpart(updateCounterpart);
+    }
+
+    @Override
+    public List<Order> findLiveOrders(OrderDirection direction) {
+        return delegate.findLiveOrders(direction);
+    }
+
+    @Override
+    public TopOfBook getTopOfBook() {
+        return delegate.getTopOfBook();
+    }
+
+    @Override
+    public BookDepth getDepth(int levels) {
+        return delegate.getDepth(levels);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        String asset = getAsset();
+        List<Meter> all = new ArrayList<>();
+        Timer queueing = timer(registry, asset, "queueing", all);
+        Timer matching = timer(registry, asset, "matching", all);
+        Timer publishing = timer(registry, asset, "publishing", all);
+        Timer total = timer(registry, asset, "total", all);
+        Counter trades = Counter.builder("ame.book.trades")
+                .description("Trades made by the orders submitted to the book")
+                .tag("asset", asset)
+                .register(registry);
+        all.add(trades);
+        Counter volume = Counter.builder("ame.book.volume")
+                .description("Amount traded by the orders submitted to the book")
+                .tag("asset", asset)
+                .register(registry);
+        all.add(volume);
+        for (OrderDirection side : OrderDirection.values()) {
+            String tag = side.name().toLowerCase();
+            all.add(Gauge.builder("ame.book.orders", depthView, view -> view.orderCount(side))
+                    .description("Orders resting on one side of the book")
+                    .tags("asset", asset, "side", tag)
+                    .register(registry));
+            all.add(Gauge.builder("ame.book.levels", depthView, view -> view.levelCount(side))
+                    .description("Price levels on one side of the book")
+                    .tags("asset", asset, "side", tag)
+                    .register(registry));
+        }
+        meters = new Meters(queueing, matching, publishing, total, trades, volume, all);
+    }
+
+    /**
+     * Stops recording and removes the book's meters from the registry, once the book is deleted.
+     */
+    public void unbind(MeterRegistry registry) {
+        Meters bound = meters;
+        meters = null;
+        if (bound != null) {
+            bound.all().forEach(registry::remove);
+        }
+    }
+
+    private static Timer timer(MeterRegistry registry, String asset, String stage, List<Meter> all) {
+        Timer timer = Timer.builder("ame.book.latency")
+                .description("Time from submitting an order to the book to its response, by stage")
+                .tags("asset", asset, "stage", stage)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+        all.add(timer);
+        return timer;
+    }
+
+
+    /**
+     * The stages of the order the current thread is applying, other than matching.
+     */
+    static final class Probe {
+
+        private static final ThreadLocal<Probe> CURRENT = ThreadLocal.withInitial(Probe::new);
+
+        // set by a BookWorker before it applies a command
+        long queued;
+
+        long publishing;
+
+        static Probe current() {
+            return CURRENT.get();
+        }
+    }
+
+    private record Meters(Timer queueing, Timer matching, Timer publishing, Timer total,
+                          Counter trades, Counter volume, List<Meter> all) {
+    }
+
+    private record TimedPublisher(OrderPublisher delegate) implements OrderPublisher {
+
+        @Override
+        public void publish(OrderEvent event) {
+            long start = System.nanoTime();
+            try {
+                delegate.publish(event);
+            } finally {
+                Probe.current().publishing += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void subscribe(OrderEventType orderEventType, OrderSubscriber subscriber) {
+            delegate.subscribe(orderEventType, subscriber);
+        }
+
+        @Override
+        public void unsubscribe(OrderEventType orderEventType, OrderSubscriber subscriber) {
+            delegate.unsubscribe(orderEventType, subscriber);
+        }
+
+        @Override
+        public void flush() {
+            delegate.flush();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.domain.OrderPublisher;
+import com.tribune.demo.ame.model.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static com.tribune.demo.ame.impl.OrderSlab.NONE;
+
+/**
+ * This class is an implementation of {@link OrderBook} that keeps its resting orders outside the heap.
+ * It uses the following:
+ * <ol>
+ * <li>An {@link OrderSlab} of fixed-width slots, in direct buffers, holding every resting order.</li>
+ * <li>A {@link SlotLevel} per price, chaining its slots into a FIFO queue by slot number.</li>
+ * <li>A {@link SlotIndex} from order ids to slots, in primitive arrays.</li>
+ * </ol>
+ * Both being {@link PriceLevelOrderBook}s, it matches exactly as the {@link LadderOrderBook} does, icebergs included.
+ * A resting order costs a slot of {@value OrderSlab#SLOT_BYTES} bytes off the heap and twelve bytes of the index on it,
+ * where the ladder keeps an entry, the submitted {@link Order} and its timestamp: what the garbage collector has to
+ * trace grows with the number of price levels, not with the number of resting orders. {@link Order}s are only built for responses; a resting order
+ * is always a good till cancelled limit order, so that is what it is rebuilt as.
+ */
+public class OffHeapOrderBook extends PriceLevelOrderBook<OffHeapOrderBook.SlotLevel> {
+
+    /**
+     * The number of slots each slab holds unless told otherwise.
+     */
+    public static final int DEFAULT_SLOTS_PER_SLAB = 65536;
+
+    private final OrderSlab slab;
+
+    private final SlotIndex index = new SlotIndex(1024);
+
+
+    /**
+     * A single price level, the head and tail of the slots resting at its price and their totals, in lots.
+     * Every change of its totals is published to its {@link DepthView.Level}.
+     */
+    static final class SlotLevel extends PriceLevelOrderBook.Level {
+
+        int head = NONE;
+        int tail = NONE;
+        int size;
+
+        // the hidden reserves of icebergs included
+        long totalAmount;
+        long displayed;
+
+        final DepthView.Level depth;
+
+        SlotLevel(long price, DepthView.Level depth) {
+            super(price);
+            this.depth = depth;
+        }
+
+        @Override
+        boolean isEmpty() {
+            return head == NONE;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long totalAmount() {
+            return totalAmount;
+        }
+
+        void publish() {
+            depth.set(displayed, totalAmount - displayed, size);
+        }
+    }
+
+
+    public OffHeapOrderBook(String name, OrderPublisher orderPublisher) {
+        this(Instrument.of(name), orderPublisher);
+    }
+
+    public OffHeapOrderBook(Instrument instrument, OrderPublisher orderPublisher) {
+        this(instrument, orderPublisher, DEFAULT_SLOTS_PER_SLAB);
+    }
+
+    /**
+     * @param slotsPerSlab The number of orders each slab holds; slabs are added as the book grows.
+     */
+    public OffHeapOrderBook(Instrument instrument, OrderPublisher orderPublisher, int slotsPerSlab) {
+        super(instrument, orderPublisher);
+        this.slab = new OrderSlab(slotsPerSlab);
+    }
+
+
+    @Override
+    SlotLevel newLevel(long price, DepthView.Level depth) {
+        return new SlotLevel(price, depth);
+    }
+
+    @Override
+    boolean rests(long id) {
+        return index.get(id) != NONE;
+    }
+
+    @Override
+    long firstId(SlotLevel level) {
+        return slab.id(level.head);
+    }
+
+    @Override
+    long firstRemaining(SlotLevel level) {
+        return slab.remaining(level.head);
+    }
+
+    @Override
+    long firstVisible(SlotLevel level) {
+        return slab.visible(level.head);
+    }
+
+    @Override
+    long fillFirst(SlotLevel level, long amount) {
+        int slot = level.head;
+        if (!fill(level, slot, amount)) {
+            return slab.remaining(slot);
+        }
+        index.remove(slab.id(slot));
+        slab.free(slot);
+        return 0;
+    }
+
+    @Override
+    void rest(SlotLevel level, long id, OrderDirection direction, long amount, long remaining, long display,
+              long visible, LocalDateTime timestamp, double stopPrice, Order order) {
+        int slot = slab.allocate();
+        slab.id(slot, id);
+        slab.price(slot, level.price);
+        slab.amount(slot, amount);
+        slab.remaining(slot, remaining);
+        slab.display(slot, display);
+        slab.visible(slot, visible);
+        slab.stopPrice(slot, stopPrice);
+        setTimestamp(slot, OrderDirection.SELL.equals(direction), timestamp);
+        append(level, slot);
+        index.put(id, slot);
+    }
+
+    @Override
+    Order restingOrder(long id) {
+        int slot = index.get(id);
+        return slot != NONE ? toOrder(slot) : null;
+    }
+
+    @Override
+    Order reduce(long id, long amount) {
+        int slot = index.get(id);
+        reduce(level(slot), slot, amount);
+        slab.amount(slot, slab.amount(slot) - amount);
+        return toOrder(slot);
+    }
+
+    @Override
+    SlotLevel remove(long id) {
+        int slot = index.remove(id);
+        SlotLevel level = level(slot);
+        remove(level, slot);
+        slab.free(slot);
+        return level;
+    }
+
+    @Override
+    void collect(SlotLevel level, List<Order> orders) {
+        for (int slot = level.head; slot != NONE; slot = slab.next(slot)) {
+            Order order = toOrder(slot);
+            long hidden = slab.remaining(slot) - slab.visible(slot);
+            orders.add(hidden > 0 ? order.withHiddenAmount(instrument.toAmount(hidden)) : order);
+        }
+    }
+
+    private void setTimestamp(int slot, boolean sell, LocalDateTime timestamp) {
+        int flags = sell ? OrderSlab.SELL : 0;
+        if (timestamp != null) {
+            slab.time(slot, timestamp.toEpochSecond(ZoneOffset.UTC), timestamp.getNano());
+            flags |= OrderSlab.TIMESTAMP;
+        }
+        slab.flags(slot, flags);
+    }
+
+    private SlotLevel level(int slot) {
+        boolean sell = (slab.flags(slot) & OrderSlab.SELL) != 0;
+        return level(sell ? OrderDirection.SELL : OrderDirection.BUY, slab.price(slot));
+    }
+
+    private void append(SlotLevel level, int slot) {
+        link(level, slot);
+        level.size++;
+        level.totalAmount += slab.remaining(slot);
+        level.displayed += slab.visible(slot);
+        level.publish();
+    }
+
+    private void remove(SlotLevel level, int slot) {
+        unlink(level, slot);
+        level.size--;
+        level.totalAmount -= slab.remaining(slot);
+        level.displayed -= slab.visible(slot);
+        level.publish();
+    }
+
+    /**
+     * Takes the given amount off a slot without moving it, an iceberg showing no more than is left.
+     */
+    private void reduce(SlotLevel level, int slot, long amount) {
+        long remaining = slab.remaining(slot) - amount;
+        long visible = Math.min(slab.visible(slot), remaining);
+        slab.remaining(slot, remaining);
+        level.totalAmount -= amount;
+        level.displayed -= slab.visible(slot) - visible;
+        slab.visible(slot, visible);
+        level.publish();
+    }
+
+    /**
+     * Fills the given slot as {@link BookLevel#fill} fills an entry: in place as long as it shows something,
+     * an iceberg whose slice got filled showing the next one from the tail.
+     *
+     * @return true if the order got fully filled and was removed from its level.
+     */
+    private boolean fill(SlotLevel level, int slot, long amount) {
+        long remaining = slab.remaining(slot);
+        if (amount == remaining) {
+            remove(level, slot);
+            return true;
+        }
+        long visible = slab.visible(slot);
+        slab.remaining(slot, remaining - amount);
+        level.totalAmount -= amount;
+        if (amount < visible) {
+            slab.visible(slot, visible - amount);
+            level.displayed -= amount;
+        } else {
+            long display = slab.display(slot);
+            long next = Math.min(display - (amount - visible) % display, remaining - amount);
+            slab.visible(slot, next);
+            level.displayed += next - visible;
+            if (level.tail != slot) {
+                unlink(level, slot);
+                link(level, slot);
+            }
+        }
+        level.publish();
+        return false;
+    }
+
+    private void link(SlotLevel level, int slot) {
+        slab.prev(slot, level.tail);
+        slab.next(slot, NONE);
+        if (level.tail == NONE) {
+            level.head = slot;
+        } else {
+            slab.next(level.tail, slot);
+        }
+        level.tail = slot;
+    }
+
+    private void unlink(SlotLevel level, int slot) {
+        int prev = slab.prev(slot);
+        int next = slab.next(slot);
+        if (prev == NONE) {
+            level.head = next;
+        } else {
+            slab.next(prev, next);
+        }
+        if (next == NONE) {
+            level.tail = prev;
+        } else {
+            slab.prev(next, prev);
+        }
+    }
+
+    /**
+     * Builds the order resting in a slot, with the amount still left to be filled as its pending amount.
+     */
+    private Order toOrder(int slot) {
+        int flags = slab.flags(slot);
+        long display = slab.display(slot);
+        return Order.builder()
+                .id(slab.id(slot))
+                .asset(getAsset())
+                .price(instrument.toPrice(slab.price(slot)))
+                .amount(instrument.toAmount(slab.amount(slot)))
+                .direction((flags & OrderSlab.SELL) != 0 ? OrderDirection.SELL : OrderDirection.BUY)
+                .timestamp((flags & OrderSlab.TIMESTAMP) != 0 ?
+                        LocalDateTime.ofEpochSecond(slab.seconds(slot), slab.nanos(slot), ZoneOffset.UTC) : null)
+                .stopPrice(slab.stopPrice(slot))
+                .displayAmount(display > 0 ? instrument.toAmount(display) : 0)
+                .build()
+                .withPendingAmount(instrument.toAmount(slab.remaining(slot)));
+    }
+
+    /**
+     * Gets the number of orders resting in the book.
+     */
+    public synchronized int slotsInUse() {
+        return slab.used();
+    }
+
+    /**
+     * Gets the number of bytes the book's slabs take outside the heap.
+     */
+    public synchronized long reservedBytes() {
+        return slab.reservedBytes();
+    }
+}
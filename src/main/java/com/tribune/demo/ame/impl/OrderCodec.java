@@ -0,0 +1,97 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.OrderType;
+import com.tribune.demo.ame.model.TimeInForce;
+import com.tribune.demo.ame.model.Trade;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The compact binary form of an {@link Order} and its trades, used wherever orders are written to disk.
+ */
+final class OrderCodec {
+
+    /**
+     * The version orders are written in; those of version 1 have no type nor time in force, those of 2 no stop price,
+     * those of 3 no display nor hidden amount.
+     */
+    static final int VERSION = 4;
+
+    private static final OrderDirection[] DIRECTIONS = OrderDirection.values();
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private static final OrderType[] TYPES = OrderType.values();
+
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private OrderCodec() {
+    }
+
+    static void write(DataOutput out, Order order) throws IOException {
+        out.writeLong(order.id());
+        out.writeUTF(order.asset());
+        out.writeDouble(order.price());
+        out.writeDouble(order.amount());
+        out.writeByte(order.direction() == null ? -1 : order.direction().ordinal());
+        out.writeBoolean(order.timestamp() != null);
+        if (order.timestamp() != null) {
+            out.writeLong(order.timestamp().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(order.timestamp().getNano());
+        }
+        out.writeDouble(order.pendingAmount());
+        out.writeByte(order.status().ordinal());
+        out.writeByte(order.type().ordinal());
+        out.writeByte(order.timeInForce().ordinal());
+        out.writeDouble(order.stopPrice());
+        out.writeDouble(order.displayAmount());
+        out.writeDouble(order.hiddenAmount());
+        out.writeInt(order.trades().size());
+        for (Trade trade : order.trades()) {
+            out.writeLong(trade.orderId());
+            out.writeDouble(trade.amount());
+            out.writeDouble(trade.price());
+        }
+    }
+
+    static Order read(DataInput in) throws IOException {
+        return read(in, VERSION);
+    }
+
+    /**
+     * @param version The version the order was written in, older snapshots hold older ones.
+     */
+    static Order read(DataInput in, int version) throws IOException {
+        long id = in.readLong();
+        String asset = in.readUTF();
+        double price = in.readDouble();
+        double amount = in.readDouble();
+        byte direction = in.readByte();
+        LocalDateTime timestamp = in.readBoolean() ?
+                LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+        double pendingAmount = in.readDouble();
+        OrderStatus status = STATUSES[in.readByte()];
+        OrderType type = version >= 2 ? TYPES[in.readByte()] : OrderType.LIMIT;
+        TimeInForce timeInForce = version >= 2 ? TIMES_IN_FORCE[in.readByte()] : TimeInForce.GTC;
+        double stopPrice = version >= 3 ? in.readDouble() : 0;
+        double displayAmount = version >= 4 ? in.readDouble() : 0;
+        double hiddenAmount = version >= 4 ? in.readDouble() : 0;
+        int tradeCount = in.readInt();
+        List<Trade> trades = new ArrayList<>(tradeCount);
+        for (int i = 0; i < tradeCount; i++) {
+            trades.add(new Trade(in.readLong(), in.readDouble(), in.readDouble()));
+        }
+        return new Order(id, asset, price, amount, direction < 0 ? null : DIRECTIONS[direction],
+                timestamp, trades, pendingAmount, status, type, timeInForce, stopPrice, displayAmount, hiddenAmount);
+    }
+}
@@ -0,0 +1,188 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.BookCommand;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderBatchResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, pre-allocated, multi-producer/single-consumer ring of commands (Disruptor-style).
+ * <ol>
+ * <li>Producers claim a sequence with a single atomic increment, wait only while the ring is full,
+ * fill the slot in place and then publish the sequence into the slot's availability marker.</li>
+ * <li>The only consumer walks the sequences in order and processes every slot that has been published,
+ * so commands are applied exactly in the order their sequences were claimed.</li>
+ * </ol>
+ * No locks are taken on either side and slots are reused, so the ring itself does not allocate.
+ * <p>
+ * The consumer stops by closing the ring: the sequences claimed before are processed as they are published,
+ * and no sequence can be claimed after, so no published slot is left unprocessed.
+ */
+class OrderRingBuffer {
+
+    /**
+     * The commands a {@link Slot} can carry.
+     */
+    enum Command {
+        SUBMIT, SELL, BUY, CANCEL, AMEND,
+        // applies a batch of commands to the book
+        BATCH,
+        // hands the book over to another worker
+        MOVE
+    }
+
+    /**
+     * A mutable, reusable ring entry.
+     */
+    static final class Slot {
+        Command command;
+        SingleWriterOrderBook book;
+        Order order;
+        // the target of a CANCEL or AMEND, and the new values of an AMEND
+        long id;
+        Double price;
+        Double amount;
+        LocalDateTime timestamp;
+        // the new owner of the book on a MOVE
+        BookWorker target;
+        // the commands of a BATCH, and the list their outcomes are added to
+        List<BookCommand> batch;
+        List<OrderBatchResult> results;
+        BookWorker.Completion future;
+        // System.nanoTime() when the command was first published
+        long published;
+
+        void clear() {
+            command = null;
+            book = null;
+            order = null;
+            price = null;
+            amount = null;
+            timestamp = null;
+            target = null;
+            batch = null;
+            results = null;
+            future = null;
+        }
+    }
+
+    @FunctionalInterface
+    interface SlotHandler {
+        void onSlot(Slot slot);
+    }
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    // added to the claimed sequence when the ring is closed, so every sequence claimed after is negative
+    private static final long CLOSED = Long.MIN_VALUE / 2;
+
+    // the next sequence to be claimed by a producer, negative once the ring is closed
+    private final AtomicLong claimed = new AtomicLong();
+
+    // the next sequence to be processed by the consumer
+    private final AtomicLong consumed = new AtomicLong();
+
+    // the sequence last published into each slot
+    private final AtomicLongArray published;
+
+
+    OrderRingBuffer(int size) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + size);
+        }
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Claims the next sequence, waiting while the ring is full.
+     *
+     * @return The sequence, or -1 once the ring is closed.
+     */
+    long claim() {
+        long sequence = claimed.getAndIncrement();
+        if (sequence < 0) {
+            return -1;
+        }
+        while (sequence - slots.length >= consumed.get()) {
+            Thread.onSpinWait();
+        }
+        return sequence;
+    }
+
+    Slot slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Makes a claimed and filled slot visible to the consumer.
+     */
+    void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Checks whether the next slot has been published, must only be called by the consumer.
+     */
+    boolean hasNext() {
+        long next = consumed.get();
+        return published.get((int) next & mask) == next;
+    }
+
+    /**
+     * Processes up to {@code limit} published slots in order, must only be called by the consumer.
+     *
+     * @return The number of processed slots.
+     */
+    int drain(SlotHandler handler, int limit) {
+        long next = consumed.get();
+        int count = 0;
+        while (count < limit && published.get((int) next & mask) == next) {
+            Slot slot = slots[(int) next & mask];
+            try {
+                handler.onSlot(slot);
+            } finally {
+                slot.clear();
+                consumed.lazySet(++next);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Closes the ring to producers, then processes every slot claimed before in order, waiting for each one to be
+     * published; must only be called by the consumer.
+     */
+    void close(SlotHandler handler) {
+        long end = claimed.getAndAdd(CLOSED);
+        while (consumed.get() < end) {
+            if (drain(handler, Integer.MAX_VALUE) == 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of commands claimed but not processed yet.
+     */
+    long size() {
+        return Math.max(0, claimed.get() - consumed.get());
+    }
+}
@@ -0,0 +1,79 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderType;
+
+/**
+ * The terms an order must meet to be accepted by a book, the same for every {@link com.tribune.demo.ame.domain.OrderBook}.
+ * Prices and amounts off the instrument's grid are rejected as well, before anything is matched.
+ */
+final class OrderRules {
+
+    private OrderRules() {
+    }
+
+    /**
+     * Checks an order about to be matched: any order but a stop order still waiting for its trigger.
+     *
+     * @param asset The asset of the book.
+     * @throws IllegalArgumentException if the order does not meet the terms.
+     */
+    static void validate(Order order, String asset, Instrument instrument) {
+        validateAsset(order, asset);
+        if (order.type() == OrderType.MARKET && order.rests()) {
+            throw new IllegalArgumentException("A market order cannot rest in the book, its time in force must be IOC or FOK");
+        }
+        if (order.awaitsTrigger()) {
+            throw new IllegalArgumentException("A stop order must be triggered before it is matched");
+        }
+        validateIceberg(order, OrderType.LIMIT, instrument);
+        validateGrid(order, OrderType.LIMIT, instrument);
+    }
+
+    /**
+     * Checks a stop order before it is held, against the terms of the order it becomes once triggered.
+     *
+     * @param asset The asset of the book.
+     * @throws IllegalArgumentException if the order does not meet the terms.
+     */
+    static void validateStop(Order order, String asset, Instrument instrument) {
+        validateAsset(order, asset);
+        if (order.type() == OrderType.STOP && order.rests()) {
+            throw new IllegalArgumentException("A stop order becomes a market order once triggered, its time in force must be IOC or FOK");
+        }
+        if (order.stopPrice() <= 0) {
+            throw new IllegalArgumentException("Stop price must be positive: " + order.stopPrice());
+        }
+        validateIceberg(order, OrderType.STOP_LIMIT, instrument);
+        validateGrid(order, OrderType.STOP_LIMIT, instrument);
+    }
+
+    private static void validateAsset(Order order, String asset) {
+        if (!asset.equals(order.asset())) {
+            throw new IllegalArgumentException("This asset doesn't belong to this order book.");
+        }
+    }
+
+    // only an order resting at a limit price may hide part of its amount
+    private static void validateIceberg(Order order, OrderType limit, Instrument instrument) {
+        if (order.displayAmount() == 0) {
+            return;
+        }
+        if (order.type() != limit || !order.rests()) {
+            throw new IllegalArgumentException("An iceberg order must be a good till cancelled limit order");
+        }
+        if (instrument.toLots(order.displayAmount()) > instrument.toLots(order.amount())) {
+            throw new IllegalArgumentException("Display amount must not exceed the amount: " + order.displayAmount());
+        }
+    }
+
+    // a market order, triggered or not, has no price to check
+    private static void validateGrid(Order order, OrderType limit, Instrument instrument) {
+        if (order.type() == limit) {
+            instrument.toTicks(order.price());
+        }
+        instrument.toLots(order.amount());
+    }
+}
@@ -0,0 +1,211 @@
+package com.tribune.demo.ame.impl;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Fixed-width slots for the resting orders of an {@link OffHeapOrderBook}, kept in direct {@link ByteBuffer}s
+ * outside the heap.
+ * <p>
+ * A slot is addressed by an {@code int}: the slab it is in, then its place in that slab. Slabs are only ever added,
+ * and freed slots are chained into a free list through their {@code next} field and handed out again first,
+ * so the slots in use stay packed into as few slabs as the most orders ever resting at once needed.
+ * The garbage collector only sees one buffer object per slab, however many orders they hold.
+ * <p>
+ * Not thread safe, the book guards it.
+ */
+final class OrderSlab {
+
+    /**
+     * The slot given for none, as the {@code prev} of a head or the {@code next} of a tail.
+     */
+    static final int NONE = -1;
+
+    // the layout of a slot
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int AMOUNT = 16;
+    private static final int REMAINING = 24;
+    private static final int DISPLAY = 32;
+    private static final int VISIBLE = 40;
+    private static final int SECONDS = 48;
+    private static final int STOP_PRICE = 56;
+    private static final int PREV = 64;
+    private static final int NEXT = 68;
+    private static final int FLAGS = 72;
+    private static final int NANOS = 76;
+
+    static final int SLOT_BYTES = 80;
+
+    static final int SELL = 1;
+    static final int TIMESTAMP = 2;
+
+    private final int shift;
+    private final int mask;
+
+    private ByteBuffer[] slabs = new ByteBuffer[4];
+    private int slabCount;
+
+    // slots below it were handed out at least once
+    private int top;
+    private int free = NONE;
+    private int used;
+
+
+    /**
+     * @param slotsPerSlab The number of slots in each slab, rounded up to a power of two.
+     */
+    OrderSlab(int slotsPerSlab) {
+        int slots = Integer.highestOneBit(Math.max(slotsPerSlab, 2) - 1) << 1;
+        this.shift = Integer.numberOfTrailingZeros(slots);
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Hands out a slot, the last one freed if any. Its fields are left as they were.
+     */
+    int allocate() {
+        int slot;
+        if (free != NONE) {
+            slot = free;
+            free = next(slot);
+        } else {
+            if (top >>> shift == slabCount) {
+                grow();
+            }
+            slot = top++;
+        }
+        used++;
+        return slot;
+    }
+
+    void free(int slot) {
+        next(slot, free);
+        free = slot;
+        used--;
+    }
+
+    /**
+     * Gets the number of slots in use.
+     */
+    int used() {
+        return used;
+    }
+
+    /**
+     * Gets the number of bytes reserved outside the heap.
+     */
+    long reservedBytes() {
+        return (long) slabCount * (mask + 1) * SLOT_BYTES;
+    }
+
+    private void grow() {
+        if (slabCount == slabs.length) {
+            slabs = Arrays.copyOf(slabs, slabCount * 2);
+        }
+        slabs[slabCount++] = ByteBuffer.allocateDirect((mask + 1) * SLOT_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer slab(int slot) {
+        return slabs[slot >>> shift];
+    }
+
+    private int at(int slot, int field) {
+        return (slot & mask) * SLOT_BYTES + field;
+    }
+
+    long id(int slot) {
+        return slab(slot).getLong(at(slot, ID));
+    }
+
+    void id(int slot, long id) {
+        slab(slot).putLong(at(slot, ID), id);
+    }
+
+    long price(int slot) {
+        return slab(slot).getLong(at(slot, PRICE));
+    }
+
+    void price(int slot, long price) {
+        slab(slot).putLong(at(slot, PRICE), price);
+    }
+
+    long amount(int slot) {
+        return slab(slot).getLong(at(slot, AMOUNT));
+    }
+
+    void amount(int slot, long amount) {
+        slab(slot).putLong(at(slot, AMOUNT), amount);
+    }
+
+    long remaining(int slot) {
+        return slab(slot).getLong(at(slot, REMAINING));
+    }
+
+    void remaining(int slot, long remaining) {
+        slab(slot).putLong(at(slot, REMAINING), remaining);
+    }
+
+    long display(int slot) {
+        return slab(slot).getLong(at(slot, DISPLAY));
+    }
+
+    void display(int slot, long display) {
+        slab(slot).putLong(at(slot, DISPLAY), display);
+    }
+
+    long visible(int slot) {
+        return slab(slot).getLong(at(slot, VISIBLE));
+    }
+
+    void visible(int slot, long visible) {
+        slab(slot).putLong(at(slot, VISIBLE), visible);
+    }
+
+    long seconds(int slot) {
+        return slab(slot).getLong(at(slot, SECONDS));
+    }
+
+    int nanos(int slot) {
+        return slab(slot).getInt(at(slot, NANOS));
+    }
+
+    void time(int slot, long seconds, int nanos) {
+        slab(slot).putLong(at(slot, SECONDS), seconds);
+        slab(slot).putInt(at(slot, NANOS), nanos);
+    }
+
+    double stopPrice(int slot) {
+        return slab(slot).getDouble(at(slot, STOP_PRICE));
+    }
+
+    void stopPrice(int slot, double stopPrice) {
+        slab(slot).putDouble(at(slot, STOP_PRICE), stopPrice);
+    }
+
+    int prev(int slot) {
+        return slab(slot).getInt(at(slot, PREV));
+    }
+
+    void prev(int slot, int prev) {
+        slab(slot).putInt(at(slot, PREV), prev);
+    }
+
+    int next(int slot) {
+        return slab(slot).getInt(at(slot, NEXT));
+    }
+
+    void next(int slot, int next) {
+        slab(slot).putInt(at(slot, NEXT), next);
+    }
+
+    int flags(int slot) {
+        return slab(slot).getInt(at(slot, FLAGS));
+    }
+
+    void flags(int slot, int flags) {
+        slab(slot).putInt(at(slot, FLAGS), flags);
+    }
+}
@@ -0,0 +1,249 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.Order;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link HotOrderStore} exploiting the ids handed out sequentially by the matching engine: the orders are kept in
+ * fixed-size pages, order {@code id} in slot {@code id % pageSize} of page {@code id / pageSize}, and a directory
+ * of pages is indexed by the page number.
+ * <p>
+ * A lookup is two array reads, without boxing the id, hashing it or an entry object per order.
+ * Reads take no lock; writes lock the page of the order, so writers of different ranges of ids never contend.
+ * <p>
+ * Orders only leave the store once filled or cancelled, and ids are never reused, so the pages of older ranges
+ * eventually empty. An empty page below the newest one is taken out of the directory and kept as a spare for a later
+ * range, so the heap holds the pages of the ranges still having live or recent orders.
+ * An id archived late into a range already recycled simply gets a page again.
+ */
+public final class PagedOrderStore implements HotOrderStore {
+
+    /**
+     * The default number of orders per page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+
+    // the most empty pages kept for reuse
+    private static final int MAX_SPARE_PAGES = 16;
+
+    private final int shift;
+    private final int mask;
+
+    // replaced as a whole when it grows, under the lock
+    private volatile AtomicReferenceArray<Page> directory = new AtomicReferenceArray<>(16);
+
+    private final Object lock = new Object();
+
+    // guarded by the lock
+    private final Deque<Page> spares = new ArrayDeque<>();
+    private int newest = -1;
+    private int pages;
+
+    private final LongAdder size = new LongAdder();
+
+
+    public PagedOrderStore() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param pageSize The number of orders in each page, rounded up to a power of two.
+     */
+    public PagedOrderStore(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Archive page size must be positive: " + pageSize);
+        }
+        int slots = Integer.highestOneBit(Math.max(pageSize, 2) - 1) << 1;
+        this.shift = Integer.numberOfTrailingZeros(slots);
+        this.mask = slots - 1;
+    }
+
+
+    @Override
+    public Order get(long id) {
+        Page page = page(id);
+        if (page == null) {
+            return null;
+        }
+        Order order = page.orders.get(slot(id));
+        // the page may have been recycled for another range since it was read
+        return order != null && order.id() == id ? order : null;
+    }
+
+    @Override
+    public Order put(Order order) {
+        long id = order.id();
+        if (id < 0) {
+            throw new IllegalArgumentException("Order id must not be negative: " + id);
+        }
+        while (true) {
+            Page page = page(id);
+            if (page == null) {
+                page = install(index(id));
+            }
+            synchronized (page) {
+                if (page.index != index(id)) {
+                    // recycled since it was read
+                    continue;
+                }
+                Order previous = page.orders.getAndSet(slot(id), order);
+                if (previous == null) {
+                    page.count++;
+                    size.increment();
+                }
+                return previous;
+            }
+        }
+    }
+
+    @Override
+    public Order computeIfPresent(long id, UnaryOperator<Order> update) {
+        while (true) {
+            Page page = page(id);
+            if (page == null) {
+                return null;
+            }
+            synchronized (page) {
+                if (page.index != index(id)) {
+                    continue;
+                }
+                Order current = page.orders.get(slot(id));
+                if (current == null) {
+                    return null;
+                }
+                Order next = update.apply(current);
+                page.orders.set(slot(id), next);
+                if (next == null) {
+                    size.decrement();
+                    if (--page.count == 0) {
+                        recycle(page);
+                    }
+                }
+                return next;
+            }
+        }
+    }
+
+    @Override
+    public List<Order> values() {
+        List<Order> values = new ArrayList<>();
+        AtomicReferenceArray<Page> pages = directory;
+        for (int index = 0; index < pages.length(); index++) {
+            Page page = pages.get(index);
+            if (page == null) {
+                continue;
+            }
+            for (int slot = 0; slot <= mask; slot++) {
+                Order order = page.orders.get(slot);
+                if (order != null) {
+                    values.add(order);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Gets the number of pages in the directory.
+     */
+    public int pages() {
+        synchronized (lock) {
+            return pages;
+        }
+    }
+
+    /**
+     * Gets the number of empty pages kept for reuse.
+     */
+    public int sparePages() {
+        synchronized (lock) {
+            return spares.size();
+        }
+    }
+
+
+    private int index(long id) {
+        return (int) (id >>> shift);
+    }
+
+    private int slot(long id) {
+        return (int) id & mask;
+    }
+
+    private Page page(long id) {
+        AtomicReferenceArray<Page> pages = directory;
+        if (id < 0 || id >>> shift >= pages.length()) {
+            return null;
+        }
+        return pages.get(index(id));
+    }
+
+    private Page install(int index) {
+        synchronized (lock) {
+            AtomicReferenceArray<Page> pages = directory;
+            if (index >= pages.length()) {
+                AtomicReferenceArray<Page> grown = new AtomicReferenceArray<>(Math.max(pages.length() * 2, index + 1));
+                for (int i = 0; i < pages.length(); i++) {
+                    grown.set(i, pages.get(i));
+                }
+                directory = pages = grown;
+            }
+            Page page = pages.get(index);
+            if (page == null) {
+                page = spares.isEmpty() ? new Page(mask + 1) : spares.pop();
+                page.index = index;
+                pages.set(index, page);
+                newest = Math.max(newest, index);
+                this.pages++;
+            }
+            return page;
+        }
+    }
+
+    // with the page locked, so no order can be put in it meanwhile
+    private void recycle(Page page) {
+        synchronized (lock) {
+            // the newest page is still being filled
+            if (page.index >= newest) {
+                return;
+            }
+            directory.set(page.index, null);
+            page.index = Page.DETACHED;
+            pages--;
+            if (spares.size() < MAX_SPARE_PAGES) {
+                spares.push(page);
+            }
+        }
+    }
+
+
+    private static final class Page {
+
+        static final int DETACHED = -1;
+
+        final AtomicReferenceArray<Order> orders;
+
+        // the page number, written with the store locked, and with the page locked as well once it holds orders
+        volatile int index = DETACHED;
+
+        // guarded by the page
+        int count;
+
+        Page(int size) {
+            this.orders = new AtomicReferenceArray<>(size);
+        }
+    }
+}
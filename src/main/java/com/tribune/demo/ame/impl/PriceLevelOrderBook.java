@@ -0,0 +1,507 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.domain.OrderEvent;
+import com.tribune.demo.ame.domain.OrderEventType;
+import com.tribune.demo.ame.domain.OrderPublisher;
+import com.tribune.demo.ame.model.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * The price and time priority matching shared by the {@link LadderOrderBook} and the {@link OffHeapOrderBook}.
+ * It uses the following:
+ * <ol>
+ * <li>A {@link LevelLadder} of `sell` price levels, the lowest price first.</li>
+ * <li>A {@link LevelLadder} of `buy` price levels, the highest price first.</li>
+ * <li>A FIFO queue of orders per {@link Level}, which gives time priority within the same price.</li>
+ * <li>A {@link DepthView} that every level publishes its totals to, for lock-free depth requests.</li>
+ * <li>An {@link OrderPublisher} to handle events related to order processing.</li>
+ * </ol>
+ * Resting orders are filled in place, so the cost of matching depends on the number of price levels crossed
+ * rather than on the total depth of the book.
+ * Only {@code GTC} orders rest, a {@code FOK} order is checked against the totals of the levels it would cross first.
+ * Prices and amounts are converted into ticks and lots of the book's {@link Instrument} on the way in,
+ * so all the matching arithmetic is exact.
+ * <p>
+ * How the orders of a level are kept, and how they are found by id, is up to the subclass: the matching only ever
+ * works on the order first in line at a level, and reaches any other one by its id.
+ *
+ * @param <L> The price levels of the subclass.
+ */
+@Slf4j
+abstract class PriceLevelOrderBook<L extends PriceLevelOrderBook.Level> implements OrderBook {
+
+    private final OrderPublisher orderPublisher;
+
+    @Getter
+    @Setter
+    private String asset;
+
+    @Getter
+    protected final Instrument instrument;
+
+    // the best (lowest) selling price comes first
+    private final LevelLadder<L> sellLevels = new LevelLadder<>(true);
+
+    // the best (highest) buying price comes first
+    private final LevelLadder<L> buyLevels = new LevelLadder<>(false);
+
+    // the level each side last rested into, looked up before the ladder as orders mostly rest where the previous one did
+    private L lastSellLevel;
+    private L lastBuyLevel;
+
+    private final DepthView depthView;
+
+    private final FillBuffer fills = new FillBuffer();
+
+
+    /**
+     * A single price level, the orders resting at its price in arrival order and their totals, in lots.
+     */
+    abstract static class Level {
+
+        // in ticks
+        final long price;
+
+        Level(long price) {
+            this.price = price;
+        }
+
+        abstract boolean isEmpty();
+
+        abstract int size();
+
+        /**
+         * Gets what the orders of the level have left to be filled, the hidden reserves of icebergs included.
+         */
+        abstract long totalAmount();
+    }
+
+
+    PriceLevelOrderBook(Instrument instrument, OrderPublisher orderPublisher) {
+        this.asset = instrument.asset();
+        this.instrument = instrument;
+        this.orderPublisher = orderPublisher;
+        this.depthView = new DepthView(instrument);
+    }
+
+
+    /**
+     * Creates an empty level, publishing its totals to the given depth level.
+     */
+    abstract L newLevel(long price, DepthView.Level depth);
+
+    /**
+     * Tells whether the given order rests in the book.
+     */
+    abstract boolean rests(long id);
+
+    abstract long firstId(L level);
+
+    abstract long firstRemaining(L level);
+
+    /**
+     * Gets what the first order of the level shows, the slice of an iceberg or all that is left of any other order.
+     */
+    abstract long firstVisible(L level);
+
+    /**
+     * Fills the first order of the level, as {@link BookLevel#fill} does, and lets go of it once fully filled.
+     *
+     * @return The amount left on the order, in lots.
+     */
+    abstract long fillFirst(L level, long amount);
+
+    /**
+     * Rests an order at the tail of the level.
+     *
+     * @param order The submitted order, if any.
+     */
+    abstract void rest(L level, long id, OrderDirection direction, long amount, long remaining, long display,
+                       long visible, LocalDateTime timestamp, double stopPrice, Order order);
+
+    /**
+     * Builds the order resting with the given id, with the amount still left to be filled as its pending amount.
+     *
+     * @return The order, or null if it does not rest in the book.
+     */
+    abstract Order restingOrder(long id);
+
+    /**
+     * Takes the given amount off a resting order without moving it.
+     *
+     * @return The order as it rests afterwards.
+     */
+    abstract Order reduce(long id, long amount);
+
+    /**
+     * Takes a resting order off its level.
+     *
+     * @return The level it rested at.
+     */
+    abstract L remove(long id);
+
+    /**
+     * Adds the orders of the level to the list as they rest, in arrival order.
+     */
+    abstract void collect(L level, List<Order> orders);
+
+
+    @Override
+    public synchronized Order submit(Order order) {
+        OrderRules.validate(order, asset, instrument);
+
+        Order response = OrderDirection.SELL.equals(order.direction()) ?
+                sell(order) :
+                buy(order);
+
+        saveOrUpdateOrder(response);
+        return response;
+    }
+
+    @Override
+    public synchronized Order sell(Order order) {
+        log.debug("Adding order to SELL levels");
+        return match(order);
+    }
+
+    @Override
+    public synchronized Order buy(Order order) {
+        log.debug("Adding order to BUY levels");
+        return match(order);
+    }
+
+    /**
+     * Matches a submitted order and turns the fills into trades and counterpart updates.
+     */
+    private Order match(Order order) {
+        long price = order.type() == OrderType.MARKET ?
+                (OrderDirection.SELL.equals(order.direction()) ? Long.MIN_VALUE : Long.MAX_VALUE) :
+                instrument.toTicks(order.price());
+        return match(order, price, instrument.toLots(order.amount()), 0);
+    }
+
+    private Order match(Order order, long price, long amount, long filled) {
+        fills.reset();
+        long display = order.iceberg() ? instrument.toLots(order.displayAmount()) : 0;
+        long pending = match(order.id(), order.direction(), price, amount, filled, display, order.timeInForce(),
+                order.timestamp(), order, fills);
+
+        List<Trade> trades = new ArrayList<>(fills.size());
+        long lastPrice = -1;
+        double tradePrice = 0;
+        for (int i = 0; i < fills.size(); i++) {
+            if (fills.price(i) != lastPrice) {
+                lastPrice = fills.price(i);
+                tradePrice = instrument.toPrice(lastPrice);
+            }
+            double tradeAmount = instrument.toAmount(fills.amount(i));
+            trades.add(Trade.builder()
+                    .orderId(fills.restingId(i))
+                    .price(tradePrice)
+                    .amount(tradeAmount)
+                    .build());
+            publishCounterpart(UpdateCounterpart.builder()
+                    .asset(order.asset())
+                    .triggerId(order.id())
+                    .counterPartId(fills.restingId(i))
+                    .counterpartAmount(tradeAmount)
+                    .counterpartPrice(tradePrice)
+                    .counterpartPendingAmount(instrument.toAmount(fills.restingRemaining(i)))
+                    .build());
+        }
+        Order response = order.withTrades(trades);
+        return order.rests() ?
+                response.withPendingAmount(instrument.toAmount(pending)) :
+                response.withRemainderCancelled(instrument.toAmount(pending));
+    }
+
+    /**
+     * Matches a good till cancelled limit order given in ticks and lots, reporting every fill to the listener
+     * as primitives, then rests whatever is left. This is the core used by {@link #submit}, which allocates nothing
+     * but the levels it opens.
+     *
+     * @param id        The order id.
+     * @param direction The order direction.
+     * @param price     The limit price, in ticks.
+     * @param amount    The amount, in lots.
+     * @param listener  Receives the fills.
+     * @return The amount left resting in the book, in lots.
+     */
+    public synchronized long match(long id, OrderDirection direction, long price, long amount, FillListener listener) {
+        return match(id, direction, price, amount, 0, 0, TimeInForce.GTC, null, null, listener);
+    }
+
+    /**
+     * @param filled      The amount of the order filled before it got here, in lots; non-zero for amendments.
+     * @param display     The most of the order shown at a time once it rests, in lots; 0 unless it is an iceberg.
+     * @param timeInForce Whether what is left rests, is cancelled, or the whole order is cancelled unless it fills.
+     * @return The amount left unfilled, in lots, which only rests in the book for {@code GTC} orders.
+     */
+    private long match(long id, OrderDirection direction, long price, long amount, long filled, long display,
+                       TimeInForce timeInForce, LocalDateTime timestamp, Order order, FillListener listener) {
+        if (rests(id)) {
+            throw new IllegalArgumentException("Order is already in the book: " + id);
+        }
+        boolean sell = OrderDirection.SELL.equals(direction);
+        LevelLadder<L> opposite = sell ? buyLevels : sellLevels;
+        if (timeInForce == TimeInForce.FOK && available(opposite, sell, price, amount) < amount) {
+            return amount;
+        }
+        long pending = amount;
+
+        while (pending > 0 && !opposite.isEmpty()) {
+            L level = opposite.best();
+            if (sell ? level.price < price : level.price > price) {
+                break;
+            }
+            while (pending > 0 && !level.isEmpty()) {
+                long restingId = firstId(level);
+                // only the slice an iceberg shows, unless it is alone at its level and may be filled through all of them
+                long tradeAmount = Math.min(pending, level.size() == 1 ? firstRemaining(level) : firstVisible(level));
+                long restingRemaining = fillFirst(level, tradeAmount);
+                listener.onFill(restingId, level.price, tradeAmount, restingRemaining);
+                pending -= tradeAmount;
+            }
+            close(level, sell ? OrderDirection.BUY : OrderDirection.SELL);
+        }
+
+        if (pending > 0 && timeInForce == TimeInForce.GTC) {
+            rest(restingLevel(sell, price), id, direction, filled + amount, pending, display,
+                    display > 0 ? Math.min(display, pending) : pending, timestamp,
+                    order != null ? order.stopPrice() : 0, order);
+        }
+        return pending;
+    }
+
+    /**
+     * Sums the totals of the opposite levels crossed by the given price, best first, until {@code wanted} is reached.
+     */
+    private long available(LevelLadder<L> opposite, boolean sell, long price, long wanted) {
+        long found = 0;
+        for (int i = 0; i < opposite.size(); i++) {
+            L level = opposite.get(i);
+            if (sell ? level.price < price : level.price > price) {
+                break;
+            }
+            found += level.totalAmount();
+            if (found >= wanted) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized Order cancel(long id) {
+        Order resting = restingOrder(id);
+        if (resting == null) {
+            throw new IllegalArgumentException("Order is not live: " + id);
+        }
+        Order cancelled = resting
+                .withStatus(OrderStatus.CANCELLED)
+                .withPendingAmount(0);
+        close(remove(id), resting.direction());
+
+        updateLiveOrder(cancelled);
+        return cancelled;
+    }
+
+    @Override
+    public synchronized List<OrderBatchResult> submitBatch(List<BookCommand> commands) {
+        return OrderBook.super.submitBatch(commands);
+    }
+
+    @Override
+    public synchronized Order amend(long id, Double price, Double amount, LocalDateTime timestamp) {
+        Order resting = restingOrder(id);
+        if (resting == null) {
+            throw new IllegalArgumentException("Order is not live: " + id);
+        }
+        long restingPrice = instrument.toTicks(resting.price());
+        long remaining = instrument.toLots(resting.pendingAmount());
+        long newPrice = price != null ? instrument.toTicks(price) : restingPrice;
+        long newRemaining = amount != null ? instrument.toLots(amount) : remaining;
+
+        Order response;
+        if (newPrice == restingPrice && newRemaining <= remaining) {
+            // a reduction keeps the order where it is
+            response = reduce(id, remaining - newRemaining);
+        } else {
+            long filled = instrument.toLots(resting.amount()) - remaining;
+            close(remove(id), resting.direction());
+
+            Order amended = Order.builder()
+                    .id(id)
+                    .asset(asset)
+                    .price(instrument.toPrice(newPrice))
+                    .amount(instrument.toAmount(filled + newRemaining))
+                    .direction(resting.direction())
+                    .timestamp(timestamp)
+                    .stopPrice(resting.stopPrice())
+                    .displayAmount(resting.displayAmount())
+                    .build();
+            response = match(amended, newPrice, newRemaining, filled);
+        }
+
+        updateLiveOrder(response);
+        return response;
+    }
+
+    @Override
+    public synchronized void restore(Order order) {
+        if (rests(order.id())) {
+            throw new IllegalArgumentException("Order is already in the book: " + order.id());
+        }
+        long price = instrument.toTicks(order.price());
+        long remaining = instrument.toLots(order.pendingAmount());
+        long display = order.iceberg() ? instrument.toLots(order.displayAmount()) : 0;
+        // an iceberg shows what it showed when it was snapshotted
+        long visible = order.hiddenAmount() > 0 ? remaining - instrument.toLots(order.hiddenAmount()) :
+                display > 0 ? Math.min(display, remaining) : remaining;
+        rest(restingLevel(OrderDirection.SELL.equals(order.direction()), price), order.id(), order.direction(),
+                instrument.toLots(order.amount()), remaining, display, visible, order.timestamp(), order.stopPrice(), null);
+    }
+
+    /**
+     * Gets the level at the given price, or null if no order rests there.
+     */
+    final L level(OrderDirection side, long price) {
+        return (side == OrderDirection.SELL ? sellLevels : buyLevels).find(price);
+    }
+
+    // takes a level off the ladder once empty
+    private void close(L level, OrderDirection side) {
+        if (level.isEmpty()) {
+            (side == OrderDirection.SELL ? sellLevels : buyLevels).remove(level.price);
+            depthView.close(side, level.price);
+        }
+    }
+
+    private L restingLevel(boolean sell, long price) {
+        L level = sell ? lastSellLevel : lastBuyLevel;
+        // a level is removed from its map only once empty, so a non-empty one is still there
+        if (level == null || level.price != price || level.isEmpty()) {
+            LevelLadder<L> own = sell ? sellLevels : buyLevels;
+            level = own.find(price);
+            if (level == null) {
+                OrderDirection side = sell ? OrderDirection.SELL : OrderDirection.BUY;
+                level = newLevel(price, depthView.open(side, price));
+                own.add(level);
+            }
+            if (sell) {
+                lastSellLevel = level;
+            } else {
+                lastBuyLevel = level;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Notifies subscribers about Save/Update of an order.
+     */
+    @Override
+    public void saveOrUpdateOrder(Order response) {
+        OrderEvent event = new SimpleOrderEvent(response,
+                "Update the order",
+                OrderEventType.SAVE_OR_UPDATE_ORDER);
+
+        orderPublisher.publish(event);
+    }
+
+    /**
+     * Notifies subscribers that a resting order was cancelled or amended.
+     */
+    private void updateLiveOrder(Order response) {
+        OrderEvent event = new SimpleOrderEvent(response,
+                "Update the live order",
+                OrderEventType.UPDATE_LIVE_ORDER);
+
+        orderPublisher.publish(event);
+    }
+
+    /**
+     * Notifies subscribers to Update the counterpart order in the archive.
+     **/
+    @Override
+    public void updateCounterpart(UpdateCounterpart updateCounterpart) {
+        if (log.isDebugEnabled()) {
+            log.debug("Updating archive for order {}", updateCounterpart.triggerId());
+        }
+
+        OrderEvent event = new SimpleOrderEvent(updateCounterpart,
+                "Update the counterpart",
+                OrderEventType.UPDATE_COUNTERPART);
+
+        orderPublisher.publish(event);
+    }
+
+    /**
+     * Notifies subscribers of a fill of a resting order, called under the book's lock only.
+     */
+    void publishCounterpart(UpdateCounterpart updateCounterpart) {
+        updateCounterpart(updateCounterpart);
+    }
+
+    final OrderPublisher orderPublisher() {
+        return orderPublisher;
+    }
+
+    @Override
+    public TopOfBook getTopOfBook() {
+        return depthView.top();
+    }
+
+    @Override
+    public BookDepth getDepth(int levels) {
+        return depthView.depth(levels);
+    }
+
+    DepthView depthView() {
+        return depthView;
+    }
+
+    @Override
+    public synchronized List<Order> findLiveOrders(OrderDirection direction) {
+        List<Order> orders = new ArrayList<>();
+        if (direction == null || direction == OrderDirection.BUY) {
+            collect(buyLevels, orders);
+        }
+        if (direction == null || direction == OrderDirection.SELL) {
+            collect(sellLevels, orders);
+        }
+        return orders;
+    }
+
+    private void collect(LevelLadder<L> levels, List<Order> orders) {
+        for (int i = 0; i < levels.size(); i++) {
+            collect(levels.get(i), orders);
+        }
+    }
+
+    /**
+     * Gets the number of price levels on the given side.
+     */
+    public synchronized int levelCount(OrderDirection direction) {
+        return direction == OrderDirection.BUY ? buyLevels.size() : sellLevels.size();
+    }
+
+    /**
+     * Gets the number of orders resting on the given side.
+     */
+    public synchronized int orderCount(OrderDirection direction) {
+        LevelLadder<L> levels = direction == OrderDirection.BUY ? buyLevels : sellLevels;
+        int count = 0;
+        for (int i = 0; i < levels.size(); i++) {
+            count += levels.get(i).size();
+        }
+        return count;
+    }
+}
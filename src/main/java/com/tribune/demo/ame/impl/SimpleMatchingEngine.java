@@ -1,49 +1,135 @@
 package com.tribune.demo.ame.impl;
 
 
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
 import com.tribune.demo.ame.domain.*;
 import com.tribune.demo.ame.model.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Stream;
+import java.util.function.Supplier;
 
 /**
  * This class is an implementation of {@link MatchingEngine} that uses the following:
  * <ol>
- * <li>A map of {@link SimpleOrderBook} instances, each identified by a unique asset name.</li>
+ * <li>A map of {@link OrderBook} instances, each identified by a unique asset name.
+ * The implementation is chosen through {@code ame.order-book.type}.</li>
+ * <li>A {@link TriggeringOrderBook} around every book, holding its stop orders until a trade reaches their stop price.</li>
+ * <li>Optionally, a {@link BookWorker} per book, or per shard of books, so that each book has a single writer thread,
+ * chosen through {@code ame.matching.mode}.</li>
  * <li>An {@link AtomicLong} counter to generate unique IDs for orders.</li>
- * <li>An archive of {@link Order} objects to keep track of processed orders.</li>
+ * <li>An {@link OrderArchive} of {@link Order} objects to keep track of processed orders,
+ * moving the filled and cancelled ones off the heap as configured by {@code ame.archive.*}.</li>
  * <li>An {@link OrderPublisher} to handle events related to order processing.</li>
+ * <li>Optionally, a {@link TradeLedger} giving every trade an id and recording it for post-trade queries,
+ * enabled through {@code ame.ledger.enabled}.</li>
+ * <li>Optionally, a {@link CommandJournal} of every accepted command, replayed when the engine starts
+ * to rebuild the books, the archive and the id counter, enabled through {@code ame.journal.enabled}.</li>
+ * <li>Optionally, periodic snapshots of the books and the archive, so that only the journal written after the
+ * latest one is replayed, enabled through {@code ame.snapshot.enabled}.</li>
+ * <li>Optionally, a {@link MeteredOrderBook} around every book, recording its latency, trades and resting orders,
+ * enabled through {@code ame.metrics.enabled}.</li>
  * </ol>
  */
 @Slf4j
 @Component
-public class SimpleMatchingEngine implements MatchingEngine, OrderSubscriber {
+public class SimpleMatchingEngine implements MatchingEngine, OrderSubscriber, MeterBinder {
 
     @Getter
     private final AtomicLong counter = new AtomicLong(0);
 
-    private final Map<String, SimpleOrderBook> orderBooks = new HashMap<>();
+    private final BookRegistry orderBooks = new BookRegistry();
 
-    private final Map<Long, Order> archive = new ConcurrentHashMap<>();
+    private final OrderArchive archive;
+
+    private final TradeLedger ledger;
 
     private final OrderPublisher orderPublisher;
 
+    // the publisher handed to the books, timing their events when they are metered
+    private final OrderPublisher bookPublisher;
+
+    private final EngineProperties properties;
+
+    private final OrderBookType orderBookType;
+
+    private final EngineProperties.MatchingSettings matching;
+
+    private final CommandJournal journal;
+
+    // the workers shared by the books in sharded mode, null otherwise
+    private final BookWorker[] shards;
+
+    private final SnapshotStore snapshots;
+
+    private final ScheduledExecutorService snapshotScheduler;
+
+    // the journal's command count and the time at the latest snapshot, guarded by this
+    private long snapshotCommands;
+    private long snapshotNanos = System.nanoTime();
+
+    // the registry the metered books are bound to, guarded by this
+    private MeterRegistry registry;
+
 
-    @Autowired
     public SimpleMatchingEngine(OrderPublisher orderPublisher) {
+        this(orderPublisher, new EngineProperties());
+    }
+
+    @Autowired
+    public SimpleMatchingEngine(OrderPublisher orderPublisher, EngineProperties properties) {
         this.orderPublisher = orderPublisher;
+        this.bookPublisher = properties.getMetrics().isEnabled() ? MeteredOrderBook.publisher(orderPublisher) : orderPublisher;
+        this.properties = properties;
+        this.orderBookType = properties.getOrderBook().getType();
+        this.matching = properties.getMatching();
+        this.archive = new TieredOrderArchive(properties.getArchive());
+        this.ledger = properties.getLedger().isEnabled() ? new TradeLedger(properties.getLedger()) : null;
+        if (properties.getSnapshot().isEnabled() && !properties.getJournal().isEnabled()) {
+            throw new IllegalArgumentException("Snapshots need the journal, set ame.journal.enabled");
+        }
+        this.shards = matching.getMode() == MatchingMode.SHARDED ? newShards(matching) : null;
+        this.journal = properties.getJournal().isEnabled() ? new CommandJournal(properties.getJournal()) : null;
+        this.snapshots = properties.getSnapshot().isEnabled() ? new SnapshotStore(properties.getSnapshot()) : null;
         orderPublisher.subscribe(OrderEventType.SAVE_OR_UPDATE_ORDER, this);
         orderPublisher.subscribe(OrderEventType.UPDATE_COUNTERPART, this);
-        newOrderBook("BTC");
+        orderPublisher.subscribe(OrderEventType.UPDATE_LIVE_ORDER, this);
+        // a restored engine already has the books it needs
+        if (journal == null || !restore()) {
+            newOrderBook("BTC");
+        }
+        this.snapshotScheduler = snapshots != null ? scheduleSnapshots(properties.getSnapshot()) : null;
+    }
+
+
+    private static BookWorker[] newShards(EngineProperties.MatchingSettings matching) {
+        int count = matching.getShards() > 0 ? matching.getShards() : Runtime.getRuntime().availableProcessors();
+        matching.getShardAssignments().forEach((asset, shard) -> {
+            if (shard < 0 || shard >= count) {
+                throw new IllegalArgumentException("Shard of asset " + asset + " must be between 0 and " + (count - 1) + ": " + shard);
+            }
+        });
+        BookWorker[] workers = new BookWorker[count];
+        for (int i = 0; i < count; i++) {
+            workers[i] = new BookWorker("ame-shard-" + i, matching.getRingSize());
+        }
+        return workers;
     }
 
 
@@ -53,29 +139,331 @@ public class SimpleMatchingEngine implements MatchingEngine, OrderSubscriber {
     }
 
     @Override
-    public SimpleOrderBook getOrderBook(String name) {
-        SimpleOrderBook book = orderBooks.get(name);
-        if (book == null) {
+    public OrderBook getOrderBook(String name) {
+        BookRegistry.Registered registered = orderBooks.get(name);
+        if (registered == null) {
             throw new IllegalArgumentException("OrderBook not found: " + name);
         }
+        return registered.book();
+    }
+
+    @Override
+    public OrderBook getOrderBook(int assetId) {
+        OrderBook book = orderBooks.get(assetId);
+        if (book == null) {
+            throw new IllegalArgumentException("OrderBook not found: #" + assetId);
+        }
         return book;
     }
 
+    @Override
+    public List<OrderBookInfo> getOrderBooks() {
+        return orderBooks.all().stream()
+                .map(registered -> {
+                    Instrument instrument = properties.instrument(registered.book().getAsset());
+                    return new OrderBookInfo(instrument.asset(), registered.id(), instrument.tickSize(), instrument.lotSize(),
+                            shardOf(registered.book()));
+                })
+                .toList();
+    }
+
 
+    // creating and deleting books is serialized with snapshots, looking them up never waits
     @Override
-    public SimpleOrderBook newOrderBook(String name) {
-        if (orderBooks.containsKey(name)) {
-            return orderBooks.get(name);
+    public synchronized OrderBook newOrderBook(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Asset name must not be blank");
+        }
+        return newOrderBook(name, true);
+    }
+
+    private OrderBook newOrderBook(String name, boolean journalled) {
+        BookRegistry.Registered existing = orderBooks.get(name);
+        if (existing != null) {
+            return existing.book();
+        }
+        long position = journal != null && journalled ? journal.createBook(name) : CommandJournal.NONE;
+        Instrument instrument = properties.instrument(name);
+        OrderBook orderBook = switch (orderBookType) {
+            case SIMPLE -> new SimpleOrderBook(instrument, bookPublisher);
+            case LADDER -> new LadderOrderBook(instrument, bookPublisher,
+                    properties.getOrderBook().isPooled() ? properties.getOrderBook().getPoolSize() : 0);
+            case OFF_HEAP -> new OffHeapOrderBook(instrument, bookPublisher);
+        };
+        if (properties.getMetrics().isEnabled()) {
+            MeteredOrderBook metered = new MeteredOrderBook(orderBook, switch (orderBook) {
+                case SimpleOrderBook simple -> simple.depthView();
+                case LadderOrderBook ladder -> ladder.depthView();
+                case OffHeapOrderBook offHeap -> offHeap.depthView();
+                default -> throw new IllegalStateException("Unexpected order book: " + orderBook);
+            });
+            if (registry != null) {
+                metered.bindTo(registry);
+            }
+            orderBook = metered;
+        }
+        // inside the journal, so replaying the commands triggers the same stops
+        orderBook = new TriggeringOrderBook(orderBook, instrument, bookPublisher);
+        if (journal != null) {
+            // inside the worker, if any, so commands are journalled in the order the worker applies them,
+            // while their callers wait for them to be durable rather than the worker
+            orderBook = new JournalingOrderBook(orderBook, journal, matching.getMode() == MatchingMode.DIRECT);
+        }
+        orderBook = switch (matching.getMode()) {
+            case DIRECT -> orderBook;
+            case SINGLE_WRITER -> new SingleWriterOrderBook(orderBook, new BookWorker("ame-book-" + name, matching.getRingSize()), journal);
+            case SHARDED -> {
+                Integer pinned = matching.getShardAssignments().get(name);
+                yield new SingleWriterOrderBook(orderBook, shards[pinned != null ? pinned : Math.floorMod(name.hashCode(), shards.length)], journal);
+            }
+        };
+        orderBooks.register(orderBook);
+        if (journal != null) {
+            journal.awaitDurable(position);
         }
-        SimpleOrderBook orderBook = new SimpleOrderBook(name, orderPublisher);
-        orderBooks.put(name, orderBook);
         return orderBook;
     }
 
 
     @Override
-    public boolean deleteOrderBook(String name) {
-        return orderBooks.remove(name) != null;
+    public synchronized boolean deleteOrderBook(String name) {
+        if (journal != null && orderBooks.get(name) != null) {
+            journal.awaitDurable(journal.deleteBook(name));
+        }
+        OrderBook removed = orderBooks.remove(name);
+        if (removed != null && registry != null && metered(removed) instanceof MeteredOrderBook book) {
+            book.unbind(registry);
+        }
+        // a shard's worker outlives its books
+        if (removed instanceof SingleWriterOrderBook singleWriter && shards == null) {
+            singleWriter.close();
+        }
+        return removed != null;
+    }
+
+    @Override
+    public synchronized OrderBookInfo moveOrderBook(String name, int shard) {
+        if (shards == null) {
+            throw new IllegalArgumentException("Order books are not sharded, set ame.matching.mode=sharded");
+        }
+        if (shard < 0 || shard >= shards.length) {
+            throw new IllegalArgumentException("Shard must be between 0 and " + (shards.length - 1) + ": " + shard);
+        }
+        ((SingleWriterOrderBook) getOrderBook(name)).moveTo(shards[shard]);
+        log.info("Moved order book {} to shard {}", name, shard);
+        return getOrderBooks().stream()
+                .filter(book -> book.asset().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("OrderBook not found: " + name));
+    }
+
+    @Override
+    public List<ShardInfo> getShards() {
+        if (shards == null) {
+            return List.of();
+        }
+        List<List<String>> assets = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            assets.add(new ArrayList<>());
+        }
+        for (BookRegistry.Registered registered : orderBooks.all()) {
+            assets.get(shardOf(registered.book())).add(registered.book().getAsset());
+        }
+        List<ShardInfo> infos = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            infos.add(new ShardInfo(i, assets.get(i), shards[i].backlog(), shards[i].commands()));
+        }
+        return infos;
+    }
+
+    private Integer shardOf(OrderBook book) {
+        if (shards == null) {
+            return null;
+        }
+        BookWorker worker = ((SingleWriterOrderBook) book).getWorker();
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i] == worker) {
+                return i;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops the threads owning the books, if any, and releases the archive, the ledger and the journal.
+     */
+    @PreDestroy
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+            try {
+                snapshotScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        orderBooks.all().stream().map(BookRegistry.Registered::book).forEach(book -> {
+            if (book instanceof SingleWriterOrderBook singleWriter && shards == null) {
+                singleWriter.close();
+            }
+        });
+        if (shards != null) {
+            Arrays.stream(shards).forEach(BookWorker::close);
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        archive.close();
+        if (ledger != null) {
+            ledger.close();
+        }
+    }
+
+    /**
+     * Loads the latest snapshot, if any, then applies the commands journalled after it,
+     * and moves the id counter past every restored order.
+     *
+     * @return Whether anything was restored.
+     */
+    private boolean restore() {
+        long start = System.nanoTime();
+        SnapshotStore.Snapshot snapshot = snapshots != null ? snapshots.load(journal.size(), new SnapshotLoader()) : null;
+        if (snapshot != null) {
+            counter.set(snapshot.counter());
+            if (ledger != null) {
+                // the trades before the snapshot are gone, but their ids are not handed out again
+                ledger.startAt(snapshot.trades());
+            }
+            log.info("Loaded the snapshot at journal position {} in {} ms", snapshot.position(), (System.nanoTime() - start) / 1_000_000);
+        }
+
+        JournalReplayer replayer = new JournalReplayer();
+        long commands = journal.replay(snapshot != null ? snapshot.position() : 0, replayer);
+        counter.set(Math.max(counter.get(), replayer.lastId + 1));
+        log.info("Replayed {} journalled commands in {} ms", commands, (System.nanoTime() - start) / 1_000_000);
+        return snapshot != null || commands > 0;
+    }
+
+    private ScheduledExecutorService scheduleSnapshots(EngineProperties.SnapshotSettings settings) {
+        long checkMillis = Math.clamp(settings.getInterval().toMillis(), 10, 1000);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("ame-snapshot").daemon(true).factory());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshotIfDue(settings);
+            } catch (RuntimeException e) {
+                log.error("Failed to snapshot the engine", e);
+            }
+        }, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    private synchronized void snapshotIfDue(EngineProperties.SnapshotSettings settings) {
+        long commands = journal.commands() - snapshotCommands;
+        if (commands > 0 && (settings.getCommands() > 0 && commands >= settings.getCommands()
+                || System.nanoTime() - snapshotNanos >= settings.getInterval().toNanos())) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the books and the archive, so the next start only replays the journal from here.
+     * <p>
+     * Every book is locked while its resting orders and the archived orders on the heap are copied, which gives
+     * a state matching a single journal position; the snapshot is written to disk once the books are unlocked,
+     * reading back the archived orders moved to the cold tier until then.
+     *
+     * @return The journal position the snapshot was taken at.
+     */
+    public synchronized long snapshot() {
+        if (snapshots == null) {
+            throw new IllegalStateException("Snapshots are not enabled, set ame.snapshot.enabled");
+        }
+        long start = System.nanoTime();
+        List<BookRegistry.Registered> registered = orderBooks.all();
+        List<String> names = registered.stream().map(r -> r.book().getAsset()).toList();
+        List<JournalingOrderBook> books = registered.stream().map(r -> journalling(r.book())).toList();
+        long[] commands = new long[1];
+        SnapshotStore.Snapshot snapshot = withBooksLocked(books, 0, () -> {
+            // the archive must have seen every match the books made
+            orderPublisher.flush();
+            Map<String, List<Order>> resting = new LinkedHashMap<>();
+            for (int i = 0; i < books.size(); i++) {
+                resting.put(names.get(i), books.get(i).findLiveOrders(null));
+            }
+            commands[0] = journal.commands();
+            long trades = ledger != null ? ledger.nextId() : 0;
+            List<Order> hot = archive.hotOrders();
+            // taken once the heap is copied, as an order only leaves the heap once it is in the cold tier
+            return new SnapshotStore.Snapshot(journal.size(), counter.get(), trades, resting, archive.coldOrders(), hot);
+        });
+        long paused = System.nanoTime() - start;
+
+        // never leave a snapshot ahead of the journal
+        journal.sync(snapshot.position());
+        Path file = snapshots.write(snapshot);
+        snapshotCommands = commands[0];
+        snapshotNanos = System.nanoTime();
+        log.info("Wrote the snapshot {} in {} ms, books were locked for {} ms", file,
+                (snapshotNanos - start) / 1_000_000, paused / 1_000_000);
+        return snapshot.position();
+    }
+
+    // the innermost wrapper of the book
+    private static OrderBook metered(OrderBook book) {
+        if (book instanceof SingleWriterOrderBook singleWriter) {
+            book = singleWriter.getDelegate();
+        }
+        if (book instanceof JournalingOrderBook journalling) {
+            book = journalling.getDelegate();
+        }
+        return ((TriggeringOrderBook) book).getDelegate();
+    }
+
+    private static JournalingOrderBook journalling(OrderBook book) {
+        return (JournalingOrderBook) (book instanceof SingleWriterOrderBook singleWriter ? singleWriter.getDelegate() : book);
+    }
+
+    private static <T> T withBooksLocked(List<JournalingOrderBook> books, int from, Supplier<T> action) {
+        if (from == books.size()) {
+            return action.get();
+        }
+        return books.get(from).locked(() -> withBooksLocked(books, from + 1, action));
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        if (archive instanceof MeterBinder binder) {
+            binder.bindTo(registry);
+        }
+        if (ledger != null) {
+            ledger.bindTo(registry);
+        }
+        // books created from now on bind themselves
+        this.registry = registry;
+        for (BookRegistry.Registered registered : orderBooks.all()) {
+            if (metered(registered.book()) instanceof MeteredOrderBook metered) {
+                metered.bindTo(registry);
+            }
+        }
+        if (shards != null) {
+            for (int i = 0; i < shards.length; i++) {
+                int shard = i;
+                BookWorker worker = shards[i];
+                Gauge.builder("ame.shard.backlog", worker, BookWorker::backlog)
+                        .description("Commands waiting to be applied by the shard")
+                        .tag("shard", Integer.toString(shard))
+                        .register(registry);
+                Gauge.builder("ame.shard.books", this, engine -> engine.getShards().get(shard).assets().size())
+                        .description("Order books owned by the shard")
+                        .tag("shard", Integer.toString(shard))
+                        .register(registry);
+                FunctionCounter.builder("ame.shard.commands", worker, BookWorker::commands)
+                        .description("Commands applied by the shard")
+                        .tag("shard", Integer.toString(shard))
+                        .register(registry);
+            }
+        }
     }
 
     @Override
@@ -83,27 +471,117 @@ public class SimpleMatchingEngine implements MatchingEngine, OrderSubscriber {
         return archive.get(id);
     }
 
+    @Override
+    public TradePage findTrades(String asset, LocalDateTime from, LocalDateTime to, Long cursor, int limit) {
+        if (ledger == null) {
+            throw new IllegalArgumentException("The trade ledger is not enabled, set ame.ledger.enabled");
+        }
+        return ledger.find(asset, from, to, cursor, limit);
+    }
+
+    @Override
+    public Order cancelOrder(long id) {
+        log.debug("Cancelling order: {}", id);
+        return bookOf(id).cancel(id);
+    }
+
+    @Override
+    public Order amendOrder(long id, Double price, Double amount) {
+        log.debug("Amending order: {}", id);
+        if (price == null && amount == null) {
+            throw new IllegalArgumentException("Nothing to amend for order: " + id);
+        }
+        return bookOf(id).amend(id, price, amount);
+    }
+
+    @Override
+    public List<OrderBatchResult> submitBatch(List<BookCommand> commands) {
+        int maxBatchSize = matching.getMaxBatchSize();
+        if (commands.isEmpty() || commands.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch must hold from 1 to " + maxBatchSize + " orders: " + commands.size());
+        }
+        log.debug("Submitting a batch of {} orders", commands.size());
+
+        OrderBatchResult[] results = new OrderBatchResult[commands.size()];
+        Map<OrderBook, BatchGroup> groups = new LinkedHashMap<>();
+        for (int i = 0; i < commands.size(); i++) {
+            BookCommand command = commands.get(i);
+            try {
+                OrderBook book;
+                if (command.type() == BookCommand.Type.SUBMIT) {
+                    book = getOrderBook(command.order().asset());
+                } else {
+                    book = bookOf(command.id());
+                }
+                BatchGroup group = groups.computeIfAbsent(book, b -> new BatchGroup(new ArrayList<>(), new ArrayList<>()));
+                group.positions().add(i);
+                group.commands().add(command);
+            } catch (IllegalArgumentException e) {
+                results[i] = OrderBatchResult.failed(e.getMessage());
+            }
+        }
+
+        for (Map.Entry<OrderBook, BatchGroup> entry : groups.entrySet()) {
+            List<Integer> positions = entry.getValue().positions();
+            try {
+                List<OrderBatchResult> outcome = entry.getKey().submitBatch(entry.getValue().commands());
+                for (int i = 0; i < positions.size(); i++) {
+                    results[positions.get(i)] = outcome.get(i);
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // e.g. the book was deleted meanwhile
+                for (int position : positions) {
+                    results[position] = OrderBatchResult.failed(e.getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // the commands of a batch going to the same book, and where their outcomes go
+    private record BatchGroup(List<Integer> positions, List<BookCommand> commands) {
+    }
+
+    // the archive knows which asset an order was submitted for
+    private OrderBook bookOf(long id) {
+        Order order = archive.get(id);
+        if (order == null) {
+            throw new IllegalArgumentException("Order not found: " + id);
+        }
+        return getOrderBook(order.asset());
+    }
+
+    @Override
+    public TopOfBook getTopOfBook(String name) {
+        return getOrderBook(name).getTopOfBook();
+    }
+
+    @Override
+    public BookDepth getDepth(String name, int levels) {
+        if (levels <= 0) {
+            throw new IllegalArgumentException("Levels must be positive: " + levels);
+        }
+        return getOrderBook(name).getDepth(levels);
+    }
+
     @Override
     public List<Order> findAllLiveOrdersByAsset(String name, String direction) {
-        log.info("Finding live orders for asset: {}, direction: {}", name, direction);
-        SimpleOrderBook orderBook = getOrderBook(name);
-
-        if (direction == null) {
-            return Stream.concat(orderBook.getBuyQueue().stream(), orderBook.getSellQueue().stream())
-                    .toList();
-        } else {
-            OrderDirection dir;
+        log.debug("Finding live orders for asset: {}, direction: {}", name, direction);
+        OrderBook orderBook = getOrderBook(name);
+
+        OrderDirection dir = null;
+        if (direction != null) {
             try {
                 dir = OrderDirection.valueOf(direction.toUpperCase());
             } catch (Exception e) {
                 throw new IllegalArgumentException("Invalid order direction: " + direction);
             }
-
-            return dir == OrderDirection.BUY ?
-                    orderBook.getBuyQueue().stream().toList() :
-                    orderBook.getSellQueue().stream().toList();
         }
-
+        // icebergs only show what they display in the book
+        Instrument instrument = properties.instrument(name);
+        return orderBook.findLiveOrders(dir).stream()
+                .map(order -> order.displayed(instrument))
+                .toList();
     }
 
 
@@ -112,21 +590,115 @@ public class SimpleMatchingEngine implements MatchingEngine, OrderSubscriber {
         log.debug("Received an event: {}", event.getMessage());
         if (event.getType().equals(OrderEventType.SAVE_OR_UPDATE_ORDER)) {
             Order o = (Order) event.getSource();
-            archive.put(o.id(), o);
+            archive.put(o);
+            if (ledger != null) {
+                ledger.append(o);
+            }
         } else if (event.getType().equals(OrderEventType.UPDATE_COUNTERPART)) {
             UpdateCounterpart uc = (UpdateCounterpart) event.getSource();
 
-            if (archive.containsKey(uc.counterPartId())) {
-                Order o = archive.get(uc.counterPartId());
+            archive.update(uc.counterPartId(), o -> {
                 Trade trade = Trade.builder()
                         .orderId(uc.triggerId())
                         .price(uc.counterpartPrice())
                         .amount(uc.counterpartAmount())
                         .build();
-                o = o.withPendingAmount(o.amount() - uc.counterpartAmount());
-                o.addTrade(trade);
-                archive.put(o.id(), o);
+                // copy the trades, the archived list may already have been handed out in a response
+                List<Trade> trades = new ArrayList<>(o.trades());
+                trades.add(trade);
+                return o.withTrades(trades).withPendingAmount(uc.counterpartPendingAmount());
+            });
+        } else if (event.getType().equals(OrderEventType.UPDATE_LIVE_ORDER)) {
+            Order update = (Order) event.getSource();
+            archive.update(update.id(), archived -> mergeLiveOrder(archived, update));
+            // an amendment may have made the order cross the book
+            if (ledger != null) {
+                ledger.append(update);
             }
         }
     }
+
+    /**
+     * Puts back the books and the archive from a snapshot, without journalling them again.
+     */
+    private class SnapshotLoader implements SnapshotStore.Loader {
+
+        // a loaded book can only have been written by the same snapshot
+        private final Map<String, OrderBook> loaded = new HashMap<>();
+
+        @Override
+        public void book(String name) {
+            loaded.put(name, newOrderBook(name, false));
+        }
+
+        @Override
+        public void resting(String book, Order order) {
+            loaded.get(book).restore(order);
+        }
+
+        @Override
+        public void archived(Order order) {
+            archive.put(order);
+        }
+    }
+
+    /**
+     * Applies a cancel or an amendment to an archived order, keeping its trades history.
+     */
+    private Order mergeLiveOrder(Order archived, Order update) {
+        if (update.status() == OrderStatus.CANCELLED) {
+            return archived.withStatus(OrderStatus.CANCELLED).withPendingAmount(0);
+        }
+        Instrument instrument = properties.instrument(archived.asset());
+        long traded = 0;
+        for (Trade trade : update.trades()) {
+            traded += instrument.toLots(trade.amount());
+        }
+        // whatever was filled before, plus what the amendment traded and left pending
+        long filled = instrument.toLots(archived.amount()) - instrument.toLots(archived.pendingAmount());
+        // nothing is left pending once the amendment filled the order
+        long pending = update.pendingAmount() > 0 ? instrument.toLots(update.pendingAmount()) : 0;
+        long amount = filled + traded + pending;
+
+        List<Trade> trades = new ArrayList<>(archived.trades());
+        trades.addAll(update.trades());
+        // anything the amendment does not change, like the type or stop price of a triggered stop, is kept
+        return archived.withPrice(update.price())
+                .withAmount(instrument.toAmount(amount))
+                .withTimestamp(update.timestamp())
+                .withTrades(trades)
+                .withPendingAmount(update.pendingAmount());
+    }
+
+
+    private class JournalReplayer implements CommandJournal.Replayer {
+
+        private long lastId = -1;
+
+        @Override
+        public void submit(Order order) {
+            lastId = Math.max(lastId, order.id());
+            getOrderBook(order.asset()).submit(order);
+        }
+
+        @Override
+        public void cancel(String asset, long id) {
+            getOrderBook(asset).cancel(id);
+        }
+
+        @Override
+        public void amend(String asset, long id, Double price, Double amount, LocalDateTime timestamp) {
+            getOrderBook(asset).amend(id, price, amount, timestamp);
+        }
+
+        @Override
+        public void createBook(String name) {
+            newOrderBook(name);
+        }
+
+        @Override
+        public void deleteBook(String name) {
+            deleteOrderBook(name);
+        }
+    }
 }
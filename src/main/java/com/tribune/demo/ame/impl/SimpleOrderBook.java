@@ -10,21 +10,41 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 /**
  * This class is a simple implementation of {@link OrderBook} for managing buy and sell orders.
  * It uses the following:
  * <ol>
- * <li>A {@link PriorityBlockingQueue} for `sell` orders, sorted by price (ascending) and timestamp (ascending).</li>
- * <li>A {@link PriorityBlockingQueue} for `buy` orders, sorted by price (descending) and timestamp (descending).</li>
+ * <li>A {@link PriorityBlockingQueue} for `sell` orders, sorted by price (ascending) and arrival (ascending).</li>
+ * <li>A {@link PriorityBlockingQueue} for `buy` orders, sorted by price (descending) and arrival (ascending).</li>
+ * <li>A map from order ids to the version of each order currently live in the queues.
+ * Cancelled and amended orders are not searched for in the queues: the versions they leave behind are
+ * skipped when they reach the head, and swept out once they outnumber the live ones.</li>
+ * <li>A {@link DepthView} of the aggregated price levels, updated as orders rest, fill and leave.</li>
  * <li>An {@link OrderPublisher} to handle events related to order processing.</li>
  * </ol>
- *
+ * Amounts are filled in lots of the book's {@link Instrument}, so no dust is left behind by partial fills.
+ * An order is converted to ticks and lots once, as it enters the book: the queues hold {@link Resting} versions
+ * carrying both, so neither the queue order nor a fill goes back to the prices and amounts of the orders.
+ * Each version is numbered as it arrives, which gives time priority within the same price whatever the timestamps
+ * of the orders; one that keeps its place, like a partially filled order, keeps its number.
+ * Only {@code GTC} orders rest, a {@code FOK} order is checked against the {@link DepthView}'s level totals first.
+ * <p>
+ * The resting version of an iceberg carries the part it does not show as its hidden amount. Once its slice is
+ * filled, the version showing the next one is queued as a new arrival, which puts it behind the others at its price;
+ * like any partial fill here, that costs a queue insertion,
+ * where the {@link LadderOrderBook} moves the entry within its level.
  */
 @Slf4j
 public class SimpleOrderBook implements OrderBook{
@@ -35,32 +55,54 @@ public class SimpleOrderBook implements OrderBook{
     @Setter
     private String asset;
 
+    @Getter
+    private final Instrument instrument;
+
     public SimpleOrderBook(String name, OrderPublisher orderPublisher) {
-        this.asset = name;
+        this(Instrument.of(name), orderPublisher);
+    }
+
+    public SimpleOrderBook(Instrument instrument, OrderPublisher orderPublisher) {
+        this.asset = instrument.asset();
+        this.instrument = instrument;
         this.orderPublisher = orderPublisher;
+        this.depthView = new DepthView(instrument);
     }
 
 
     // I need the least selling prices to come first
-    private final Comparator<Order> comparator1 = Comparator.comparingDouble(Order::price)//asc
-            .thenComparing(Order::timestamp);//asc
+    private final Comparator<Resting> comparator1 = Comparator.comparingLong(Resting::ticks)//asc
+            .thenComparingLong(Resting::sequence);//asc
 
-    // I need the highest buying prices to come first
-    private final Comparator<Order> comparator2 = Comparator.comparingDouble(Order::price).reversed()//desc
-            .thenComparing(Order::timestamp).reversed();//desc
+    // I need the highest buying prices to come first, the earliest of them on ties
+    private final Comparator<Resting> comparator2 = Comparator.comparingLong(Resting::ticks).reversed()//desc
+            .thenComparingLong(Resting::sequence);//asc
 
     // I used PriorityQueue with synchronized methods but then searched the web and found this one to be a better alternative
     @Getter
-    private final Queue<Order> sellQueue = new PriorityBlockingQueue<>(1, comparator1);
+    private final Queue<Resting> sellQueue = new PriorityBlockingQueue<>(1, comparator1);
 
     @Getter
-    private final Queue<Order> buyQueue = new PriorityBlockingQueue<>(1, comparator2);
+    private final Queue<Resting> buyQueue = new PriorityBlockingQueue<>(1, comparator2);
+
+    // the live version of every resting order, anything else found in the queues is stale
+    private final Map<Long, Resting> liveOrders = new ConcurrentHashMap<>();
+
+    private final AtomicInteger staleOrders = new AtomicInteger();
+
+    // numbers the versions as they rest, the earliest of the same price first
+    private final AtomicLong arrivals = new AtomicLong();
+
+    private static final int MIN_STALE_TO_SWEEP = 1024;
+
+    private final DepthView depthView;
 
 
     @Override
     public Order submit(Order order) {
-        if (!asset.equals(order.asset())) {
-            throw new IllegalArgumentException("This asset doesn't belong to this order book.");
+        OrderRules.validate(order, asset, instrument);
+        if (liveOrders.containsKey(order.id())) {
+            throw new IllegalArgumentException("Order is already in the book: " + order.id());
         }
 
         Order response = OrderDirection.SELL.equals(order.direction()) ?
@@ -73,19 +115,24 @@ public class SimpleOrderBook implements OrderBook{
 
     @Override
     public Order sell(Order order) {
-        log.info("Adding order to SELL queue");
-        double pendingAmount = order.amount();
+        return sell(order, instrument.toLots(order.amount()), 0);
+    }
+
+    // matches what is left of an order, the given lots of which were filled before it was amended
+    private Order sell(Order order, long remaining, long filled) {
+        log.debug("Adding order to SELL queue");
         List<Trade> trades = new ArrayList<>();
-        if (!buyQueue.isEmpty()) {
-            Order nextBuy = buyQueue.peek();
-            if (nextBuy.price() < order.price()) {
-                log.info("No suitable BUY orders found, adding to SELL queue");
-                sellQueue.add(order);
-            } else {
-                pendingAmount = getPendingAmount(order, trades, nextBuy.price() >= order.price(), buyQueue);
-            }
-        } else {
-            sellQueue.add(order);
+        if (!canFill(order)) {
+            return order.withTrades(trades).withRemainderCancelled(order.amount());
+        }
+        long pending = getPendingAmount(order, remaining, trades, buyQueue);
+        double pendingAmount = instrument.toAmount(pending);
+        if (!order.rests()) {
+            return order.withTrades(trades).withRemainderCancelled(pendingAmount);
+        }
+        if (pending > 0) {
+            log.debug("No suitable BUY orders left, adding to SELL queue");
+            rest(sellQueue, order, pending, filled + remaining - pending);
         }
         return order.withTrades(trades).withPendingAmount(pendingAmount);
     }
@@ -93,55 +140,85 @@ public class SimpleOrderBook implements OrderBook{
 
     @Override
     public Order buy(Order order) {
-        log.info("Adding order to BUY queue");
-        double pendingAmount = order.amount();
+        return buy(order, instrument.toLots(order.amount()), 0);
+    }
+
+    // matches what is left of an order, the given lots of which were filled before it was amended
+    private Order buy(Order order, long remaining, long filled) {
+        log.debug("Adding order to BUY queue");
         List<Trade> trades = new ArrayList<>();
-        if (!sellQueue.isEmpty()) {
-            Order nextSell = sellQueue.peek();
-            if (nextSell.price() > order.price()) {
-                log.info("No suitable SELL orders found, adding to BUY queue");
-                buyQueue.add(order);
-            } else {
-                pendingAmount = getPendingAmount(order, trades, nextSell.price() <= order.price(), sellQueue);
-            }
-        } else {
-            buyQueue.add(order);
+        if (!canFill(order)) {
+            return order.withTrades(trades).withRemainderCancelled(order.amount());
+        }
+        long pending = getPendingAmount(order, remaining, trades, sellQueue);
+        double pendingAmount = instrument.toAmount(pending);
+        if (!order.rests()) {
+            return order.withTrades(trades).withRemainderCancelled(pendingAmount);
+        }
+        if (pending > 0) {
+            log.debug("No suitable SELL orders left, adding to BUY queue");
+            rest(buyQueue, order, pending, filled + remaining - pending);
         }
         return order.withTrades(trades).withPendingAmount(pendingAmount);
     }
 
     /**
      * Calculates the pending amount for an order by processing trades against the other queue.
+     * Matching stops as soon as the other queue runs dry or its head no longer crosses the order's price.
      *
      * @param order      The order for which the pending amount is calculated.
+     * @param remaining  The lots of the order left to be filled.
      * @param trades     The list of trades made during the processing of the order.
-     * @param condition  The condition to check whether to continue processing trades.
      * @param otherQueue The queue against which the trades are processed (either buy or sell).
-     * @return The remaining pending amount after processing trades.
+     * @return The remaining pending amount after processing trades, in lots.
      **/
-    private double getPendingAmount(Order order, List<Trade> trades, boolean condition, Queue<Order> otherQueue) {
-        double pendingAmount = order.amount();
-        while (condition && pendingAmount > 0) {
-
-            Order nextSell = otherQueue.poll();
-            assert nextSell != null;//already peaked - false positive
-            double tradeAmount = nextSell.amount();
-
-            if (pendingAmount < tradeAmount) {
-                tradeAmount = pendingAmount;
-                nextSell = nextSell.withAmount(nextSell.amount() - tradeAmount);
-                otherQueue.add(nextSell);// keep it case it's larger
+    private long getPendingAmount(Order order, long remaining, List<Trade> trades, Queue<Resting> otherQueue) {
+        long pendingAmount = remaining;
+        boolean sell = OrderDirection.SELL.equals(order.direction());
+        long limit = limit(order);
+        while (pendingAmount > 0 && crosses(sell, limit, peekLive(otherQueue))) {
+
+            Resting next = otherQueue.poll();
+            assert next != null;//already peaked - false positive
+            Order nextSell = next.order();
+            long restingAmount = next.lots();
+            long hidden = next.hidden();
+            long visible = restingAmount - hidden;
+            long restingPrice = next.ticks();
+            // only the slice an iceberg shows, unless it is alone at its price and may be filled through all of them
+            long tradeAmount = Math.min(pendingAmount,
+                    hidden > 0 && depthView.orders(nextSell.direction(), restingPrice) == 1 ? restingAmount : visible);
+
+            long left = restingAmount - tradeAmount;
+            if (left == 0) {
+                liveOrders.remove(nextSell.id());
+                depthView.remove(nextSell.direction(), restingPrice, visible, hidden);
+            } else if (tradeAmount < visible) {
+                // keep it case it's larger
+                rest(otherQueue, new Resting(nextSell.withAmount(instrument.toAmount(left)), restingPrice, left, hidden,
+                        next.display(), next.filled() + tradeAmount, next.sequence()));
+                depthView.reduce(nextSell.direction(), restingPrice, tradeAmount);
+            } else {
+                // the next slice, the part of the fill beyond this one already taken off it, behind the others
+                long display = next.display();
+                long shown = Math.min(display - (tradeAmount - visible) % display, left);
+                rest(otherQueue, new Resting(nextSell.withAmount(instrument.toAmount(left))
+                        .withHiddenAmount(left > shown ? instrument.toAmount(left - shown) : 0),
+                        restingPrice, left, left - shown, display, next.filled() + tradeAmount, arrivals.incrementAndGet()));
+                depthView.change(nextSell.direction(), restingPrice, shown - visible, left - shown - hidden);
             }
             Trade currentTrade = Trade.builder()
                     .orderId(nextSell.id())
                     .price(nextSell.price())
-                    .amount(tradeAmount)
+                    .amount(instrument.toAmount(tradeAmount))
                     .build();
             UpdateCounterpart ucp = UpdateCounterpart.builder()
+                    .asset(order.asset())
                     .triggerId(order.id())
                     .counterPartId(nextSell.id())
-                    .counterpartAmount(tradeAmount)
-                    .counterpartPrice(order.price())
+                    .counterpartAmount(instrument.toAmount(tradeAmount))
+                    .counterpartPrice(nextSell.price())
+                    .counterpartPendingAmount(instrument.toAmount(restingAmount - tradeAmount))
                     .build();
             updateCounterpart(ucp);
 
@@ -152,6 +229,169 @@ public class SimpleOrderBook implements OrderBook{
         return pendingAmount;
     }
 
+    private void rest(Queue<Resting> queue, Resting resting) {
+        liveOrders.put(resting.order().id(), resting);
+        queue.add(resting);
+    }
+
+    // rests what is left of a matched order, an iceberg showing its first slice
+    private void rest(Queue<Resting> queue, Order order, long pending, long filled) {
+        long display = order.iceberg() ? instrument.toLots(order.displayAmount()) : 0;
+        long shown = display > 0 ? Math.min(display, pending) : pending;
+        long ticks = instrument.toTicks(order.price());
+        Order resting = order.withAmount(instrument.toAmount(pending));
+        rest(queue, new Resting(shown < pending ? resting.withHiddenAmount(instrument.toAmount(pending - shown)) : resting,
+                ticks, pending, pending - shown, display, filled, arrivals.incrementAndGet()));
+        depthView.add(order.direction(), ticks, shown, pending - shown);
+    }
+
+    /**
+     * Gets the head of the queue, dropping the stale versions of cancelled or amended orders on the way.
+     */
+    private Resting peekLive(Queue<Resting> queue) {
+        Resting head = queue.peek();
+        while (head != null && !isLive(head)) {
+            queue.poll();
+            staleOrders.decrementAndGet();
+            head = queue.peek();
+        }
+        return head;
+    }
+
+    private boolean isLive(Resting resting) {
+        return liveOrders.get(resting.order().id()) == resting;
+    }
+
+    @Override
+    public Order cancel(long id) {
+        Resting resting = liveOrders.remove(id);
+        if (resting == null) {
+            throw new IllegalArgumentException("Order is not live: " + id);
+        }
+        markStale();
+        depthView.remove(resting.order().direction(), resting.ticks(), resting.lots() - resting.hidden(), resting.hidden());
+
+        Order cancelled = resting.order().withTrades(new ArrayList<>())
+                .withStatus(OrderStatus.CANCELLED)
+                .withPendingAmount(0)
+                .withHiddenAmount(0);
+        updateLiveOrder(cancelled);
+        return cancelled;
+    }
+
+    @Override
+    public Order amend(long id, Double price, Double amount, LocalDateTime timestamp) {
+        Resting live = liveOrders.get(id);
+        if (live == null) {
+            throw new IllegalArgumentException("Order is not live: " + id);
+        }
+        Order resting = live.order();
+        double newPrice = price != null ? price : resting.price();
+        double newAmount = amount != null ? amount : resting.amount();
+        long newLots = amount != null ? instrument.toLots(newAmount) : live.lots();
+        long restingLots = live.lots();
+        long hidden = live.hidden();
+        long restingPrice = live.ticks();
+        boolean samePrice = price == null || instrument.toTicks(newPrice) == restingPrice;
+
+        Order response;
+        Queue<Resting> queue = OrderDirection.SELL.equals(resting.direction()) ? sellQueue : buyQueue;
+        if (samePrice && newLots <= restingLots) {
+            // same price and timestamp, so the new version takes the place of the old one
+            long shown = Math.min(restingLots - hidden, newLots);
+            Order reduced = resting.withAmount(newAmount)
+                    .withHiddenAmount(newLots > shown ? instrument.toAmount(newLots - shown) : 0);
+            rest(queue, new Resting(reduced, restingPrice, newLots, newLots - shown, live.display(), live.filled(),
+                    live.sequence()));
+            markStale();
+            depthView.change(resting.direction(), restingPrice, shown - (restingLots - hidden), newLots - shown - hidden);
+            // what was filled before stays part of the order
+            response = reduced.withTrades(new ArrayList<>())
+                    .withAmount(instrument.toAmount(live.filled() + newLots))
+                    .withPendingAmount(newAmount)
+                    .withHiddenAmount(0);
+        } else {
+            liveOrders.remove(id);
+            markStale();
+            depthView.remove(resting.direction(), restingPrice, restingLots - hidden, hidden);
+            Order amended = Order.builder()
+                    .id(id)
+                    .asset(asset)
+                    .price(newPrice)
+                    .amount(instrument.toAmount(live.filled() + newLots))
+                    .direction(resting.direction())
+                    .timestamp(timestamp)
+                    .stopPrice(resting.stopPrice())
+                    .displayAmount(resting.displayAmount())
+                    .build();
+            response = OrderDirection.SELL.equals(amended.direction()) ?
+                    sell(amended, newLots, live.filled()) :
+                    buy(amended, newLots, live.filled());
+        }
+
+        updateLiveOrder(response);
+        return response;
+    }
+
+    @Override
+    public void restore(Order order) {
+        if (liveOrders.containsKey(order.id())) {
+            throw new IllegalArgumentException("Order is already in the book: " + order.id());
+        }
+        Queue<Resting> queue = OrderDirection.SELL.equals(order.direction()) ? sellQueue : buyQueue;
+        // an iceberg shows what it showed when it was snapshotted
+        long ticks = instrument.toTicks(order.price());
+        long lots = instrument.toLots(order.pendingAmount());
+        long hidden = order.hiddenAmount() > 0 ? instrument.toLots(order.hiddenAmount()) : 0;
+        long display = order.iceberg() ? instrument.toLots(order.displayAmount()) : 0;
+        long filled = instrument.toLots(order.amount()) - lots;
+        rest(queue, new Resting(order.withAmount(order.pendingAmount()), ticks, lots, hidden, display, filled,
+                arrivals.incrementAndGet()));
+        depthView.add(order.direction(), ticks, lots - hidden, hidden);
+    }
+
+    // sweeps the stale versions out once they outnumber the live orders
+    private void markStale() {
+        int stale = staleOrders.incrementAndGet();
+        if (stale >= MIN_STALE_TO_SWEEP && stale > liveOrders.size()) {
+            sellQueue.removeIf(o -> !isLive(o));
+            buyQueue.removeIf(o -> !isLive(o));
+            staleOrders.set(0);
+        }
+    }
+
+    /**
+     * Checks that a fill or kill order can be filled in full, from the aggregated levels it would cross.
+     */
+    private boolean canFill(Order order) {
+        if (order.timeInForce() != TimeInForce.FOK) {
+            return true;
+        }
+        boolean sell = OrderDirection.SELL.equals(order.direction());
+        long wanted = instrument.toLots(order.amount());
+        return depthView.available(sell ? OrderDirection.BUY : OrderDirection.SELL, limit(order), wanted) >= wanted;
+    }
+
+    /**
+     * Gets the worst price an incoming order accepts, in ticks, any price for a market order.
+     */
+    private long limit(Order order) {
+        if (order.type() == OrderType.MARKET) {
+            return OrderDirection.SELL.equals(order.direction()) ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return instrument.toTicks(order.price());
+    }
+
+    /**
+     * Checks whether the resting order satisfies the limit of the incoming one.
+     */
+    private boolean crosses(boolean sell, long limit, Resting resting) {
+        if (resting == null) {
+            return false;
+        }
+        return sell ? resting.ticks() >= limit : resting.ticks() <= limit;
+    }
+
     /**
      * Notifies subscribers about Save/Update of an order.
      */
@@ -164,12 +404,24 @@ public class SimpleOrderBook implements OrderBook{
     }
 
 
+    /**
+     * Notifies subscribers that a resting order was cancelled or amended.
+     */
+    private void updateLiveOrder(Order response) {
+        OrderEvent event = new SimpleOrderEvent(response,
+                "Update the live order",
+                OrderEventType.UPDATE_LIVE_ORDER);
+
+        orderPublisher.publish(event);
+    }
+
     /**
      * Notifies subscribers to Update the counterpart order in the archive.
      **/
     public void updateCounterpart(UpdateCounterpart updateCounterpart) {
-        long triggerId = updateCounterpart.triggerId();
-        log.info("Updating archive for order {}", triggerId);
+        if (log.isDebugEnabled()) {
+            log.debug("Updating archive for order {}", updateCounterpart.triggerId());
+        }
 
         OrderEvent event = new SimpleOrderEvent(updateCounterpart,
                 "Update the counterpart",
@@ -178,4 +430,48 @@ public class SimpleOrderBook implements OrderBook{
         orderPublisher.publish(event);
     }
 
+    @Override
+    public TopOfBook getTopOfBook() {
+        return depthView.top();
+    }
+
+    @Override
+    public BookDepth getDepth(int levels) {
+        return depthView.depth(levels);
+    }
+
+    DepthView depthView() {
+        return depthView;
+    }
+
+    @Override
+    public List<Order> findLiveOrders(OrderDirection direction) {
+        if (direction == null) {
+            return Stream.concat(sorted(buyQueue, comparator2), sorted(sellQueue, comparator1))
+                    .toList();
+        }
+        return direction == OrderDirection.BUY ?
+                sorted(buyQueue, comparator2).toList() :
+                sorted(sellQueue, comparator1).toList();
+    }
+
+    // the queues iterate in heap order, so they have to be sorted on the way out
+    private Stream<Order> sorted(Queue<Resting> queue, Comparator<Resting> comparator) {
+        // resting versions carry what is left in their amount, and what an iceberg hides of it
+        return queue.stream().filter(this::isLive).sorted(comparator)
+                .map(r -> r.order().withPendingAmount(r.order().amount()));
+    }
+
+
+    /**
+     * A version of a resting order, with its price in ticks and what is left of it in lots, as it entered the queue.
+     * The order carries what is left as its amount, and what an iceberg hides of it as its hidden amount.
+     *
+     * @param hidden   The lots of what is left the order does not show.
+     * @param display  The lots an iceberg shows at a time, 0 for any other order.
+     * @param filled   The lots of the order filled before, which an amendment keeps in its amount.
+     * @param sequence The arrival of the order at its place in the queue, which breaks the ties of its price.
+     */
+    public record Resting(Order order, long ticks, long lots, long hidden, long display, long filled, long sequence) {
+    }
 }
@@ -2,7 +2,10 @@ package com.tribune.demo.ame.impl;
 
 
 import com.tribune.demo.ame.domain.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -11,11 +14,20 @@ import java.util.List;
 import java.util.Map;
 
 
+/**
+ * An implementation of {@link OrderPublisher} that calls every subscriber synchronously, on the publishing thread.
+ * This is the default, see {@link AsyncOrderPublisher} for {@code ame.events.mode=async}.
+ * <p>
+ * The time each subscriber takes is exposed as the {@code ame.events.dispatch} timer.
+ */
 @Slf4j
 @Service
-public class SimpleOrderPublisher implements OrderPublisher {
+@ConditionalOnProperty(prefix = "ame.events", name = "mode", havingValue = "sync", matchIfMissing = true)
+public class SimpleOrderPublisher implements OrderPublisher, MeterBinder {
 
-    private final Map<OrderEventType, List<OrderSubscriber>> subscribersMap = new EnumMap<>(OrderEventType.class);
+    private final Map<OrderEventType, List<TimedSubscriber>> subscribersMap = new EnumMap<>(OrderEventType.class);
+
+    private volatile MeterRegistry registry;
 
 
     public SimpleOrderPublisher() {
@@ -27,21 +39,33 @@ public class SimpleOrderPublisher implements OrderPublisher {
     @Override
     public void publish(OrderEvent event) {
         log.debug("publish - {}", event.getType());
-        subscribersMap.get(event.getType())
-                .forEach(subscriber -> subscriber.onEvent(event));
+        List<TimedSubscriber> subscribers = subscribersMap.get(event.getType());
+        for (int i = 0; i < subscribers.size(); i++) {
+            subscribers.get(i).deliver(event);
+        }
     }
 
     @Override
     public void subscribe(OrderEventType orderEventType, OrderSubscriber newSubscriber) {
         log.debug("subscribe - eventType: {}", orderEventType);
-        subscribersMap.get(orderEventType).add(newSubscriber);
+        TimedSubscriber subscription = new TimedSubscriber(orderEventType, newSubscriber);
+        MeterRegistry bound = registry;
+        if (bound != null) {
+            subscription.bindTo(bound);
+        }
+        subscribersMap.get(orderEventType).add(subscription);
     }
 
     @Override
     public void unsubscribe(OrderEventType orderEventType, OrderSubscriber subscriber) {
         log.debug("unsubscribe - eventType: {}", orderEventType);
         subscribersMap.get(orderEventType)
-                .remove(subscriber);
+                .removeIf(subscription -> subscription.subscriber.equals(subscriber));
     }
 
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        subscribersMap.values().forEach(subscribers -> subscribers.forEach(subscription -> subscription.bindTo(registry)));
+    }
 }
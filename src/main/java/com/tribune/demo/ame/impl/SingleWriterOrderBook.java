@@ -0,0 +1,179 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.model.*;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * This class is an implementation of {@link OrderBook} that hands every write over to a {@link BookWorker}.
+ * <p>
+ * The wrapped book is only ever mutated by the worker's thread, which gives strict price/time priority
+ * no matter how many request threads submit to the same asset at once.
+ * Callers publish into the worker's ring buffer and wait for the result on a future, or take the future
+ * with {@link #submitAsync} and wait on nothing.
+ * <p>
+ * The worker may be owned by this book alone, or shared with the other books of a shard,
+ * in which case the book can be moved to another shard's worker with {@link #moveTo}.
+ * <p>
+ * When the wrapped book is journalled, the worker only journals and applies the command; waiting for it to be durable
+ * happens here, on the caller's thread, so the worker moves on to the next command meanwhile and a single fsync covers
+ * every command it applied in between.
+ */
+public class SingleWriterOrderBook implements OrderBook, AutoCloseable {
+
+    @Getter
+    private final OrderBook delegate;
+
+    // only changed by the worker's own thread, see BookWorker
+    @Getter
+    private volatile BookWorker worker;
+
+    // the journal of the wrapped book, if any, built not to wait for it
+    private final CommandJournal journal;
+
+
+    public SingleWriterOrderBook(OrderBook delegate, BookWorker worker) {
+        this(delegate, worker, null);
+    }
+
+    /**
+     * @param journal The journal the wrapped {@link JournalingOrderBook} writes to, without waiting for it.
+     */
+    public SingleWriterOrderBook(OrderBook delegate, BookWorker worker, CommandJournal journal) {
+        this.delegate = delegate;
+        this.worker = worker;
+        this.journal = journal;
+    }
+
+    @Override
+    public String getAsset() {
+        return delegate.getAsset();
+    }
+
+    @Override
+    public Order submit(Order order) {
+        return await(worker.execute(OrderRingBuffer.Command.SUBMIT, this, order));
+    }
+
+    /**
+     * Hands the order over to the worker and returns at once, the future being completed on the worker's thread,
+     * or on the journal's once the order is durable.
+     */
+    @Override
+    public CompletableFuture<Order> submitAsync(Order order) {
+        BookWorker.Completion future = worker.execute(OrderRingBuffer.Command.SUBMIT, this, order);
+        if (journal == null) {
+            return future;
+        }
+        return future.thenCompose(response -> journal.whenDurable(future.position).thenApply(durable -> response));
+    }
+
+    @Override
+    public Order sell(Order order) {
+        return await(worker.execute(OrderRingBuffer.Command.SELL, this, order));
+    }
+
+    @Override
+    public Order buy(Order order) {
+        return await(worker.execute(OrderRingBuffer.Command.BUY, this, order));
+    }
+
+    @Override
+    public Order cancel(long id) {
+        return await(worker.execute(OrderRingBuffer.Command.CANCEL, this, id, null, null, null));
+    }
+
+    @Override
+    public Order amend(long id, Double price, Double amount, LocalDateTime timestamp) {
+        return await(worker.execute(OrderRingBuffer.Command.AMEND, this, id, price, amount, timestamp));
+    }
+
+    /**
+     * Hands the whole batch over to the worker at once, so it costs a single slot of the ring and a single wait.
+     */
+    @Override
+    public List<OrderBatchResult> submitBatch(List<BookCommand> commands) {
+        List<OrderBatchResult> results = new ArrayList<>(commands.size());
+        await(worker.execute(this, commands, results));
+        return results;
+    }
+
+    /**
+     * Hands this book over to another worker, once every command already published to its current one is applied.
+     */
+    public void moveTo(BookWorker target) {
+        BookWorker current = worker;
+        if (current != target) {
+            await(current.move(this, target));
+        }
+    }
+
+    void setWorker(BookWorker worker) {
+        this.worker = worker;
+    }
+
+    @Override
+    public void restore(Order order) {
+        delegate.restore(order);
+    }
+
+    @Override
+    public void saveOrUpdateOrder(Order response) {
+        delegate.saveOrUpdateOrder(response);
+    }
+
+    @Override
+    public void updateCounterpart(UpdateCounterpart updateCounterpart) {
+        delegate.updateCounterpart(updateCounterpart);
+    }
+
+    @Override
+    public List<Order> findLiveOrders(OrderDirection direction) {
+        return delegate.findLiveOrders(direction);
+    }
+
+    @Override
+    public TopOfBook getTopOfBook() {
+        return delegate.getTopOfBook();
+    }
+
+    @Override
+    public BookDepth getDepth(int levels) {
+        return delegate.getDepth(levels);
+    }
+
+    /**
+     * Waits for the worker, then for the command to be durable, rethrowing what the wrapped book threw so callers see
+     * the same errors as in direct mode.
+     */
+    private Order await(BookWorker.Completion future) {
+        Order response;
+        try {
+            response = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        if (journal != null) {
+            journal.awaitDurable(future.position);
+        }
+        return response;
+    }
+
+    /**
+     * Stops the worker, which must be owned by this book alone.
+     */
+    @Override
+    public void close() {
+        worker.close();
+    }
+}
@@ -0,0 +1,115 @@
+package com.tribune.demo.ame.impl;
+
+
+/**
+ * An open addressing hash map from order ids to the {@link OrderSlab} slots resting in an {@link OffHeapOrderBook}.
+ * <p>
+ * The same map as {@link EntryIndex}, with {@code int} values: both arrays are primitive, so however many orders
+ * it indexes, the garbage collector sees two objects and never traces into them.
+ */
+class SlotIndex {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    // the slot plus one, 0 for an empty bucket
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+
+    SlotIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The slot, or {@link OrderSlab#NONE} if the id is not mapped.
+     */
+    int get(long id) {
+        for (int i = slot(id); values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return values[i] - 1;
+            }
+        }
+        return OrderSlab.NONE;
+    }
+
+    /**
+     * Maps the id to the slot, replacing any previous mapping.
+     */
+    void put(long id, int value) {
+        int i = slot(id);
+        for (; values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                values[i] = value + 1;
+                return;
+            }
+        }
+        keys[i] = id;
+        values[i] = value + 1;
+        if (++size >= resizeAt) {
+            resize();
+        }
+    }
+
+    /**
+     * @return The slot the id was mapped to, or {@link OrderSlab#NONE}.
+     */
+    int remove(long id) {
+        int i = slot(id);
+        while (values[i] != 0 && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        if (removed == 0) {
+            return OrderSlab.NONE;
+        }
+        // shift back the entries of the same probe run that would not be found past the hole
+        int hole = i;
+        for (int j = (i + 1) & mask; values[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = 0;
+        size--;
+        return removed - 1;
+    }
+
+    private int slot(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
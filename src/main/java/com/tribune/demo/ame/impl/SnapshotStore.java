@@ -0,0 +1,235 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.model.Order;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes and reads the snapshots of the matching engine, so a restart only replays the journal written after the last one.
+ * <p>
+ * A snapshot holds the journal position it was taken at, the id counter, the resting orders of every book in priority
+ * order and every archived order, those moved to the cold tier then those held on the heap, all in the binary form of {@link OrderCodec}, then the id of the next
+ * trade of the ledger, followed by a checksum of the whole file. Files are named after their journal position, written under a temporary name and moved into place
+ * once complete, and only the newest {@code ame.snapshot.retain} of them are kept.
+ */
+@Slf4j
+class SnapshotStore {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    // "AME" and the format version, that of the orders written by OrderCodec
+    private static final int MAGIC = 0x414D4500 | OrderCodec.VERSION;
+
+    // the oldest version still readable
+    private static final int MAGIC_V1 = 0x414D4501;
+
+    /**
+     * The state of the engine after the command ending at the given journal position.
+     */
+    record Snapshot(long position, long counter, long trades, Map<String, List<Order>> books, Collection<Order> cold,
+                    List<Order> archive) {
+    }
+
+    /**
+     * Receives a snapshot as it is read, so the orders never need to be held all at once.
+     */
+    interface Loader {
+
+        void book(String name);
+
+        void resting(String book, Order order);
+
+        void archived(Order order);
+    }
+
+    private final Path directory;
+
+    private final int retain;
+
+
+    SnapshotStore(EngineProperties.SnapshotSettings settings) {
+        if (settings.getRetain() < 1) {
+            throw new IllegalArgumentException("At least one snapshot must be retained");
+        }
+        this.directory = Path.of(settings.getDirectory());
+        this.retain = settings.getRetain();
+    }
+
+    /**
+     * Writes the snapshot, then deletes the ones that are no longer retained.
+     */
+    Path write(Snapshot snapshot) {
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, snapshot.position(), SUFFIX));
+        try {
+            Files.createDirectories(directory);
+            Path partial = Files.createTempFile(directory, PREFIX, ".partial");
+            try (OutputStream stream = Files.newOutputStream(partial)) {
+                // the checksum is taken over whole buffers rather than field by field
+                CRC32C checksum = new CRC32C();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(stream, checksum), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeLong(snapshot.position());
+                out.writeLong(snapshot.counter());
+                out.writeInt(snapshot.books().size());
+                for (Map.Entry<String, List<Order>> book : snapshot.books().entrySet()) {
+                    out.writeUTF(book.getKey());
+                    writeOrders(out, book.getValue());
+                }
+                // the cold orders are read back as they are written, the later version of an order last
+                out.writeInt(snapshot.cold().size() + snapshot.archive().size());
+                writeEach(out, snapshot.cold());
+                writeEach(out, snapshot.archive());
+                out.writeLong(snapshot.trades());
+                out.flush();
+                new DataOutputStream(stream).writeInt((int) checksum.getValue());
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            prune();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Loads the newest complete snapshot taken at or before the given journal position.
+     * A snapshot is only handed to the loader once its checksum has been verified.
+     *
+     * @return The journal position, id counter and next trade id of the snapshot, or null if there is none.
+     */
+    Snapshot load(long maxPosition, Loader loader) {
+        for (Path file : files().reversed()) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                DataInputStream in = verify(channel);
+                int magic = in.readInt();
+                if (magic < MAGIC_V1 || magic > MAGIC) {
+                    throw new IOException("Not a snapshot");
+                }
+                int version = magic & 0xFF;
+                long position = in.readLong();
+                long counter = in.readLong();
+                if (position > maxPosition) {
+                    log.warn("Skipping the snapshot {}, it is ahead of the journal", file);
+                    continue;
+                }
+                int bookCount = in.readInt();
+                for (int i = 0; i < bookCount; i++) {
+                    String name = in.readUTF();
+                    loader.book(name);
+                    int count = in.readInt();
+                    for (int j = 0; j < count; j++) {
+                        loader.resting(name, OrderCodec.read(in, version));
+                    }
+                }
+                int count = in.readInt();
+                for (int j = 0; j < count; j++) {
+                    loader.archived(OrderCodec.read(in, version));
+                }
+                // absent from the snapshots written before the ledger
+                long trades = in.available() >= Long.BYTES ? in.readLong() : 0;
+                return new Snapshot(position, counter, trades, Map.of(), List.of(), List.of());
+            } catch (IOException e) {
+                log.warn("Skipping the snapshot {}, it cannot be read", file, e);
+            }
+        }
+        return null;
+    }
+
+    // maps the file and checks it whole, before anything in it is trusted
+    private static DataInputStream verify(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 2 * Integer.BYTES || size > Integer.MAX_VALUE) {
+            throw new IOException("Not a snapshot");
+        }
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        int end = (int) size - Integer.BYTES;
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(0, end));
+        if (buffer.getInt(end) != (int) checksum.getValue()) {
+            throw new IOException("Checksum mismatch");
+        }
+        return new DataInputStream(new BufferInputStream(buffer.limit(end)));
+    }
+
+    private static void writeOrders(DataOutputStream out, List<Order> orders) throws IOException {
+        out.writeInt(orders.size());
+        writeEach(out, orders);
+    }
+
+    private static void writeEach(DataOutputStream out, Collection<Order> orders) throws IOException {
+        for (Order order : orders) {
+            OrderCodec.write(out, order);
+        }
+    }
+
+    // oldest first, as the names sort by journal position
+    private List<Path> files() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(PREFIX)
+                            && f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list the snapshots in " + directory, e);
+        }
+    }
+
+    private void prune() throws IOException {
+        List<Path> files = files();
+        for (int i = 0; i < files.size() - retain; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+
+    /**
+     * Reads a buffer without the locking of the JDK streams, which would otherwise cost more than decoding the orders.
+     */
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.config.ArchiveType;
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.domain.ArchiveTier;
+import com.tribune.demo.ame.domain.OrderArchive;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderStatus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * An implementation of {@link OrderArchive} in two tiers:
+ * <ol>
+ * <li>A hot tier on the heap, holding the live orders and the recently filled or cancelled ones, in a hash map or in pages
+ * indexed by id as configured by {@code ame.archive.type}.</li>
+ * <li>A cold tier in a {@link ColdOrderStore}, holding the filled or cancelled orders evicted from the hot tier.</li>
+ * </ol>
+ * Filled and cancelled orders never change again, they are evicted oldest first once there are more than
+ * {@code ame.archive.max-terminal-orders} of them in the hot tier, or once they have been there for longer than
+ * {@code ame.archive.max-terminal-age}. The heap then grows with the number of live orders rather than with
+ * the number of orders submitted.
+ * <p>
+ * Eviction runs on the thread archiving the orders, which is the matching thread only with synchronous events.
+ */
+@Slf4j
+public class TieredOrderArchive implements OrderArchive, MeterBinder {
+
+    private final HotOrderStore hot;
+
+    // filled or cancelled orders still in the hot tier, oldest first
+    private final Queue<Terminal> terminal = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger terminalCount = new AtomicInteger();
+
+    private final ColdOrderStore cold;
+
+    private final int maxTerminalOrders;
+
+    private final long maxTerminalAgeNanos;
+
+    private final LongAdder hotHits = new LongAdder();
+
+    private final LongAdder coldHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+
+    public TieredOrderArchive(EngineProperties.ArchiveSettings settings) {
+        if (settings.getMaxTerminalOrders() < 0 || settings.getMaxTerminalAge().isNegative()) {
+            throw new IllegalArgumentException("Archive limits must not be negative");
+        }
+        this.maxTerminalOrders = settings.getMaxTerminalOrders();
+        this.maxTerminalAgeNanos = settings.getMaxTerminalAge().toNanos();
+        this.hot = settings.getType() == ArchiveType.PAGED ? new PagedOrderStore(settings.getPageSize()) : new HashedOrderStore();
+        this.cold = new ColdOrderStore(Path.of(settings.getDirectory()));
+    }
+
+
+    @Override
+    public Order get(long id) {
+        Order order = hot.get(id);
+        if (order != null) {
+            hotHits.increment();
+            return order;
+        }
+        order = cold.read(id);
+        if (order != null) {
+            coldHits.increment();
+        } else {
+            misses.increment();
+        }
+        return order;
+    }
+
+    @Override
+    public void put(Order order) {
+        Order previous = hot.put(order);
+        retire(previous, order);
+        evict();
+    }
+
+    @Override
+    public void update(long id, UnaryOperator<Order> update) {
+        Order[] previous = new Order[1];
+        Order current = hot.computeIfPresent(id, archived -> {
+            previous[0] = archived;
+            return update.apply(archived);
+        });
+        if (current != null) {
+            retire(previous[0], current);
+        }
+        evict();
+    }
+
+    @Override
+    public List<Order> hotOrders() {
+        return hot.values();
+    }
+
+    @Override
+    public Collection<Order> coldOrders() {
+        return cold.written();
+    }
+
+    @Override
+    public long hits(ArchiveTier tier) {
+        return tier == ArchiveTier.HOT ? hotHits.sum() : coldHits.sum();
+    }
+
+    @Override
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long size(ArchiveTier tier) {
+        return tier == ArchiveTier.HOT ? hot.size() : cold.count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (ArchiveTier tier : ArchiveTier.values()) {
+            String name = tier.name().toLowerCase();
+            FunctionCounter.builder("ame.archive.hits", this, archive -> archive.hits(tier))
+                    .description("Order lookups served by an archive tier")
+                    .tag("tier", name)
+                    .register(registry);
+            Gauge.builder("ame.archive.size", this, archive -> archive.size(tier))
+                    .description("Orders held by an archive tier")
+                    .tag("tier", name)
+                    .register(registry);
+        }
+        FunctionCounter.builder("ame.archive.misses", this, TieredOrderArchive::misses)
+                .description("Order lookups for unknown orders")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        cold.close();
+    }
+
+
+    private static boolean isTerminal(Order order) {
+        return order.status() == OrderStatus.FILLED || order.status() == OrderStatus.CANCELLED;
+    }
+
+    // an order becoming filled or cancelled starts ageing
+    private void retire(Order previous, Order current) {
+        if (isTerminal(current) && (previous == null || !isTerminal(previous))) {
+            terminal.add(new Terminal(current.id(), System.nanoTime()));
+            terminalCount.incrementAndGet();
+        }
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        Terminal oldest;
+        while ((oldest = terminal.peek()) != null
+                && (terminalCount.get() > maxTerminalOrders || now - oldest.since() >= maxTerminalAgeNanos)) {
+            // another thread may have taken it first, in which case the next oldest goes
+            Terminal evicted = terminal.poll();
+            if (evicted == null) {
+                break;
+            }
+            terminalCount.decrementAndGet();
+            // written to the cold tier before leaving the hot one, so a concurrent lookup always finds it
+            hot.computeIfPresent(evicted.id(), order -> {
+                cold.write(order);
+                return null;
+            });
+        }
+    }
+
+
+    private record Terminal(long id, long since) {
+    }
+}
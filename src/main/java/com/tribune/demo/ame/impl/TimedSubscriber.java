@@ -0,0 +1,61 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderEvent;
+import com.tribune.demo.ame.domain.OrderPublisher;
+import com.tribune.demo.ame.domain.OrderEventType;
+import com.tribune.demo.ame.domain.OrderSubscriber;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A subscription to an {@link OrderPublisher}'s events, timing how long the subscriber takes on each of them
+ * once the publisher is bound to a registry, as the {@code ame.events.dispatch} timer tagged with the event type
+ * and the subscriber's class.
+ */
+final class TimedSubscriber {
+
+    final OrderSubscriber subscriber;
+
+    private final OrderEventType type;
+
+    private volatile Timer timer;
+
+
+    TimedSubscriber(OrderEventType type, OrderSubscriber subscriber) {
+        this.type = type;
+        this.subscriber = subscriber;
+    }
+
+    void deliver(OrderEvent event) {
+        Timer bound = timer;
+        if (bound == null) {
+            subscriber.onEvent(event);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            subscriber.onEvent(event);
+        } finally {
+            bound.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void bindTo(MeterRegistry registry) {
+        timer = Timer.builder("ame.events.dispatch")
+                .description("Time a subscriber takes to handle an event")
+                .tags("type", type.name(), "subscriber", name(subscriber))
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+    }
+
+    private static String name(OrderSubscriber subscriber) {
+        String name = subscriber.getClass().getName();
+        // lambdas are named after the class they were written in
+        int lambda = name.indexOf("$$");
+        name = lambda > 0 ? name.substring(0, lambda) : name;
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,348 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.Trade;
+import com.tribune.demo.ame.model.TradePage;
+import com.tribune.demo.ame.model.TradeRecord;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An append-only ledger of every trade, each given an id in the order the trades were made.
+ * <p>
+ * Trades are stored by column in fixed-size chunks, the times of a chunk next to each other, then the orders, prices,
+ * amounts, assets and directions, so a query scans the column it filters on without touching the others.
+ * Each chunk also keeps the range of its times and the assets it holds, so a query skips the chunks it cannot match.
+ * With {@code ame.ledger.spill}, full chunks are written to a file and memory-mapped, leaving the heap
+ * with the chunk being filled only.
+ * <p>
+ * Appends are serialized; queries take no lock, and only see the trades appended before they started.
+ * The id of a trade is its position in the ledger, which doubles as the cursor of a query. A ledger restored from
+ * a snapshot only holds the trades made since, and {@link #startAt(long)} keeps their ids after those of the
+ * trades before it.
+ */
+@Slf4j
+public class TradeLedger implements MeterBinder, AutoCloseable {
+
+    // the width of each column, and where it starts as a multiple of the chunk size
+    private static final int TIME = 0;
+    private static final int TAKER = 8;
+    private static final int MAKER = 16;
+    private static final int PRICE = 24;
+    private static final int AMOUNT = 32;
+    private static final int ASSET = 40;
+    private static final int SIDE = 44;
+
+    static final int TRADE_BYTES = 45;
+
+    private static final byte BUY = 0;
+    private static final byte SELL = 1;
+
+    private final int chunkSize;
+
+    private final int maxPageSize;
+
+    private final Path spillDirectory;
+
+    // replaced as a whole when it grows, under this
+    private volatile Chunk[] chunks = new Chunk[16];
+
+    // written under this, once the trade is in its chunk
+    private volatile long size;
+
+    // the id of the first trade held, written before any is appended
+    private volatile long firstId;
+
+    private final Map<String, Integer> assetIds = new ConcurrentHashMap<>();
+
+    private volatile String[] assets = new String[0];
+
+    // guarded by this
+    private FileChannel spill;
+    private Path spillFile;
+    private volatile int spilled;
+
+
+    public TradeLedger(EngineProperties.LedgerSettings settings) {
+        if (settings.getChunkSize() <= 0 || settings.getChunkSize() > Integer.MAX_VALUE / TRADE_BYTES) {
+            throw new IllegalArgumentException("Ledger chunk size must be from 1 to " + Integer.MAX_VALUE / TRADE_BYTES
+                    + ": " + settings.getChunkSize());
+        }
+        if (settings.getMaxPageSize() <= 0) {
+            throw new IllegalArgumentException("Ledger page size must be positive: " + settings.getMaxPageSize());
+        }
+        this.chunkSize = settings.getChunkSize();
+        this.maxPageSize = settings.getMaxPageSize();
+        this.spillDirectory = settings.isSpill() ? Path.of(settings.getDirectory()) : null;
+    }
+
+
+    /**
+     * Sets the id of the first trade, for a ledger continuing one that held the trades before it.
+     */
+    public synchronized void startAt(long firstId) {
+        if (size > 0) {
+            throw new IllegalStateException("The ledger already holds trades");
+        }
+        if (firstId < 0) {
+            throw new IllegalArgumentException("Trade id must not be negative: " + firstId);
+        }
+        this.firstId = firstId;
+    }
+
+    /**
+     * Records the trades an incoming order made, in the order it made them.
+     */
+    public synchronized void append(Order taker) {
+        List<Trade> trades = taker.trades();
+        if (trades.isEmpty()) {
+            return;
+        }
+        long time = nanos(taker.timestamp() != null ? taker.timestamp() : LocalDateTime.now());
+        int asset = assetId(taker.asset());
+        byte side = taker.direction() == OrderDirection.SELL ? SELL : BUY;
+        for (int i = 0; i < trades.size(); i++) {
+            Trade trade = trades.get(i);
+            long id = size;
+            int row = (int) (id % chunkSize);
+            Chunk chunk = row == 0 ? newChunk((int) (id / chunkSize)) : chunks[(int) (id / chunkSize)];
+
+            ByteBuffer columns = chunk.columns;
+            columns.putLong(column(TIME, row), time);
+            columns.putLong(column(TAKER, row), taker.id());
+            columns.putLong(column(MAKER, row), trade.orderId());
+            columns.putDouble(column(PRICE, row), trade.price());
+            columns.putDouble(column(AMOUNT, row), trade.amount());
+            columns.putInt(column(ASSET, row), asset);
+            columns.put(column(SIDE, row), side);
+            chunk.minTime = Math.min(chunk.minTime, time);
+            chunk.maxTime = Math.max(chunk.maxTime, time);
+            chunk.assets |= 1L << asset;
+            size = id + 1;
+
+            if (row == chunkSize - 1 && spillDirectory != null) {
+                spill(chunk, (int) (id / chunkSize));
+            }
+        }
+    }
+
+    /**
+     * Finds the trades of an asset made in a range of time, oldest first.
+     *
+     * @param asset  The asset, or null for every asset.
+     * @param from   The start of the range, inclusive, or null for the first trade.
+     * @param to     The end of the range, exclusive, or null for the latest trade.
+     * @param cursor The cursor a previous page returned, or null for the first page.
+     * @param limit  The maximum number of trades of the page.
+     */
+    public TradePage find(String asset, LocalDateTime from, LocalDateTime to, Long cursor, int limit) {
+        if (limit <= 0 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be from 1 to " + maxPageSize + ": " + limit);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("The start of the range must be before its end: " + from + ", " + to);
+        }
+        if (cursor != null && cursor < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        List<TradeRecord> trades = new ArrayList<>();
+        Integer assetId = asset != null ? assetIds.get(asset) : null;
+        if (asset != null && assetId == null) {
+            return new TradePage(trades, null);
+        }
+        long fromNanos = from != null ? nanos(from) : Long.MIN_VALUE;
+        long toNanos = to != null ? nanos(to) : Long.MAX_VALUE;
+
+        // read in this order, so the chunks and assets cover every trade below the end
+        long end = size;
+        Chunk[] chunks = this.chunks;
+        String[] assets = this.assets;
+
+        // the positions in the ledger, the ids being offset by the first one
+        long offset = firstId;
+        long id = cursor != null ? Math.max(cursor - offset, 0) : 0;
+        while (id < end) {
+            int index = (int) (id / chunkSize);
+            long first = (long) index * chunkSize;
+            long last = Math.min(end, first + chunkSize);
+            Chunk chunk = chunks[index];
+            if (chunk.maxTime < fromNanos || chunk.minTime >= toNanos
+                    || assetId != null && (chunk.assets & 1L << assetId) == 0) {
+                id = last;
+                continue;
+            }
+            ByteBuffer columns = chunk.columns;
+            for (; id < last; id++) {
+                int row = (int) (id - first);
+                long time = columns.getLong(column(TIME, row));
+                if (time < fromNanos || time >= toNanos
+                        || assetId != null && columns.getInt(column(ASSET, row)) != assetId) {
+                    continue;
+                }
+                if (trades.size() == limit) {
+                    return new TradePage(trades, offset + id);
+                }
+                trades.add(TradeRecord.builder()
+                        .tradeId(offset + id)
+                        .asset(assets[columns.getInt(column(ASSET, row))])
+                        .takerOrderId(columns.getLong(column(TAKER, row)))
+                        .makerOrderId(columns.getLong(column(MAKER, row)))
+                        .direction(columns.get(column(SIDE, row)) == SELL ? OrderDirection.SELL : OrderDirection.BUY)
+                        .price(columns.getDouble(column(PRICE, row)))
+                        .amount(columns.getDouble(column(AMOUNT, row)))
+                        .timestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(time, 1_000_000_000L),
+                                (int) Math.floorMod(time, 1_000_000_000L), ZoneOffset.UTC))
+                        .build());
+            }
+        }
+        return new TradePage(trades, null);
+    }
+
+    /**
+     * Gets the number of trades recorded.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the id the next trade will be given.
+     */
+    public long nextId() {
+        return firstId + size;
+    }
+
+    /**
+     * Gets the number of chunks moved to the spill file.
+     */
+    public int spilledChunks() {
+        return spilled;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("ame.ledger.trades", this, TradeLedger::size)
+                .description("Trades recorded in the ledger")
+                .register(registry);
+        Gauge.builder("ame.ledger.spilled", this, TradeLedger::spilledChunks)
+                .description("Ledger chunks moved to the spill file")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (spill == null) {
+            return;
+        }
+        try {
+            spill.close();
+            Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete the ledger spill file", e);
+        } finally {
+            spill = null;
+        }
+    }
+
+
+    private int column(int column, int row) {
+        return column * chunkSize + row * columnWidth(column);
+    }
+
+    private static int columnWidth(int column) {
+        return switch (column) {
+            case ASSET -> Integer.BYTES;
+            case SIDE -> Byte.BYTES;
+            default -> Long.BYTES;
+        };
+    }
+
+    private static long nanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    // called under this
+    private int assetId(String asset) {
+        Integer id = assetIds.get(asset);
+        if (id == null) {
+            id = assets.length;
+            // published before the trades referring to it
+            String[] grown = Arrays.copyOf(assets, id + 1);
+            grown[id] = asset;
+            assets = grown;
+            assetIds.put(asset, id);
+        }
+        return id;
+    }
+
+    // called under this
+    private Chunk newChunk(int index) {
+        if (index == chunks.length) {
+            chunks = Arrays.copyOf(chunks, index * 2);
+        }
+        Chunk chunk = new Chunk(ByteBuffer.allocate(chunkSize * TRADE_BYTES).order(ByteOrder.nativeOrder()));
+        chunks[index] = chunk;
+        return chunk;
+    }
+
+    // called under this, with the chunk full
+    private void spill(Chunk chunk, int index) {
+        try {
+            if (spill == null) {
+                Files.createDirectories(spillDirectory);
+                spillFile = Files.createTempFile(spillDirectory, "ame-ledger-", ".trades");
+                spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            long position = (long) index * chunkSize * TRADE_BYTES;
+            ByteBuffer columns = chunk.columns.duplicate().clear();
+            while (columns.hasRemaining()) {
+                spill.write(columns, position + columns.position());
+            }
+            // queries still reading the heap copy keep it until they are done
+            chunk.columns = spill.map(FileChannel.MapMode.READ_ONLY, position, columns.capacity())
+                    .order(ByteOrder.nativeOrder());
+            spilled++;
+        } catch (IOException e) {
+            // the chunk stays on the heap, the trades were recorded all the same
+            log.error("Failed to spill ledger chunk {}", index, e);
+        }
+    }
+
+
+    private static final class Chunk {
+
+        volatile ByteBuffer columns;
+
+        // written under the ledger, before the size covers the trade
+        volatile long minTime = Long.MAX_VALUE;
+        volatile long maxTime = Long.MIN_VALUE;
+        // a bit per asset id, modulo 64
+        volatile long assets;
+
+        Chunk(ByteBuffer columns) {
+            this.columns = columns;
+        }
+    }
+}
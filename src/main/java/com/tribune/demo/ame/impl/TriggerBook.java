@@ -0,0 +1,143 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+
+import java.util.*;
+
+/**
+ * The stop orders of a book waiting for a trade at or through their stop price, indexed by that price in ticks.
+ * <p>
+ * Buy stops are triggered by a trade at or above their stop price, sell stops by a trade at or below it.
+ * Each side is a {@link TreeMap} of levels ordered the way the price reaches them, each level holding its stops
+ * in the order they arrived, so the stops crossed by a match are always a head of the map: releasing them costs
+ * O(log levels) plus the stops released, and a match that crossed none costs one comparison per side,
+ * however many stops are waiting.
+ * <p>
+ * Every method but {@link #isEmpty} is synchronized; that one reads a volatile count, so a book without stops
+ * never takes the lock.
+ */
+public class TriggerBook {
+
+    private final Instrument instrument;
+
+    // the lowest stop price first, the first reached by a rising price
+    private final TreeMap<Long, Map<Long, Order>> buys = new TreeMap<>();
+
+    // the highest stop price first, the first reached by a falling price
+    private final TreeMap<Long, Map<Long, Order>> sells = new TreeMap<>(Comparator.reverseOrder());
+
+    private final Map<Long, Order> byId = new HashMap<>();
+
+    private volatile int size;
+
+
+    public TriggerBook(Instrument instrument) {
+        this.instrument = instrument;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Holds a stop order until a trade reaches its stop price.
+     *
+     * @throws IllegalArgumentException if the stop price is off the instrument's grid, or the order is already held.
+     */
+    public synchronized void add(Order order) {
+        long ticks = instrument.toTicks(order.stopPrice());
+        if (byId.putIfAbsent(order.id(), order) != null) {
+            throw new IllegalArgumentException("Order is already in the book: " + order.id());
+        }
+        side(order.direction()).computeIfAbsent(ticks, t -> new LinkedHashMap<>()).put(order.id(), order);
+        size = byId.size();
+    }
+
+    /**
+     * Takes a stop order out before it is triggered.
+     *
+     * @return The order, or {@code null} if it is not held here.
+     */
+    public synchronized Order remove(long id) {
+        Order order = byId.remove(id);
+        if (order == null) {
+            return null;
+        }
+        TreeMap<Long, Map<Long, Order>> side = side(order.direction());
+        long ticks = instrument.toTicks(order.stopPrice());
+        Map<Long, Order> level = side.get(ticks);
+        level.remove(id);
+        if (level.isEmpty()) {
+            side.remove(ticks);
+        }
+        size = byId.size();
+        return order;
+    }
+
+    public synchronized boolean contains(long id) {
+        return byId.containsKey(id);
+    }
+
+    /**
+     * Takes out every stop crossed by trades made between two prices, the stops of the side the price moved towards
+     * first, each side in the order the price reached their stop prices, then the order they arrived in.
+     *
+     * @param low      The lowest price traded, in ticks.
+     * @param high     The highest price traded, in ticks.
+     * @param rising   Whether the trades lifted the price, as those of a buy order do.
+     * @param released Where the released stops are added, in the order they are to be matched.
+     */
+    public synchronized void release(long low, long high, boolean rising, Collection<Order> released) {
+        if (rising) {
+            release(buys, high, released);
+            release(sells, low, released);
+        } else {
+            release(sells, low, released);
+            release(buys, high, released);
+        }
+        size = byId.size();
+    }
+
+    private void release(TreeMap<Long, Map<Long, Order>> side, long price, Collection<Order> released) {
+        if (side.isEmpty()) {
+            return;
+        }
+        long first = side.firstKey();
+        if (side == buys ? first > price : first < price) {
+            return;
+        }
+        Iterator<Map<Long, Order>> levels = side.headMap(price, true).values().iterator();
+        while (levels.hasNext()) {
+            for (Order order : levels.next().values()) {
+                byId.remove(order.id());
+                released.add(order);
+            }
+            levels.remove();
+        }
+    }
+
+    /**
+     * Gets the stops waiting on one side, or both (BUY first), in the order they would be triggered.
+     */
+    public synchronized List<Order> findOrders(OrderDirection direction) {
+        List<Order> orders = new ArrayList<>();
+        if (direction != OrderDirection.SELL) {
+            buys.values().forEach(level -> orders.addAll(level.values()));
+        }
+        if (direction != OrderDirection.BUY) {
+            sells.values().forEach(level -> orders.addAll(level.values()));
+        }
+        return orders;
+    }
+
+    private TreeMap<Long, Map<Long, Order>> side(OrderDirection direction) {
+        return direction == OrderDirection.SELL ? sells : buys;
+    }
+}
@@ -0,0 +1,243 @@
+package com.tribune.demo.ame.impl;
+
+
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.domain.OrderEventType;
+import com.tribune.demo.ame.domain.OrderPublisher;
+import com.tribune.demo.ame.model.*;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is an implementation of {@link OrderBook} that holds the stop orders of the wrapped book in a
+ * {@link TriggerBook} until a trade reaches their stop price, and then submits them to the wrapped book.
+ * <p>
+ * After every command that traded, the stops its trades crossed are released and submitted one after the other,
+ * in the order the {@link TriggerBook} released them; the trades each of them makes release more, which are queued
+ * behind. A stop is taken out of the trigger book before it is submitted, so it is triggered at most once and a
+ * cascade ends after at most as many matches as there were stops, all of them before the command returns.
+ * A command and its cascade hold the monitor of the wrapped book throughout, the one its own commands synchronize on,
+ * so no other command, nor a reader of the book, comes in between.
+ * Nothing but the commands decides which stops are triggered and when, so replaying the journal triggers them
+ * identically; that is also why a stop is only triggered by a trade made after it was accepted.
+ * <p>
+ * A triggered stop takes the timestamp of the command that triggered it. It is published as a
+ * {@link OrderEventType#TRIGGER_STOP} event, then as the wrapped book publishes any order it matches.
+ */
+@Slf4j
+public class TriggeringOrderBook implements OrderBook {
+
+    @Getter
+    private final OrderBook delegate;
+
+    private final Instrument instrument;
+
+    private final OrderPublisher orderPublisher;
+
+    private final TriggerBook triggers;
+
+    // the wrapped book itself, under its metrics if any
+    private final Object lock;
+
+
+    public TriggeringOrderBook(OrderBook delegate, Instrument instrument, OrderPublisher orderPublisher) {
+        this.delegate = delegate;
+        this.lock = delegate instanceof MeteredOrderBook metered ? metered.getDelegate() : delegate;
+        this.instrument = instrument;
+        this.orderPublisher = orderPublisher;
+        this.triggers = new TriggerBook(instrument);
+    }
+
+    @Override
+    public String getAsset() {
+        return delegate.getAsset();
+    }
+
+    @Override
+    public Order submit(Order order) {
+        synchronized (lock) {
+            if (order.awaitsTrigger()) {
+                return hold(order);
+            }
+            return cascade(delegate.submit(checkNotStop(order)));
+        }
+    }
+
+    @Override
+    public Order sell(Order order) {
+        synchronized (lock) {
+            if (order.awaitsTrigger()) {
+                return hold(order);
+            }
+            return cascade(delegate.sell(checkNotStop(order)));
+        }
+    }
+
+    @Override
+    public Order buy(Order order) {
+        synchronized (lock) {
+            if (order.awaitsTrigger()) {
+                return hold(order);
+            }
+            return cascade(delegate.buy(checkNotStop(order)));
+        }
+    }
+
+    @Override
+    public Order cancel(long id) {
+        synchronized (lock) {
+            Order held = triggers.remove(id);
+            if (held == null) {
+                return delegate.cancel(id);
+            }
+            Order cancelled = held.withStatus(OrderStatus.CANCELLED).withPendingAmount(0);
+            orderPublisher.publish(new SimpleOrderEvent(cancelled, "Update the live order", OrderEventType.UPDATE_LIVE_ORDER));
+            return cancelled;
+        }
+    }
+
+    @Override
+    public Order amend(long id, Double price, Double amount, LocalDateTime timestamp) {
+        synchronized (lock) {
+            if (triggers.contains(id)) {
+                throw new IllegalArgumentException("A stop order cannot be amended before it is triggered: " + id);
+            }
+            return cascade(delegate.amend(id, price, amount, timestamp));
+        }
+    }
+
+    @Override
+    public List<OrderBatchResult> submitBatch(List<BookCommand> commands) {
+        synchronized (lock) {
+            // nothing can be triggered, the wrapped book may apply the batch in one go
+            if (triggers.isEmpty() && commands.stream().noneMatch(c -> c.order() != null
+                    && (c.order().awaitsTrigger() || c.order().stopPrice() != 0))) {
+                return delegate.submitBatch(commands);
+            }
+            return OrderBook.super.submitBatch(commands);
+        }
+    }
+
+    /**
+     * Puts back a resting order, or a stop order still waiting for its trigger.
+     */
+    @Override
+    public void restore(Order order) {
+        synchronized (lock) {
+            if (order.status() == OrderStatus.UNTRIGGERED) {
+                triggers.add(order);
+            } else {
+                delegate.restore(order);
+            }
+        }
+    }
+
+    @Override
+    public void saveOrUpdateOrder(Order response) {
+        delegate.saveOrUpdateOrder(response);
+    }
+
+    @Override
+    public void updateCounterpart(UpdateCounterpart updateCounterpart) {
+        delegate.updateCounterpart(updateCounterpart);
+    }
+
+    /**
+     * Finds the orders resting in the wrapped book, followed by the stop orders waiting for their trigger.
+     */
+    @Override
+    public List<Order> findLiveOrders(OrderDirection direction) {
+        synchronized (lock) {
+            List<Order> resting = delegate.findLiveOrders(direction);
+            if (triggers.isEmpty()) {
+                return resting;
+            }
+            List<Order> orders = new ArrayList<>(resting);
+            orders.addAll(triggers.findOrders(direction));
+            return orders;
+        }
+    }
+
+    @Override
+    public TopOfBook getTopOfBook() {
+        return delegate.getTopOfBook();
+    }
+
+    @Override
+    public BookDepth getDepth(int levels) {
+        return delegate.getDepth(levels);
+    }
+
+    /**
+     * Gets the number of stop orders waiting for their trigger.
+     */
+    public int getStopCount() {
+        return triggers.size();
+    }
+
+    private Order hold(Order order) {
+        // checked now rather than once triggered
+        OrderRules.validateStop(order, getAsset(), instrument);
+
+        Order held = order.withPendingAmount(order.amount()).withStatus(OrderStatus.UNTRIGGERED);
+        triggers.add(held);
+        delegate.saveOrUpdateOrder(held);
+        return held;
+    }
+
+    private static Order checkNotStop(Order order) {
+        if (order.stopPrice() != 0) {
+            throw new IllegalArgumentException("Only a stop order has a stop price");
+        }
+        return order;
+    }
+
+    /**
+     * Matches the stops released by the trades of a command, and by their own trades in turn, with the lock held.
+     *
+     * @return The command's response, unchanged.
+     */
+    private Order cascade(Order response) {
+        if (triggers.isEmpty() || response.trades().isEmpty()) {
+            return response;
+        }
+        ArrayDeque<Order> released = new ArrayDeque<>();
+        release(response, released);
+        while (!released.isEmpty()) {
+            Order stop = released.poll().triggered(response.timestamp());
+            orderPublisher.publish(new SimpleOrderEvent(stop, "Trigger the stop order", OrderEventType.TRIGGER_STOP));
+            Order outcome;
+            try {
+                outcome = delegate.submit(stop);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // its terms were checked when it was accepted, nothing else may stop the cascade
+                log.warn("Cancelled the triggered stop order {}: {}", stop.id(), e.getMessage());
+                delegate.saveOrUpdateOrder(stop.withRemainderCancelled(stop.amount()));
+                continue;
+            }
+            release(outcome, released);
+        }
+        return response;
+    }
+
+    private void release(Order outcome, ArrayDeque<Order> released) {
+        List<Trade> trades = outcome.trades();
+        if (trades.isEmpty() || triggers.isEmpty()) {
+            return;
+        }
+        double low = Double.MAX_VALUE;
+        double high = -Double.MAX_VALUE;
+        for (int i = 0; i < trades.size(); i++) {
+            double price = trades.get(i).price();
+            low = Math.min(low, price);
+            high = Math.max(high, price);
+        }
+        triggers.release(instrument.toTicks(low), instrument.toTicks(high),
+                outcome.direction() == OrderDirection.BUY, released);
+    }
+}
@@ -0,0 +1,35 @@
+package com.tribune.demo.ame.model;
+
+
+import com.tribune.demo.ame.domain.OrderEventType;
+import lombok.Builder;
+
+/**
+ * One entry of the audit trail, taken from an order or trade event.
+ *
+ * @param sequence      The position of the entry in the audit trail, from 0.
+ * @param timestamp     When the event was published, in milliseconds since the epoch.
+ * @param type          {@code SAVE_OR_UPDATE_ORDER} for a submitted order, {@code UPDATE_COUNTERPART} for a resting
+ *                      order filled by it, {@code UPDATE_LIVE_ORDER} for a cancelled or amended one.
+ * @param asset         The asset of the order.
+ * @param orderId       The id of the order.
+ * @param counterpartId The id of the submitted order that filled a resting one, null for other events.
+ * @param direction     The side of the order, null for a fill of a resting order.
+ * @param price         The price of the order, or of the trade for a fill.
+ * @param amount        The amount of the order, or of the trade for a fill.
+ * @param pendingAmount The amount of the order left to be filled.
+ * @param status        The status of the order, null for a fill of a resting order.
+ */
+@Builder
+public record AuditRecord(long sequence,
+                          long timestamp,
+                          OrderEventType type,
+                          String asset,
+                          long orderId,
+                          Long counterpartId,
+                          OrderDirection direction,
+                          double price,
+                          double amount,
+                          double pendingAmount,
+                          OrderStatus status) {
+}
@@ -0,0 +1,23 @@
+package com.tribune.demo.ame.model;
+
+
+/**
+ * A command of a batch applied to a single book, see {@code OrderBook#submitBatch}.
+ *
+ * @param order The order to submit, for a {@code SUBMIT}.
+ * @param id    The id of the resting order to cancel, for a {@code CANCEL}.
+ */
+public record BookCommand(Type type, Order order, long id) {
+
+    public enum Type {
+        SUBMIT, CANCEL
+    }
+
+    public static BookCommand submit(Order order) {
+        return new BookCommand(Type.SUBMIT, order, -1);
+    }
+
+    public static BookCommand cancel(long id) {
+        return new BookCommand(Type.CANCEL, null, id);
+    }
+}
@@ -0,0 +1,13 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * The best price levels of both sides of a book, best price first.
+ */
+@Builder
+public record BookDepth(String asset, List<PriceLevel> bids, List<PriceLevel> asks) {
+}
@@ -0,0 +1,23 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * The best price levels of a book, either in full or as the levels that changed since the previous update.
+ *
+ * @param snapshot Whether the levels are the whole depth, replacing whatever the subscriber held.
+ * @param bids     The bid levels, or the bid levels that changed; a level with no amount left was removed.
+ * @param asks     The ask levels, or the ask levels that changed; a level with no amount left was removed.
+ */
+@Builder
+public record DepthUpdate(String asset, long sequence, boolean snapshot, List<PriceLevel> bids, List<PriceLevel> asks)
+        implements FeedMessage {
+
+    @Override
+    public String type() {
+        return snapshot ? "snapshot" : "depth";
+    }
+}
@@ -0,0 +1,20 @@
+package com.tribune.demo.ame.model;
+
+
+/**
+ * A message of an asset's market data feed.
+ * <p>
+ * The messages of an asset are numbered by a sequence increasing by one, a gap means some were skipped and
+ * a snapshot follows. A snapshot carries the sequence of the last message it includes.
+ */
+public sealed interface FeedMessage permits DepthUpdate, TradeTick {
+
+    String asset();
+
+    long sequence();
+
+    /**
+     * The name of the message, as sent in the feed.
+     */
+    String type();
+}
@@ -0,0 +1,87 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+/**
+ * The trading rules of an asset.
+ * <p>
+ * Inside the engine, prices are counted in ticks and amounts in lots, both as {@code long}s, so matching
+ * is exact and cheap to compare. The conversions below happen only at the edge, when an {@link Order}
+ * enters a book and when the results are turned back into {@link Order}s and {@link Trade}s.
+ *
+ * @param asset    The asset name.
+ * @param tickSize The smallest price increment.
+ * @param lotSize  The smallest amount increment.
+ */
+@Builder
+public record Instrument(String asset, BigDecimal tickSize, BigDecimal lotSize) {
+
+    public static final BigDecimal DEFAULT_TICK_SIZE = new BigDecimal("0.00000001");
+    public static final BigDecimal DEFAULT_LOT_SIZE = new BigDecimal("0.00000001");
+
+    public Instrument {
+        if (tickSize == null || tickSize.signum() <= 0) {
+            throw new IllegalArgumentException("Tick size must be positive for asset: " + asset);
+        }
+        if (lotSize == null || lotSize.signum() <= 0) {
+            throw new IllegalArgumentException("Lot size must be positive for asset: " + asset);
+        }
+    }
+
+    /**
+     * Gets an instrument with the default tick and lot sizes.
+     */
+    public static Instrument of(String asset) {
+        return new Instrument(asset, DEFAULT_TICK_SIZE, DEFAULT_LOT_SIZE);
+    }
+
+    /**
+     * Converts a price into ticks.
+     *
+     * @throws IllegalArgumentException if the price is not a multiple of the tick size.
+     */
+    public long toTicks(double price) {
+        return scale(price, tickSize, "Price");
+    }
+
+    /**
+     * Converts an amount into lots.
+     *
+     * @throws IllegalArgumentException if the amount is not a positive multiple of the lot size.
+     */
+    public long toLots(double amount) {
+        long lots = scale(amount, lotSize, "Amount");
+        if (lots <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+        return lots;
+    }
+
+    public double toPrice(long ticks) {
+        return BigDecimal.valueOf(ticks).multiply(tickSize).doubleValue();
+    }
+
+    public double toAmount(long lots) {
+        return BigDecimal.valueOf(lots).multiply(lotSize).doubleValue();
+    }
+
+    private long scale(double value, BigDecimal unit, String name) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException(name + " must be a finite number: " + value);
+        }
+        BigDecimal decimal = BigDecimal.valueOf(value);
+        BigDecimal[] division = decimal.divideAndRemainder(unit);
+        if (division[1].signum() != 0) {
+            throw new IllegalArgumentException(String.format("%s %s is not a multiple of %s for asset %s",
+                    name, decimal.stripTrailingZeros().toPlainString(), unit.toPlainString(), asset));
+        }
+        try {
+            return division[0].longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(name + " is out of range: " + value);
+        }
+    }
+}
@@ -22,24 +22,113 @@ public record Order(Long id,
                     OrderDirection direction,
                     LocalDateTime timestamp,
                     List<Trade> trades,
-                    double pendingAmount) {
+                    double pendingAmount,
+                    OrderStatus status,
+                    OrderType type,
+                    TimeInForce timeInForce,
+                    double stopPrice,
+                    // the most of an iceberg order shown in the book at a time, 0 to show all of it
+                    double displayAmount,
+                    // the part of a resting iceberg not shown, only set on the orders a book finds resting in it
+                    double hiddenAmount) {
 
     public Order {
         trades = trades != null ? trades: new ArrayList<>(); // Immutable safe copy
+        status = status != null ? status : OrderStatus.OPEN;
+        type = type != null ? type : OrderType.LIMIT;
+        // a market order never rests, nor does a stop order once triggered
+        timeInForce = timeInForce != null ? timeInForce :
+                type == OrderType.MARKET || type == OrderType.STOP ? TimeInForce.IOC : TimeInForce.GTC;
     }
 
     public void addTrade(Trade trade) {
         trades.add(trade);
     }
 
+    public Order withPrice(double price) {
+        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount, status, type, timeInForce, stopPrice, displayAmount, hiddenAmount);
+    }
+
     public Order withAmount(double amount) {
-        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount);
+        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount, status, type, timeInForce, stopPrice, displayAmount, hiddenAmount);
     }
 
+    /**
+     * Sets the pending amount, and with it the status of an order that is not cancelled.
+     */
     public Order withPendingAmount(double pendingAmount) {
-        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount);
+        OrderStatus newStatus = status == OrderStatus.CANCELLED ? status :
+                pendingAmount > 0 ? OrderStatus.OPEN : OrderStatus.FILLED;
+        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount, newStatus, type, timeInForce, stopPrice, displayAmount, hiddenAmount);
+    }
+
+    /**
+     * Ends an order that may not rest: filled if nothing is left, otherwise cancelled with nothing left pending.
+     */
+    public Order withRemainderCancelled(double pendingAmount) {
+        return pendingAmount > 0 ? withStatus(OrderStatus.CANCELLED).withPendingAmount(0) : withPendingAmount(0);
+    }
+
+    /**
+     * Checks whether what is left of the order once matched rests in the book.
+     */
+    public boolean rests() {
+        return timeInForce == TimeInForce.GTC;
     }
+
+    /**
+     * Checks whether the order is a stop order, held until a trade is made at or through its stop price.
+     */
+    public boolean awaitsTrigger() {
+        return type == OrderType.STOP || type == OrderType.STOP_LIMIT;
+    }
+
+    /**
+     * Turns a triggered stop order into the order it then becomes: a market order for a {@code STOP},
+     * a limit order at its price for a {@code STOP_LIMIT}. It keeps its stop price.
+     *
+     * @param timestamp The time of the order whose trade triggered it, so its time priority is replayed identically.
+     */
+    public Order triggered(LocalDateTime timestamp) {
+        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount, OrderStatus.OPEN,
+                type == OrderType.STOP ? OrderType.MARKET : OrderType.LIMIT, timeInForce, stopPrice, displayAmount, hiddenAmount);
+    }
+
+    /**
+     * Checks whether the order is an iceberg, showing at most its display amount in the book at a time.
+     */
+    public boolean iceberg() {
+        return displayAmount > 0;
+    }
+
+    /**
+     * Sets the part of the pending amount of a resting iceberg order that is not displayed in the book.
+     */
+    public Order withHiddenAmount(double hiddenAmount) {
+        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount, status, type, timeInForce, stopPrice, displayAmount, hiddenAmount);
+    }
+
+    public Order withTimestamp(LocalDateTime timestamp) {
+        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount, status, type, timeInForce, stopPrice, displayAmount, hiddenAmount);
+    }
+
+    /**
+     * Gets the order as the market sees it in the book: only the displayed part of an iceberg, as a plain limit order.
+     */
+    public Order displayed(Instrument instrument) {
+        if (displayAmount == 0) {
+            return this;
+        }
+        double shown = hiddenAmount > 0 ?
+                instrument.toAmount(instrument.toLots(pendingAmount) - instrument.toLots(hiddenAmount)) : pendingAmount;
+        return new Order(id, asset, price, shown, direction, timestamp, trades, shown, status, type, timeInForce, stopPrice, 0, 0);
+    }
+
     public Order withTrades(List<Trade> trades) {
-        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount);
+        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount, status, type, timeInForce, stopPrice, displayAmount, hiddenAmount);
+    }
+
+    public Order withStatus(OrderStatus status) {
+        return new Order(id, asset, price, amount, direction, timestamp, trades, pendingAmount, status, type, timeInForce, stopPrice, displayAmount, hiddenAmount);
     }
 }
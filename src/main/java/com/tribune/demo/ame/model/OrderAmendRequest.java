@@ -0,0 +1,23 @@
+package com.tribune.demo.ame.model;
+
+import lombok.*;
+
+/**
+ * Changes to a resting order, a missing field is left as it is.
+ * <p>
+ * Reducing the amount keeps the order's time priority, a new price or a larger amount loses it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderAmendRequest {
+
+    private Double price;
+
+    /**
+     * The new amount left to be filled.
+     */
+    private Double amount;
+}
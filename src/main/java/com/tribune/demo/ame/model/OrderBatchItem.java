@@ -0,0 +1,43 @@
+package com.tribune.demo.ame.model;
+
+import lombok.*;
+
+/**
+ * An item of a batch: a new order, with the same fields as an {@link OrderRequest}, or the cancel of a resting one.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderBatchItem {
+
+    /**
+     * {@code SUBMIT} when missing.
+     */
+    private BookCommand.Type type;
+
+    /**
+     * The id of the order to cancel.
+     */
+    private Long id;
+
+    private String asset;
+
+    private double price;
+
+    private Double amount;
+
+    private OrderDirection direction;
+
+    /**
+     * The type of a new order, the {@code type} of an {@link OrderRequest}, named apart from the item's own type.
+     */
+    private OrderType orderType;
+
+    private TimeInForce timeInForce;
+
+    private double stopPrice;
+
+    private double displayAmount;
+}
@@ -0,0 +1,19 @@
+package com.tribune.demo.ame.model;
+
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of an item of a batch: either the order as submitted or cancelled, or why it was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderBatchResult(Order order, String error) {
+
+    public static OrderBatchResult of(Order order) {
+        return new OrderBatchResult(order, null);
+    }
+
+    public static OrderBatchResult failed(String error) {
+        return new OrderBatchResult(null, error);
+    }
+}
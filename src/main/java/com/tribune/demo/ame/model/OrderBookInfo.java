@@ -0,0 +1,19 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+/**
+ * An order book registered in the engine.
+ *
+ * @param asset    The asset name.
+ * @param assetId  The id the book can also be looked up by, stable for the life of the process.
+ * @param tickSize The smallest price increment.
+ * @param lotSize  The smallest amount increment.
+ * @param shard    The shard owning the book in sharded mode, {@code null} otherwise.
+ */
+@Builder
+public record OrderBookInfo(String asset, int assetId, BigDecimal tickSize, BigDecimal lotSize, Integer shard) {
+}
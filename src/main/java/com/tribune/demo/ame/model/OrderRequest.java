@@ -21,4 +21,25 @@ public class OrderRequest {
 
     @NotNull
     private OrderDirection direction;
+
+    /**
+     * {@code LIMIT} by default; the price of a {@code MARKET} or {@code STOP} order is ignored.
+     */
+    private OrderType type;
+
+    /**
+     * {@code GTC} by default, {@code IOC} for market orders.
+     */
+    private TimeInForce timeInForce;
+
+    /**
+     * The price a trade must reach for a {@code STOP} or {@code STOP_LIMIT} order to be triggered.
+     */
+    private double stopPrice;
+
+    /**
+     * The most of a {@code GTC} limit order shown in the book at a time, the rest refilling it as it fills;
+     * 0, the default, shows all of it.
+     */
+    private double displayAmount;
 }
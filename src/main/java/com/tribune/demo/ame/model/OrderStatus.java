@@ -0,0 +1,20 @@
+package com.tribune.demo.ame.model;
+
+public enum OrderStatus {
+    /**
+     * Resting in the book, or not submitted yet.
+     */
+    OPEN,
+    /**
+     * Nothing left to be filled.
+     */
+    FILLED,
+    /**
+     * Taken out of the book before being filled.
+     */
+    CANCELLED,
+    /**
+     * A stop order waiting for a trade at or through its stop price.
+     */
+    UNTRIGGERED
+}
@@ -0,0 +1,20 @@
+package com.tribune.demo.ame.model;
+
+public enum OrderType {
+    /**
+     * Matched at its price or better.
+     */
+    LIMIT,
+    /**
+     * Matched at any price, best first; it never rests in the book, so its time in force is IOC or FOK.
+     */
+    MARKET,
+    /**
+     * Held aside until a trade is made at or through its stop price, then matched as a {@code MARKET} order.
+     */
+    STOP,
+    /**
+     * Held aside until a trade is made at or through its stop price, then matched as a {@code LIMIT} order at its price.
+     */
+    STOP_LIMIT
+}
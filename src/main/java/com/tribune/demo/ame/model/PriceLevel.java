@@ -0,0 +1,15 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+/**
+ * The aggregated liquidity resting at one price.
+ *
+ * @param price  The price of the level.
+ * @param amount The total amount left to be filled at that price.
+ * @param orders The number of orders resting at that price.
+ */
+@Builder
+public record PriceLevel(double price, double amount, int orders) {
+}
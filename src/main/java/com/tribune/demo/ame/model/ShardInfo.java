@@ -0,0 +1,18 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * A thread owning the books of some assets in sharded mode.
+ *
+ * @param shard    The shard number.
+ * @param assets   The assets whose books the shard owns.
+ * @param backlog  The number of commands waiting to be applied.
+ * @param commands The number of commands applied so far.
+ */
+@Builder
+public record ShardInfo(int shard, List<String> assets, long backlog, long commands) {
+}
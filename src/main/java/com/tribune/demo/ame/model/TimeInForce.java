@@ -0,0 +1,16 @@
+package com.tribune.demo.ame.model;
+
+public enum TimeInForce {
+    /**
+     * Good till cancelled: what is left once matched rests in the book.
+     */
+    GTC,
+    /**
+     * Immediate or cancel: what is left once matched is cancelled.
+     */
+    IOC,
+    /**
+     * Fill or kill: the order is only matched if it can be filled in full, and cancelled untouched otherwise.
+     */
+    FOK
+}
@@ -0,0 +1,11 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+/**
+ * The best bid and ask of a book, either is {@code null} while its side is empty.
+ */
+@Builder
+public record TopOfBook(String asset, PriceLevel bid, PriceLevel ask) {
+}
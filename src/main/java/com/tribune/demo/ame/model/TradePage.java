@@ -0,0 +1,12 @@
+package com.tribune.demo.ame.model;
+
+
+import java.util.List;
+
+/**
+ * A page of the trade ledger.
+ *
+ * @param nextCursor The cursor of the next page, or null if this is the last one.
+ */
+public record TradePage(List<TradeRecord> trades, Long nextCursor) {
+}
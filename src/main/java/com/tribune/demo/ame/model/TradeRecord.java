@@ -0,0 +1,20 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A trade recorded in the trade ledger.
+ *
+ * @param tradeId      The id the ledger gave the trade, in the order trades were made.
+ * @param takerOrderId The incoming order.
+ * @param makerOrderId The resting order it traded with.
+ * @param direction    The direction of the incoming order.
+ * @param timestamp    The time of the incoming order.
+ */
+@Builder
+public record TradeRecord(long tradeId, String asset, long takerOrderId, long makerOrderId, OrderDirection direction,
+                          double price, double amount, LocalDateTime timestamp) {
+}
@@ -0,0 +1,26 @@
+package com.tribune.demo.ame.model;
+
+
+import lombok.Builder;
+
+/**
+ * A trade between an incoming order and a resting one.
+ *
+ * @param takerOrderId The incoming order.
+ * @param makerOrderId The resting order it traded with.
+ * @param direction    The direction of the incoming order.
+ * @param timestamp    When the trade was published, in milliseconds since the epoch.
+ */
+@Builder
+public record TradeTick(String asset, long sequence, long takerOrderId, long makerOrderId, OrderDirection direction,
+                        double price, double amount, long timestamp) implements FeedMessage {
+
+    @Override
+    public String type() {
+        return "trade";
+    }
+
+    public TradeTick withSequence(long sequence) {
+        return new TradeTick(asset, sequence, takerOrderId, makerOrderId, direction, price, amount, timestamp);
+    }
+}
@@ -4,8 +4,10 @@ package com.tribune.demo.ame.model;
 import lombok.*;
 
 @Builder
-public record UpdateCounterpart(Long triggerId,
+public record UpdateCounterpart(String asset,
+                                Long triggerId,
                                 Long counterPartId,
                                 double counterpartAmount,
-                                double counterpartPrice) {
+                                double counterpartPrice,
+                                double counterpartPendingAmount) {
 }
@@ -0,0 +1,109 @@
+package com.tribune.demo.ame.controller;
+
+
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.BookDepth;
+import com.tribune.demo.ame.model.OrderBookInfo;
+import com.tribune.demo.ame.model.PriceLevel;
+import com.tribune.demo.ame.model.TopOfBook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@WebMvcTest(controllers = BookController.class)
+class BookControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    SimpleMatchingEngine matchingEngine;
+
+
+    @Test
+    void getTopOfBook_whenSuccessful() throws Exception {
+        when(matchingEngine.getTopOfBook("BTC"))
+                .thenReturn(new TopOfBook("BTC", new PriceLevel(10.02, 40, 1), null));
+
+        mockMvc.perform(get("/books/BTC/top"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bid.price").value(10.02))
+                .andExpect(jsonPath("$.bid.orders").value(1))
+                .andExpect(jsonPath("$.ask").doesNotExist());
+    }
+
+    @Test
+    void getDepth_whenSuccessful() throws Exception {
+        when(matchingEngine.getDepth("BTC", 2))
+                .thenReturn(new BookDepth("BTC", List.of(new PriceLevel(10.02, 40, 1)),
+                        List.of(new PriceLevel(10.04, 20, 1), new PriceLevel(10.05, 60, 2))));
+
+        mockMvc.perform(get("/books/BTC/depth").param("levels", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bids.length()").value(1))
+                .andExpect(jsonPath("$.asks[1].amount").value(60.0));
+    }
+
+    @Test
+    void getDepth_whenLevelsIsNotPositive() throws Exception {
+        when(matchingEngine.getDepth(eq("BTC"), eq(0)))
+                .thenThrow(new IllegalArgumentException("Levels must be positive: 0"));
+
+        mockMvc.perform(get("/books/BTC/depth").param("levels", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getOrderBooks_whenSuccessful() throws Exception {
+        when(matchingEngine.getOrderBooks())
+                .thenReturn(List.of(new OrderBookInfo("BTC", 0, new BigDecimal("0.01"), new BigDecimal("0.001"), null)));
+
+        mockMvc.perform(get("/books"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].asset").value("BTC"))
+                .andExpect(jsonPath("$[0].assetId").value(0))
+                .andExpect(jsonPath("$[0].tickSize").value(0.01));
+    }
+
+    @Test
+    void createOrderBook_whenSuccessful() throws Exception {
+        when(matchingEngine.getOrderBooks())
+                .thenReturn(List.of(new OrderBookInfo("BTC", 0, BigDecimal.ONE, BigDecimal.ONE, null),
+                        new OrderBookInfo("ETH", 1, BigDecimal.ONE, BigDecimal.ONE, null)));
+
+        mockMvc.perform(put("/books/ETH"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.assetId").value(1));
+        verify(matchingEngine).newOrderBook("ETH");
+    }
+
+    @Test
+    void deleteOrderBook_whenSuccessful() throws Exception {
+        when(matchingEngine.deleteOrderBook("ETH")).thenReturn(true);
+
+        mockMvc.perform(delete("/books/ETH"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void deleteOrderBook_whenNotFound() throws Exception {
+        when(matchingEngine.deleteOrderBook("ETH")).thenReturn(false);
+
+        mockMvc.perform(delete("/books/ETH"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("OrderBook not found: ETH"));
+    }
+}
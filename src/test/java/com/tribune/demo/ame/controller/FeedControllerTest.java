@@ -0,0 +1,58 @@
+package com.tribune.demo.ame.controller;
+
+
+import com.tribune.demo.ame.domain.FeedListener;
+import com.tribune.demo.ame.impl.MarketDataFeed;
+import com.tribune.demo.ame.model.DepthUpdate;
+import com.tribune.demo.ame.model.PriceLevel;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+
+@WebMvcTest(controllers = FeedController.class)
+class FeedControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    MarketDataFeed marketDataFeed;
+
+
+    @Test
+    void getFeed_whenSuccessful() throws Exception {
+        when(marketDataFeed.subscribe(eq("BTC"), any())).thenAnswer(invocation -> {
+            FeedListener listener = invocation.getArgument(1);
+            listener.onMessage(new DepthUpdate("BTC", 7, true, List.of(), List.of(new PriceLevel(10.04, 20, 1))));
+            return mock(MarketDataFeed.Subscription.class);
+        });
+
+        mockMvc.perform(get("/books/BTC/feed"))
+                .andExpect(request().asyncStarted())
+                .andExpect(content().string(containsString("id:7")))
+                .andExpect(content().string(containsString("event:snapshot")))
+                .andExpect(content().string(containsString("\"asks\":[{\"price\":10.04")));
+    }
+
+    @Test
+    void getFeed_whenTheAssetHasNoBook() throws Exception {
+        when(marketDataFeed.subscribe(eq("XRP"), any()))
+                .thenThrow(new IllegalArgumentException("OrderBook not found: XRP"));
+
+        mockMvc.perform(get("/books/XRP/feed"))
+                .andExpect(status().isBadRequest());
+    }
+}
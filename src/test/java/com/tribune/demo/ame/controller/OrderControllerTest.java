@@ -2,12 +2,19 @@ package com.tribune.demo.ame.controller;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tribune.demo.ame.domain.OrderBook;
 import com.tribune.demo.ame.impl.SimpleMatchingEngine;
 import com.tribune.demo.ame.impl.SimpleOrderBook;
 import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.impl.TriggeringOrderBook;
+import com.tribune.demo.ame.model.Instrument;
 import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderBatchResult;
 import com.tribune.demo.ame.model.OrderDirection;
 import com.tribune.demo.ame.model.OrderRequest;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.OrderType;
+import com.tribune.demo.ame.model.TimeInForce;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,15 +24,25 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -92,6 +109,99 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.message").value("whatever"));
     }
 
+    @Test
+    void addOrder_whenMarketFillOrKill() throws Exception {
+        OrderRequest order = OrderRequest.builder()
+                .asset("BTC")
+                .amount(5.0)
+                .direction(OrderDirection.BUY)
+                .type(OrderType.MARKET)
+                .timeInForce(TimeInForce.FOK)
+                .build();
+
+        when(matchingEngine.getOrderBook(anyString())).thenReturn(orderBook);
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.type").value("MARKET"))
+                .andExpect(jsonPath("$.timeInForce").value("FOK"))
+                .andExpect(jsonPath("$.status").value("CANCELLED"))
+                .andExpect(jsonPath("$.pendingAmount").value(0.0));
+    }
+
+    @Test
+    void addOrder_whenStopLimit() throws Exception {
+        OrderRequest order = OrderRequest.builder()
+                .asset("BTC")
+                .price(10.5)
+                .amount(5.0)
+                .direction(OrderDirection.BUY)
+                .type(OrderType.STOP_LIMIT)
+                .stopPrice(10.2)
+                .build();
+
+        when(matchingEngine.getOrderBook(anyString()))
+                .thenReturn(new TriggeringOrderBook(orderBook, Instrument.of("BTC"), eventBus));
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.type").value("STOP_LIMIT"))
+                .andExpect(jsonPath("$.stopPrice").value(10.2))
+                .andExpect(jsonPath("$.status").value("UNTRIGGERED"))
+                .andExpect(jsonPath("$.pendingAmount").value(5.0));
+    }
+
+    @Test
+    void addOrderAsync_whenSuccessful() throws Exception {
+        OrderRequest order = OrderRequest.builder()
+                .asset("BTC")
+                .price(10.0)
+                .amount(5.0)
+                .direction(OrderDirection.SELL)
+                .build();
+
+        when(matchingEngine.getOrderBook(anyString())).thenReturn(orderBook);
+        when(matchingEngine.getNextOrderId()).thenReturn(7L);
+
+        MvcResult result = mockMvc.perform(post("/orders/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7))
+                .andExpect(jsonPath("$.status").value("OPEN"));
+    }
+
+    @Test
+    void addOrderAsync_whenTheBookRefusesTheOrder() throws Exception {
+        OrderRequest order = OrderRequest.builder()
+                .asset("BTC")
+                .price(10.0)
+                .amount(5.0)
+                .direction(OrderDirection.SELL)
+                .build();
+        OrderBook book = mock(OrderBook.class);
+
+        when(matchingEngine.getOrderBook(anyString())).thenReturn(book);
+        when(book.submitAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalArgumentException("Order already exists: 7")));
+
+        MvcResult result = mockMvc.perform(post("/orders/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Order already exists: 7"));
+    }
+
     @Test
     void addOrder_whenInvalidInput() throws Exception {
         OrderRequest order = OrderRequest.builder()
@@ -174,4 +284,91 @@ class OrderControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void cancelOrder_whenSuccessful() throws Exception {
+        Order order = Order.builder()
+                .id(1L)
+                .asset("BTC")
+                .price(10.0)
+                .amount(5.0)
+                .direction(OrderDirection.SELL)
+                .status(OrderStatus.CANCELLED)
+                .build();
+
+        when(matchingEngine.cancelOrder(1L)).thenReturn(order);
+
+        mockMvc.perform(delete("/orders/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+    }
+
+    @Test
+    void cancelOrder_whenOrderIsNotLive() throws Exception {
+
+        when(matchingEngine.cancelOrder(1L)).thenThrow(new IllegalArgumentException("Order is not live: 1"));
+
+        mockMvc.perform(delete("/orders/1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Order is not live: 1"));
+    }
+
+    @Test
+    void amendOrder_whenSuccessful() throws Exception {
+        Order order = Order.builder()
+                .id(1L)
+                .asset("BTC")
+                .price(10.0)
+                .amount(5.0)
+                .direction(OrderDirection.SELL)
+                .pendingAmount(3.0)
+                .build();
+
+        when(matchingEngine.amendOrder(eq(1L), isNull(), eq(3.0))).thenReturn(order);
+
+        mockMvc.perform(patch("/orders/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 3.0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pendingAmount").value(3.0));
+    }
+
+    @Test
+    void addOrders_whenSuccessful() throws Exception {
+        Order order = Order.builder()
+                .id(1L)
+                .asset("BTC")
+                .price(10.0)
+                .amount(5.0)
+                .direction(OrderDirection.SELL)
+                .pendingAmount(5.0)
+                .build();
+
+        when(matchingEngine.getNextOrderId()).thenReturn(1L);
+        when(matchingEngine.submitBatch(anyList())).thenReturn(List.of(
+                OrderBatchResult.of(order),
+                OrderBatchResult.failed("Order not found: 7")));
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"asset": "BTC", "price": 10.0, "amount": 5.0, "direction": "SELL"},
+                                 {"type": "CANCEL", "id": 7}]"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].order.id").value(1L))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].error").value("Order not found: 7"));
+    }
+
+    @Test
+    void addOrders_whenAnItemIsInvalid() throws Exception {
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"asset": "BTC", "price": 10.0, "amount": 5.0, "direction": "SELL"},
+                                 {"type": "CANCEL"}]"""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Batch item 1 has no order id to cancel"));
+    }
+}
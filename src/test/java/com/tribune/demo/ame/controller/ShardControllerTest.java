@@ -0,0 +1,62 @@
+package com.tribune.demo.ame.controller;
+
+
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.OrderBookInfo;
+import com.tribune.demo.ame.model.ShardInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@WebMvcTest(controllers = ShardController.class)
+class ShardControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    SimpleMatchingEngine matchingEngine;
+
+
+    @Test
+    void getShards_whenSuccessful() throws Exception {
+        when(matchingEngine.getShards())
+                .thenReturn(List.of(new ShardInfo(0, List.of("BTC", "ETH"), 3, 120)));
+
+        mockMvc.perform(get("/shards"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].assets[1]").value("ETH"))
+                .andExpect(jsonPath("$[0].backlog").value(3));
+    }
+
+    @Test
+    void moveOrderBook_whenSuccessful() throws Exception {
+        when(matchingEngine.moveOrderBook("BTC", 1))
+                .thenReturn(new OrderBookInfo("BTC", 0, BigDecimal.ONE, BigDecimal.ONE, 1));
+
+        mockMvc.perform(put("/shards/1/books/BTC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shard").value(1));
+    }
+
+    @Test
+    void moveOrderBook_whenNotSharded() throws Exception {
+        when(matchingEngine.moveOrderBook("BTC", 1))
+                .thenThrow(new IllegalArgumentException("Order books are not sharded, set ame.matching.mode=sharded"));
+
+        mockMvc.perform(put("/shards/1/books/BTC"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,63 @@
+package com.tribune.demo.ame.controller;
+
+
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.TradePage;
+import com.tribune.demo.ame.model.TradeRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@WebMvcTest(controllers = TradeController.class)
+class TradeControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    SimpleMatchingEngine matchingEngine;
+
+
+    @Test
+    void getTrades_whenSuccessful() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 12, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 1, 13, 0);
+        when(matchingEngine.findTrades("BTC", from, to, 40L, 2))
+                .thenReturn(new TradePage(List.of(
+                        new TradeRecord(40, "BTC", 7, 1, OrderDirection.BUY, 10.04, 20, from.plusMinutes(5)),
+                        new TradeRecord(42, "BTC", 8, 0, OrderDirection.BUY, 10.05, 5, from.plusMinutes(6))), 45L));
+
+        mockMvc.perform(get("/trades")
+                        .param("asset", "BTC")
+                        .param("from", "2024-03-01T12:00:00")
+                        .param("to", "2024-03-01T13:00:00")
+                        .param("cursor", "40")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trades.length()").value(2))
+                .andExpect(jsonPath("$.trades[1].tradeId").value(42))
+                .andExpect(jsonPath("$.trades[1].makerOrderId").value(0))
+                .andExpect(jsonPath("$.nextCursor").value(45));
+    }
+
+    @Test
+    void getTrades_whenTheLedgerIsNotEnabled() throws Exception {
+        when(matchingEngine.findTrades(null, null, null, null, 100))
+                .thenThrow(new IllegalArgumentException("The trade ledger is not enabled, set ame.ledger.enabled"));
+
+        mockMvc.perform(get("/trades"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,87 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmendOrderTest {
+
+    SimpleMatchingEngine engine;
+
+    OrderBook book;
+
+    // one second apart, so time priority never depends on the clock
+    LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    private void start(OrderBookType type) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        book = engine.getOrderBook("BTC");
+    }
+
+    private Order limit(OrderDirection direction, double price, double amount) {
+        return book.submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(price)
+                .amount(amount)
+                .direction(direction)
+                .timestamp(time = time.plusSeconds(1))
+                .build());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void amend_whenTheNewPriceFillsTheOrder_archivesItFilled(OrderBookType type) {
+        start(type);
+        Order ask = limit(OrderDirection.SELL, 10.05, 30);
+        Order bid = limit(OrderDirection.BUY, 10.00, 20);
+
+        Order amended = engine.amendOrder(bid.id(), 10.05, null);
+        assertEquals(OrderStatus.FILLED, amended.status());
+
+        Order archived = engine.findOrderById(bid.id());
+        assertEquals(OrderStatus.FILLED, archived.status());
+        assertEquals(20, archived.amount());
+        assertEquals(0, archived.pendingAmount());
+        assertEquals(List.of(new Trade(ask.id(), 20, 10.05)), archived.trades());
+        assertEquals(10, engine.findOrderById(ask.id()).pendingAmount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void amend_afterAPartialFill_keepsTheFilledPartInTheAmount(OrderBookType type) {
+        start(type);
+        Order bid = limit(OrderDirection.BUY, 10.00, 20);
+        limit(OrderDirection.SELL, 10.00, 5);
+
+        Order moved = engine.amendOrder(bid.id(), 9.95, null);
+        assertEquals(20, moved.amount());
+        assertEquals(15, moved.pendingAmount());
+        assertEquals(20, engine.findOrderById(bid.id()).amount());
+        assertEquals(15, engine.findOrderById(bid.id()).pendingAmount());
+
+        Order reduced = engine.amendOrder(bid.id(), null, 10.0);
+        assertEquals(15, reduced.amount());
+        assertEquals(10, reduced.pendingAmount());
+        assertEquals(15, engine.findOrderById(bid.id()).amount());
+        assertEquals(10, engine.findOrderById(bid.id()).pendingAmount());
+    }
+}
@@ -0,0 +1,188 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.BackpressurePolicy;
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.domain.OrderEventType;
+import com.tribune.demo.ame.impl.AsyncOrderPublisher;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderEvent;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncOrderPublisherTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    AsyncOrderPublisher publisher;
+
+    List<Long> received = new CopyOnWriteArrayList<>();
+
+    // lets a test hold the consumer thread inside a subscriber
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        publisher.close();
+    }
+
+    private AsyncOrderPublisher publisher(int capacity, BackpressurePolicy backpressure) {
+        EngineProperties properties = new EngineProperties();
+        properties.getEvents().setQueueCapacity(capacity);
+        properties.getEvents().setBatchSize(4);
+        properties.getEvents().setBackpressure(backpressure);
+        properties.getEvents().setSpillDirectory(spillDirectory.toString());
+        return new AsyncOrderPublisher(properties);
+    }
+
+    private void subscribeBlocking() {
+        publisher.subscribe(OrderEventType.SAVE_OR_UPDATE_ORDER, event -> {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(((Order) event.getSource()).id());
+        });
+    }
+
+    private static Order order(long id) {
+        return Order.builder()
+                .id(id)
+                .asset("BTC")
+                .price(10.0)
+                .amount(1)
+                .direction(OrderDirection.BUY)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void publish_deliversInOrderOnAnotherThread() throws InterruptedException {
+        publisher = publisher(16, BackpressurePolicy.BLOCK);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        publisher.subscribe(OrderEventType.SAVE_OR_UPDATE_ORDER, event -> {
+            threads.add(Thread.currentThread().getName());
+            received.add(((Order) event.getSource()).id());
+        });
+
+        // the same event is reused for every publish, as the pooled books do
+        SimpleOrderEvent event = new SimpleOrderEvent(order(0), "Update the order", OrderEventType.SAVE_OR_UPDATE_ORDER);
+        for (long id = 0; id < 1000; id++) {
+            event.setSource(order(id));
+            publisher.publish(event);
+        }
+
+        await(() -> received.size() == 1000);
+        assertEquals(LongStream.range(0, 1000).boxed().toList(), received);
+        assertEquals(List.of("ame-events"), threads.stream().distinct().toList());
+    }
+
+    @Test
+    void publish_whenFullAndDropping() throws InterruptedException {
+        publisher = publisher(1, BackpressurePolicy.DROP);
+        subscribeBlocking();
+
+        publisher.publish(new SimpleOrderEvent(order(0), "", OrderEventType.SAVE_OR_UPDATE_ORDER));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        publisher.publish(new SimpleOrderEvent(order(1), "", OrderEventType.SAVE_OR_UPDATE_ORDER));
+        publisher.publish(new SimpleOrderEvent(order(2), "", OrderEventType.SAVE_OR_UPDATE_ORDER));
+
+        assertEquals(1, publisher.droppedCount());
+        assertEquals(1, publisher.backlog());
+        assertTrue(publisher.lagNanos() > 0);
+
+        release.countDown();
+        await(() -> received.size() == 2);
+        assertEquals(List.of(0L, 1L), received);
+    }
+
+    @Test
+    void publish_whenFullAndSpilling_keepsTheOrder() throws InterruptedException, IOException {
+        publisher = publisher(2, BackpressurePolicy.SPILL);
+        subscribeBlocking();
+
+        publisher.publish(new SimpleOrderEvent(order(0), "", OrderEventType.SAVE_OR_UPDATE_ORDER));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        for (long id = 1; id < 20; id++) {
+            publisher.publish(new SimpleOrderEvent(order(id), "", OrderEventType.SAVE_OR_UPDATE_ORDER));
+        }
+        assertEquals(17, publisher.spilledCount());
+        assertEquals(19, publisher.backlog());
+
+        release.countDown();
+        await(() -> received.size() == 20);
+        assertEquals(LongStream.range(0, 20).boxed().toList(), received);
+
+        // the spill file is removed once caught up
+        await(() -> publisher.backlog() == 0);
+        await(() -> {
+            try (var files = Files.list(spillDirectory)) {
+                return files.findAny().isEmpty();
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    @Test
+    void engine_archivesMatchesDeliveredAsynchronously() throws InterruptedException {
+        publisher = publisher(1024, BackpressurePolicy.BLOCK);
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(OrderBookType.LADDER);
+        SimpleMatchingEngine engine = new SimpleMatchingEngine(publisher, properties);
+        OrderBook book = engine.getOrderBook("BTC");
+
+        Order sell = Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.0)
+                .amount(5)
+                .direction(OrderDirection.SELL)
+                .timestamp(LocalDateTime.now())
+                .build();
+        book.submit(sell);
+        book.submit(order(engine.getNextOrderId()));
+
+        await(() -> engine.findOrderById(sell.id()) != null && engine.findOrderById(sell.id()).trades().size() == 1);
+        assertEquals(4, engine.findOrderById(sell.id()).pendingAmount());
+    }
+
+    @Test
+    void publish_whenClosed() {
+        publisher = publisher(1, BackpressurePolicy.BLOCK);
+        publisher.close();
+
+        SimpleOrderEvent event = new SimpleOrderEvent(order(0), "", OrderEventType.SAVE_OR_UPDATE_ORDER);
+        assertThrows(IllegalStateException.class, () -> publisher.publish(event));
+    }
+}
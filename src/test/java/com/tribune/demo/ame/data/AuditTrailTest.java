@@ -0,0 +1,139 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.AuditSink;
+import com.tribune.demo.ame.domain.OrderEventType;
+import com.tribune.demo.ame.impl.AuditTrail;
+import com.tribune.demo.ame.impl.BinaryAuditSink;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tribune.demo.ame.data.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditTrailTest {
+
+    @TempDir
+    Path directory;
+
+    SimpleMatchingEngine engine;
+
+    AuditTrail auditTrail;
+
+    @AfterEach
+    void tearDown() {
+        if (auditTrail != null) {
+            auditTrail.close();
+        }
+        engine.close();
+    }
+
+    private EngineProperties properties(OrderBookType type, MatchingMode mode) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        properties.getMatching().setMode(mode);
+        properties.getAudit().setEnabled(true);
+        properties.getAudit().setRingSize(4);
+        properties.getAudit().setDirectory(directory.toString());
+        return properties;
+    }
+
+    private void start(EngineProperties properties, AuditSink sink) {
+        SimpleOrderPublisher publisher = new SimpleOrderPublisher();
+        engine = new SimpleMatchingEngine(publisher, properties);
+        auditTrail = new AuditTrail(publisher, properties, sink);
+    }
+
+    // more events than the ring holds, so publishers wait for the sink
+    private void trade() {
+        engine.getOrderBook("BTC").submit(order(engine, OrderDirection.SELL, 10.0, 5));
+        engine.getOrderBook("BTC").submit(order(engine, OrderDirection.SELL, 10.5, 5));
+        engine.getOrderBook("BTC").submit(order(engine, OrderDirection.BUY, 10.5, 7));
+        engine.cancelOrder(1L);
+    }
+
+    private static void assertTrail(List<AuditRecord> records) {
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), records.stream().map(AuditRecord::sequence).toList());
+        assertTrue(records.stream().allMatch(record -> "BTC".equals(record.asset()) && record.timestamp() > 0));
+
+        List<AuditRecord> fills = records.stream().filter(r -> r.type() == OrderEventType.UPDATE_COUNTERPART).toList();
+        assertEquals(List.of(0L, 1L), fills.stream().map(AuditRecord::orderId).toList());
+        assertEquals(List.of(5.0, 2.0), fills.stream().map(AuditRecord::amount).toList());
+        assertEquals(List.of(0.0, 3.0), fills.stream().map(AuditRecord::pendingAmount).toList());
+        assertTrue(fills.stream().allMatch(fill -> fill.counterpartId() == 2L && fill.direction() == null));
+
+        AuditRecord buy = records.stream().filter(r -> r.type() == OrderEventType.SAVE_OR_UPDATE_ORDER && r.orderId() == 2L)
+                .findFirst().orElseThrow();
+        assertEquals(OrderDirection.BUY, buy.direction());
+        assertEquals(OrderStatus.FILLED, buy.status());
+        assertNull(buy.counterpartId());
+
+        AuditRecord cancel = records.getLast();
+        assertEquals(OrderEventType.UPDATE_LIVE_ORDER, cancel.type());
+        assertEquals(1L, cancel.orderId());
+        assertEquals(OrderStatus.CANCELLED, cancel.status());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, DIRECT",
+            "LADDER, SINGLE_WRITER"
+    })
+    void onEvent_writesEveryOrderAndFillInSequence(OrderBookType type, MatchingMode mode) {
+        List<AuditRecord> records = new ArrayList<>();
+        start(properties(type, mode), records::add);
+
+        trade();
+        auditTrail.flush();
+
+        assertTrail(records);
+        assertEquals(6, auditTrail.written());
+        assertEquals(0, auditTrail.backlog());
+    }
+
+    @Test
+    void binarySink_readsBackWhatWasWritten() throws IOException {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT);
+        BinaryAuditSink sink = new BinaryAuditSink(properties);
+        start(properties, sink);
+
+        trade();
+        auditTrail.close();
+
+        List<AuditRecord> records = new ArrayList<>();
+        BinaryAuditSink.read(sink.getFile(), records::add);
+        assertTrail(records);
+    }
+
+    @Test
+    void onEvent_whenTheSinkFails() {
+        List<AuditRecord> records = new ArrayList<>();
+        start(properties(OrderBookType.LADDER, MatchingMode.DIRECT), record -> {
+            if (record.sequence() == 1) {
+                throw new IllegalStateException("Disk full");
+            }
+            records.add(record);
+        });
+
+        trade();
+        auditTrail.flush();
+
+        // the failure is counted and the trail goes on
+        assertEquals(1, auditTrail.failedCount());
+        assertEquals(5, records.size());
+    }
+}
@@ -0,0 +1,334 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.JournalFsyncPolicy;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.BookCommand;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.OrderType;
+import com.tribune.demo.ame.model.TimeInForce;
+import com.tribune.demo.ame.model.TradePage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tribune.demo.ame.data.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandJournalTest {
+
+    @TempDir
+    Path directory;
+
+    List<SimpleMatchingEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        engines.forEach(SimpleMatchingEngine::close);
+    }
+
+    private EngineProperties properties(OrderBookType type, MatchingMode mode, JournalFsyncPolicy fsync) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        properties.getMatching().setMode(mode);
+        properties.getJournal().setEnabled(true);
+        properties.getJournal().setDirectory(directory.toString());
+        properties.getJournal().setFsync(fsync);
+        properties.getArchive().setDirectory(directory.toString());
+        return properties;
+    }
+
+    private SimpleMatchingEngine start(EngineProperties properties) {
+        SimpleMatchingEngine engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        engines.add(engine);
+        return engine;
+    }
+
+    private void restart(SimpleMatchingEngine engine) {
+        engine.close();
+        engines.remove(engine);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT, BATCH",
+            "LADDER, DIRECT, BATCH",
+            "LADDER, SINGLE_WRITER, BATCH",
+            "LADDER, SHARDED, BATCH",
+            "LADDER, DIRECT, ASYNC",
+            "OFF_HEAP, DIRECT, BATCH"
+    })
+    void replay_rebuildsTheBooksTheArchiveAndTheCounter(OrderBookType type, MatchingMode mode, JournalFsyncPolicy fsync) {
+        EngineProperties properties = properties(type, mode, fsync);
+        SimpleMatchingEngine engine = start(properties);
+        new DevBootstrap(engine).init();
+
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.BUY, 10.04, 25));
+        engine.cancelOrder(2L);
+        engine.amendOrder(3L, 10.01, null);
+        engine.amendOrder(0L, null, 5.0);
+        assertThrows(IllegalArgumentException.class, () -> engine.cancelOrder(2L));
+        engine.newOrderBook("ETH").submit(order(engine, "ETH", OrderDirection.SELL, 2.5, 3));
+        engine.newOrderBook("LTC");
+        engine.deleteOrderBook("LTC");
+
+        List<Order> btc = engine.findAllLiveOrdersByAsset("BTC", null);
+        List<Order> eth = engine.findAllLiveOrdersByAsset("ETH", null);
+        List<Order> archived = new ArrayList<>();
+        for (long id = 0; id < 8; id++) {
+            archived.add(engine.findOrderById(id));
+        }
+        restart(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(btc, restored.findAllLiveOrdersByAsset("BTC", null));
+        assertEquals(eth, restored.findAllLiveOrdersByAsset("ETH", null));
+        for (long id = 0; id < 8; id++) {
+            assertEquals(archived.get((int) id), restored.findOrderById(id));
+        }
+        assertThrows(IllegalArgumentException.class, () -> restored.getOrderBook("LTC"));
+        assertEquals(8L, restored.getNextOrderId());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "LADDER, SINGLE_WRITER",
+            "LADDER, SHARDED"
+    })
+    void submitAsync_completesOnceTheOrderIsOnDisk(OrderBookType type, MatchingMode mode) throws IOException {
+        SimpleMatchingEngine engine = start(properties(type, mode, JournalFsyncPolicy.BATCH));
+        Path file = directory.resolve("commands.journal");
+        long size = Files.size(file);
+
+        Order response = engine.getOrderBook("BTC").submitAsync(order(engine, "BTC", OrderDirection.BUY, 10.0, 1)).join();
+
+        assertEquals(OrderStatus.OPEN, response.status());
+        assertTrue(Files.size(file) > size);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "LADDER, DIRECT",
+            "LADDER, SINGLE_WRITER"
+    })
+    void replay_whenSubmittedInABatch(OrderBookType type, MatchingMode mode) {
+        EngineProperties properties = properties(type, mode, JournalFsyncPolicy.BATCH);
+        SimpleMatchingEngine engine = start(properties);
+        Order resting = engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 5));
+
+        engine.submitBatch(List.of(
+                BookCommand.submit(order(engine, "BTC", OrderDirection.BUY, 10.0, 2)),
+                BookCommand.submit(order(engine, "BTC", OrderDirection.SELL, 10.5, 4)),
+                BookCommand.cancel(resting.id()),
+                BookCommand.cancel(resting.id())));
+        List<Order> btc = engine.findAllLiveOrdersByAsset("BTC", null);
+        restart(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(btc, restored.findAllLiveOrdersByAsset("BTC", null));
+        assertEquals(OrderStatus.CANCELLED, restored.findOrderById(resting.id()).status());
+    }
+
+    @Test
+    void replay_keepsTheTypeAndTimeInForceOfEachOrder() {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT, JournalFsyncPolicy.BATCH);
+        SimpleMatchingEngine engine = start(properties);
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 2));
+        Order ioc = engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.0)
+                .amount(3)
+                .direction(OrderDirection.BUY)
+                .timeInForce(TimeInForce.IOC)
+                .timestamp(LocalDateTime.now())
+                .build());
+        Order market = engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .amount(1)
+                .direction(OrderDirection.SELL)
+                .type(OrderType.MARKET)
+                .timestamp(LocalDateTime.now())
+                .build());
+        restart(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        // what was left of them was cancelled again rather than put in the book
+        assertTrue(restored.findAllLiveOrdersByAsset("BTC", null).isEmpty());
+        assertEquals(ioc, restored.findOrderById(ioc.id()));
+        assertEquals(OrderType.MARKET, restored.findOrderById(market.id()).type());
+        assertEquals(OrderStatus.CANCELLED, restored.findOrderById(market.id()).status());
+    }
+
+    @Test
+    void replay_triggersTheSameStopOrders() {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT, JournalFsyncPolicy.BATCH);
+        SimpleMatchingEngine engine = start(properties);
+        Order stop = engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .amount(1)
+                .direction(OrderDirection.BUY)
+                .type(OrderType.STOP)
+                .stopPrice(10.0)
+                .timestamp(LocalDateTime.now())
+                .build());
+        Order waiting = engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(12.0)
+                .amount(1)
+                .direction(OrderDirection.BUY)
+                .type(OrderType.STOP_LIMIT)
+                .stopPrice(11.0)
+                .timestamp(LocalDateTime.now())
+                .build());
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 3));
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.BUY, 10.0, 1));
+        List<Order> btc = engine.findAllLiveOrdersByAsset("BTC", null);
+        restart(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(btc, restored.findAllLiveOrdersByAsset("BTC", null));
+        assertEquals(OrderStatus.FILLED, restored.findOrderById(stop.id()).status());
+        assertEquals(10.0, restored.findOrderById(stop.id()).stopPrice());
+        assertEquals(OrderStatus.UNTRIGGERED, restored.findOrderById(waiting.id()).status());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, DIRECT"
+    })
+    void replay_refillsTheIcebergsTheSameWay(OrderBookType type, MatchingMode mode) {
+        EngineProperties properties = properties(type, mode, JournalFsyncPolicy.BATCH);
+        SimpleMatchingEngine engine = start(properties);
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0);
+        engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.0)
+                .amount(10)
+                .direction(OrderDirection.BUY)
+                .displayAmount(3)
+                .timestamp(time)
+                .build());
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.BUY, 10.0, 2).withTimestamp(time.plusSeconds(1)));
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 5).withTimestamp(time.plusSeconds(2)));
+        List<Order> resting = engine.getOrderBook("BTC").findLiveOrders(null);
+        List<Order> btc = engine.findAllLiveOrdersByAsset("BTC", null);
+        restart(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(resting, restored.getOrderBook("BTC").findLiveOrders(null));
+        assertEquals(btc, restored.findAllLiveOrdersByAsset("BTC", null));
+        assertEquals(3, restored.findOrderById(0L).displayAmount());
+    }
+
+    @Test
+    void replay_recordsTheSameTradesInTheLedger() {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT, JournalFsyncPolicy.BATCH);
+        properties.getLedger().setEnabled(true);
+        SimpleMatchingEngine engine = start(properties);
+        new DevBootstrap(engine).init();
+
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.BUY, 10.05, 30));
+        engine.amendOrder(4L, 10.05, null);
+        TradePage trades = engine.findTrades("BTC", null, null, null, 10);
+        assertEquals(4, trades.trades().size());
+        restart(engine);
+
+        // the same ids and times, the times being those of the journalled orders
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(trades, restored.findTrades("BTC", null, null, null, 10));
+    }
+
+    @Test
+    void replay_whenTheBookWasDeleted() {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT, JournalFsyncPolicy.BATCH);
+        SimpleMatchingEngine engine = start(properties);
+        engine.newOrderBook("ETH");
+        engine.deleteOrderBook("BTC");
+        restart(engine);
+
+        // the default book is only created with the journal
+        SimpleMatchingEngine restored = start(properties);
+        assertThrows(IllegalArgumentException.class, () -> restored.getOrderBook("BTC"));
+        assertNotNull(restored.getOrderBook("ETH"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, SINGLE_WRITER",
+            "OFF_HEAP, SHARDED"
+    })
+    void submit_journalsOnlyTheAcceptedCommands(OrderBookType type, MatchingMode mode) throws IOException {
+        EngineProperties properties = properties(type, mode, JournalFsyncPolicy.BATCH);
+        SimpleMatchingEngine engine = start(properties);
+        Path file = directory.resolve("commands.journal");
+        long size = Files.size(file);
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.05, 20));
+        long accepted = Files.size(file) - size;
+
+        assertThrows(IllegalArgumentException.class, () -> engine.getOrderBook("BTC").submit(
+                order(engine, OrderDirection.BUY, 0, 1, OrderType.MARKET, TimeInForce.GTC)));
+        assertThrows(IllegalArgumentException.class, () -> engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.05)
+                .amount(5)
+                .direction(OrderDirection.SELL)
+                .displayAmount(10)
+                .timestamp(LocalDateTime.now())
+                .build()));
+        // off the lot size
+        assertThrows(IllegalArgumentException.class, () -> engine.amendOrder(0L, null, 10.000000001));
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.06, 20));
+
+        // the second order only, with the same size as the first one
+        assertEquals(size + 2 * accepted, Files.size(file));
+        restart(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(2, restored.findAllLiveOrdersByAsset("BTC", null).size());
+    }
+
+    @Test
+    void replay_truncatesAnIncompleteTail() throws IOException {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT, JournalFsyncPolicy.BATCH);
+        SimpleMatchingEngine engine = start(properties);
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.05, 20));
+        restart(engine);
+
+        // a record cut short by a crash
+        Path file = directory.resolve("commands.journal");
+        long size = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(size, Files.size(file));
+        assertEquals(1, restored.findAllLiveOrdersByAsset("BTC", null).size());
+
+        restored.getOrderBook("BTC").submit(order(restored, "BTC", OrderDirection.SELL, 10.06, 20));
+        restart(restored);
+
+        assertEquals(2, start(properties).findAllLiveOrdersByAsset("BTC", null).size());
+    }
+}
@@ -0,0 +1,291 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.JournalFsyncPolicy;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.BookDepth;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.OrderType;
+import com.tribune.demo.ame.model.Trade;
+import com.tribune.demo.ame.model.TradeRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.tribune.demo.ame.data.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    List<SimpleMatchingEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        engines.forEach(SimpleMatchingEngine::close);
+    }
+
+    private EngineProperties properties(OrderBookType type, MatchingMode mode) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        properties.getMatching().setMode(mode);
+        properties.getJournal().setEnabled(true);
+        properties.getJournal().setDirectory(directory.resolve("journal").toString());
+        properties.getJournal().setFsync(JournalFsyncPolicy.BATCH);
+        properties.getArchive().setDirectory(directory.toString());
+        properties.getSnapshot().setEnabled(true);
+        properties.getSnapshot().setDirectory(directory.resolve("snapshots").toString());
+        properties.getSnapshot().setInterval(Duration.ofHours(1));
+        properties.getSnapshot().setCommands(0);
+        return properties;
+    }
+
+    private SimpleMatchingEngine start(EngineProperties properties) {
+        SimpleMatchingEngine engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        engines.add(engine);
+        return engine;
+    }
+
+    private void stop(SimpleMatchingEngine engine) {
+        engine.close();
+        engines.remove(engine);
+    }
+
+    private List<Path> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("snapshots"))) {
+            return files.sorted().toList();
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, DIRECT",
+            "LADDER, SINGLE_WRITER",
+            "OFF_HEAP, DIRECT"
+    })
+    void restore_loadsTheSnapshotThenReplaysTheRest(OrderBookType type, MatchingMode mode) {
+        EngineProperties properties = properties(type, mode);
+        SimpleMatchingEngine engine = start(properties);
+        new DevBootstrap(engine).init();
+        // partially filled before the snapshot
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.BUY, 10.04, 25));
+        engine.newOrderBook("ETH").submit(order(engine, "ETH", OrderDirection.SELL, 2.5, 3));
+        engine.snapshot();
+
+        engine.cancelOrder(2L);
+        engine.amendOrder(3L, 10.01, null);
+        engine.getOrderBook("ETH").submit(order(engine, "ETH", OrderDirection.BUY, 2.5, 1));
+
+        List<Order> btc = engine.findAllLiveOrdersByAsset("BTC", null);
+        List<Order> eth = engine.findAllLiveOrdersByAsset("ETH", null);
+        List<Order> archived = new ArrayList<>();
+        for (long id = 0; id < 9; id++) {
+            archived.add(engine.findOrderById(id));
+        }
+        stop(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(btc, restored.findAllLiveOrdersByAsset("BTC", null));
+        assertEquals(eth, restored.findAllLiveOrdersByAsset("ETH", null));
+        for (long id = 0; id < 9; id++) {
+            assertEquals(archived.get((int) id), restored.findOrderById(id));
+        }
+        assertEquals(9L, restored.getNextOrderId());
+
+        // the restored book still matches by price and time priority
+        Order sell = restored.getOrderBook("BTC").submit(order(restored, "BTC", OrderDirection.SELL, 10.00, 50));
+        assertEquals(List.of(6L, 4L, 3L), sell.trades().stream().map(Trade::orderId).toList());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, SINGLE_WRITER"
+    })
+    void restore_keepsTheStopOrdersWaitingForTheirTrigger(OrderBookType type, MatchingMode mode) {
+        EngineProperties properties = properties(type, mode);
+        SimpleMatchingEngine engine = start(properties);
+        Order stop = engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .amount(1)
+                .direction(OrderDirection.SELL)
+                .type(OrderType.STOP)
+                .stopPrice(9.0)
+                .timestamp(LocalDateTime.now())
+                .build());
+        engine.snapshot();
+        stop(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(List.of(stop), restored.findAllLiveOrdersByAsset("BTC", null));
+        restored.getOrderBook("BTC").submit(order(restored, "BTC", OrderDirection.BUY, 9.0, 1));
+        restored.getOrderBook("BTC").submit(order(restored, "BTC", OrderDirection.BUY, 8.5, 2));
+        restored.getOrderBook("BTC").submit(order(restored, "BTC", OrderDirection.SELL, 9.0, 1));
+
+        Order triggered = restored.findOrderById(stop.id());
+        assertEquals(OrderStatus.FILLED, triggered.status());
+        assertEquals(List.of(8.5), triggered.trades().stream().map(Trade::price).toList());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, SINGLE_WRITER",
+            "OFF_HEAP, DIRECT"
+    })
+    void restore_keepsTheSliceEachIcebergShows(OrderBookType type, MatchingMode mode) {
+        EngineProperties properties = properties(type, mode);
+        SimpleMatchingEngine engine = start(properties);
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0);
+        Order iceberg = engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.0)
+                .amount(10)
+                .direction(OrderDirection.SELL)
+                .displayAmount(3)
+                .timestamp(time)
+                .build());
+        Order other = engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 2)
+                .withTimestamp(time.plusSeconds(1)));
+        // the iceberg shows its second slice behind the other order
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.BUY, 10.0, 4).withTimestamp(time.plusSeconds(2)));
+        engine.snapshot();
+        List<Order> resting = engine.getOrderBook("BTC").findLiveOrders(null);
+        BookDepth depth = engine.getOrderBook("BTC").getDepth(5);
+        stop(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(resting, restored.getOrderBook("BTC").findLiveOrders(null));
+        assertEquals(depth, restored.getOrderBook("BTC").getDepth(5));
+        Order buy = restored.getOrderBook("BTC").submit(order(restored, "BTC", OrderDirection.BUY, 10.0, 2)
+                .withTimestamp(time.plusSeconds(3)));
+        assertEquals(List.of(new Trade(other.id(), 1, 10.0), new Trade(iceberg.id(), 1, 10.0)), buy.trades());
+    }
+
+    @Test
+    void restore_findsTheOrdersMovedToTheColdTier() {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT);
+        // filled orders leave the heap at once
+        properties.getArchive().setMaxTerminalOrders(0);
+        SimpleMatchingEngine engine = start(properties);
+        Order sell = engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 2));
+        Order buy = engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.BUY, 10.0, 2));
+        Order resting = engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.5, 1));
+        List<Long> ids = List.of(sell.id(), buy.id(), resting.id());
+        List<Order> archived = ids.stream().map(engine::findOrderById).toList();
+        assertEquals(OrderStatus.FILLED, archived.getFirst().status());
+        engine.snapshot();
+        stop(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        assertEquals(archived, ids.stream().map(restored::findOrderById).toList());
+    }
+
+    @Test
+    void restore_skipsTheJournalBeforeTheSnapshot() throws IOException {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT);
+        SimpleMatchingEngine engine = start(properties);
+        new DevBootstrap(engine).init();
+        long position = engine.snapshot();
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.06, 1));
+        List<Order> btc = engine.findAllLiveOrdersByAsset("BTC", null);
+        stop(engine);
+
+        // anything before the snapshot is never read again
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("journal/commands.journal").toFile(), "rw")) {
+            file.write(new byte[(int) position]);
+        }
+
+        assertEquals(btc, start(properties).findAllLiveOrdersByAsset("BTC", null));
+    }
+
+    @Test
+    void restore_continuesTheTradeIdsOfTheLedger() {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT);
+        properties.getLedger().setEnabled(true);
+        SimpleMatchingEngine engine = start(properties);
+        engine.newOrderBook("ETH").submit(order(engine, "ETH", OrderDirection.SELL, 2.5, 3));
+        engine.getOrderBook("ETH").submit(order(engine, "ETH", OrderDirection.BUY, 2.5, 1));
+        engine.snapshot();
+        engine.getOrderBook("ETH").submit(order(engine, "ETH", OrderDirection.BUY, 2.5, 1));
+        stop(engine);
+
+        SimpleMatchingEngine restored = start(properties);
+        // the trade before the snapshot is gone, the one replayed keeps its id
+        assertEquals(List.of(1L), restored.findTrades("ETH", null, null, null, 10).trades().stream()
+                .map(TradeRecord::tradeId).toList());
+        restored.getOrderBook("ETH").submit(order(restored, "ETH", OrderDirection.BUY, 2.5, 1));
+        assertEquals(List.of(1L, 2L), restored.findTrades("ETH", null, null, null, 10).trades().stream()
+                .map(TradeRecord::tradeId).toList());
+        assertEquals(List.of(2L), restored.findTrades("ETH", null, null, 2L, 10).trades().stream()
+                .map(TradeRecord::tradeId).toList());
+    }
+
+    @Test
+    void restore_whenTheLatestSnapshotIsCorrupt() throws IOException {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT);
+        SimpleMatchingEngine engine = start(properties);
+        new DevBootstrap(engine).init();
+        engine.snapshot();
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.06, 1));
+        engine.snapshot();
+        List<Order> btc = engine.findAllLiveOrdersByAsset("BTC", null);
+        stop(engine);
+
+        List<Path> files = snapshotFiles();
+        assertEquals(2, files.size());
+        try (RandomAccessFile file = new RandomAccessFile(files.getLast().toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            file.write(~file.read());
+        }
+
+        // falls back to the older snapshot and replays from there
+        assertEquals(btc, start(properties).findAllLiveOrdersByAsset("BTC", null));
+    }
+
+    @Test
+    void snapshot_afterTheConfiguredNumberOfCommands() throws IOException, InterruptedException {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT);
+        // only the command count can trigger it within the test
+        properties.getSnapshot().setCommands(5);
+        SimpleMatchingEngine engine = start(properties);
+        new DevBootstrap(engine).init();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!Files.isDirectory(directory.resolve("snapshots")) || snapshotFiles().isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void newEngine_whenSnapshotsAreEnabledWithoutTheJournal() {
+        EngineProperties properties = properties(OrderBookType.LADDER, MatchingMode.DIRECT);
+        properties.getJournal().setEnabled(false);
+
+        assertThrows(IllegalArgumentException.class, () -> start(properties));
+    }
+}
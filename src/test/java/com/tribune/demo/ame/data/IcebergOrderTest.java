@@ -0,0 +1,179 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IcebergOrderTest {
+
+    SimpleMatchingEngine engine;
+
+    OrderBook book;
+
+    // one second apart, so time priority never depends on the clock
+    LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    private void start(OrderBookType type) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        book = engine.getOrderBook("BTC");
+    }
+
+    private Order limit(OrderDirection direction, double price, double amount) {
+        return iceberg(direction, price, amount, 0);
+    }
+
+    private Order iceberg(OrderDirection direction, double price, double amount, double displayAmount) {
+        return book.submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(price)
+                .amount(amount)
+                .direction(direction)
+                .displayAmount(displayAmount)
+                .timestamp(time = time.plusSeconds(1))
+                .build());
+    }
+
+    private PriceLevel bestAsk() {
+        return book.getTopOfBook().ask();
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_showsOnlyTheDisplayedSlice(OrderBookType type) {
+        start(type);
+        Order iceberg = iceberg(OrderDirection.SELL, 10.0, 10, 3);
+        assertEquals(10, iceberg.pendingAmount());
+
+        assertEquals(new PriceLevel(10.0, 3, 1), bestAsk());
+        assertEquals(List.of(new PriceLevel(10.0, 3, 1)), book.getDepth(5).asks());
+        Order shown = engine.findAllLiveOrdersByAsset("BTC", null).getFirst();
+        assertEquals(3, shown.amount());
+        assertEquals(3, shown.pendingAmount());
+        assertEquals(0, shown.displayAmount());
+        // the book itself knows the rest
+        Order resting = book.findLiveOrders(null).getFirst();
+        assertEquals(10, resting.pendingAmount());
+        assertEquals(7, resting.hiddenAmount());
+        assertEquals(10, engine.findOrderById(iceberg.id()).pendingAmount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void match_refillsTheSliceBehindTheOthersAtItsPrice(OrderBookType type) {
+        start(type);
+        Order iceberg = iceberg(OrderDirection.SELL, 10.0, 10, 3);
+        Order other = limit(OrderDirection.SELL, 10.0, 2);
+
+        Order first = limit(OrderDirection.BUY, 10.0, 4);
+        assertEquals(List.of(new Trade(iceberg.id(), 3, 10.0), new Trade(other.id(), 1, 10.0)), first.trades());
+        assertEquals(new PriceLevel(10.0, 4, 2), bestAsk());
+
+        Order second = limit(OrderDirection.BUY, 10.0, 3);
+        assertEquals(List.of(new Trade(other.id(), 1, 10.0), new Trade(iceberg.id(), 2, 10.0)), second.trades());
+        assertEquals(new PriceLevel(10.0, 1, 1), bestAsk());
+        assertEquals(5, engine.findOrderById(iceberg.id()).pendingAmount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void match_fillsALoneIcebergThroughItsSlices(OrderBookType type) {
+        start(type);
+        Order iceberg = iceberg(OrderDirection.SELL, 10.0, 10, 3);
+
+        Order buy = limit(OrderDirection.BUY, 10.5, 8);
+
+        // one trade, and what is left of the third slice is shown
+        assertEquals(List.of(new Trade(iceberg.id(), 8, 10.0)), buy.trades());
+        assertEquals(new PriceLevel(10.0, 1, 1), bestAsk());
+        assertEquals(1, book.findLiveOrders(null).getFirst().hiddenAmount());
+
+        limit(OrderDirection.BUY, 10.0, 1);
+        assertEquals(new PriceLevel(10.0, 1, 1), bestAsk());
+        assertEquals(0, book.findLiveOrders(null).getFirst().hiddenAmount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void match_whenFillOrKill_countsTheHiddenReserve(OrderBookType type) {
+        start(type);
+        Order iceberg = iceberg(OrderDirection.SELL, 10.0, 10, 3);
+        limit(OrderDirection.SELL, 10.0, 1);
+
+        Order fok = book.submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.0)
+                .amount(9)
+                .direction(OrderDirection.BUY)
+                .timeInForce(TimeInForce.FOK)
+                .timestamp(time = time.plusSeconds(1))
+                .build());
+
+        assertEquals(OrderStatus.FILLED, fok.status());
+        assertEquals(8, fok.trades().stream()
+                .filter(t -> t.orderId() == iceberg.id())
+                .mapToDouble(Trade::amount)
+                .sum());
+        assertEquals(new PriceLevel(10.0, 1, 1), bestAsk());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void amend_reducesTheSliceWithTheRest(OrderBookType type) {
+        start(type);
+        Order iceberg = iceberg(OrderDirection.BUY, 10.0, 10, 3);
+
+        engine.amendOrder(iceberg.id(), null, 5.0);
+        assertEquals(new PriceLevel(10.0, 3, 1), book.getTopOfBook().bid());
+        engine.amendOrder(iceberg.id(), null, 2.0);
+        assertEquals(new PriceLevel(10.0, 2, 1), book.getTopOfBook().bid());
+
+        // a new price keeps it an iceberg
+        engine.amendOrder(iceberg.id(), 10.5, 8.0);
+        assertEquals(new PriceLevel(10.5, 3, 1), book.getTopOfBook().bid());
+        assertEquals(5, book.findLiveOrders(null).getFirst().hiddenAmount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_whenTheIcebergCannotRest(OrderBookType type) {
+        start(type);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> book.submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.0)
+                .amount(10)
+                .direction(OrderDirection.BUY)
+                .timeInForce(TimeInForce.IOC)
+                .displayAmount(3)
+                .build()));
+        assertEquals("An iceberg order must be a good till cancelled limit order", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> iceberg(OrderDirection.BUY, 10.0, 2, 3));
+        assertEquals("Display amount must not exceed the amount: 3.0", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> iceberg(OrderDirection.BUY, 10.0, 2, -1));
+        assertEquals("Amount must be positive: -1.0", e.getMessage());
+        assertTrue(book.findLiveOrders(null).isEmpty());
+    }
+}
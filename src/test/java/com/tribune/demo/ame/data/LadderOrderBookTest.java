@@ -0,0 +1,303 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.domain.OrderPublisher;
+import com.tribune.demo.ame.impl.FillListener;
+import com.tribune.demo.ame.impl.LadderOrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.impl.TriggeringOrderBook;
+import com.tribune.demo.ame.model.BookDepth;
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.PriceLevel;
+import com.tribune.demo.ame.model.TopOfBook;
+import com.tribune.demo.ame.model.Trade;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.tribune.demo.ame.data.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LadderOrderBookTest {
+
+    MatchingEngine engine;
+    LadderOrderBook book;
+
+    @BeforeEach
+    void setUp() {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(OrderBookType.LADDER);
+
+        OrderPublisher eventBus = new SimpleOrderPublisher();
+        engine = new SimpleMatchingEngine(eventBus, properties);
+        new DevBootstrap(engine).init();
+        book = (LadderOrderBook) ((TriggeringOrderBook) engine.getOrderBook("BTC")).getDelegate();
+    }
+
+    @Test
+    void testDataInitialized() {
+        assertEquals(3, book.orderCount(OrderDirection.SELL));
+        assertEquals(2, book.levelCount(OrderDirection.SELL));
+        assertEquals(3, book.orderCount(OrderDirection.BUY));
+        assertEquals(2, book.levelCount(OrderDirection.BUY));
+    }
+
+    @Test
+    void addBuyOrder_fillsByPriceThenTime() {
+        Order response = book.submit(order(engine, OrderDirection.BUY, 10.06, 55));
+
+        assertEquals(3, response.trades().size());
+        assertEquals(1L, response.trades().get(0).orderId());
+        assertEquals(10.04, response.trades().get(0).price());
+        assertEquals(0L, response.trades().get(1).orderId());
+        assertEquals(20, response.trades().get(1).amount());
+        assertEquals(2L, response.trades().get(2).orderId());
+        assertEquals(15, response.trades().get(2).amount());
+        assertEquals(0, response.pendingAmount());
+
+        // order 2 is filled in place and keeps its place in the queue
+        List<Order> sells = book.findLiveOrders(OrderDirection.SELL);
+        assertEquals(1, sells.size());
+        assertEquals(2L, sells.get(0).id());
+        assertEquals(25, sells.get(0).pendingAmount());
+        assertEquals(25, engine.findOrderById(2L).pendingAmount());
+    }
+
+    @Test
+    void addSellOrder_fillsBestBidFirst() {
+        Order response = book.submit(order(engine, OrderDirection.SELL, 10.0, 55));
+
+        assertEquals(2, response.trades().size());
+        // 10.02 is the best bid, then the earliest of the two 10.00 bids
+        assertEquals(4L, response.trades().get(0).orderId());
+        assertEquals(3L, response.trades().get(1).orderId());
+        assertEquals(15, response.trades().get(1).amount());
+        assertEquals(5, engine.findOrderById(3L).pendingAmount());
+    }
+
+    @Test
+    void partialFills_accumulateOnTheSameRestingOrder() {
+        book.submit(order(engine, OrderDirection.BUY, 10.05, 10));
+        book.submit(order(engine, OrderDirection.BUY, 10.05, 10));
+
+        // order 1 at 10.04 was hit twice
+        assertEquals(0, engine.findOrderById(1L).pendingAmount());
+        assertEquals(2, engine.findOrderById(1L).trades().size());
+    }
+
+    @Test
+    void addOrder_stopsAtLimitAndRestsRemainder() {
+        Order response = book.submit(order(engine, OrderDirection.BUY, 10.04, 30));
+
+        assertEquals(1, response.trades().size());
+        assertEquals(10, response.pendingAmount());
+        assertEquals(3, book.levelCount(OrderDirection.BUY));
+
+        Order best = book.findLiveOrders(OrderDirection.BUY).get(0);
+        assertEquals(response.id(), best.id());
+        assertEquals(10, best.pendingAmount());
+    }
+
+    @Test
+    void addOrder_sweepsTheWholeSide() {
+        Order response = book.submit(order(engine, OrderDirection.BUY, 11, 100));
+
+        assertEquals(3, response.trades().size());
+        assertEquals(20, response.pendingAmount());
+        assertEquals(0, book.levelCount(OrderDirection.SELL));
+        assertEquals(4, book.orderCount(OrderDirection.BUY));
+    }
+
+    @Test
+    void findLiveOrders_returnsPriceOrder() {
+        List<Order> orders = book.findLiveOrders(null);
+
+        assertEquals(6, orders.size());
+        assertEquals(List.of(4L, 3L, 5L, 1L, 0L, 2L), orders.stream().map(Order::id).toList());
+    }
+
+    @Test
+    void partialFills_leaveNoDust() {
+        Order sell = order(engine, OrderDirection.SELL, 10.03, 0.3);
+        book.submit(sell);
+        for (int i = 0; i < 3; i++) {
+            book.submit(order(engine, OrderDirection.BUY, 10.03, 0.1));
+        }
+
+        // 0.3 - 0.1 - 0.1 - 0.1 is not 0 in doubles
+        assertEquals(0.0, engine.findOrderById(sell.id()).pendingAmount());
+        assertEquals(2, book.levelCount(OrderDirection.SELL));
+    }
+
+    @Test
+    void cancel_removesTheEntryAndItsEmptyLevel() {
+        Order cancelled = book.cancel(1L);
+
+        assertEquals(OrderStatus.CANCELLED, cancelled.status());
+        assertEquals(1, book.levelCount(OrderDirection.SELL));
+        assertEquals(OrderStatus.CANCELLED, engine.findOrderById(1L).status());
+        assertEquals(0, engine.findOrderById(1L).pendingAmount());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> book.cancel(1L));
+        assertEquals("Order is not live: 1", e.getMessage());
+    }
+
+    @Test
+    void amend_whenReducingTheAmount_keepsTimePriority() {
+        Order amended = engine.amendOrder(0L, null, 5.0);
+        assertEquals(5, amended.pendingAmount());
+        assertEquals(5, engine.findOrderById(0L).amount());
+
+        Order response = book.submit(order(engine, OrderDirection.BUY, 10.05, 25));
+
+        assertEquals(List.of(1L, 0L), response.trades().stream().map(Trade::orderId).toList());
+        assertEquals(OrderStatus.FILLED, engine.findOrderById(0L).status());
+        assertEquals(List.of(2L), book.findLiveOrders(OrderDirection.SELL).stream().map(Order::id).toList());
+    }
+
+    @Test
+    void amend_whenIncreasingTheAmount_losesTimePriority() {
+        engine.amendOrder(3L, null, 30.0);
+
+        assertEquals(List.of(4L, 5L, 3L), book.findLiveOrders(OrderDirection.BUY).stream().map(Order::id).toList());
+        assertEquals(30, engine.findOrderById(3L).pendingAmount());
+    }
+
+    @Test
+    void amend_whenCrossingTheSpread_trades() {
+        Order amended = engine.amendOrder(5L, 10.04, null);
+
+        assertEquals(1, amended.trades().size());
+        assertEquals(1L, amended.trades().get(0).orderId());
+        assertEquals(20, amended.pendingAmount());
+
+        Order archived = engine.findOrderById(5L);
+        assertEquals(10.04, archived.price());
+        assertEquals(40, archived.amount());
+        assertEquals(20, archived.pendingAmount());
+        assertEquals(1, archived.trades().size());
+        assertEquals(OrderStatus.FILLED, engine.findOrderById(1L).status());
+        assertEquals(5L, book.findLiveOrders(OrderDirection.BUY).get(0).id());
+    }
+
+    @Test
+    void amendOrder_whenNothingToAmend() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> engine.amendOrder(0L, null, null));
+        assertEquals("Nothing to amend for order: 0", e.getMessage());
+    }
+
+    @Test
+    void getDepth_followsFillsAndCancels() {
+        BookDepth depth = book.getDepth(10);
+        assertEquals(List.of(new PriceLevel(10.04, 20, 1), new PriceLevel(10.05, 60, 2)), depth.asks());
+        assertEquals(List.of(new PriceLevel(10.02, 40, 1), new PriceLevel(10.00, 60, 2)), depth.bids());
+
+        book.submit(order(engine, OrderDirection.BUY, 10.04, 5));
+        assertEquals(new PriceLevel(10.04, 15, 1), book.getTopOfBook().ask());
+
+        book.submit(order(engine, OrderDirection.BUY, 10.05, 25));
+        book.cancel(2L);
+        assertEquals(List.of(new PriceLevel(10.05, 10, 1)), book.getDepth(10).asks());
+
+        TopOfBook top = book.getTopOfBook();
+        assertEquals(new PriceLevel(10.02, 40, 1), top.bid());
+        assertEquals(new PriceLevel(10.05, 10, 1), top.ask());
+        assertEquals(1, engine.getDepth("BTC", 1).bids().size());
+    }
+
+    @Test
+    void pooledBook_recyclesFilledEntries() {
+        LadderOrderBook pooled = new LadderOrderBook(Instrument.of("BTC"), new SimpleOrderPublisher(), 2);
+        List<Long> filled = new ArrayList<>();
+        FillListener listener = (restingId, price, amount, restingRemaining) -> filled.add(restingId);
+
+        pooled.match(1, OrderDirection.SELL, 1000, 5, listener);
+        pooled.match(2, OrderDirection.SELL, 1000, 5, listener);
+        assertEquals(0, pooled.idleEntries());
+
+        assertEquals(0, pooled.match(3, OrderDirection.BUY, 1000, 7, listener));
+        assertEquals(List.of(1L, 2L), filled);
+        assertEquals(1, pooled.idleEntries());
+
+        // the recycled entry rests the next order, and still reports the right remainder
+        assertEquals(4, pooled.match(4, OrderDirection.BUY, 999, 4, listener));
+        assertEquals(0, pooled.idleEntries());
+        List<Order> buys = pooled.findLiveOrders(OrderDirection.BUY);
+        assertEquals(4L, buys.get(0).id());
+        assertEquals(0.00000004, buys.get(0).pendingAmount());
+        assertEquals(0.00000003, pooled.findLiveOrders(OrderDirection.SELL).get(0).pendingAmount());
+    }
+
+    @Test
+    void match_opensAndClosesLevelsInAnyOrder() {
+        LadderOrderBook ladder = new LadderOrderBook(Instrument.of("BTC"), new SimpleOrderPublisher());
+        List<Long> prices = new ArrayList<>();
+        FillListener listener = (restingId, price, amount, restingRemaining) -> prices.add(price);
+        // more levels than the ladder starts with room for, opened out of price order
+        List<Long> opened = new ArrayList<>();
+        for (long price = 1000; price < 1200; price += 2) {
+            opened.add(price);
+        }
+        Collections.shuffle(opened, new Random(7));
+        for (long price : opened) {
+            ladder.match(price, OrderDirection.SELL, price, 1, listener);
+        }
+        assertEquals(100, ladder.levelCount(OrderDirection.SELL));
+
+        // a level closed in the middle, then opened again between its neighbours
+        ladder.cancel(1100);
+        ladder.match(1101, OrderDirection.SELL, 1101, 1, listener);
+        assertEquals(100, ladder.levelCount(OrderDirection.SELL));
+
+        assertEquals(0, ladder.match(1, OrderDirection.BUY, 1200, 100, listener));
+        List<Long> expected = new ArrayList<>(opened.stream().filter(price -> price != 1100).sorted().toList());
+        expected.add(expected.indexOf(1102L), 1101L);
+        assertEquals(expected, prices);
+        assertEquals(0, ladder.levelCount(OrderDirection.SELL));
+        assertNull(ladder.getTopOfBook().ask());
+    }
+
+    @Test
+    void submit_whenPriceIsOffTheTickGrid() {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(OrderBookType.LADDER);
+        EngineProperties.InstrumentSettings btc = new EngineProperties.InstrumentSettings();
+        btc.setTickSize(new BigDecimal("0.01"));
+        btc.setLotSize(new BigDecimal("0.001"));
+        properties.getInstruments().put("BTC", btc);
+        engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> engine.getOrderBook("BTC").submit(order(engine, OrderDirection.BUY, 10.005, 1)));
+        assertEquals("Price 10.005 is not a multiple of 0.01 for asset BTC", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class,
+                () -> engine.getOrderBook("BTC").submit(order(engine, OrderDirection.BUY, 10.01, 0.0005)));
+        assertEquals("Amount 0.0005 is not a multiple of 0.001 for asset BTC", e.getMessage());
+    }
+
+    @Test
+    void submit_whenAssetIsInvalid() {
+        Order order = Order.builder()
+                .asset("ETH")
+                .price(10.06)
+                .amount(55.0)
+                .direction(OrderDirection.BUY)
+                .build();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> book.submit(order));
+        assertEquals("This asset doesn't belong to this order book.", e.getMessage());
+    }
+}
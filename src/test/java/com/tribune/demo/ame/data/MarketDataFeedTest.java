@@ -0,0 +1,197 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.FeedListener;
+import com.tribune.demo.ame.impl.MarketDataFeed;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataFeedTest {
+
+    SimpleMatchingEngine engine;
+
+    MarketDataFeed feed;
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+        engine.close();
+    }
+
+    private void start(OrderBookType type, MatchingMode mode, int subscriberCapacity) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        properties.getMatching().setMode(mode);
+        properties.getFeed().setEnabled(true);
+        properties.getFeed().setInterval(Duration.ofMillis(5));
+        properties.getFeed().setSubscriberCapacity(subscriberCapacity);
+        SimpleOrderPublisher publisher = new SimpleOrderPublisher();
+        engine = new SimpleMatchingEngine(publisher, properties);
+        feed = new MarketDataFeed(publisher, engine, properties);
+    }
+
+    private Order submit(OrderDirection direction, double price, double amount) {
+        return engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(price)
+                .amount(amount)
+                .direction(direction)
+                .timestamp(LocalDateTime.now())
+                .build());
+    }
+
+    private static FeedMessage next(BlockingQueue<FeedMessage> messages) throws InterruptedException {
+        FeedMessage message = messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message, "no message");
+        return message;
+    }
+
+    private static void awaitClosed(MarketDataFeed.Subscription subscription) throws InterruptedException {
+        for (int i = 0; i < 500 && subscription.isOpen(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(subscription.isOpen());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, DIRECT",
+            "LADDER, SINGLE_WRITER"
+    })
+    void subscribe_streamsASnapshotAndThenTradesAndDepthInSequence(OrderBookType type, MatchingMode mode)
+            throws InterruptedException {
+        start(type, mode, 1024);
+        Order sell = submit(OrderDirection.SELL, 10.0, 5);
+        BlockingQueue<FeedMessage> messages = new LinkedBlockingQueue<>();
+        feed.subscribe("BTC", messages::add);
+
+        DepthUpdate snapshot = (DepthUpdate) next(messages);
+        assertTrue(snapshot.snapshot());
+        assertEquals(0, snapshot.sequence());
+        assertEquals(List.of(new PriceLevel(10.0, 5, 1)), snapshot.asks());
+        assertTrue(snapshot.bids().isEmpty());
+
+        Order buy = submit(OrderDirection.BUY, 10.0, 2);
+        TradeTick trade = (TradeTick) next(messages);
+        assertEquals(new TradeTick("BTC", 1, buy.id(), sell.id(), OrderDirection.BUY, 10.0, 2, trade.timestamp()), trade);
+        DepthUpdate fill = (DepthUpdate) next(messages);
+        assertFalse(fill.snapshot());
+        assertEquals(2, fill.sequence());
+        assertEquals(List.of(new PriceLevel(10.0, 3, 1)), fill.asks());
+
+        engine.cancelOrder(sell.id());
+        submit(OrderDirection.BUY, 9.5, 1);
+        // both changes coalesced into one update, or one each
+        DepthUpdate update = (DepthUpdate) next(messages);
+        assertEquals(3, update.sequence());
+        if (update.bids().isEmpty()) {
+            assertEquals(List.of(new PriceLevel(10.0, 0, 0)), update.asks());
+            update = (DepthUpdate) next(messages);
+            assertEquals(4, update.sequence());
+        }
+        assertEquals(List.of(new PriceLevel(9.5, 1, 1)), update.bids());
+        assertEquals(1, feed.subscriberCount());
+    }
+
+    @Test
+    void subscribe_replacesTheBacklogOfASlowSubscriberWithASnapshot() throws InterruptedException {
+        start(OrderBookType.LADDER, MatchingMode.DIRECT, 2);
+        CountDownLatch released = new CountDownLatch(1);
+        BlockingQueue<FeedMessage> messages = new LinkedBlockingQueue<>();
+        feed.subscribe("BTC", message -> {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(message);
+        });
+        // a fast subscriber of the same asset is not held up
+        BlockingQueue<FeedMessage> fast = new LinkedBlockingQueue<>();
+        feed.subscribe("BTC", fast::add);
+        assertTrue(((DepthUpdate) next(fast)).snapshot());
+
+        for (int i = 0; i < 20; i++) {
+            submit(OrderDirection.SELL, 10.0 + i, 1);
+            submit(OrderDirection.BUY, 10.0 + i, 1);
+        }
+        // every trade reached the fast subscriber, or the snapshot taken in their place
+        FeedMessage last = next(fast);
+        for (FeedMessage message = last; message != null; message = fast.poll(200, TimeUnit.MILLISECONDS)) {
+            last = message;
+        }
+        assertTrue(last.sequence() >= 20);
+        released.countDown();
+
+        // the first snapshot, then a snapshot in place of the backlog
+        assertTrue(((DepthUpdate) next(messages)).snapshot());
+        FeedMessage message;
+        do {
+            message = next(messages);
+        } while (!(message instanceof DepthUpdate update && update.snapshot()));
+        assertTrue(message.sequence() > 2);
+    }
+
+    @Test
+    void subscribe_whenTheAssetHasNoBook() {
+        start(OrderBookType.LADDER, MatchingMode.DIRECT, 1024);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> feed.subscribe("XRP", message -> {
+        }));
+        assertEquals("OrderBook not found: XRP", e.getMessage());
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    void deleteOrderBook_endsItsSubscriptions() throws InterruptedException {
+        start(OrderBookType.LADDER, MatchingMode.DIRECT, 1024);
+        engine.newOrderBook("ETH");
+        CountDownLatch closed = new CountDownLatch(1);
+        MarketDataFeed.Subscription subscription = feed.subscribe("ETH", new FeedListener() {
+            @Override
+            public void onMessage(FeedMessage message) {
+            }
+
+            @Override
+            public void onClose() {
+                closed.countDown();
+            }
+        });
+
+        engine.deleteOrderBook("ETH");
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        awaitClosed(subscription);
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    void subscribe_whenTheListenerFails() throws InterruptedException {
+        start(OrderBookType.LADDER, MatchingMode.DIRECT, 1024);
+        MarketDataFeed.Subscription subscription = feed.subscribe("BTC", message -> {
+            throw new IllegalStateException("Client went away");
+        });
+
+        awaitClosed(subscription);
+        assertEquals(0, feed.subscriberCount());
+    }
+}
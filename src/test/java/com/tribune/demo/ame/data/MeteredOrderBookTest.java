@@ -0,0 +1,117 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.MeteredOrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.OrderDirection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tribune.demo.ame.data.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeteredOrderBookTest {
+
+    SimpleMeterRegistry registry;
+
+    SimpleOrderPublisher publisher;
+
+    List<SimpleMatchingEngine> engines = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        publisher = new SimpleOrderPublisher();
+        publisher.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engines.forEach(SimpleMatchingEngine::close);
+    }
+
+    private SimpleMatchingEngine start(OrderBookType type, MatchingMode mode, boolean metered) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        properties.getMatching().setMode(mode);
+        properties.getMetrics().setEnabled(metered);
+        SimpleMatchingEngine engine = new SimpleMatchingEngine(publisher, properties);
+        engines.add(engine);
+        engine.bindTo(registry);
+        return engine;
+    }
+
+    private long latencyCount(String asset, String stage) {
+        return registry.get("ame.book.latency").tag("asset", asset).tag("stage", stage).timer().count();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, DIRECT",
+            "LADDER, SINGLE_WRITER",
+            "LADDER, SHARDED"
+    })
+    void submit_recordsTheLatencyAndTrades(OrderBookType type, MatchingMode mode) {
+        SimpleMatchingEngine engine = start(type, mode, true);
+        OrderBook book = engine.getOrderBook("BTC");
+        book.submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 5));
+        book.submit(order(engine, "BTC", OrderDirection.SELL, 10.5, 5));
+        book.submit(order(engine, "BTC", OrderDirection.BUY, 10.5, 7));
+        book.submit(order(engine, "BTC", OrderDirection.BUY, 9.0, 1));
+
+        for (String stage : List.of("matching", "publishing", "total")) {
+            assertEquals(4, latencyCount("BTC", stage), stage);
+        }
+        // only a worker queues orders
+        assertEquals(mode == MatchingMode.DIRECT ? 0 : 4, latencyCount("BTC", "queueing"));
+        assertEquals(2, registry.get("ame.book.trades").tag("asset", "BTC").counter().count());
+        assertEquals(7, registry.get("ame.book.volume").tag("asset", "BTC").counter().count());
+        assertEquals(1, registry.get("ame.book.orders").tag("asset", "BTC").tag("side", "sell").gauge().value());
+        assertEquals(1, registry.get("ame.book.orders").tag("asset", "BTC").tag("side", "buy").gauge().value());
+        assertEquals(1, registry.get("ame.book.levels").tag("asset", "BTC").tag("side", "sell").gauge().value());
+    }
+
+    @Test
+    void deleteOrderBook_removesItsMeters() {
+        SimpleMatchingEngine engine = start(OrderBookType.LADDER, MatchingMode.DIRECT, true);
+        engine.newOrderBook("ETH").submit(order(engine, "ETH", OrderDirection.SELL, 2.5, 3));
+        assertEquals(1, latencyCount("ETH", "total"));
+
+        engine.deleteOrderBook("ETH");
+
+        assertTrue(registry.find("ame.book.latency").tag("asset", "ETH").timers().isEmpty());
+        assertNull(registry.find("ame.book.orders").tag("asset", "ETH").gauge());
+        assertEquals(0, latencyCount("BTC", "total"));
+    }
+
+    @Test
+    void publish_recordsTheDispatchTimeOfEverySubscriber() {
+        SimpleMatchingEngine engine = start(OrderBookType.LADDER, MatchingMode.DIRECT, false);
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 5));
+
+        assertEquals(1, registry.get("ame.events.dispatch")
+                .tag("type", "SAVE_OR_UPDATE_ORDER")
+                .tag("subscriber", "SimpleMatchingEngine")
+                .timer().count());
+    }
+
+    @Test
+    void newEngine_whenMetricsAreDisabled() {
+        SimpleMatchingEngine engine = start(OrderBookType.LADDER, MatchingMode.DIRECT, false);
+
+        assertFalse(engine.getOrderBook("BTC") instanceof MeteredOrderBook);
+        assertNull(registry.find("ame.book.latency").timer());
+    }
+}
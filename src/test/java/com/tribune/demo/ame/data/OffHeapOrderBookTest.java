@@ -0,0 +1,112 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.impl.FillListener;
+import com.tribune.demo.ame.impl.OffHeapOrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.impl.TriggeringOrderBook;
+import com.tribune.demo.ame.model.Instrument;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.PriceLevel;
+import com.tribune.demo.ame.model.Trade;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.tribune.demo.ame.data.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapOrderBookTest {
+
+    MatchingEngine engine;
+    OffHeapOrderBook book;
+
+    @BeforeEach
+    void setUp() {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(OrderBookType.OFF_HEAP);
+
+        engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        new DevBootstrap(engine).init();
+        book = (OffHeapOrderBook) ((TriggeringOrderBook) engine.getOrderBook("BTC")).getDelegate();
+    }
+
+    @Test
+    void addBuyOrder_fillsByPriceThenTime() {
+        Order response = book.submit(order(engine, OrderDirection.BUY, 10.06, 55));
+
+        assertEquals(List.of(new Trade(1L, 20, 10.04), new Trade(0L, 20, 10.05), new Trade(2L, 15, 10.05)),
+                response.trades());
+        assertEquals(0, response.pendingAmount());
+
+        // order 2 is filled in place and keeps its slot
+        List<Order> sells = book.findLiveOrders(OrderDirection.SELL);
+        assertEquals(1, sells.size());
+        assertEquals(2L, sells.getFirst().id());
+        assertEquals(25, sells.getFirst().pendingAmount());
+        assertEquals(4, book.slotsInUse());
+    }
+
+    @Test
+    void findLiveOrders_rebuildsTheOrdersAsSubmitted() {
+        Order submitted = order(engine, OrderDirection.SELL, 10.07, 3);
+        book.submit(submitted);
+
+        Order resting = book.findLiveOrders(OrderDirection.SELL).getLast();
+        assertEquals(submitted.withPendingAmount(3), resting);
+        assertEquals(submitted.withPendingAmount(3), engine.findAllLiveOrdersByAsset("BTC", "SELL").getLast());
+    }
+
+    @Test
+    void cancel_freesTheSlotForTheNextOrder() {
+        Order cancelled = engine.cancelOrder(2L);
+        assertEquals(OrderStatus.CANCELLED, cancelled.status());
+        assertEquals(40, cancelled.amount());
+        assertEquals(5, book.slotsInUse());
+
+        book.submit(order(engine, OrderDirection.SELL, 10.08, 1));
+        assertEquals(6, book.slotsInUse());
+        assertEquals(new PriceLevel(10.05, 20, 1), book.getDepth(5).asks().get(1));
+    }
+
+    @Test
+    void amend_whenReducingTheAmount_keepsTimePriority() {
+        engine.amendOrder(0L, null, 5.0);
+
+        Order response = book.submit(order(engine, OrderDirection.BUY, 10.05, 30));
+        assertEquals(List.of(new Trade(1L, 20, 10.04), new Trade(0L, 5, 10.05), new Trade(2L, 5, 10.05)),
+                response.trades());
+    }
+
+    @Test
+    void amend_whenIncreasingTheAmount_losesTimePriority() {
+        engine.amendOrder(0L, null, 30.0);
+
+        Order response = book.submit(order(engine, OrderDirection.BUY, 10.05, 75));
+        assertEquals(List.of(new Trade(1L, 20, 10.04), new Trade(2L, 40, 10.05), new Trade(0L, 15, 10.05)),
+                response.trades());
+    }
+
+    @Test
+    void match_reusesTheSlotsOfFilledOrders() {
+        OffHeapOrderBook slab = new OffHeapOrderBook(Instrument.of("ETH"), new SimpleOrderPublisher(), 4);
+        FillListener ignored = (restingId, price, amount, restingRemaining) -> {
+        };
+        for (int round = 0; round < 1_000; round++) {
+            for (int i = 0; i < 4; i++) {
+                slab.match(round * 8L + i, OrderDirection.SELL, 100 + i, 1, ignored);
+            }
+            assertEquals(0, slab.match(round * 8L + 4, OrderDirection.BUY, 103, 4, ignored));
+        }
+
+        // a single slab of four slots held them all
+        assertEquals(0, slab.slotsInUse());
+        assertEquals(4L * 80, slab.reservedBytes());
+    }
+}
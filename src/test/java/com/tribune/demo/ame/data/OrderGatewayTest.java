@@ -0,0 +1,153 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.gateway.ExecutionReport;
+import com.tribune.demo.ame.gateway.GatewayClient;
+import com.tribune.demo.ame.gateway.GatewayProtocol;
+import com.tribune.demo.ame.gateway.OrderGateway;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderGatewayTest {
+
+    SimpleMatchingEngine engine;
+
+    OrderGateway gateway;
+
+    GatewayClient client;
+
+    int btc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(OrderBookType.LADDER);
+        properties.getMatching().setMode(MatchingMode.SINGLE_WRITER);
+        properties.getGateway().setPort(0);
+        EngineProperties.InstrumentSettings settings = new EngineProperties.InstrumentSettings();
+        settings.setTickSize(new BigDecimal("0.01"));
+        settings.setLotSize(new BigDecimal("0.1"));
+        properties.getInstruments().put("BTC", settings);
+
+        engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        engine.newOrderBook("ETH");
+        btc = engine.getOrderBooks().getFirst().assetId();
+        gateway = new OrderGateway(engine, properties);
+        client = new GatewayClient("localhost", gateway.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        gateway.close();
+        engine.close();
+    }
+
+    @Test
+    void submit_matchesAndReportsTheFills() throws IOException {
+        ExecutionReport sell = client.submit(1, btc, OrderDirection.SELL, 1000, 50);
+        assertEquals(1, sell.clientOrderId());
+        assertEquals(OrderStatus.OPEN, sell.status());
+        assertEquals(50, sell.pendingAmount());
+        assertTrue(sell.fills().isEmpty());
+
+        ExecutionReport buy = client.submit(2, btc, OrderDirection.BUY, 1001, 30);
+        assertEquals(OrderStatus.FILLED, buy.status());
+        assertEquals(0, buy.pendingAmount());
+        assertEquals(List.of(new ExecutionReport.Fill(sell.orderId(), 1000, 30)), buy.fills());
+
+        // the same book as the REST API
+        Order resting = engine.findOrderById(sell.orderId());
+        assertEquals(10.0, resting.price());
+        assertEquals(2.0, resting.pendingAmount());
+    }
+
+    @Test
+    void send_answersPipelinedRequestsInOrder() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            client.sendNewOrder(i, btc, i % 2 == 0 ? OrderDirection.SELL : OrderDirection.BUY, 1000, 10);
+        }
+        client.flush();
+
+        for (int i = 0; i < 100; i++) {
+            ExecutionReport report = client.receive();
+            assertEquals(i, report.clientOrderId());
+            assertEquals(i % 2 == 0 ? OrderStatus.OPEN : OrderStatus.FILLED, report.status());
+        }
+        assertTrue(engine.findAllLiveOrdersByAsset("BTC", null).isEmpty());
+    }
+
+    @Test
+    void cancelAndAmend() throws IOException {
+        ExecutionReport sell = client.submit(1, btc, OrderDirection.SELL, 1000, 50);
+
+        ExecutionReport amended = client.amend(2, sell.orderId(), GatewayProtocol.KEEP, 20);
+        assertEquals(2, amended.clientOrderId());
+        assertEquals(1000, amended.price());
+        assertEquals(20, amended.pendingAmount());
+
+        ExecutionReport cancelled = client.cancel(3, sell.orderId());
+        assertEquals(OrderStatus.CANCELLED, cancelled.status());
+        assertEquals(0, cancelled.pendingAmount());
+    }
+
+    @Test
+    void submit_whenTheEngineRefusesTheRequest() throws IOException {
+        ExecutionReport unknownAsset = client.submit(1, 99, OrderDirection.SELL, 1000, 50);
+        assertEquals("OrderBook not found: #99", unknownAsset.rejectReason());
+
+        ExecutionReport unknownOrder = client.cancel(2, 12345);
+        assertTrue(unknownOrder.rejected());
+        assertEquals(2, unknownOrder.clientOrderId());
+
+        ExecutionReport badAmount = client.submit(3, btc, OrderDirection.SELL, 1000, 0);
+        assertTrue(badAmount.rejected());
+
+        // the connection is still usable
+        assertFalse(client.submit(4, btc, OrderDirection.SELL, 1000, 50).rejected());
+    }
+
+    @Test
+    void amend_whenThePriceOrAmountIsNotPositive() throws IOException {
+        ExecutionReport sell = client.submit(1, btc, OrderDirection.SELL, 1000, 50);
+
+        for (long[] amendment : new long[][]{{0, 20}, {-2, 20}, {GatewayProtocol.KEEP, 0}, {1000, -5}}) {
+            ExecutionReport refused = client.amend(2, sell.orderId(), amendment[0], amendment[1]);
+            assertEquals("Price and amount must be positive", refused.rejectReason());
+            assertEquals(2, refused.clientOrderId());
+        }
+
+        // still resting as submitted
+        ExecutionReport amended = client.amend(3, sell.orderId(), GatewayProtocol.KEEP, 40);
+        assertFalse(amended.rejected());
+        assertEquals(1000, amended.price());
+        assertEquals(40, amended.pendingAmount());
+    }
+
+    @Test
+    void invalidFrame_closesTheConnection() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", gateway.getPort()))) {
+            channel.write(ByteBuffer.allocate(8).putInt(1).put((byte) 42).flip());
+
+            assertEquals(-1, channel.read(ByteBuffer.allocate(8)));
+        }
+        assertFalse(client.submit(1, btc, OrderDirection.SELL, 1000, 50).rejected());
+    }
+}
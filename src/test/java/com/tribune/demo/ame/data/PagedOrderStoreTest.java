@@ -0,0 +1,114 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.impl.PagedOrderStore;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedOrderStoreTest {
+
+    private static Order order(long id) {
+        return Order.builder()
+                .id(id)
+                .asset("BTC")
+                .price(10.05)
+                .amount(5)
+                .direction(OrderDirection.SELL)
+                .timestamp(LocalDateTime.of(2024, 3, 1, 12, 30))
+                .build();
+    }
+
+    @Test
+    void get_findsOrdersByIdAcrossPages() {
+        PagedOrderStore store = new PagedOrderStore(3);
+        for (long id = 0; id < 10; id++) {
+            assertNull(store.put(order(id)));
+        }
+        assertEquals(order(0), store.put(order(0).withPendingAmount(1)));
+        assertEquals(1, store.get(0).pendingAmount());
+
+        // three orders a page, rounded up to four
+        assertEquals(3, store.pages());
+        assertEquals(10, store.size());
+        assertEquals(order(9), store.get(9));
+        assertNull(store.get(10));
+        assertNull(store.get(1_000_000));
+        assertNull(store.get(-1));
+        assertEquals(LongStream.range(0, 10).boxed().toList(),
+                store.values().stream().map(Order::id).sorted().toList());
+    }
+
+    @Test
+    void computeIfPresent_recyclesThePagesOfRetiredRanges() {
+        PagedOrderStore store = new PagedOrderStore(4);
+        for (long id = 0; id < 12; id++) {
+            store.put(order(id));
+        }
+
+        assertNull(store.computeIfPresent(12, order -> order.withPendingAmount(0)));
+        assertEquals(0, store.computeIfPresent(3, order -> order.withPendingAmount(0)).pendingAmount());
+
+        // the first two ranges empty, the newest page is kept however empty
+        for (long id = 0; id < 12; id++) {
+            assertNull(store.computeIfPresent(id, order -> null));
+        }
+        assertEquals(1, store.pages());
+        assertEquals(2, store.sparePages());
+        assertEquals(0, store.size());
+
+        // the next range reuses a spare page, and an id archived late gets its range a page again
+        store.put(order(12));
+        store.put(order(2));
+        assertEquals(3, store.pages());
+        assertEquals(0, store.sparePages());
+        assertEquals(order(12), store.get(12));
+        assertEquals(order(2), store.get(2));
+        assertNull(store.get(1));
+    }
+
+    @Test
+    void put_fromSeveralThreads_keepsEveryOrder() throws Exception {
+        PagedOrderStore store = new PagedOrderStore(16);
+        int threads = 4;
+        int perThread = 10_000;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                writers.add(executor.submit(() -> {
+                    // interleaved ids, so the threads share pages and grow the directory together
+                    for (long id = first; id < (long) threads * perThread; id += threads) {
+                        store.put(order(id));
+                        if (id % 3 == 0) {
+                            store.computeIfPresent(id, order -> null);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        }
+
+        assertEquals(store.values().size(), store.size());
+        for (long id = 0; id < (long) threads * perThread; id++) {
+            assertEquals(id % 3 == 0 ? null : order(id), store.get(id));
+        }
+    }
+
+    @Test
+    void constructor_rejectsAnEmptyPage() {
+        assertThrows(IllegalArgumentException.class, () -> new PagedOrderStore(0));
+    }
+}
@@ -0,0 +1,150 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.impl.SingleWriterOrderBook;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.ShardInfo;
+import com.tribune.demo.ame.model.Trade;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.tribune.demo.ame.data.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedMatchingEngineTest {
+
+    SimpleMatchingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(OrderBookType.LADDER);
+        properties.getMatching().setMode(MatchingMode.SHARDED);
+        properties.getMatching().setShards(3);
+        properties.getMatching().setRingSize(8);
+        properties.getMatching().getShardAssignments().put("BTC", 2);
+
+        engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void newOrderBook_isOwnedByItsShard() {
+        for (int i = 0; i < 30; i++) {
+            engine.newOrderBook("A" + i);
+        }
+
+        SingleWriterOrderBook btc = (SingleWriterOrderBook) engine.getOrderBook("BTC");
+        assertEquals("ame-shard-2", btc.getWorker().getName());
+        assertEquals(Math.floorMod("A7".hashCode(), 3), engine.getOrderBooks().stream()
+                .filter(book -> book.asset().equals("A7"))
+                .findFirst().orElseThrow().shard());
+
+        List<ShardInfo> shards = engine.getShards();
+        assertEquals(3, shards.size());
+        assertEquals(31, shards.stream().mapToInt(shard -> shard.assets().size()).sum());
+        assertTrue(shards.get(2).assets().contains("BTC"));
+    }
+
+    @Test
+    void deleteOrderBook_keepsTheShardRunning() {
+        engine.newOrderBook("ETH");
+        engine.moveOrderBook("ETH", 2);
+        assertTrue(engine.deleteOrderBook("ETH"));
+
+        OrderBook btc = engine.getOrderBook("BTC");
+        btc.submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 5));
+        Order buy = btc.submit(order(engine, "BTC", OrderDirection.BUY, 10.0, 3));
+        assertEquals(1, buy.trades().size());
+        assertEquals(2, engine.getShards().get(2).commands());
+    }
+
+    @Test
+    void moveOrderBook_whileOrdersAreSubmitted() throws Exception {
+        OrderBook book = engine.getOrderBook("BTC");
+        int threads = 4;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Double>> filled = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            OrderDirection direction = t % 2 == 0 ? OrderDirection.BUY : OrderDirection.SELL;
+            filled.add(executor.submit(() -> {
+                start.await();
+                double total = 0;
+                for (int i = 0; i < perThread; i++) {
+                    Order response = book.submit(order(engine, "BTC", direction, 100 + (i % 3), 1));
+                    total += response.trades().stream().mapToDouble(Trade::amount).sum();
+                }
+                return total;
+            }));
+        }
+        AtomicBoolean moving = new AtomicBoolean(true);
+        Future<?> mover = executor.submit(() -> {
+            start.await();
+            for (int i = 0; moving.get(); i++) {
+                engine.moveOrderBook("BTC", i % 3);
+            }
+            return null;
+        });
+        start.countDown();
+
+        double traded = 0;
+        for (Future<Double> f : filled) {
+            traded += f.get(30, TimeUnit.SECONDS);
+        }
+        moving.set(false);
+        mover.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // no fill was lost or applied twice while the book changed hands
+        double resting = book.findLiveOrders(null).stream().mapToDouble(Order::pendingAmount).sum();
+        assertEquals(threads * perThread, 2 * traded + resting);
+        List<Order> buys = book.findLiveOrders(OrderDirection.BUY);
+        List<Order> sells = book.findLiveOrders(OrderDirection.SELL);
+        if (!buys.isEmpty() && !sells.isEmpty()) {
+            assertTrue(buys.get(0).price() < sells.get(0).price());
+        }
+    }
+
+    @Test
+    void moveOrderBook_whenTheShardIsUnknown() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> engine.moveOrderBook("BTC", 3));
+        assertEquals("Shard must be between 0 and 2: 3", e.getMessage());
+    }
+
+    @Test
+    void moveOrderBook_whenNotSharded() {
+        SimpleMatchingEngine direct = new SimpleMatchingEngine(new SimpleOrderPublisher());
+
+        assertThrows(IllegalArgumentException.class, () -> direct.moveOrderBook("BTC", 0));
+        assertTrue(direct.getShards().isEmpty());
+    }
+
+    @Test
+    void bindTo_registersTheShardMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        engine.bindTo(registry);
+        engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 5));
+
+        assertEquals(1, registry.get("ame.shard.books").tag("shard", "2").gauge().value());
+        assertEquals(1, registry.get("ame.shard.commands").tag("shard", "2").functionCounter().count());
+        assertEquals(0, registry.get("ame.shard.backlog").tag("shard", "0").gauge().value());
+    }
+}
@@ -1,21 +1,39 @@
 package com.tribune.demo.ame.data;
 
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.OrderBook;
 import com.tribune.demo.ame.domain.OrderPublisher;
 import com.tribune.demo.ame.impl.SimpleOrderPublisher;
 import com.tribune.demo.ame.impl.SimpleMatchingEngine;
-import com.tribune.demo.ame.impl.SimpleOrderBook;
+import com.tribune.demo.ame.impl.TieredOrderArchive;
+import com.tribune.demo.ame.model.BookCommand;
 import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderBatchResult;
 import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.OrderType;
+import com.tribune.demo.ame.model.PriceLevel;
+import com.tribune.demo.ame.model.TimeInForce;
+import com.tribune.demo.ame.model.Trade;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.HashMap;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static com.tribune.demo.ame.data.TestOrders.order;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -35,7 +53,7 @@ class SimpleMatchingEngineTest {
     void newOrderBook() {
 
         String bookName = "BTC";
-        SimpleOrderBook result = matchingEngine.newOrderBook(bookName);
+        OrderBook result = matchingEngine.newOrderBook(bookName);
         assertNotNull(result);
         assertEquals(bookName, result.getAsset());
     }
@@ -43,10 +61,10 @@ class SimpleMatchingEngineTest {
     @Test
     void getOrderBook() {
         String bookName = "BTC";
-        SimpleOrderBook orderBook = matchingEngine.newOrderBook(bookName);
+        OrderBook orderBook = matchingEngine.newOrderBook(bookName);
         assertNotNull(orderBook);
 
-        SimpleOrderBook result = matchingEngine.getOrderBook(bookName);
+        OrderBook result = matchingEngine.getOrderBook(bookName);
         assertNotNull(result);
         assertEquals(bookName, result.getAsset());
     }
@@ -54,7 +72,7 @@ class SimpleMatchingEngineTest {
     @Test
     void deleteOrderBook() {
         String bookName = "LTC";
-        SimpleOrderBook orderBook = matchingEngine.newOrderBook(bookName);
+        OrderBook orderBook = matchingEngine.newOrderBook(bookName);
         assertNotNull(orderBook);
 
         boolean deleted = matchingEngine.deleteOrderBook(bookName);
@@ -65,6 +83,87 @@ class SimpleMatchingEngineTest {
         assertEquals("OrderBook not found: LTC", e.getMessage());
     }
 
+    @Test
+    void getOrderBook_byAssetId() {
+        OrderBook eth = matchingEngine.newOrderBook("ETH");
+        matchingEngine.newOrderBook("LTC");
+        matchingEngine.deleteOrderBook("LTC");
+        OrderBook ltc = matchingEngine.newOrderBook("LTC");
+
+        // ids are never reused
+        assertEquals(List.of("BTC:0", "ETH:1", "LTC:3"), matchingEngine.getOrderBooks().stream()
+                .map(book -> book.asset() + ":" + book.assetId())
+                .toList());
+        assertSame(eth, matchingEngine.getOrderBook(1));
+        assertSame(ltc, matchingEngine.getOrderBook(3));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> matchingEngine.getOrderBook(2));
+        assertEquals("OrderBook not found: #2", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> matchingEngine.newOrderBook(" "));
+    }
+
+    @Test
+    void newOrderBook_whenCreatedConcurrently() throws InterruptedException {
+        int threads = 8;
+        Set<OrderBook> created = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> creators = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            creators.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                created.add(matchingEngine.newOrderBook("ETH"));
+            }));
+        }
+        start.countDown();
+        for (Thread creator : creators) {
+            creator.join();
+        }
+
+        assertEquals(1, created.size());
+        assertEquals(2, matchingEngine.getOrderBooks().size());
+    }
+
+    @Test
+    void newOrderBook_whileOrdersFlowThroughAnotherBook() throws InterruptedException {
+        OrderBook btc = matchingEngine.getOrderBook("BTC");
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread admin = Thread.ofPlatform().start(() -> {
+            try {
+                for (int i = 0; i < 200; i++) {
+                    matchingEngine.newOrderBook("A" + i);
+                    matchingEngine.deleteOrderBook("A" + (i / 2));
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            } finally {
+                done.set(true);
+            }
+        });
+
+        int submitted = 0;
+        while (!done.get() || submitted < 1000) {
+            matchingEngine.getOrderBook("BTC").submit(Order.builder()
+                    .id(matchingEngine.getNextOrderId())
+                    .asset("BTC")
+                    .amount(1.0)
+                    .price(100.0)
+                    .direction(OrderDirection.BUY)
+                    .timestamp(LocalDateTime.now())
+                    .build());
+            submitted++;
+        }
+        admin.join();
+
+        assertNull(failure.get());
+        assertSame(btc, matchingEngine.getOrderBook("BTC"));
+        assertEquals(submitted, matchingEngine.findAllLiveOrdersByAsset("BTC", null).size());
+        assertEquals(101, matchingEngine.getOrderBooks().size());
+    }
+
     @Test
     void findOrderById() {
         long id = 1L;
@@ -75,8 +174,8 @@ class SimpleMatchingEngineTest {
                 .price(100.0)
                 .build();
 
-        Map<Long, Order> archive = new HashMap<>();
-        archive.put(id, orderResponse);
+        TieredOrderArchive archive = new TieredOrderArchive(new EngineProperties().getArchive());
+        archive.put(orderResponse);
 
         ReflectionTestUtils.setField(matchingEngine, "archive", archive);
 
@@ -114,7 +213,7 @@ class SimpleMatchingEngineTest {
                 .direction(OrderDirection.BUY)
                 .build();
 
-        SimpleOrderBook book = matchingEngine.getOrderBook("BTC");
+        OrderBook book = matchingEngine.getOrderBook("BTC");
         book.submit(order1);
         book.submit(order2);
 
@@ -129,4 +228,150 @@ class SimpleMatchingEngineTest {
             assertEquals(size, orders.size());
         }
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @CsvSource({
+            "SIMPLE, DIRECT",
+            "LADDER, DIRECT",
+            "LADDER, SINGLE_WRITER",
+            "LADDER, SHARDED"
+    })
+    void submitBatch_appliesEachBooksCommandsInOrder(OrderBookType type, MatchingMode mode) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        properties.getMatching().setMode(mode);
+        SimpleMatchingEngine engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        try {
+            engine.newOrderBook("ETH");
+            Order resting = engine.getOrderBook("BTC").submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 5));
+
+            // a batch read from JSON holds its own copy of the asset name
+            List<OrderBatchResult> results = engine.submitBatch(List.of(
+                    BookCommand.submit(order(engine, new String("BTC"), OrderDirection.BUY, 10.0, 2)),
+                    BookCommand.submit(order(engine, "ETH", OrderDirection.SELL, 3.0, 1)),
+                    BookCommand.cancel(resting.id()),
+                    BookCommand.submit(order(engine, "XRP", OrderDirection.BUY, 1.0, 1)),
+                    BookCommand.cancel(12345),
+                    BookCommand.cancel(resting.id()),
+                    BookCommand.submit(order(engine, "BTC", OrderDirection.BUY, 9.5, 4))));
+
+            assertEquals(7, results.size());
+            assertEquals(OrderStatus.FILLED, results.get(0).order().status());
+            assertEquals(resting.id(), results.get(0).order().trades().getFirst().orderId());
+            assertEquals(OrderStatus.OPEN, results.get(1).order().status());
+            assertEquals(OrderStatus.CANCELLED, results.get(2).order().status());
+            assertEquals("OrderBook not found: XRP", results.get(3).error());
+            assertEquals("Order not found: 12345", results.get(4).error());
+            // refused by the book, which carries on with the next command
+            assertEquals("Order is not live: " + resting.id(), results.get(5).error());
+            assertEquals(OrderStatus.OPEN, results.get(6).order().status());
+
+            assertEquals(List.of(results.get(6).order().id()),
+                    engine.findAllLiveOrdersByAsset("BTC", null).stream().map(Order::id).toList());
+            assertEquals(1, engine.findAllLiveOrdersByAsset("ETH", null).size());
+        } finally {
+            engine.close();
+        }
+    }
+
+    private static SimpleMatchingEngine newEngine(OrderBookType type) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        return new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_whenImmediateOrCancel_cancelsWhatIsLeft(OrderBookType type) {
+        SimpleMatchingEngine engine = newEngine(type);
+        try {
+            OrderBook book = engine.getOrderBook("BTC");
+            Order first = book.submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 2));
+            book.submit(order(engine, "BTC", OrderDirection.SELL, 10.5, 3));
+
+            Order response = book.submit(order(engine, OrderDirection.BUY, 10.2, 5, OrderType.LIMIT, TimeInForce.IOC));
+
+            assertEquals(OrderStatus.CANCELLED, response.status());
+            assertEquals(0, response.pendingAmount());
+            assertEquals(List.of(new Trade(first.id(), 2, 10.0)), response.trades());
+            assertTrue(book.findLiveOrders(OrderDirection.BUY).isEmpty());
+            assertEquals(10.5, book.getTopOfBook().ask().price());
+            assertEquals(OrderStatus.CANCELLED, engine.findOrderById(response.id()).status());
+
+            Order filled = book.submit(order(engine, OrderDirection.BUY, 10.5, 1, OrderType.LIMIT, TimeInForce.IOC));
+            assertEquals(OrderStatus.FILLED, filled.status());
+        } finally {
+            engine.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_whenFillOrKill_onlyMatchesWhatCanBeFilledInFull(OrderBookType type) {
+        SimpleMatchingEngine engine = newEngine(type);
+        try {
+            OrderBook book = engine.getOrderBook("BTC");
+            book.submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 2));
+            book.submit(order(engine, "BTC", OrderDirection.SELL, 10.5, 3));
+            book.submit(order(engine, "BTC", OrderDirection.SELL, 11.0, 4));
+
+            Order killed = book.submit(order(engine, OrderDirection.BUY, 10.5, 6, OrderType.LIMIT, TimeInForce.FOK));
+
+            assertEquals(OrderStatus.CANCELLED, killed.status());
+            assertTrue(killed.trades().isEmpty());
+            assertEquals(List.of(new PriceLevel(10.0, 2, 1), new PriceLevel(10.5, 3, 1), new PriceLevel(11.0, 4, 1)),
+                    book.getDepth(10).asks());
+
+            Order filled = book.submit(order(engine, OrderDirection.BUY, 10.5, 5, OrderType.LIMIT, TimeInForce.FOK));
+
+            assertEquals(OrderStatus.FILLED, filled.status());
+            assertEquals(2, filled.trades().size());
+            assertEquals(List.of(new PriceLevel(11.0, 4, 1)), book.getDepth(10).asks());
+        } finally {
+            engine.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_whenMarket_matchesAtAnyPrice(OrderBookType type) {
+        SimpleMatchingEngine engine = newEngine(type);
+        try {
+            OrderBook book = engine.getOrderBook("BTC");
+            book.submit(order(engine, "BTC", OrderDirection.SELL, 10.0, 2));
+            book.submit(order(engine, "BTC", OrderDirection.SELL, 12.0, 3));
+
+            Order bought = book.submit(order(engine, OrderDirection.BUY, 0, 4, OrderType.MARKET, null));
+
+            assertEquals(TimeInForce.IOC, bought.timeInForce());
+            assertEquals(OrderStatus.FILLED, bought.status());
+            assertEquals(List.of(10.0, 12.0), bought.trades().stream().map(Trade::price).toList());
+
+            Order killed = book.submit(order(engine, OrderDirection.BUY, 0, 2, OrderType.MARKET, TimeInForce.FOK));
+            assertEquals(OrderStatus.CANCELLED, killed.status());
+            assertTrue(killed.trades().isEmpty());
+
+            Order sold = book.submit(order(engine, OrderDirection.SELL, 0, 1, OrderType.MARKET, null));
+            assertEquals(OrderStatus.CANCELLED, sold.status());
+            assertTrue(book.findLiveOrders(OrderDirection.SELL).stream().noneMatch(o -> o.id().equals(sold.id())));
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                    book.submit(order(engine, OrderDirection.BUY, 0, 1, OrderType.MARKET, TimeInForce.GTC)));
+            assertEquals("A market order cannot rest in the book, its time in force must be IOC or FOK", e.getMessage());
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void submitBatch_whenEmptyOrTooLarge() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> matchingEngine.submitBatch(List.of()));
+        assertEquals("A batch must hold from 1 to 1000 orders: 0", e.getMessage());
+
+        List<BookCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            commands.add(BookCommand.cancel(i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> matchingEngine.submitBatch(commands));
+    }
+}
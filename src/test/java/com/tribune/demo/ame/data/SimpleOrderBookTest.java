@@ -5,12 +5,18 @@ import com.tribune.demo.ame.domain.OrderPublisher;
 import com.tribune.demo.ame.impl.SimpleOrderPublisher;
 import com.tribune.demo.ame.impl.SimpleMatchingEngine;
 import com.tribune.demo.ame.impl.SimpleOrderBook;
+import com.tribune.demo.ame.impl.TriggeringOrderBook;
+import com.tribune.demo.ame.model.BookDepth;
 import com.tribune.demo.ame.model.Order;
 import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.PriceLevel;
+import com.tribune.demo.ame.model.TopOfBook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,12 +32,12 @@ class SimpleOrderBookTest {
         engine = new SimpleMatchingEngine(eventBus);
         bootstrap = new DevBootstrap(engine);
         bootstrap.init();
-        book = (SimpleOrderBook) engine.getOrderBook("BTC");
+        book = (SimpleOrderBook) ((TriggeringOrderBook) engine.getOrderBook("BTC")).getDelegate();
     }
 
     @Test
     void testDataInitialized() {
-        SimpleOrderBook book = (SimpleOrderBook) engine.getOrderBook("BTC");
+        SimpleOrderBook book = (SimpleOrderBook) ((TriggeringOrderBook) engine.getOrderBook("BTC")).getDelegate();
         assertNotNull(book);
 
         assertEquals(3, book.getSellQueue().size());
@@ -41,7 +47,7 @@ class SimpleOrderBookTest {
     @Test
     void addSellOrder_whenSuccessful() {
         Order order = Order.builder()
-                .id(1L)
+                .id(engine.getNextOrderId())
                 .asset("BTC")
                 .price(10.0)
                 .amount(55.0)
@@ -64,7 +70,7 @@ class SimpleOrderBookTest {
         //Buy Queue should have 2 orders
         assertEquals(2, book.getBuyQueue().size());
 
-        Order last = book.getBuyQueue().peek();
+        Order last = book.getBuyQueue().peek().order();
 
         assertNotNull(last);
 
@@ -83,7 +89,7 @@ class SimpleOrderBookTest {
         book.getBuyQueue().clear();
 
         Order order = Order.builder()
-                .id(1L)
+                .id(engine.getNextOrderId())
                 .asset("BTC")
                 .price(10.0)
                 .amount(55.0)
@@ -104,7 +110,7 @@ class SimpleOrderBookTest {
 
         //clear the buy queue
         Order order = Order.builder()
-                .id(1L)
+                .id(engine.getNextOrderId())
                 .asset("BTC")
                 .price(15)
                 .amount(55.0)
@@ -123,7 +129,7 @@ class SimpleOrderBookTest {
     @Test
     void addBuyOrder_whenSuccessful() {
         Order order = Order.builder()
-                .id(1L)
+                .id(engine.getNextOrderId())
                 .asset("BTC")
                 .price(10.06)
                 .amount(55.0)
@@ -147,7 +153,7 @@ class SimpleOrderBookTest {
         assertEquals(3, book.getBuyQueue().size());
 
 
-        Order last = book.getSellQueue().peek();
+        Order last = book.getSellQueue().peek().order();
 
         assertNotNull(last);
 
@@ -166,7 +172,7 @@ class SimpleOrderBookTest {
         book.getSellQueue().clear();
 
         Order order = Order.builder()
-                .id(1L)
+                .id(engine.getNextOrderId())
                 .asset("BTC")
                 .price(10.0)
                 .amount(55.0)
@@ -188,7 +194,7 @@ class SimpleOrderBookTest {
         //clear the buy queue
 
         Order order = Order.builder()
-                .id(1L)
+                .id(engine.getNextOrderId())
                 .asset("BTC")
                 .price(5)
                 .amount(55.0)
@@ -205,6 +211,31 @@ class SimpleOrderBookTest {
     }
 
 
+    @Test
+    void getDepth_followsFillsAndCancels() {
+        BookDepth depth = engine.getDepth("BTC", 10);
+        assertEquals(List.of(new PriceLevel(10.04, 20, 1), new PriceLevel(10.05, 60, 2)), depth.asks());
+        assertEquals(List.of(new PriceLevel(10.02, 40, 1), new PriceLevel(10.00, 60, 2)), depth.bids());
+
+        book.submit(order(OrderDirection.BUY, 10.04, 5));
+        assertEquals(new PriceLevel(10.04, 15, 1), engine.getTopOfBook("BTC").ask());
+
+        book.submit(order(OrderDirection.BUY, 10.05, 25));
+        engine.cancelOrder(2L);
+        assertEquals(List.of(new PriceLevel(10.05, 10, 1)), engine.getDepth("BTC", 10).asks());
+
+        TopOfBook top = engine.getTopOfBook("BTC");
+        assertEquals(new PriceLevel(10.02, 40, 1), top.bid());
+        assertEquals(new PriceLevel(10.05, 10, 1), top.ask());
+        assertEquals(1, engine.getDepth("BTC", 1).bids().size());
+    }
+
+    @Test
+    void getDepth_whenLevelsIsNotPositive() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> engine.getDepth("BTC", 0));
+        assertEquals("Levels must be positive: 0", e.getMessage());
+    }
+
     @Test
     void submit_whenAssetIsInvalid(){
         Order order = Order.builder()
@@ -213,9 +244,85 @@ class SimpleOrderBookTest {
                 .amount(55.0)
                 .direction(OrderDirection.BUY)
                 .build();
-        SimpleOrderBook book = (SimpleOrderBook) engine.getOrderBook("BTC");
+        SimpleOrderBook book = (SimpleOrderBook) ((TriggeringOrderBook) engine.getOrderBook("BTC")).getDelegate();
 
         IllegalArgumentException e = assertThrows(IllegalArgumentException.class,()->book.submit(order)) ;
         assertEquals("This asset doesn't belong to this order book.", e.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void cancelOrder_removesItFromTheBook() {
+        Order cancelled = engine.cancelOrder(1L);
+
+        assertEquals(OrderStatus.CANCELLED, cancelled.status());
+        assertEquals(0, cancelled.pendingAmount());
+        assertEquals(List.of(0L, 2L), book.findLiveOrders(OrderDirection.SELL).stream().map(Order::id).toList());
+        assertEquals(OrderStatus.CANCELLED, engine.findOrderById(1L).status());
+
+        // a cancelled order is never matched
+        Order response = book.submit(order(OrderDirection.BUY, 10.05, 25));
+        assertEquals(0L, response.trades().get(0).orderId());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> engine.cancelOrder(1L));
+        assertEquals("Order is not live: 1", e.getMessage());
+    }
+
+    @Test
+    void amendOrder_whenReducingTheAmount_keepsTimePriority() {
+        engine.amendOrder(0L, null, 5.0);
+
+        Order response = book.submit(order(OrderDirection.BUY, 10.05, 25));
+
+        assertEquals(List.of(1L, 0L), response.trades().stream().map(t -> t.orderId()).toList());
+        assertEquals(0, response.pendingAmount());
+        assertEquals(OrderStatus.FILLED, engine.findOrderById(0L).status());
+        // resting orders carry what is left as their amount
+        assertEquals(40, book.findLiveOrders(OrderDirection.SELL).get(0).amount());
+    }
+
+    @Test
+    void amendOrder_whenChangingThePrice_losesTimePriority() {
+        // the bootstrap data is timestamped in the future, so these two are placed before now
+        Order first = order(OrderDirection.BUY, 9.99, 10, LocalDateTime.now().minusSeconds(2));
+        Order second = order(OrderDirection.BUY, 9.98, 10, LocalDateTime.now().minusSeconds(1));
+        book.submit(first);
+        book.submit(second);
+
+        engine.amendOrder(first.id(), 9.98, null);
+
+        List<Order> buys = book.findLiveOrders(OrderDirection.BUY);
+        assertEquals(List.of(second.id(), first.id()), buys.subList(3, 5).stream().map(Order::id).toList());
+        assertEquals(9.98, engine.findOrderById(first.id()).price());
+    }
+
+    @Test
+    void submit_atTheSamePrice_fillsInArrivalOrderWhateverTheTimestamps() {
+        SimpleOrderBook book = new SimpleOrderBook("BTC", new SimpleOrderPublisher());
+        LocalDateTime now = LocalDateTime.now();
+        Order first = book.submit(order(OrderDirection.BUY, 10.00, 5, now));
+        // stamped earlier by its request thread, yet arriving after the first one
+        Order second = book.submit(order(OrderDirection.BUY, 10.00, 5, now.minusSeconds(1)));
+        Order third = book.submit(order(OrderDirection.BUY, 10.00, 5, now));
+
+        assertEquals(List.of(first.id(), second.id(), third.id()),
+                book.findLiveOrders(OrderDirection.BUY).stream().map(Order::id).toList());
+        Order sell = book.submit(order(OrderDirection.SELL, 10.00, 12, now.minusSeconds(2)));
+        assertEquals(List.of(first.id(), second.id(), third.id()), sell.trades().stream().map(t -> t.orderId()).toList());
+        assertEquals(2, sell.trades().get(2).amount());
+    }
+
+    private Order order(OrderDirection direction, double price, double amount) {
+        return order(direction, price, amount, LocalDateTime.now());
+    }
+
+    private Order order(OrderDirection direction, double price, double amount, LocalDateTime timestamp) {
+        return Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(price)
+                .amount(amount)
+                .direction(direction)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,197 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.MatchingMode;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.BookWorker;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderBook;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.impl.SingleWriterOrderBook;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.Trade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import static com.tribune.demo.ame.data.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleWriterOrderBookTest {
+
+    SimpleMatchingEngine engine;
+    OrderBook book;
+
+    @BeforeEach
+    void setUp() {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(OrderBookType.LADDER);
+        properties.getMatching().setMode(MatchingMode.SINGLE_WRITER);
+        // small enough for producers to wrap around and wait on the consumer
+        properties.getMatching().setRingSize(8);
+
+        engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        book = engine.getOrderBook("BTC");
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void newOrderBook_isOwnedByAWorker() {
+        assertInstanceOf(SingleWriterOrderBook.class, book);
+        assertEquals("ame-book-BTC", ((SingleWriterOrderBook) book).getWorker().getName());
+    }
+
+    @Test
+    void submit_returnsTheMatchResult() {
+        book.submit(order(engine, OrderDirection.SELL, 10.0, 5));
+        Order response = book.submit(order(engine, OrderDirection.BUY, 10.0, 3));
+
+        assertEquals(1, response.trades().size());
+        assertEquals(0, response.pendingAmount());
+        assertEquals(2, engine.findOrderById(0).pendingAmount());
+    }
+
+    @Test
+    void cancelAndAmend_goThroughTheWorker() {
+        Order resting = book.submit(order(engine, OrderDirection.SELL, 10.0, 5));
+
+        assertEquals(3, book.amend(resting.id(), null, 3.0).pendingAmount());
+        book.cancel(resting.id());
+
+        assertTrue(book.findLiveOrders(null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> book.cancel(resting.id()));
+    }
+
+    @Test
+    void submit_rethrowsWhatTheBookThrows() {
+        Order order = Order.builder()
+                .asset("ETH")
+                .price(10.0)
+                .amount(1)
+                .direction(OrderDirection.BUY)
+                .build();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> book.submit(order));
+        assertEquals("This asset doesn't belong to this order book.", e.getMessage());
+    }
+
+    @Test
+    void submitAsync_completesWithWhatSubmitReturnsOrThrows() throws Exception {
+        book.submit(order(engine, OrderDirection.SELL, 10.0, 5));
+        Order other = Order.builder()
+                .asset("ETH")
+                .price(10.0)
+                .amount(1)
+                .direction(OrderDirection.BUY)
+                .build();
+
+        CompletableFuture<Order> buy = book.submitAsync(order(engine, OrderDirection.BUY, 10.0, 3));
+        CompletableFuture<Order> refused = book.submitAsync(other);
+
+        Order response = buy.get(5, TimeUnit.SECONDS);
+        assertEquals(1, response.trades().size());
+        assertEquals(0, response.pendingAmount());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> refused.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals("This asset doesn't belong to this order book.", e.getCause().getMessage());
+    }
+
+    @Test
+    void concurrentSubmits_neverShareACounterparty() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Double>> filled = new CopyOnWriteArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            OrderDirection direction = t % 2 == 0 ? OrderDirection.BUY : OrderDirection.SELL;
+            filled.add(executor.submit(() -> {
+                start.await();
+                double total = 0;
+                for (int i = 0; i < perThread; i++) {
+                    Order response = book.submit(order(engine, direction, 100 + (i % 3), 1));
+                    total += response.trades().stream().mapToDouble(Trade::amount).sum();
+                }
+                return total;
+            }));
+        }
+        start.countDown();
+
+        double traded = 0;
+        for (Future<Double> f : filled) {
+            traded += f.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // every unit filled by an incoming order was taken from exactly one resting order
+        double resting = book.findLiveOrders(null).stream().mapToDouble(Order::pendingAmount).sum();
+        assertEquals(threads * perThread, 2 * traded + resting);
+
+        // and the book is never left crossed
+        List<Order> buys = book.findLiveOrders(OrderDirection.BUY);
+        List<Order> sells = book.findLiveOrders(OrderDirection.SELL);
+        if (!buys.isEmpty() && !sells.isEmpty()) {
+            assertTrue(buys.get(0).price() < sells.get(0).price());
+        }
+    }
+
+    @Test
+    void close_answersEveryCommandItWasHandedMeanwhile() throws Exception {
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 20; round++) {
+                BookWorker worker = new BookWorker("ame-race-" + round, 8);
+                SingleWriterOrderBook racing = new SingleWriterOrderBook(
+                        new SimpleOrderBook("BTC", new SimpleOrderPublisher()), worker);
+                Queue<CompletableFuture<Order>> handedOver = new ConcurrentLinkedQueue<>();
+                List<Future<?>> producers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    OrderDirection direction = t % 2 == 0 ? OrderDirection.BUY : OrderDirection.SELL;
+                    producers.add(executor.submit(() -> {
+                        // until the worker refuses them
+                        while (true) {
+                            try {
+                                handedOver.add(racing.submitAsync(order(engine, direction, 10.0, 1)));
+                            } catch (IllegalStateException e) {
+                                return;
+                            }
+                        }
+                    }));
+                }
+                while (handedOver.size() < 50) {
+                    Thread.onSpinWait();
+                }
+                worker.close();
+                for (Future<?> producer : producers) {
+                    producer.get(5, TimeUnit.SECONDS);
+                }
+
+                // each one applied, none left waiting
+                CompletableFuture.allOf(handedOver.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deleteOrderBook_stopsTheWorker() {
+        assertTrue(engine.deleteOrderBook("BTC"));
+
+        Order order = order(engine, OrderDirection.BUY, 10.0, 1);
+        assertThrows(IllegalStateException.class, () -> book.submit(order));
+    }
+}
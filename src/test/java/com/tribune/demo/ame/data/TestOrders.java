@@ -0,0 +1,48 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderType;
+import com.tribune.demo.ame.model.TimeInForce;
+
+import java.time.LocalDateTime;
+
+/**
+ * The orders the tests submit, each with the next id of the engine: good till cancelled limit orders
+ * unless a type and a time in force are given.
+ */
+final class TestOrders {
+
+    private TestOrders() {
+    }
+
+    static Order order(MatchingEngine engine, OrderDirection direction, double price, double amount) {
+        return order(engine, "BTC", direction, price, amount);
+    }
+
+    static Order order(MatchingEngine engine, String asset, OrderDirection direction, double price, double amount) {
+        return Order.builder()
+                .id(engine.getNextOrderId())
+                .asset(asset)
+                .price(price)
+                .amount(amount)
+                .direction(direction)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    static Order order(MatchingEngine engine, OrderDirection direction, double price, double amount,
+                       OrderType type, TimeInForce timeInForce) {
+        return Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(price)
+                .amount(amount)
+                .direction(direction)
+                .type(type)
+                .timeInForce(timeInForce)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,153 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.ArchiveType;
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.domain.ArchiveTier;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.impl.TieredOrderArchive;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.Trade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredOrderArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    TieredOrderArchive archive;
+
+    @AfterEach
+    void tearDown() {
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    private EngineProperties properties(int maxTerminalOrders, Duration maxTerminalAge) {
+        return properties(ArchiveType.HASHED, maxTerminalOrders, maxTerminalAge);
+    }
+
+    private EngineProperties properties(ArchiveType type, int maxTerminalOrders, Duration maxTerminalAge) {
+        EngineProperties properties = new EngineProperties();
+        properties.getArchive().setType(type);
+        properties.getArchive().setMaxTerminalOrders(maxTerminalOrders);
+        properties.getArchive().setMaxTerminalAge(maxTerminalAge);
+        properties.getArchive().setDirectory(directory.toString());
+        return properties;
+    }
+
+    private static Order order(long id, double pendingAmount) {
+        return Order.builder()
+                .id(id)
+                .asset("BTC")
+                .price(10.05)
+                .amount(5)
+                .direction(OrderDirection.SELL)
+                .timestamp(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123456789))
+                .trades(List.of(new Trade(100L + id, 5 - pendingAmount, 10.05)))
+                .build()
+                .withPendingAmount(pendingAmount);
+    }
+
+    private long fileCount() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ArchiveType.class)
+    void put_evictsTheOldestTerminalOrdersPastTheCount(ArchiveType type) {
+        archive = new TieredOrderArchive(properties(type, 2, Duration.ofHours(1)).getArchive());
+
+        archive.put(order(0, 5));
+        for (long id = 1; id <= 3; id++) {
+            archive.put(order(id, 0));
+        }
+        assertEquals(3, archive.size(ArchiveTier.HOT));
+        assertEquals(1, archive.size(ArchiveTier.COLD));
+
+        // the evicted order reads back the same, trades included
+        assertEquals(order(1, 0), archive.get(1));
+        assertEquals(order(3, 0), archive.get(3));
+        assertEquals(order(0, 5), archive.get(0));
+        assertNull(archive.get(4));
+
+        assertEquals(2, archive.hits(ArchiveTier.HOT));
+        assertEquals(1, archive.hits(ArchiveTier.COLD));
+        assertEquals(1, archive.misses());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ArchiveType.class)
+    void update_evictsOrdersOnceTheyAreTerminal(ArchiveType type) {
+        archive = new TieredOrderArchive(properties(type, 100, Duration.ZERO).getArchive());
+
+        archive.put(order(0, 5));
+        archive.put(order(1, 5));
+        assertEquals(0, archive.size(ArchiveTier.COLD));
+
+        archive.update(1, o -> o.withStatus(OrderStatus.CANCELLED).withPendingAmount(0));
+        assertEquals(1, archive.size(ArchiveTier.HOT));
+        assertEquals(OrderStatus.CANCELLED, archive.get(1).status());
+        assertEquals(1, archive.hits(ArchiveTier.COLD));
+
+        // evicted orders are no longer updated
+        archive.update(1, o -> o.withPendingAmount(5));
+        assertEquals(0, archive.get(1).pendingAmount());
+    }
+
+    @Test
+    void close_deletesTheColdTier() throws IOException {
+        archive = new TieredOrderArchive(properties(0, Duration.ofHours(1)).getArchive());
+        assertEquals(0, fileCount());
+
+        archive.put(order(0, 0));
+        assertEquals(2, fileCount());
+
+        archive.close();
+        assertEquals(0, fileCount());
+    }
+
+    @Test
+    void engine_findsFilledOrdersInTheColdTier() {
+        SimpleMatchingEngine engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties(0, Duration.ofHours(1)));
+        new DevBootstrap(engine).init();
+        OrderBook book = engine.getOrderBook("BTC");
+
+        Order buy = book.submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.04)
+                .amount(20)
+                .direction(OrderDirection.BUY)
+                .timestamp(LocalDateTime.now())
+                .build());
+
+        // both sides of the trade are filled, and moved off the heap
+        assertEquals(OrderStatus.FILLED, engine.findOrderById(buy.id()).status());
+        Order counterpart = engine.findOrderById(1L);
+        assertEquals(OrderStatus.FILLED, counterpart.status());
+        assertEquals(List.of(new Trade(buy.id(), 20, 10.04)), counterpart.trades());
+        assertEquals(5, engine.findAllLiveOrdersByAsset("BTC", null).size());
+
+        engine.close();
+    }
+}
@@ -0,0 +1,169 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.domain.MatchingEngine;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.impl.TradeLedger;
+import com.tribune.demo.ame.model.Order;
+import com.tribune.demo.ame.model.OrderDirection;
+import com.tribune.demo.ame.model.OrderStatus;
+import com.tribune.demo.ame.model.Trade;
+import com.tribune.demo.ame.model.TradePage;
+import com.tribune.demo.ame.model.TradeRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeLedgerTest {
+
+    static final LocalDateTime NOON = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    TradeLedger ledger;
+
+    @AfterEach
+    void tearDown() {
+        if (ledger != null) {
+            ledger.close();
+        }
+    }
+
+    private TradeLedger ledger(int chunkSize, boolean spill) {
+        EngineProperties.LedgerSettings settings = new EngineProperties().getLedger();
+        settings.setChunkSize(chunkSize);
+        settings.setSpill(spill);
+        settings.setDirectory(directory.toString());
+        ledger = new TradeLedger(settings);
+        return ledger;
+    }
+
+    // a buy of the given asset, filling one resting order per minute from noon
+    private static Order taker(long id, String asset, int minute, long... makers) {
+        List<Trade> trades = new ArrayList<>();
+        for (long maker : makers) {
+            trades.add(new Trade(maker, 1, 10 + maker));
+        }
+        return Order.builder()
+                .id(id)
+                .asset(asset)
+                .price(20)
+                .amount(makers.length)
+                .direction(OrderDirection.BUY)
+                .timestamp(NOON.plusMinutes(minute))
+                .trades(trades)
+                .build();
+    }
+
+    private static List<Long> ids(TradePage page) {
+        return page.trades().stream().map(TradeRecord::tradeId).toList();
+    }
+
+    @Test
+    void append_givesEveryTradeTheNextId() {
+        ledger(4, false);
+        ledger.append(taker(10, "BTC", 0, 1, 2));
+        ledger.append(taker(11, "BTC", 1));
+        ledger.append(taker(12, "ETH", 2, 3));
+
+        TradePage page = ledger.find(null, null, null, null, 10);
+        assertEquals(3, ledger.size());
+        assertNull(page.nextCursor());
+        assertEquals(List.of(
+                new TradeRecord(0, "BTC", 10, 1, OrderDirection.BUY, 11, 1, NOON),
+                new TradeRecord(1, "BTC", 10, 2, OrderDirection.BUY, 12, 1, NOON),
+                new TradeRecord(2, "ETH", 12, 3, OrderDirection.BUY, 13, 1, NOON.plusMinutes(2))), page.trades());
+    }
+
+    @Test
+    void find_pagesThroughTheTradesOfAnAssetInARange() {
+        ledger(4, false);
+        for (int minute = 0; minute < 20; minute++) {
+            ledger.append(taker(100 + minute, minute % 2 == 0 ? "BTC" : "ETH", minute, minute));
+        }
+
+        // BTC trades from 12:03 to before 12:15 are at minutes 4, 6, ..., 14
+        LocalDateTime from = NOON.plusMinutes(3);
+        LocalDateTime to = NOON.plusMinutes(15);
+        TradePage first = ledger.find("BTC", from, to, null, 4);
+        assertEquals(List.of(4L, 6L, 8L, 10L), ids(first));
+        assertEquals(12L, first.nextCursor());
+
+        TradePage second = ledger.find("BTC", from, to, first.nextCursor(), 4);
+        assertEquals(List.of(12L, 14L), ids(second));
+        assertNull(second.nextCursor());
+
+        assertEquals(List.of(), ledger.find("XRP", null, null, null, 4).trades());
+    }
+
+    @Test
+    void append_spillsFullChunksToAMappedFile() throws IOException {
+        ledger(4, true);
+        for (int i = 0; i < 10; i++) {
+            ledger.append(taker(100 + i, "BTC", i, i));
+        }
+
+        assertEquals(2, ledger.spilledChunks());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        TradePage page = ledger.find("BTC", NOON.plusMinutes(3), null, null, 10);
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 8L, 9L), ids(page));
+        assertEquals(new TradeRecord(5, "BTC", 105, 5, OrderDirection.BUY, 15, 1, NOON.plusMinutes(5)),
+                page.trades().get(2));
+
+        ledger.close();
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void find_rejectsInvalidQueries() {
+        ledger(4, false);
+        assertThrows(IllegalArgumentException.class, () -> ledger.find(null, null, null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> ledger.find(null, null, null, null, 1001));
+        assertThrows(IllegalArgumentException.class, () -> ledger.find(null, NOON, NOON, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> ledger.find(null, null, null, -1L, 10));
+    }
+
+    @Test
+    void engine_recordsTheTradesOfSubmittedAndAmendedOrders() {
+        EngineProperties properties = new EngineProperties();
+        properties.getLedger().setEnabled(true);
+        properties.getArchive().setDirectory(directory.toString());
+        MatchingEngine engine = new SimpleMatchingEngine(new SimpleOrderPublisher(), properties);
+        new DevBootstrap(engine).init();
+
+        engine.getOrderBook("BTC").submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(10.05)
+                .amount(30)
+                .direction(OrderDirection.BUY)
+                .timestamp(NOON)
+                .build());
+        // the resting bid at 10.02 crosses the asks left once amended
+        engine.amendOrder(4L, 10.05, null);
+
+        List<TradeRecord> trades = engine.findTrades("BTC", null, null, null, 10).trades();
+        assertEquals(List.of(1L, 0L, 0L, 2L), trades.stream().map(TradeRecord::makerOrderId).toList());
+        assertEquals(List.of(0L, 1L, 2L, 3L), trades.stream().map(TradeRecord::tradeId).toList());
+        assertEquals(List.of(6L, 6L, 4L, 4L), trades.stream().map(TradeRecord::takerOrderId).toList());
+        assertEquals(30, trades.get(3).amount());
+        assertEquals(OrderStatus.FILLED, engine.findOrderById(4L).status());
+
+        ((SimpleMatchingEngine) engine).close();
+    }
+}
@@ -0,0 +1,261 @@
+package com.tribune.demo.ame.data;
+
+import com.tribune.demo.ame.config.EngineProperties;
+import com.tribune.demo.ame.config.OrderBookType;
+import com.tribune.demo.ame.domain.OrderBook;
+import com.tribune.demo.ame.domain.OrderEventType;
+import com.tribune.demo.ame.impl.SimpleMatchingEngine;
+import com.tribune.demo.ame.impl.SimpleOrderPublisher;
+import com.tribune.demo.ame.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriggeringOrderBookTest {
+
+    SimpleMatchingEngine engine;
+
+    OrderBook book;
+
+    // the ids of the stops triggered, in order
+    List<Long> triggered = new ArrayList<>();
+
+    // run as each stop is triggered
+    Runnable onTrigger = () -> {
+    };
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    private void start(OrderBookType type) {
+        EngineProperties properties = new EngineProperties();
+        properties.getOrderBook().setType(type);
+        SimpleOrderPublisher publisher = new SimpleOrderPublisher();
+        publisher.subscribe(OrderEventType.TRIGGER_STOP, event -> {
+            triggered.add(((Order) event.getSource()).id());
+            onTrigger.run();
+        });
+        engine = new SimpleMatchingEngine(publisher, properties);
+        book = engine.getOrderBook("BTC");
+    }
+
+    private Order limit(OrderDirection direction, double price, double amount) {
+        return book.submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(price)
+                .amount(amount)
+                .direction(direction)
+                .timestamp(LocalDateTime.now())
+                .build());
+    }
+
+    private Order stop(OrderDirection direction, OrderType type, double stopPrice, double price, double amount) {
+        return book.submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .price(price)
+                .amount(amount)
+                .direction(direction)
+                .type(type)
+                .stopPrice(stopPrice)
+                .timestamp(LocalDateTime.now())
+                .build());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_holdsAStopUntilATradeReachesItsStopPrice(OrderBookType type) {
+        start(type);
+        Order stop = stop(OrderDirection.BUY, OrderType.STOP, 10.5, 0, 2);
+        assertEquals(OrderStatus.UNTRIGGERED, stop.status());
+        assertEquals(OrderStatus.UNTRIGGERED, engine.findOrderById(stop.id()).status());
+        assertEquals(List.of(stop), book.findLiveOrders(OrderDirection.BUY));
+        assertNull(book.getTopOfBook().bid());
+
+        limit(OrderDirection.SELL, 10.0, 1);
+        limit(OrderDirection.SELL, 10.5, 1);
+        Order ask = limit(OrderDirection.SELL, 11.0, 3);
+        limit(OrderDirection.BUY, 10.0, 1);
+        assertEquals(OrderStatus.UNTRIGGERED, engine.findOrderById(stop.id()).status());
+
+        limit(OrderDirection.BUY, 10.5, 1);
+        Order filled = engine.findOrderById(stop.id());
+        assertEquals(OrderStatus.FILLED, filled.status());
+        assertEquals(OrderType.MARKET, filled.type());
+        assertEquals(10.5, filled.stopPrice());
+        assertEquals(List.of(new Trade(ask.id(), 2, 11.0)), filled.trades());
+        assertEquals(List.of(stop.id()), triggered);
+        assertTrue(book.findLiveOrders(OrderDirection.BUY).isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_whenStopLimit_restsAtItsPriceOnceTriggered(OrderBookType type) {
+        start(type);
+        Order stop = stop(OrderDirection.SELL, OrderType.STOP_LIMIT, 9.5, 9.0, 3);
+        limit(OrderDirection.BUY, 9.5, 1);
+
+        limit(OrderDirection.SELL, 9.5, 1);
+
+        List<Order> asks = book.findLiveOrders(OrderDirection.SELL);
+        assertEquals(1, asks.size());
+        assertEquals(stop.id(), asks.getFirst().id());
+        assertEquals(OrderStatus.OPEN, asks.getFirst().status());
+        assertEquals(OrderType.LIMIT, asks.getFirst().type());
+        assertEquals(3, asks.getFirst().pendingAmount());
+        assertEquals(9.0, book.getTopOfBook().ask().price());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void amend_onceTriggered_keepsTheTypeAndStopPrice(OrderBookType type) {
+        start(type);
+        Order stop = stop(OrderDirection.SELL, OrderType.STOP_LIMIT, 9.5, 9.0, 3);
+        limit(OrderDirection.BUY, 9.5, 1);
+        limit(OrderDirection.SELL, 9.5, 1);
+
+        // reduced in place, then moved to another price
+        engine.amendOrder(stop.id(), null, 2.0);
+        Order moved = engine.amendOrder(stop.id(), 9.25, null);
+        assertEquals(9.5, moved.stopPrice());
+
+        // as GET /orders/{id} returns it
+        Order archived = engine.findOrderById(stop.id());
+        assertEquals(OrderType.LIMIT, archived.type());
+        assertEquals(TimeInForce.GTC, archived.timeInForce());
+        assertEquals(9.5, archived.stopPrice());
+        assertEquals(9.25, archived.price());
+        assertEquals(2, archived.pendingAmount());
+        assertEquals(9.5, book.findLiveOrders(OrderDirection.SELL).getFirst().stopPrice());
+
+        engine.cancelOrder(stop.id());
+        assertEquals(9.5, engine.findOrderById(stop.id()).stopPrice());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_cascadesThroughTheStopsItTriggers(OrderBookType type) {
+        start(type);
+        limit(OrderDirection.BUY, 10.0, 1);
+        limit(OrderDirection.BUY, 9.0, 1);
+        Order bid8 = limit(OrderDirection.BUY, 8.0, 1);
+        Order bid7 = limit(OrderDirection.BUY, 7.0, 5);
+        Order first = stop(OrderDirection.SELL, OrderType.STOP, 9.5, 0, 1);
+        Order second = stop(OrderDirection.SELL, OrderType.STOP, 8.5, 0, 1);
+        Order untouched = stop(OrderDirection.SELL, OrderType.STOP, 6.0, 0, 1);
+
+        // trades at 10.0 then 9.0 reach the first stop, whose trade at 8.0 reaches the second
+        limit(OrderDirection.SELL, 9.0, 2);
+
+        assertEquals(List.of(first.id(), second.id()), triggered);
+        assertEquals(List.of(new Trade(bid8.id(), 1, 8.0)), engine.findOrderById(first.id()).trades());
+        assertEquals(List.of(new Trade(bid7.id(), 1, 7.0)), engine.findOrderById(second.id()).trades());
+        assertEquals(OrderStatus.UNTRIGGERED, engine.findOrderById(untouched.id()).status());
+        assertEquals(4, engine.findOrderById(bid7.id()).pendingAmount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_holdsTheBookUntilTheCascadeEnds(OrderBookType type) throws InterruptedException {
+        start(type);
+        limit(OrderDirection.BUY, 10.0, 1);
+        Order bid = limit(OrderDirection.BUY, 9.0, 1);
+        stop(OrderDirection.SELL, OrderType.STOP, 10.0, 0, 1);
+        List<Thread.State> states = new ArrayList<>();
+        List<Order> seen = new ArrayList<>();
+        Thread reader = new Thread(() -> seen.addAll(book.findLiveOrders(OrderDirection.BUY)));
+        onTrigger = () -> {
+            reader.start();
+            // waiting for the lock, or done if the cascade does not hold it
+            while (reader.getState() != Thread.State.BLOCKED && reader.getState() != Thread.State.WAITING
+                    && reader.getState() != Thread.State.TERMINATED) {
+                Thread.onSpinWait();
+            }
+            states.add(reader.getState());
+        };
+
+        limit(OrderDirection.SELL, 10.0, 1);
+        reader.join();
+
+        assertNotEquals(Thread.State.TERMINATED, states.getFirst());
+        // the book as the whole cascade left it, the stop having filled the second bid
+        assertFalse(seen.stream().anyMatch(o -> o.id() == bid.id()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBookType.class)
+    void submit_triggersThousandsOfStopsInOneSweep(OrderBookType type) {
+        start(type);
+        limit(OrderDirection.BUY, 9.99, 1);
+        Order bid = limit(OrderDirection.BUY, 9.0, 5_000);
+        List<Long> stops = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            stops.add(stop(OrderDirection.SELL, OrderType.STOP, (950 + i % 50) / 100.0, 0, 1).id());
+        }
+
+        limit(OrderDirection.SELL, 9.99, 1);
+
+        // the highest stop price first, then in the order they arrived
+        assertEquals(5_000, triggered.size());
+        assertEquals(stops.get(49), triggered.get(0));
+        assertEquals(stops.get(99), triggered.get(1));
+        assertEquals(stops.get(4_950), triggered.getLast());
+        for (long id : stops) {
+            assertEquals(OrderStatus.FILLED, engine.findOrderById(id).status());
+        }
+        assertEquals(OrderStatus.FILLED, engine.findOrderById(bid.id()).status());
+        assertTrue(book.findLiveOrders(null).isEmpty());
+    }
+
+    @Test
+    void cancel_takesOutAStopBeforeItIsTriggered() {
+        start(OrderBookType.LADDER);
+        Order stop = stop(OrderDirection.BUY, OrderType.STOP_LIMIT, 10.5, 11.0, 2);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> engine.amendOrder(stop.id(), 12.0, null));
+        assertEquals("A stop order cannot be amended before it is triggered: " + stop.id(), e.getMessage());
+
+        Order cancelled = engine.cancelOrder(stop.id());
+        assertEquals(OrderStatus.CANCELLED, cancelled.status());
+        assertEquals(OrderStatus.CANCELLED, engine.findOrderById(stop.id()).status());
+        assertTrue(book.findLiveOrders(null).isEmpty());
+
+        limit(OrderDirection.SELL, 10.5, 1);
+        limit(OrderDirection.BUY, 10.5, 1);
+        assertTrue(triggered.isEmpty());
+    }
+
+    @Test
+    void submit_whenTheStopCannotBeTriggered() {
+        start(OrderBookType.SIMPLE);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> book.submit(Order.builder()
+                .id(engine.getNextOrderId())
+                .asset("BTC")
+                .amount(1)
+                .direction(OrderDirection.SELL)
+                .type(OrderType.STOP)
+                .timeInForce(TimeInForce.GTC)
+                .stopPrice(9.0)
+                .build()));
+        assertEquals("A stop order becomes a market order once triggered, its time in force must be IOC or FOK", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> stop(OrderDirection.SELL, OrderType.STOP, 0, 0, 1));
+        assertEquals("Stop price must be positive: 0.0", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> stop(OrderDirection.SELL, OrderType.LIMIT, 9.0, 9.0, 1));
+        assertEquals("Only a stop order has a stop price", e.getMessage());
+        assertTrue(book.findLiveOrders(null).isEmpty());
+    }
+}